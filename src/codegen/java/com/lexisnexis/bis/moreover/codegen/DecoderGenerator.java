@@ -0,0 +1,916 @@
+package com.lexisnexis.bis.moreover.codegen;
+
+import java.beans.Introspector;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import org.codehaus.jackson.annotate.JsonIgnore;
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.codehaus.jackson.annotate.JsonProperty;
+import org.codehaus.jackson.map.JsonDeserializer;
+import org.codehaus.jackson.map.annotate.JsonDeserialize;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleProjection;
+import com.lexisnexis.bis.moreover.intern.ArticleStringPools;
+import com.lexisnexis.bis.moreover.json.MetabaseDateDeserializer;
+import com.lexisnexis.bis.moreover.json.PooledStringDeserializer;
+import com.lexisnexis.bis.moreover.json.metabase.entities.JSONResponse;
+import com.lexisnexis.bis.moreover.recycle.Recyclable;
+import com.lexisnexis.bis.moreover.xml.MetabaseDateAdapter;
+import com.lexisnexis.bis.moreover.xml.PooledStringAdapter;
+import com.lexisnexis.bis.moreover.xml.metabase.entities.XMLResponse;
+
+/**
+ * Generates the reflection-free decoders of the Metabase entities, {@link
+ * com.lexisnexis.bis.moreover.json.GeneratedJSONDecoder} and {@link
+ * com.lexisnexis.bis.moreover.xml.GeneratedXMLDecoder}, from the compiled entity classes.
+ * <p/>
+ * The properties of each entity are read the way Jackson and JAXB read them: the setters not
+ * ignored with their <i>@JsonDeserialize</i> deserializers for JSON, the getter and setter pairs
+ * not transient with their <i>@XmlElement</i> names and <i>@XmlJavaTypeAdapter</i> adapters for
+ * XML. Each entity gets a method decoding one object with a switch on the field or element names
+ * calling the setters directly, the article fields out of the projection being skipped. The pooled
+ * strings and Metabase dates of the annotations are kept, anything else the generator does not
+ * know how to bind fails the generation.
+ * <p/>
+ * The decoders are generated into the source tree and committed, run the generator again after
+ * changing an entity, <i>check</i> fails when the committed decoders are out of date:
+ *
+ * <pre>
+ * mvn -P codegen compile exec:exec
+ * mvn -P codegen compile exec:exec -Dcodegen.args=check
+ * </pre>
+ */
+public class DecoderGenerator {
+
+    private static final String JSON_DECODER = "com.lexisnexis.bis.moreover.json.GeneratedJSONDecoder";
+
+    private static final String XML_DECODER = "com.lexisnexis.bis.moreover.xml.GeneratedXMLDecoder";
+
+    /**
+     * The entity whose fields are subject to the projection.
+     */
+    private static final String ARTICLE = "Article";
+
+    private final Path sourceDirectory;
+
+    public DecoderGenerator(Path sourceDirectory) {
+        this.sourceDirectory = sourceDirectory;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: DecoderGenerator <source directory> [check]");
+            System.exit(1);
+        }
+        boolean check = Arrays.asList(args).contains("check");
+        DecoderGenerator generator = new DecoderGenerator(Paths.get(args[0]));
+
+        boolean upToDate = generator.write(JSON_DECODER, generator.generateJSON(), check)
+                & generator.write(XML_DECODER, generator.generateXML(), check);
+        if (check && !upToDate) {
+            System.err.println("The generated decoders are out of date, run mvn -P codegen compile exec:exec");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Writes a generated class into the source directory, or only compares it with the written one.
+     *
+     * @return true if the written class was already up to date
+     */
+    private boolean write(String className, String source, boolean check) throws IOException {
+        Path file = sourceDirectory.resolve(className.replace('.', '/') + ".java");
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        boolean upToDate = Files.exists(file) && Arrays.equals(Files.readAllBytes(file), bytes);
+        if (upToDate) {
+            System.out.println(file + " is up to date");
+        } else if (check) {
+            System.out.println(file + " is out of date");
+        } else {
+            Files.createDirectories(file.getParent());
+            Files.write(file, bytes);
+            System.out.println("Generated " + file);
+        }
+        return upToDate;
+    }
+
+    // ------------------------------------------------------------------ JSON
+
+    String generateJSON() {
+        Map<Class<?>, List<Property>> entities = new LinkedHashMap<>();
+        collectJSON(JSONResponse.class, entities);
+
+        Source source = new Source(JSON_DECODER);
+        source.imports("java.io.IOException", "java.util.ArrayList", "java.util.List",
+                "org.codehaus.jackson.JsonParser", "org.codehaus.jackson.JsonToken",
+                ArticleProjection.class.getName());
+        for (Class<?> entity : entities.keySet()) {
+            source.imports(entity.getName());
+        }
+
+        source.line("/**");
+        source.line(" * Decodes the JSON Metabase entities straight from the tokens of a parser, without reflection.");
+        source.line(" * <p/>");
+        source.line(" * Generated by <i>DecoderGenerator</i> from the setters and annotations of the entities, do not");
+        source.line(" * edit: run <i>mvn -P codegen compile exec:exec</i> after changing an entity. Each object is");
+        source.line(" * decoded by a switch on its field names calling the setters directly, binding the same values as");
+        source.line(" * the ObjectMapper, see {@link JSONScalars}. Unknown fields and the article fields out of the");
+        source.line(" * projection are skipped.");
+        source.line(" */");
+        source.open("public final class GeneratedJSONDecoder {");
+        source.blank();
+        source.line("private GeneratedJSONDecoder() {");
+        source.line("}");
+        source.blank();
+        source.line("/**");
+        source.line(" * @param parser the parser, before or on the start of the response object");
+        source.line(" * @param projection the article fields to decode");
+        source.line(" * @return the response");
+        source.line(" * @throws IOException if the response cannot be read or is not a Metabase response");
+        source.line(" */");
+        source.open("public static " + simpleName(JSONResponse.class) + " decodeResponse(JsonParser parser, ArticleProjection projection) throws IOException {");
+        source.open("if (parser.getCurrentToken() == null) {");
+        source.line("parser.nextToken();");
+        source.close("}");
+        source.line("return decode" + simpleName(JSONResponse.class) + "(parser, projection);");
+        source.close("}");
+
+        for (Map.Entry<Class<?>, List<Property>> entity : entities.entrySet()) {
+            source.blank();
+            writeJSONEntity(source, entity.getKey(), entity.getValue());
+        }
+        source.blank();
+        source.close("}");
+        return source.toString();
+    }
+
+    private void collectJSON(Class<?> entity, Map<Class<?>, List<Property>> entities) {
+        if (entities.containsKey(entity)) {
+            return;
+        }
+        List<Property> properties = new ArrayList<>();
+        entities.put(entity, properties);
+        for (Method setter : entity.getMethods()) {
+            if (!isSetter(setter) || setter.isAnnotationPresent(JsonIgnore.class)) {
+                continue;
+            }
+            JsonProperty jsonProperty = setter.getAnnotation(JsonProperty.class);
+            String name = propertyName(setter);
+            String fieldName = jsonProperty != null && !jsonProperty.value().isEmpty() ? jsonProperty.value() : name;
+            JsonDeserialize deserialize = setter.getAnnotation(JsonDeserialize.class);
+            Class<?> using = deserialize != null && deserialize.using() != JsonDeserializer.None.class ?
+                    deserialize.using() : null;
+            Class<?> contentUsing = deserialize != null && deserialize.contentUsing() != JsonDeserializer.None.class ?
+                    deserialize.contentUsing() : null;
+
+            Property property = new Property(name, fieldName, setter);
+            Type type = setter.getGenericParameterTypes()[0];
+            if (List.class.equals(setter.getParameterTypes()[0])) {
+                property.list = true;
+                property.value = jsonValue(entity, name, elementType(type), contentUsing, entities);
+            } else {
+                property.value = jsonValue(entity, name, setter.getParameterTypes()[0], using, entities);
+            }
+            properties.add(property);
+        }
+        sort(entity, properties);
+    }
+
+    private Value jsonValue(Class<?> entity, String name, Class<?> type, Class<?> deserializer,
+            Map<Class<?>, List<Property>> entities) {
+        if (deserializer != null) {
+            if (PooledStringDeserializer.class.isAssignableFrom(deserializer)) {
+                return Value.pooled(poolName(deserializer));
+            }
+            if (MetabaseDateDeserializer.class.equals(deserializer)) {
+                return Value.of(Kind.DATE);
+            }
+            throw unsupported(entity, name, "deserializer " + deserializer.getName());
+        }
+        Value value = scalarValue(type);
+        if (value != null) {
+            return value;
+        }
+        if (isEntity(type)) {
+            collectJSON(type, entities);
+            return Value.entity(type);
+        }
+        throw unsupported(entity, name, "type " + type.getName());
+    }
+
+    private void writeJSONEntity(Source source, Class<?> entity, List<Property> properties) {
+        String type = simpleName(entity);
+        String signature = "public static " + type + " decode" + type + "(JsonParser parser, ArticleProjection projection";
+        if (isRecyclable(entity)) {
+            source.open(signature + ") throws IOException {");
+            source.line("return decode" + type + "(parser, projection, new " + type + "());");
+            source.close("}");
+            source.blank();
+            writeRecyclingDoc(source, type, properties);
+            source.open(signature + ", " + type + " value) throws IOException {");
+            source.line("JSONScalars.expect(parser, JsonToken.START_OBJECT, " + type + ".class);");
+            writeRecycledProperties(source, properties);
+        } else {
+            source.open(signature + ") throws IOException {");
+            source.line("JSONScalars.expect(parser, JsonToken.START_OBJECT, " + type + ".class);");
+            source.line(type + " value = new " + type + "();");
+        }
+        source.open("while (parser.nextToken() == JsonToken.FIELD_NAME) {");
+        source.line("String field = parser.getCurrentName();");
+        source.line("parser.nextToken();");
+        source.open("switch (field) {");
+        for (Property property : properties) {
+            source.open("case \"" + property.fieldName + "\":");
+            boolean projected = isProjected(entity, property);
+            if (projected) {
+                source.open("if (projection.includes(\"" + property.name + "\")) {");
+            }
+            if (isRecyclable(entity)) {
+                writeRecycledJSONProperty(source, entity, property);
+            } else {
+                writeJSONProperty(source, entity, property);
+            }
+            if (projected) {
+                source.reopen("} else {");
+                source.line("parser.skipChildren();");
+                source.close("}");
+            }
+            source.line("break;");
+            source.close(null);
+        }
+
+        /**
+         * Like the ObjectMapper, unknown fields fail the decoding unless the entity ignores them.
+         */
+        JsonIgnoreProperties ignoreProperties = entity.getAnnotation(JsonIgnoreProperties.class);
+        if (ignoreProperties != null) {
+            for (String ignored : ignoreProperties.value()) {
+                source.line("case \"" + ignored + "\":");
+            }
+        }
+        source.open("default:");
+        if (ignoreProperties == null || !ignoreProperties.ignoreUnknown()) {
+            source.line("JSONScalars.unknownField(parser, " + type + ".class, field);");
+        } else {
+            source.line("parser.skipChildren();");
+        }
+        source.line("break;");
+        source.close(null);
+        source.close("}");
+        source.close("}");
+        source.line("return value;");
+        source.close("}");
+    }
+
+    private void writeJSONProperty(Source source, Class<?> entity, Property property) {
+        if (!property.list) {
+            if (property.value.kind == Kind.DATE && millisSetter(entity, property) != null) {
+                source.line("value." + millisSetter(entity, property) + "(JSONScalars.readMillis(parser));");
+            } else {
+                source.line("value." + property.setter.getName() + "(" + jsonRead(source, property.value) + ");");
+            }
+            return;
+        }
+        String list = property.name;
+        source.open("if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {");
+        source.line("value." + property.setter.getName() + "(null);");
+        source.reopen("} else {");
+        source.line("JSONScalars.expect(parser, JsonToken.START_ARRAY, List.class);");
+        source.line("List<" + property.value.javaType() + "> " + list + " = new ArrayList<>();");
+        source.open("while (parser.nextToken() != JsonToken.END_ARRAY) {");
+        source.line(list + ".add(" + jsonRead(source, property.value) + ");");
+        source.close("}");
+        source.line("value." + property.setter.getName() + "(" + list + ");");
+        source.close("}");
+    }
+
+    /**
+     * Decodes a property of a recycled entity, into the list or entity it held before it was recycled.
+     */
+    private void writeRecycledJSONProperty(Source source, Class<?> entity, Property property) {
+        if (!property.list && !isReused(property)) {
+            writeJSONProperty(source, entity, property);
+            return;
+        }
+        if (!property.list) {
+            source.line("value." + property.setter.getName() + "(parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : "
+                    + recycledDecode("parser", property) + ");");
+            return;
+        }
+        String list = property.name;
+        source.open("if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {");
+        source.line("value." + property.setter.getName() + "(null);");
+        source.reopen("} else {");
+        source.line("JSONScalars.expect(parser, JsonToken.START_ARRAY, List.class);");
+        source.line("List<" + property.value.javaType() + "> " + list + " = " + recycled(property) + " != null ? "
+                + recycled(property) + " : new ArrayList<>();");
+        if (isRecyclableEntity(property.value)) {
+            source.line("int " + list + "Size = 0;");
+            source.open("while (parser.nextToken() != JsonToken.END_ARRAY) {");
+            writeRecycledElement(source, property, "parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : "
+                    + recycledElementDecode("parser", property));
+            source.close("}");
+            writeTruncate(source, property);
+        } else {
+            source.line(list + ".clear();");
+            source.open("while (parser.nextToken() != JsonToken.END_ARRAY) {");
+            source.line(list + ".add(" + jsonRead(source, property.value) + ");");
+            source.close("}");
+        }
+        source.line("value." + property.setter.getName() + "(" + list + ");");
+        source.close("}");
+    }
+
+    private String jsonRead(Source source, Value value) {
+        switch (value.kind) {
+            case STRING:
+                return "JSONScalars.readString(parser)";
+            case POOLED:
+                source.imports(ArticleStringPools.class.getName());
+                return "JSONScalars.readPooled(parser, ArticleStringPools." + value.pool + ")";
+            case LONG:
+                return "JSONScalars.readLong(parser)";
+            case BOOLEAN:
+                return "JSONScalars.readBoolean(parser)";
+            case DATE:
+                return "JSONScalars.readDate(parser)";
+            default:
+                return "parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : decode" + simpleName(value.entity)
+                        + "(parser, projection)";
+        }
+    }
+
+    // ------------------------------------------------------------------ XML
+
+    String generateXML() {
+        Map<Class<?>, List<Property>> entities = new LinkedHashMap<>();
+        collectXML(XMLResponse.class, entities);
+        String root = XMLResponse.class.getAnnotation(XmlRootElement.class).name();
+
+        Source source = new Source(XML_DECODER);
+        source.imports("javax.xml.stream.XMLStreamConstants", "javax.xml.stream.XMLStreamException",
+                "javax.xml.stream.XMLStreamReader", ArticleProjection.class.getName());
+        for (Class<?> entity : entities.keySet()) {
+            source.imports(entity.getName());
+        }
+
+        source.line("/**");
+        source.line(" * Decodes the XML Metabase entities straight from the events of a StAX reader, without reflection.");
+        source.line(" * <p/>");
+        source.line(" * Generated by <i>DecoderGenerator</i> from the JAXB annotations of the entities, do not edit:");
+        source.line(" * run <i>mvn -P codegen compile exec:exec</i> after changing an entity. Each element is decoded");
+        source.line(" * by a switch on the names of its children calling the setters directly, binding the same values");
+        source.line(" * as JAXB, see {@link XMLScalars}. Unknown elements and the article fields out of the projection");
+        source.line(" * are skipped.");
+        source.line(" */");
+        source.open("public final class GeneratedXMLDecoder {");
+        source.blank();
+        source.line("private GeneratedXMLDecoder() {");
+        source.line("}");
+        source.blank();
+        source.line("/**");
+        source.line(" * @param reader the reader, before or on the start of the <i>" + root + "</i> element");
+        source.line(" * @param projection the article fields to decode");
+        source.line(" * @return the response");
+        source.line(" * @throws XMLStreamException if the response cannot be read or is not a Metabase response");
+        source.line(" */");
+        source.open("public static " + simpleName(XMLResponse.class) + " decodeResponse(XMLStreamReader reader, ArticleProjection projection) throws XMLStreamException {");
+        source.open("if (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {");
+        source.line("XMLScalars.nextElement(reader);");
+        source.close("}");
+        source.open("if (reader.getEventType() != XMLStreamConstants.START_ELEMENT || !\"" + root + "\".equals(reader.getLocalName())) {");
+        source.line("throw new XMLStreamException(\"Expected the Metabase response to be a " + root + " element\", reader.getLocation());");
+        source.close("}");
+        source.line("return decode" + simpleName(XMLResponse.class) + "(reader, projection);");
+        source.close("}");
+
+        for (Map.Entry<Class<?>, List<Property>> entity : entities.entrySet()) {
+            source.blank();
+            writeXMLEntity(source, entity.getKey(), entity.getValue());
+        }
+        source.blank();
+        source.close("}");
+        return source.toString();
+    }
+
+    private void collectXML(Class<?> entity, Map<Class<?>, List<Property>> entities) {
+        if (entities.containsKey(entity)) {
+            return;
+        }
+        List<Property> properties = new ArrayList<>();
+        entities.put(entity, properties);
+        for (Method setter : entity.getMethods()) {
+            if (!isSetter(setter)) {
+                continue;
+            }
+            String name = propertyName(setter);
+            Method getter = getter(entity, setter);
+            if (getter == null || getter.isAnnotationPresent(XmlTransient.class)
+                    || setter.isAnnotationPresent(XmlTransient.class)) {
+                continue;
+            }
+            XmlElement element = getter.getAnnotation(XmlElement.class);
+            String elementName = element != null && !"##default".equals(element.name()) ? element.name() : name;
+            XmlJavaTypeAdapter adapter = getter.getAnnotation(XmlJavaTypeAdapter.class);
+
+            Property property = new Property(name, elementName, setter);
+            Type type = setter.getGenericParameterTypes()[0];
+            if (List.class.equals(setter.getParameterTypes()[0])) {
+                property.list = true;
+                property.value = xmlValue(entity, name, elementType(type), adapter, entities);
+            } else {
+                property.value = xmlValue(entity, name, setter.getParameterTypes()[0], adapter, entities);
+            }
+            properties.add(property);
+        }
+        sort(entity, properties);
+    }
+
+    private Value xmlValue(Class<?> entity, String name, Class<?> type, XmlJavaTypeAdapter adapter,
+            Map<Class<?>, List<Property>> entities) {
+        if (adapter != null) {
+            if (PooledStringAdapter.class.isAssignableFrom(adapter.value())) {
+                return Value.pooled(poolName(adapter.value()));
+            }
+            if (MetabaseDateAdapter.class.equals(adapter.value())) {
+                return Value.of(Kind.DATE);
+            }
+            throw unsupported(entity, name, "adapter " + adapter.value().getName());
+        }
+        Value value = scalarValue(type);
+        if (value != null) {
+            return value;
+        }
+        if (isEntity(type)) {
+            collectXML(type, entities);
+            return Value.entity(type);
+        }
+        throw unsupported(entity, name, "type " + type.getName());
+    }
+
+    private void writeXMLEntity(Source source, Class<?> entity, List<Property> properties) {
+        String type = simpleName(entity);
+        String signature = "public static " + type + " decode" + type + "(XMLStreamReader reader, ArticleProjection projection";
+        boolean recyclable = isRecyclable(entity);
+        if (recyclable) {
+            source.open(signature + ") throws XMLStreamException {");
+            source.line("return decode" + type + "(reader, projection, new " + type + "());");
+            source.close("}");
+            source.blank();
+            writeRecyclingDoc(source, type, properties);
+            source.open(signature + ", " + type + " value) throws XMLStreamException {");
+            writeRecycledProperties(source, properties);
+        } else {
+            source.open(signature + ") throws XMLStreamException {");
+            source.line(type + " value = new " + type + "();");
+        }
+
+        /**
+         * JAXB binds the repeated elements of a list property to a list it sets once the element is
+         * read, and leaves the property null when there is none.
+         */
+        for (Property property : properties) {
+            if (property.list) {
+                source.imports("java.util.ArrayList", "java.util.List");
+                source.line("List<" + property.value.javaType() + "> " + property.name + " = null;");
+                if (recyclable && isRecyclableEntity(property.value)) {
+                    source.line("int " + property.name + "Size = 0;");
+                }
+            }
+        }
+        source.open("while (XMLScalars.nextElement(reader)) {");
+        source.open("switch (reader.getLocalName()) {");
+        for (Property property : properties) {
+            source.open("case \"" + property.fieldName + "\":");
+            boolean projected = isProjected(entity, property);
+            if (projected) {
+                source.open("if (projection.includes(\"" + property.name + "\")) {");
+            }
+            if (property.list && recyclable) {
+                source.open("if (" + property.name + " == null) {");
+                source.line(property.name + " = " + recycled(property) + " != null ? " + recycled(property)
+                        + " : new ArrayList<>();");
+                if (!isRecyclableEntity(property.value)) {
+                    source.line(property.name + ".clear();");
+                }
+                source.close("}");
+                if (isRecyclableEntity(property.value)) {
+                    writeRecycledElement(source, property, recycledElementDecode("reader", property));
+                } else {
+                    source.line(property.name + ".add(" + xmlRead(source, property.value) + ");");
+                }
+            } else if (property.list) {
+                source.open("if (" + property.name + " == null) {");
+                source.line(property.name + " = new ArrayList<>();");
+                source.close("}");
+                source.line(property.name + ".add(" + xmlRead(source, property.value) + ");");
+            } else if (recyclable && isReused(property)) {
+                source.line("value." + property.setter.getName() + "(" + recycledDecode("reader", property) + ");");
+            } else if (property.value.kind == Kind.DATE && millisSetter(entity, property) != null) {
+                source.line("value." + millisSetter(entity, property) + "(XMLScalars.readMillis(reader));");
+            } else {
+                source.line("value." + property.setter.getName() + "(" + xmlRead(source, property.value) + ");");
+            }
+            if (projected) {
+                source.reopen("} else {");
+                source.line("XMLScalars.skipElement(reader);");
+                source.close("}");
+            }
+            source.line("break;");
+            source.close(null);
+        }
+        source.open("default:");
+        source.line("XMLScalars.skipElement(reader);");
+        source.line("break;");
+        source.close(null);
+        source.close("}");
+        source.close("}");
+        for (Property property : properties) {
+            if (property.list) {
+                source.open("if (" + property.name + " != null) {");
+                if (recyclable && isRecyclableEntity(property.value)) {
+                    writeTruncate(source, property);
+                }
+                source.line("value." + property.setter.getName() + "(" + property.name + ");");
+                source.close("}");
+            }
+        }
+        source.line("return value;");
+        source.close("}");
+    }
+
+    private String xmlRead(Source source, Value value) {
+        switch (value.kind) {
+            case STRING:
+                return "XMLScalars.readString(reader)";
+            case POOLED:
+                source.imports(ArticleStringPools.class.getName());
+                return "XMLScalars.readPooled(reader, ArticleStringPools." + value.pool + ")";
+            case LONG:
+                return "XMLScalars.readLong(reader)";
+            case BOOLEAN:
+                return "XMLScalars.readBoolean(reader)";
+            case DATE:
+                return "XMLScalars.readDate(reader)";
+            default:
+                return "decode" + simpleName(value.entity) + "(reader, projection)";
+        }
+    }
+
+    // ------------------------------------------------------------------ recycling
+
+    private static void writeRecyclingDoc(Source source, String type, List<Property> properties) {
+        boolean reused = false;
+        for (Property property : properties) {
+            reused |= isReused(property);
+        }
+        source.line("/**");
+        source.line(" * Decodes into a new or recycled {@link " + type + "}"
+                + (reused ? ", reusing the lists and nested entities it held." : "."));
+        source.line(" */");
+    }
+
+    /**
+     * Takes the lists and nested entities of a recycled entity aside, the properties absent from the
+     * decoded object staying null as in a new entity.
+     */
+    private static void writeRecycledProperties(Source source, List<Property> properties) {
+        for (Property property : properties) {
+            if (isReused(property)) {
+                String type = property.list ? "List<" + property.value.javaType() + ">" : property.value.javaType();
+                source.line(type + " " + recycled(property) + " = value.get" + property.setter.getName().substring(3) + "();");
+                source.line("value." + property.setter.getName() + "(null);");
+            }
+        }
+    }
+
+    /**
+     * Decodes the next element of a list of recyclable entities into the entity at the same index.
+     */
+    private static void writeRecycledElement(Source source, Property property, String decode) {
+        String list = property.name;
+        String element = property.value.javaType();
+        source.line(element + " recycled" + element + " = " + list + "Size < " + list + ".size() ? " + list + ".get("
+                + list + "Size) : null;");
+        source.line(element + " " + list + "Element = " + decode + ";");
+        source.open("if (" + list + "Size < " + list + ".size()) {");
+        source.line(list + ".set(" + list + "Size, " + list + "Element);");
+        source.reopen("} else {");
+        source.line(list + ".add(" + list + "Element);");
+        source.close("}");
+        source.line(list + "Size++;");
+    }
+
+    /**
+     * Drops the recycled entities a list held beyond the decoded ones.
+     */
+    private static void writeTruncate(Source source, Property property) {
+        String list = property.name;
+        source.open("while (" + list + ".size() > " + list + "Size) {");
+        source.line(list + ".remove(" + list + ".size() - 1);");
+        source.close("}");
+    }
+
+    private static String recycledDecode(String input, Property property) {
+        String type = property.value.javaType();
+        return "decode" + type + "(" + input + ", projection, " + recycled(property) + " != null ? " + recycled(property)
+                + " : new " + type + "())";
+    }
+
+    private static String recycledElementDecode(String input, Property property) {
+        String type = property.value.javaType();
+        return "decode" + type + "(" + input + ", projection, recycled" + type + " != null ? recycled" + type
+                + " : new " + type + "())";
+    }
+
+    private static String recycled(Property property) {
+        return "recycled" + Character.toUpperCase(property.name.charAt(0)) + property.name.substring(1);
+    }
+
+    private static boolean isRecyclable(Class<?> entity) {
+        return Recyclable.class.isAssignableFrom(entity);
+    }
+
+    private static boolean isRecyclableEntity(Value value) {
+        return value.kind == Kind.ENTITY && isRecyclable(value.entity);
+    }
+
+    /**
+     * @return true for the properties of a recyclable entity holding a list or a recyclable entity
+     */
+    private static boolean isReused(Property property) {
+        return property.list || isRecyclableEntity(property.value);
+    }
+
+    // ------------------------------------------------------------------ entities
+
+    private static boolean isSetter(Method method) {
+        return method.getName().startsWith("set") && method.getName().length() > 3
+                && method.getParameterTypes().length == 1 && !Modifier.isStatic(method.getModifiers())
+                && method.getDeclaringClass() != Object.class;
+    }
+
+    private static String propertyName(Method setter) {
+        return Introspector.decapitalize(setter.getName().substring(3));
+    }
+
+    private static Method getter(Class<?> entity, Method setter) {
+        String suffix = setter.getName().substring(3);
+        for (String prefix : new String[] { "get", "is" }) {
+            try {
+                Method getter = entity.getMethod(prefix + suffix);
+                if (getter.getReturnType().equals(setter.getParameterTypes()[0])) {
+                    return getter;
+                }
+            } catch (NoSuchMethodException e) {
+                // try the next prefix
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the name of the setter taking the date of a property in epoch milliseconds, or null
+     */
+    private static String millisSetter(Class<?> entity, Property property) {
+        try {
+            return entity.getMethod(property.setter.getName() + "Millis", long.class).getName();
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Class<?> elementType(Type listType) {
+        if (listType instanceof ParameterizedType) {
+            Type element = ((ParameterizedType) listType).getActualTypeArguments()[0];
+            if (element instanceof Class) {
+                return (Class<?>) element;
+            }
+        }
+        throw new IllegalStateException("Unsupported list type " + listType);
+    }
+
+    private static Value scalarValue(Class<?> type) {
+        if (type == String.class) {
+            return Value.of(Kind.STRING);
+        }
+        if (type == Long.class) {
+            return Value.of(Kind.LONG);
+        }
+        if (type == boolean.class) {
+            return Value.of(Kind.BOOLEAN);
+        }
+        if (type == Date.class) {
+            return Value.of(Kind.DATE);
+        }
+        return null;
+    }
+
+    private static boolean isEntity(Class<?> type) {
+        return type.getPackage() != null && type.getPackage().getName().endsWith(".metabase.entities");
+    }
+
+    private static boolean isProjected(Class<?> entity, Property property) {
+        return ARTICLE.equals(entity.getSimpleName()) && !ArticleProjection.SEQUENCE_ID.equals(property.name);
+    }
+
+    /**
+     * @return the name of the {@link ArticleStringPools} constant of a pooled deserializer or adapter,
+     *         <i>LICENSE_NAME</i> for <i>LicenseName</i>
+     */
+    private static String poolName(Class<?> pooled) {
+        String pool = pooled.getSimpleName().replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+        try {
+            ArticleStringPools.class.getField(pool);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("No string pool " + pool + " for " + pooled.getName(), e);
+        }
+        return pool;
+    }
+
+    /**
+     * Orders the properties as the fields of the entity are declared.
+     */
+    private static void sort(Class<?> entity, List<Property> properties) {
+        List<String> fields = new ArrayList<>();
+        for (Field field : entity.getDeclaredFields()) {
+            fields.add(field.getName());
+        }
+        properties.sort((first, second) -> {
+            int firstIndex = fields.indexOf(first.name);
+            int secondIndex = fields.indexOf(second.name);
+            if (firstIndex != secondIndex) {
+                return Integer.compare(firstIndex < 0 ? Integer.MAX_VALUE : firstIndex,
+                        secondIndex < 0 ? Integer.MAX_VALUE : secondIndex);
+            }
+            return first.name.compareTo(second.name);
+        });
+    }
+
+    private static String simpleName(Class<?> type) {
+        return type.getSimpleName();
+    }
+
+    private static IllegalStateException unsupported(Class<?> entity, String property, String what) {
+        return new IllegalStateException("Unable to generate the decoding of " + entity.getName() + "." + property
+                + ": unsupported " + what);
+    }
+
+    private enum Kind {
+        STRING, POOLED, LONG, BOOLEAN, DATE, ENTITY
+    }
+
+    private static class Value {
+
+        private Kind kind;
+
+        private String pool;
+
+        private Class<?> entity;
+
+        static Value of(Kind kind) {
+            Value value = new Value();
+            value.kind = kind;
+            return value;
+        }
+
+        static Value pooled(String pool) {
+            Value value = of(Kind.POOLED);
+            value.pool = pool;
+            return value;
+        }
+
+        static Value entity(Class<?> entity) {
+            Value value = of(Kind.ENTITY);
+            value.entity = entity;
+            return value;
+        }
+
+        String javaType() {
+            switch (kind) {
+                case LONG:
+                    return "Long";
+                case BOOLEAN:
+                    return "Boolean";
+                case DATE:
+                    return "java.util.Date";
+                case ENTITY:
+                    return entity.getSimpleName();
+                default:
+                    return "String";
+            }
+        }
+    }
+
+    private static class Property {
+
+        private final String name;
+
+        private final String fieldName;
+
+        private final Method setter;
+
+        private boolean list;
+
+        private Value value;
+
+        Property(String name, String fieldName, Method setter) {
+            this.name = name;
+            this.fieldName = fieldName;
+            this.setter = setter;
+        }
+    }
+
+    /**
+     * The text of a generated class, indented by blocks, its imports being gathered as it is written.
+     */
+    private static class Source {
+
+        private final String packageName;
+
+        private final TreeSet<String> imports = new TreeSet<>();
+
+        private final StringBuilder body = new StringBuilder();
+
+        private int indent;
+
+        Source(String className) {
+            this.packageName = className.substring(0, className.lastIndexOf('.'));
+        }
+
+        void imports(String... classNames) {
+            for (String className : classNames) {
+                if (!className.substring(0, className.lastIndexOf('.')).equals(packageName)) {
+                    imports.add(className);
+                }
+            }
+        }
+
+        void line(String line) {
+            for (int i = 0; i < indent; i++) {
+                body.append("    ");
+            }
+            body.append(line).append('\n');
+        }
+
+        void blank() {
+            body.append('\n');
+        }
+
+        void open(String line) {
+            line(line);
+            indent++;
+        }
+
+        void reopen(String line) {
+            indent--;
+            line(line);
+            indent++;
+        }
+
+        void close(String line) {
+            indent--;
+            if (line != null) {
+                line(line);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder source = new StringBuilder();
+            source.append("package ").append(packageName).append(";\n");
+            for (String group : new String[] { "java.", "javax.", "org.", "com." }) {
+                boolean first = true;
+                for (String className : imports) {
+                    if (className.startsWith(group)) {
+                        source.append(first ? "\nimport " : "import ").append(className).append(";\n");
+                        first = false;
+                    }
+                }
+            }
+            return source.append('\n').append(body).toString();
+        }
+    }
+
+}
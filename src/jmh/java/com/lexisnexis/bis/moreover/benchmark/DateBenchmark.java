@@ -0,0 +1,180 @@
+package com.lexisnexis.bis.moreover.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.apache.commons.io.IOUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.annotate.JsonDeserialize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.lexisnexis.bis.moreover.json.MetabaseDateDeserializer;
+import com.lexisnexis.bis.moreover.time.MetabaseTimestamps;
+import com.lexisnexis.bis.moreover.xml.MetabaseDateAdapter;
+import com.lexisnexis.bis.moreover.xml.metabase.entities.XMLResponse;
+
+/**
+ * Benchmarks the binding of one article date, the default Jackson and JAXB date parsing against
+ * {@link MetabaseTimestamps}.
+ * <p/>
+ * The dates are the publishedDate and harvestDate values of the 500 articles fixture, taken in
+ * turn. The <i>json</i> benchmarks bind a one date document to a bean, with the default Jackson
+ * date deserializer and with {@link MetabaseDateDeserializer}. The <i>xml</i> benchmarks parse the
+ * text of a date element as JAXB does and with {@link MetabaseDateAdapter}. The <i>timestamp</i>
+ * benchmark parses the text to epoch milliseconds without any Date. One operation is one date,
+ * {@link DecodeBenchmarkReport} reports it as one article.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DateBenchmark {
+
+    private static final Pattern DATE = Pattern.compile("\"(?:publishedDate|harvestDate)\":\"([^\"]+)\"");
+
+    private String[] dates;
+
+    private byte[][] jsonDocuments;
+
+    private int next;
+
+    private ObjectMapper mapper;
+
+    private MetabaseDateAdapter adapter;
+
+    @Setup
+    public void setUp() throws IOException, JAXBException {
+        String fixture = loadFixture(FixtureGenerator.fixtureName(500, "json"));
+        List<String> found = new ArrayList<>();
+        Matcher matcher = DATE.matcher(fixture);
+        while (matcher.find()) {
+            found.add(matcher.group(1));
+        }
+        if (found.isEmpty()) {
+            throw new IllegalStateException("No dates in the fixture");
+        }
+        dates = found.toArray(new String[found.size()]);
+        jsonDocuments = new byte[dates.length][];
+        for (int i = 0; i < dates.length; i++) {
+            jsonDocuments[i] = ("{\"date\":\"" + dates[i] + "\"}").getBytes(StandardCharsets.UTF_8);
+        }
+
+        mapper = new ObjectMapper();
+        adapter = new MetabaseDateAdapter();
+
+        /**
+         * Loads the JAXB runtime, which DatatypeConverter relies on.
+         */
+        JAXBContext.newInstance(XMLResponse.class);
+
+        /**
+         * Fail before measuring anything if both bindings do not agree.
+         */
+        for (int i = 0; i < dates.length; i++) {
+            long expected = DatatypeConverter.parseDateTime(dates[i]).getTimeInMillis();
+            if (MetabaseTimestamps.parse(dates[i]) != expected
+                    || mapper.readValue(jsonDocuments[i], DefaultDate.class).date.getTime() != expected
+                    || mapper.readValue(jsonDocuments[i], TimestampDate.class).date != expected) {
+                throw new IllegalStateException("Bindings disagree on " + dates[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public DefaultDate jsonDefault() throws IOException {
+        return mapper.readValue(jsonDocuments[nextIndex()], DefaultDate.class);
+    }
+
+    @Benchmark
+    public TimestampDate jsonTimestamp() throws IOException {
+        return mapper.readValue(jsonDocuments[nextIndex()], TimestampDate.class);
+    }
+
+    @Benchmark
+    public Date xmlDefault() {
+        return DatatypeConverter.parseDateTime(dates[nextIndex()]).getTime();
+    }
+
+    @Benchmark
+    public Date xmlTimestamp() {
+        return adapter.unmarshal(dates[nextIndex()]);
+    }
+
+    @Benchmark
+    public long timestamp() {
+        return MetabaseTimestamps.parse(dates[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == dates.length ? 0 : index + 1;
+        return index;
+    }
+
+    private static String loadFixture(String fileName) throws IOException {
+        String name = "/fixtures/" + fileName;
+        try (InputStream in = DateBenchmark.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            return IOUtils.toString(new GZIPInputStream(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A date bound as the articles were before, with the default Jackson date deserializer.
+     */
+    public static class DefaultDate {
+
+        private Date date;
+
+        public Date getDate() {
+            return date;
+        }
+
+        public void setDate(Date date) {
+            this.date = date;
+        }
+    }
+
+    /**
+     * A date bound as the articles are, to epoch milliseconds.
+     */
+    public static class TimestampDate {
+
+        private long date = MetabaseTimestamps.NONE;
+
+        public long getDate() {
+            return date;
+        }
+
+        @JsonDeserialize(using = MetabaseDateDeserializer.class)
+        public void setDate(Date date) {
+            this.date = date != null ? date.getTime() : MetabaseTimestamps.NONE;
+        }
+    }
+
+}
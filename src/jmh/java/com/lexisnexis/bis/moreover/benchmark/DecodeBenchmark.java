@@ -0,0 +1,230 @@
+package com.lexisnexis.bis.moreover.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.bind.JAXBException;
+
+import org.apache.commons.io.IOUtils;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleListener;
+import com.lexisnexis.bis.moreover.harvest.ArticleProjection;
+import com.lexisnexis.bis.moreover.harvest.Slice;
+import com.lexisnexis.bis.moreover.json.SampleMetabaseJSONClient;
+import com.lexisnexis.bis.moreover.json.StreamingJSONResponseDecoder;
+import com.lexisnexis.bis.moreover.json.metabase.entities.JSONResponse;
+import com.lexisnexis.bis.moreover.recycle.RecyclingPool;
+import com.lexisnexis.bis.moreover.xml.SampleMetabaseXMLClient;
+import com.lexisnexis.bis.moreover.xml.StreamingXMLResponseDecoder;
+import com.lexisnexis.bis.moreover.xml.metabase.entities.XMLResponse;
+
+/**
+ * Benchmarks the decode path of a gzipped Metabase response, inflating and binding it, in JSON
+ * against XML.
+ * <p/>
+ * Each benchmark decodes one of the fixtures written by {@link FixtureGenerator} with the
+ * <i>decompressResponse</i> method of the client of its format, set up as its main method does.
+ * One operation is one response of <i>articles</i> articles, {@link DecodeBenchmarkReport} turns
+ * the scores into figures per article. The <i>projected</i> benchmarks decode the title, url and
+ * licenses of the articles only, the fields printed by default. The clients decode with the
+ * generated decoders, the <i>jackson</i> and <i>jaxb</i> benchmarks decode the same responses by
+ * reflection with {@link ReflectiveDecoders} as a baseline. The <i>recycled</i> benchmarks decode
+ * the articles into a {@link RecyclingPool} with the streaming decoders, as the clients do with
+ * <i>recycle</i>, and release them after each response, so that only the first responses allocate
+ * articles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DecodeBenchmark {
+
+    private static final ArticleProjection PROJECTION = ArticleProjection.of("title", "url", "licenses");
+
+    private static final Slice SLICE = new Slice("benchmark", null, null);
+
+    @Param({ "1", "50", "500" })
+    public int articles;
+
+    private byte[] jsonResponse;
+
+    private byte[] xmlResponse;
+
+    private SampleMetabaseJSONClient jsonClient;
+
+    private SampleMetabaseXMLClient xmlClient;
+
+    private SampleMetabaseJSONClient projectedJsonClient;
+
+    private SampleMetabaseXMLClient projectedXmlClient;
+
+    private ReflectiveDecoders reflective;
+
+    private ReflectiveDecoders projectedReflective;
+
+    private StreamingJSONResponseDecoder jsonDecoder;
+
+    private StreamingXMLResponseDecoder xmlDecoder;
+
+    private StreamingJSONResponseDecoder projectedJsonDecoder;
+
+    private StreamingXMLResponseDecoder projectedXmlDecoder;
+
+    private RecyclingPool<com.lexisnexis.bis.moreover.json.metabase.entities.Article> jsonPool;
+
+    private RecyclingPool<com.lexisnexis.bis.moreover.xml.metabase.entities.Article> xmlPool;
+
+    private final List<com.lexisnexis.bis.moreover.json.metabase.entities.Article> jsonArticles = new ArrayList<>();
+
+    private final List<com.lexisnexis.bis.moreover.xml.metabase.entities.Article> xmlArticles = new ArrayList<>();
+
+    private final ArticleListener<com.lexisnexis.bis.moreover.json.metabase.entities.Article> jsonCollector =
+            (slice, article) -> jsonArticles.add(article);
+
+    private final ArticleListener<com.lexisnexis.bis.moreover.xml.metabase.entities.Article> xmlCollector =
+            (slice, article) -> xmlArticles.add(article);
+
+    @Setup
+    public void setUp() throws IOException, JAXBException {
+        jsonResponse = loadFixture("json");
+        xmlResponse = loadFixture("xml");
+
+        jsonClient = new SampleMetabaseJSONClient();
+        jsonClient.setMapper(new ObjectMapper());
+        xmlClient = new SampleMetabaseXMLClient();
+        projectedJsonClient = new SampleMetabaseJSONClient();
+        projectedJsonClient.setProjection(PROJECTION);
+        projectedXmlClient = new SampleMetabaseXMLClient();
+        projectedXmlClient.setProjection(PROJECTION);
+        reflective = new ReflectiveDecoders(ArticleProjection.ALL);
+        projectedReflective = new ReflectiveDecoders(PROJECTION);
+        jsonDecoder = new StreamingJSONResponseDecoder(new JsonFactory(), ArticleProjection.ALL);
+        xmlDecoder = new StreamingXMLResponseDecoder(SampleMetabaseXMLClient.newXMLInputFactory(), ArticleProjection.ALL);
+        projectedJsonDecoder = new StreamingJSONResponseDecoder(new JsonFactory(), PROJECTION);
+        projectedXmlDecoder = new StreamingXMLResponseDecoder(SampleMetabaseXMLClient.newXMLInputFactory(), PROJECTION);
+        jsonPool = new RecyclingPool<>(com.lexisnexis.bis.moreover.json.metabase.entities.Article::new, articles,
+                RecyclingPool.Mode.POOLED);
+        xmlPool = new RecyclingPool<>(com.lexisnexis.bis.moreover.xml.metabase.entities.Article::new, articles,
+                RecyclingPool.Mode.POOLED);
+
+        /**
+         * Fail before measuring anything if a fixture does not decode to all its articles.
+         */
+        int jsonArticles = jsonClient.decompressResponse(jsonResponse).getArticles().size();
+        int xmlArticles = xmlClient.decompressResponse(xmlResponse).getArticles().getArticles().size();
+        if (jsonArticles != articles || xmlArticles != articles) {
+            throw new IllegalStateException("Expected " + articles + " articles, decoded " + jsonArticles
+                    + " from JSON and " + xmlArticles + " from XML");
+        }
+    }
+
+    @Benchmark
+    public JSONResponse json() throws IOException {
+        return jsonClient.decompressResponse(jsonResponse);
+    }
+
+    @Benchmark
+    public XMLResponse xml() throws IOException {
+        return xmlClient.decompressResponse(xmlResponse);
+    }
+
+    @Benchmark
+    public JSONResponse jsonProjected() throws IOException {
+        return projectedJsonClient.decompressResponse(jsonResponse);
+    }
+
+    @Benchmark
+    public XMLResponse xmlProjected() throws IOException {
+        return projectedXmlClient.decompressResponse(xmlResponse);
+    }
+
+    @Benchmark
+    public JSONResponse jsonJackson() throws IOException {
+        return reflective.decodeJSON(jsonResponse);
+    }
+
+    @Benchmark
+    public XMLResponse xmlJaxb() throws IOException {
+        return reflective.decodeXML(xmlResponse);
+    }
+
+    @Benchmark
+    public JSONResponse jsonJacksonProjected() throws IOException {
+        return projectedReflective.decodeJSON(jsonResponse);
+    }
+
+    @Benchmark
+    public XMLResponse xmlJaxbProjected() throws IOException {
+        return projectedReflective.decodeXML(xmlResponse);
+    }
+
+    @Benchmark
+    public int jsonRecycled() throws IOException {
+        return decodeRecycledJSON(jsonDecoder);
+    }
+
+    @Benchmark
+    public int xmlRecycled() throws IOException {
+        return decodeRecycledXML(xmlDecoder);
+    }
+
+    @Benchmark
+    public int jsonRecycledProjected() throws IOException {
+        return decodeRecycledJSON(projectedJsonDecoder);
+    }
+
+    @Benchmark
+    public int xmlRecycledProjected() throws IOException {
+        return decodeRecycledXML(projectedXmlDecoder);
+    }
+
+    /**
+     * Decodes the articles into the pool, then releases them as the clients do once a batch was written.
+     */
+    private int decodeRecycledJSON(StreamingJSONResponseDecoder decoder) throws IOException {
+        decoder.decode(SLICE, new GZIPInputStream(new ByteArrayInputStream(jsonResponse)), jsonCollector, jsonPool);
+        int decoded = jsonArticles.size();
+        jsonPool.release(jsonArticles);
+        jsonArticles.clear();
+        return decoded;
+    }
+
+    private int decodeRecycledXML(StreamingXMLResponseDecoder decoder) throws IOException {
+        decoder.decode(SLICE, new GZIPInputStream(new ByteArrayInputStream(xmlResponse)), xmlCollector, xmlPool);
+        int decoded = xmlArticles.size();
+        xmlPool.release(xmlArticles);
+        xmlArticles.clear();
+        return decoded;
+    }
+
+    private byte[] loadFixture(String format) throws IOException {
+        String name = "/fixtures/" + FixtureGenerator.fixtureName(articles, format);
+        try (InputStream in = DecodeBenchmark.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+}
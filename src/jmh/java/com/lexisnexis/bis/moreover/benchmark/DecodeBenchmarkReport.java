@@ -0,0 +1,73 @@
+package com.lexisnexis.bis.moreover.benchmark;
+
+import java.util.Collection;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link DecodeBenchmark} with the GC profiler and prints the results per article.
+ * <p/>
+ * JMH reports the throughput and the allocations of one operation, a whole response. As the
+ * responses hold from 1 to 500 articles, the report also divides them by the number of articles so
+ * that the sizes and the formats can be compared. The usual JMH options are accepted, for instance
+ * <i>-f 1 -wi 2 -i 3</i> for a quick run. Other benchmarks are run instead when named, for instance
+ * <i>DateBenchmark</i>, a benchmark without an <i>articles</i> parameter is reported per operation.
+ */
+public class DecodeBenchmarkReport {
+
+    private static final String ALLOCATION_PER_OPERATION = "gc.alloc.rate.norm";
+    private static final String ALLOCATION_RATE = "gc.alloc.rate";
+    private static final String GC_COUNT = "gc.count";
+    private static final String GC_TIME = "gc.time";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLineOptions).addProfiler(GCProfiler.class);
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            builder.include(DecodeBenchmark.class.getName());
+        }
+        Options options = builder.build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        System.out.println();
+        System.out.println(String.format("%-22s %8s %14s %14s %14s %12s %10s %10s",
+                "format", "articles", "responses/s", "articles/s", "bytes/article", "MB/s alloc", "gc count", "gc ms"));
+        for (RunResult result : results) {
+            String format = result.getParams().getBenchmark().replaceFirst(".*\\.", "");
+            String articlesParam = result.getParams().getParam("articles");
+            int articles = articlesParam != null ? Integer.parseInt(articlesParam) : 1;
+            double responsesPerSecond = result.getPrimaryResult().getScore();
+            System.out.println(String.format("%-22s %8d %14.1f %14.1f %14.1f %12.1f %10.0f %10.0f",
+                    format, articles, responsesPerSecond, responsesPerSecond * articles,
+                    score(result, ALLOCATION_PER_OPERATION) / articles,
+                    score(result, ALLOCATION_RATE),
+                    score(result, GC_COUNT),
+                    score(result, GC_TIME)));
+        }
+    }
+
+    /**
+     * The names of the GC profiler results are prefixed with a dot in some JMH versions. JMH hands
+     * the secondary results out as a map of raw results, so each one is read as a result of any type.
+     */
+    private static double score(RunResult result, String name) {
+        for (String resultName : result.getSecondaryResults().keySet()) {
+            if (resultName.equals(name) || resultName.endsWith("·" + name)) {
+                Result<?> secondary = result.getSecondaryResults().get(resultName);
+                return secondary.getScore();
+            }
+        }
+        return Double.NaN;
+    }
+
+}
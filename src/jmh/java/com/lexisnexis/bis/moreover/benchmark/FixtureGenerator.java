@@ -0,0 +1,253 @@
+package com.lexisnexis.bis.moreover.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the gzipped fixtures of the decode benchmark, a JSON and an XML response for each
+ * number of articles.
+ * <p/>
+ * The fixtures are anonymized: they keep the shape of recorded Metabase responses, the fields,
+ * their order and typical lengths, licensed and unlicensed articles, markup and unknown source
+ * elements which the decoders skip, but every text is made of words drawn from a fixed
+ * vocabulary and every url points to example.com. The JSON and the XML fixture of a size hold the
+ * same articles, and the generator is seeded so the fixtures are the same on every run.
+ * <p/>
+ * The fixtures are committed in src/jmh/resources/fixtures, run this class from the project
+ * directory to write them again.
+ */
+public class FixtureGenerator {
+
+    public static final int[] ARTICLE_COUNTS = { 1, 50, 500 };
+
+    private static final String[] WORDS = {
+        "market", "shares", "report", "company", "growth", "quarter", "investors", "analysts",
+        "said", "the", "a", "of", "to", "in", "and", "for", "on", "with", "new", "year",
+        "percent", "billion", "government", "policy", "energy", "technology", "according", "data",
+        "customers", "service", "announced", "expected", "sales", "rate", "results", "week",
+        "officials", "city", "plans", "industry", "global", "local", "team", "season", "price"
+    };
+
+    private static final String[] LICENSES = { "Licensed Publisher", "Premium Content", "Print Partner" };
+
+    private static final long BASE_SEQUENCE_ID = 184467440737L;
+
+    private final Random random;
+
+    private final SimpleDateFormat dateFormat;
+
+    public FixtureGenerator(long seed) {
+        this.random = new Random(seed);
+        this.dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        this.dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "src/jmh/resources/fixtures");
+        Files.createDirectories(directory);
+        for (int count : ARTICLE_COUNTS) {
+            List<Fixture> articles = new FixtureGenerator(count).articles(count);
+            write(directory.resolve(fixtureName(count, "json")), toJson(articles));
+            write(directory.resolve(fixtureName(count, "xml")), toXml(articles));
+        }
+    }
+
+    /**
+     * @return the name of the fixture resource of the given number of articles and format
+     */
+    public static String fixtureName(int articleCount, String format) {
+        return "articles-" + articleCount + "." + format + ".gz";
+    }
+
+    public List<Fixture> articles(int count) {
+        List<Fixture> articles = new ArrayList<>(count);
+        long now = 1470000000000L;
+        long sequenceId = BASE_SEQUENCE_ID;
+        for (int i = 0; i < count; i++) {
+            Fixture article = new Fixture();
+            sequenceId += 1 + random.nextInt(40);
+            article.sequenceId = sequenceId;
+            article.id = 27000000000L + random.nextInt(Integer.MAX_VALUE);
+            article.title = capitalize(words(6 + random.nextInt(8)));
+            List<String> paragraphs = new ArrayList<>();
+            int paragraphCount = 3 + random.nextInt(10);
+            for (int p = 0; p < paragraphCount; p++) {
+                paragraphs.add(capitalize(words(30 + random.nextInt(60))) + ".");
+            }
+            article.content = String.join("\n\n", paragraphs);
+            article.contentWithMarkup = "<p>" + String.join("</p><p>", paragraphs) + "</p>";
+            article.extract = paragraphs.get(0);
+            article.publishedDate = dateFormat.format(new Date(now - random.nextInt(3600000)));
+            article.harvestDate = dateFormat.format(new Date(now));
+            article.url = "http://www.example.com/news/" + article.id + "/" + article.title.toLowerCase().replace(' ', '-');
+            article.outboundUrls = new ArrayList<>();
+            int outboundCount = random.nextInt(4);
+            for (int o = 0; o < outboundCount; o++) {
+                article.outboundUrls.add("http://link" + o + ".example.com/" + random.nextInt(100000));
+            }
+
+            /**
+             * About one article in ten is a duplicate of an earlier one.
+             */
+            article.duplicateGroupId = article.id;
+            if (!articles.isEmpty() && random.nextInt(10) == 0) {
+                article.duplicateGroupId = articles.get(random.nextInt(articles.size())).duplicateGroupId;
+            }
+            article.license = random.nextInt(5) == 0 ? LICENSES[random.nextInt(LICENSES.length)] : null;
+            article.sourceName = "Source " + random.nextInt(5000);
+            articles.add(article);
+        }
+        return articles;
+    }
+
+    private String words(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+
+    static String toJson(List<Fixture> articles) {
+        StringBuilder json = new StringBuilder("{\"status\":\"SUCCESS\",\"articles\":[");
+        for (int i = 0; i < articles.size(); i++) {
+            Fixture article = articles.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('{');
+            json.append("\"sequenceId\":\"").append(article.sequenceId).append("\",");
+            json.append("\"id\":\"").append(article.id).append("\",");
+            json.append("\"language\":\"English\",\"languageCode\":\"en\",");
+            json.append("\"title\":").append(jsonString(article.title)).append(',');
+            json.append("\"content\":").append(jsonString(article.content)).append(',');
+            json.append("\"contentWithMarkup\":").append(jsonString(article.contentWithMarkup)).append(',');
+            json.append("\"extract\":").append(jsonString(article.extract)).append(',');
+            json.append("\"publishedDate\":\"").append(article.publishedDate).append("\",");
+            json.append("\"harvestDate\":\"").append(article.harvestDate).append("\",");
+            json.append("\"url\":").append(jsonString(article.url)).append(',');
+            json.append("\"outboundUrls\":[");
+            for (int o = 0; o < article.outboundUrls.size(); o++) {
+                json.append(o > 0 ? "," : "").append(jsonString(article.outboundUrls.get(o)));
+            }
+            json.append("],");
+            json.append("\"dataFormat\":\"text\",\"copyright\":\"Copyright Example Media\",\"loginStatus\":\"NO_LOGIN_REQUIRED\",");
+            json.append("\"duplicateGroupId\":\"").append(article.duplicateGroupId).append("\",");
+            json.append("\"adultLanguage\":\"false\",");
+            json.append("\"licenses\":[");
+            if (article.license != null) {
+                json.append("{\"name\":").append(jsonString(article.license)).append('}');
+            }
+            json.append("],");
+            json.append("\"source\":{\"id\":\"").append(article.id % 100000).append("\",\"name\":")
+                    .append(jsonString(article.sourceName)).append(",\"homeUrl\":\"http://www.example.com\",\"category\":\"Local\"}");
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    static String toXml(List<Fixture> articles) {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<response><status>SUCCESS</status><articles>");
+        for (Fixture article : articles) {
+            xml.append("<article>");
+            xml.append("<sequenceId>").append(article.sequenceId).append("</sequenceId>");
+            xml.append("<id>").append(article.id).append("</id>");
+            xml.append("<language>English</language><languageCode>en</languageCode>");
+            xml.append("<title>").append(xmlText(article.title)).append("</title>");
+            xml.append("<content>").append(xmlText(article.content)).append("</content>");
+            xml.append("<contentWithMarkup>").append(xmlText(article.contentWithMarkup)).append("</contentWithMarkup>");
+            xml.append("<extract>").append(xmlText(article.extract)).append("</extract>");
+            xml.append("<publishedDate>").append(article.publishedDate).append("</publishedDate>");
+            xml.append("<harvestDate>").append(article.harvestDate).append("</harvestDate>");
+            xml.append("<url>").append(xmlText(article.url)).append("</url>");
+            for (String outboundUrl : article.outboundUrls) {
+                xml.append("<outboundUrls>").append(xmlText(outboundUrl)).append("</outboundUrls>");
+            }
+            xml.append("<dataFormat>text</dataFormat><copyright>Copyright Example Media</copyright><loginStatus>NO_LOGIN_REQUIRED</loginStatus>");
+            xml.append("<duplicateGroupId>").append(article.duplicateGroupId).append("</duplicateGroupId>");
+            xml.append("<adultLanguage>false</adultLanguage>");
+            xml.append("<licenses>");
+            if (article.license != null) {
+                xml.append("<license><name>").append(xmlText(article.license)).append("</name></license>");
+            }
+            xml.append("</licenses>");
+            xml.append("<source><id>").append(article.id % 100000).append("</id><name>").append(xmlText(article.sourceName))
+                    .append("</name><homeUrl>http://www.example.com</homeUrl><category>Local</category></source>");
+            xml.append("</article>");
+        }
+        return xml.append("</articles></response>").toString();
+    }
+
+    private static String jsonString(String text) {
+        StringBuilder builder = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+            case '"':
+                builder.append("\\\"");
+                break;
+            case '\\':
+                builder.append("\\\\");
+                break;
+            case '\n':
+                builder.append("\\n");
+                break;
+            default:
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static String xmlText(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static void write(Path file, String response) throws IOException {
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file));
+                Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writer.write(response);
+        }
+        System.out.println("Wrote " + file + " (" + Files.size(file) + " bytes)");
+    }
+
+    /**
+     * The fields of a generated article, written the same way in both formats.
+     */
+    static class Fixture {
+        long sequenceId;
+        long id;
+        String title;
+        String content;
+        String contentWithMarkup;
+        String extract;
+        String publishedDate;
+        String harvestDate;
+        String url;
+        List<String> outboundUrls;
+        long duplicateGroupId;
+        String license;
+        String sourceName;
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.lexisnexis.bis.moreover.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.lexisnexis.bis.moreover.transport.InflaterPool;
+
+/**
+ * Benchmarks the inflating of the gzipped fixtures of {@link DecodeBenchmark}, with a new
+ * <i>GZIPInputStream</i> for every response as the clients did, against the pooled inflaters of an
+ * {@link InflaterPool}.
+ * <p/>
+ * Each operation inflates one response into a reused buffer, as a parser reads it, and closes the
+ * stream. The fixtures are checked to inflate to the same bytes both ways before measuring.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class InflateBenchmark {
+
+    /**
+     * the size of the buffer of the JSON and XML parsers
+     */
+    private static final int READ_BUFFER_SIZE = 8000;
+
+    @Param({ "1", "50", "500" })
+    public int articles;
+
+    private byte[] jsonResponse;
+
+    private byte[] xmlResponse;
+
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+
+    private InflaterPool inflaterPool;
+
+    @Setup
+    public void setUp() throws IOException {
+        jsonResponse = loadFixture("json");
+        xmlResponse = loadFixture("xml");
+        inflaterPool = new InflaterPool(1);
+
+        for (byte[] response : new byte[][] { jsonResponse, xmlResponse }) {
+            byte[] expected = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(response)));
+            try (InputStream in = inflaterPool.inflate(new ByteArrayInputStream(response))) {
+                if (!Arrays.equals(expected, IOUtils.toByteArray(in))) {
+                    throw new IllegalStateException("The pooled inflater does not inflate the " + articles
+                            + " article fixtures as GZIPInputStream does");
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        inflaterPool.close();
+    }
+
+    @Benchmark
+    public long jsonGZIPInputStream() throws IOException {
+        return drain(new GZIPInputStream(new ByteArrayInputStream(jsonResponse)));
+    }
+
+    @Benchmark
+    public long jsonPooledInflater() throws IOException {
+        return drain(inflaterPool.inflate(new ByteArrayInputStream(jsonResponse)));
+    }
+
+    @Benchmark
+    public long xmlGZIPInputStream() throws IOException {
+        return drain(new GZIPInputStream(new ByteArrayInputStream(xmlResponse)));
+    }
+
+    @Benchmark
+    public long xmlPooledInflater() throws IOException {
+        return drain(inflaterPool.inflate(new ByteArrayInputStream(xmlResponse)));
+    }
+
+    private long drain(InputStream in) throws IOException {
+        long inflated = 0;
+        try {
+            int read;
+            while ((read = in.read(readBuffer, 0, readBuffer.length)) >= 0) {
+                inflated += read;
+            }
+        } finally {
+            in.close();
+        }
+        return inflated;
+    }
+
+    private byte[] loadFixture(String format) throws IOException {
+        String name = "/fixtures/" + FixtureGenerator.fixtureName(articles, format);
+        try (InputStream in = InflateBenchmark.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+}
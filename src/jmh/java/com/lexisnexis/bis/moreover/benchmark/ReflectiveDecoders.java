@@ -0,0 +1,68 @@
+package com.lexisnexis.bis.moreover.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleProjection;
+import com.lexisnexis.bis.moreover.json.ArticleProjectionModule;
+import com.lexisnexis.bis.moreover.json.metabase.entities.JSONResponse;
+import com.lexisnexis.bis.moreover.xml.ProjectingXMLStreamReader;
+import com.lexisnexis.bis.moreover.xml.SampleMetabaseXMLClient;
+import com.lexisnexis.bis.moreover.xml.metabase.entities.XMLResponse;
+
+/**
+ * Decodes the gzipped responses by reflection, with the ObjectMapper and JAXB as the clients did
+ * before the generated decoders, as the reference the generated decoders are measured and checked
+ * against.
+ */
+public class ReflectiveDecoders {
+
+    private final ArticleProjection projection;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final JAXBContext jaxbContext;
+
+    private final XMLInputFactory xmlInputFactory;
+
+    public ReflectiveDecoders(ArticleProjection projection) throws JAXBException {
+        this.projection = projection;
+        if (!projection.isAll()) {
+            mapper.registerModule(new ArticleProjectionModule(projection));
+        }
+        this.jaxbContext = JAXBContext.newInstance(XMLResponse.class);
+        this.xmlInputFactory = SampleMetabaseXMLClient.newXMLInputFactory();
+    }
+
+    public JSONResponse decodeJSON(byte[] compressedData) throws IOException {
+        return mapper.readValue(new GZIPInputStream(new ByteArrayInputStream(compressedData)), JSONResponse.class);
+    }
+
+    public XMLResponse decodeXML(byte[] compressedData) throws IOException {
+        InputStream body = new GZIPInputStream(new ByteArrayInputStream(compressedData));
+        try {
+            if (projection.isAll()) {
+                return (XMLResponse) jaxbContext.createUnmarshaller().unmarshal(body);
+            }
+            XMLStreamReader reader = new ProjectingXMLStreamReader(xmlInputFactory.createXMLStreamReader(body), projection);
+            try {
+                return (XMLResponse) jaxbContext.createUnmarshaller().unmarshal(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (JAXBException | XMLStreamException e) {
+            throw new IOException("Unable to unmarshal the Metabase response", e);
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.lexisnexis.bis.moreover.archive;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleAdapter;
+import com.lexisnexis.bis.moreover.harvest.Slice;
+import com.lexisnexis.bis.moreover.sink.ArticleSink;
+
+/**
+ * Sink appending the articles to an archive which can be replayed later with {@link ArchiveReader}.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class ArchiveArticleSink<A> implements ArticleSink<A> {
+
+    private final ArchiveWriter<A> writer;
+
+    private final ArticleAdapter<A> adapter;
+
+    public ArchiveArticleSink(Path directory, ArticleAdapter<A> adapter, ArticleCodec<A> codec) throws IOException {
+        this.writer = new ArchiveWriter<>(directory, codec);
+        this.adapter = adapter;
+    }
+
+    @Override
+    public void write(Slice slice, List<A> articles) throws IOException {
+        /**
+         * Holding the writer keeps the articles of a batch together in the archive.
+         */
+        synchronized (writer) {
+            for (A article : articles) {
+                Long sequenceId = adapter.getSequenceId(article);
+                if (sequenceId == null) {
+                    System.err.println("Not archiving article without sequenceId from " + slice);
+                    continue;
+                }
+                writer.append(sequenceId, article);
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+}
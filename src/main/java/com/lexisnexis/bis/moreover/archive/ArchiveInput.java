@@ -0,0 +1,118 @@
+package com.lexisnexis.bis.moreover.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.lexisnexis.bis.moreover.intern.StringPool;
+import com.lexisnexis.bis.moreover.time.MetabaseTimestamps;
+
+/**
+ * Decodes the fields written by {@link ArchiveOutput} from a buffer, usually a memory-mapped
+ * segment. Strings are copied from the buffer into a reusable scratch array and decoded from it, or
+ * looked up in a {@link StringPool} for the low-cardinality fields.
+ */
+public final class ArchiveInput {
+
+    private ByteBuffer buffer;
+
+    private byte[] scratch = new byte[4096];
+
+    /**
+     * @param buffer the buffer to read, from its position
+     */
+    public void setBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public int readByte() throws IOException {
+        if (!buffer.hasRemaining()) {
+            throw new IOException("Truncated archive record");
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in archive record");
+    }
+
+    public long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public Long readLong() throws IOException {
+        return readByte() == 0 ? null : readSignedVarLong();
+    }
+
+    public Date readDate() throws IOException {
+        Long time = readLong();
+        return time != null ? new Date(time) : null;
+    }
+
+    /**
+     * @return the timestamp in epoch milliseconds, or {@link MetabaseTimestamps#NONE}
+     */
+    public long readTimestamp() throws IOException {
+        return readByte() == 0 ? MetabaseTimestamps.NONE : readSignedVarLong();
+    }
+
+    public String readString() throws IOException {
+        return readString(null);
+    }
+
+    /**
+     * @param pool the pool of the field, or null to create a new String
+     * @return the canonical String of the value from the pool, looked up from its bytes
+     */
+    public String readString(StringPool pool) throws IOException {
+        long length = readVarLong();
+        if (length == 0) {
+            return null;
+        }
+        int utf8Length = (int) (length - 1);
+        if (utf8Length > buffer.remaining()) {
+            throw new IOException("Truncated archive record");
+        }
+        if (utf8Length > scratch.length) {
+            scratch = new byte[Math.max(utf8Length, scratch.length * 2)];
+        }
+        buffer.get(scratch, 0, utf8Length);
+        return pool != null ? pool.intern(scratch, 0, utf8Length) : new String(scratch, 0, utf8Length, StandardCharsets.UTF_8);
+    }
+
+    public List<String> readStrings() throws IOException {
+        return readStrings(null);
+    }
+
+    /**
+     * @param pool the pool of the values, or null to create new Strings
+     */
+    public List<String> readStrings(StringPool pool) throws IOException {
+        long size = readVarLong();
+        if (size == 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>((int) Math.min(size - 1, 1024));
+        for (long i = 1; i < size; i++) {
+            values.add(readString(pool));
+        }
+        return values;
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.lexisnexis.bis.moreover.archive;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import com.lexisnexis.bis.moreover.time.MetabaseTimestamps;
+
+/**
+ * Encodes the fields of an archived article into a reusable byte buffer.
+ * <p/>
+ * Integers are written as varints, signed ones zigzag encoded first so that small negative values
+ * stay short. Strings are written as their UTF-8 length followed by their UTF-8 bytes, encoded
+ * directly into the buffer without an intermediate byte array. Values which may be missing are
+ * written with a length or a marker shifted by one, 0 standing for null.
+ */
+public final class ArchiveOutput {
+
+    private byte[] buffer;
+
+    private int length;
+
+    public ArchiveOutput(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    public void reset() {
+        length = 0;
+    }
+
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) value;
+    }
+
+    public void writeInt(int value) {
+        ensureCapacity(4);
+        buffer[length++] = (byte) (value >>> 24);
+        buffer[length++] = (byte) (value >>> 16);
+        buffer[length++] = (byte) (value >>> 8);
+        buffer[length++] = (byte) value;
+    }
+
+    /**
+     * Writes an unsigned varint, 7 bits per byte with the high bit set on all bytes but the last.
+     */
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    public void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    public void writeLong(Long value) {
+        if (value == null) {
+            writeByte(0);
+        } else {
+            writeByte(1);
+            writeSignedVarLong(value);
+        }
+    }
+
+    public void writeDate(Date value) {
+        writeLong(value != null ? value.getTime() : null);
+    }
+
+    /**
+     * Writes a timestamp as {@link #writeDate(Date)} would write it.
+     *
+     * @param millis the timestamp in epoch milliseconds, or {@link MetabaseTimestamps#NONE}
+     */
+    public void writeTimestamp(long millis) {
+        if (millis == MetabaseTimestamps.NONE) {
+            writeByte(0);
+        } else {
+            writeByte(1);
+            writeSignedVarLong(millis);
+        }
+    }
+
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarLong(0);
+            return;
+        }
+        int utf8Length = utf8Length(value);
+        writeVarLong(utf8Length + 1L);
+        ensureCapacity(utf8Length);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                /**
+                 * A lone surrogate cannot be encoded, written as '?' as String.getBytes does.
+                 */
+                buffer[length++] = (byte) '?';
+            } else {
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Writes a string already encoded in UTF-8, as {@link #writeString(String)} would write it.
+     *
+     * @param utf8 the UTF-8 bytes from the position to the limit of the buffer, or null
+     */
+    public void writeUtf8(ByteBuffer utf8) {
+        if (utf8 == null) {
+            writeVarLong(0);
+            return;
+        }
+        int utf8Length = utf8.remaining();
+        writeVarLong(utf8Length + 1L);
+        ensureCapacity(utf8Length);
+        utf8.get(buffer, length, utf8Length);
+        length += utf8Length;
+    }
+
+    public void writeStrings(List<String> values) {
+        if (values == null) {
+            writeVarLong(0);
+            return;
+        }
+        writeVarLong(values.size() + 1L);
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    private static int utf8Length(String value) {
+        int utf8Length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                utf8Length++;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                utf8Length++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+        return utf8Length;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.lexisnexis.bis.moreover.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Replays the articles of an archive, see {@link Segments} for the layout.
+ * <p/>
+ * Each segment is memory-mapped and its sparse index used to skip the blocks which hold no
+ * sequenceId of the range, so only the blocks of the range are read and decoded, straight from
+ * the page cache. Articles are replayed in the order they were archived, which is the order of
+ * the feed within a slice; a record failing its checksum ends the replay of its segment.
+ * <p/>
+ * A reader may run while a writer appends to the archive, it sees the records flushed when the
+ * replay reaches their segment. A reader is not thread safe, concurrent replays need a reader each.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class ArchiveReader<A> {
+
+    private final Path directory;
+
+    private final ArticleCodec<A> codec;
+
+    private final ArchiveInput in = new ArchiveInput();
+
+    private final CRC32 crc = new CRC32();
+
+    private long replayed;
+
+    public ArchiveReader(Path directory, ArticleCodec<A> codec) {
+        this.directory = directory;
+        this.codec = codec;
+    }
+
+    /**
+     * Replays the articles whose sequenceId is in the given range.
+     *
+     * @param fromSequenceId the lowest sequenceId to replay, inclusive
+     * @param toSequenceId the highest sequenceId to replay, inclusive
+     * @param handler the handler receiving each article
+     * @return the number of articles replayed
+     * @throws IOException if a segment cannot be read or the handler fails
+     */
+    public long replay(long fromSequenceId, long toSequenceId, ArchiveRecordHandler<A> handler) throws IOException {
+        replayed = 0;
+        for (Path file : Segments.list(directory)) {
+            replaySegment(file, fromSequenceId, toSequenceId, handler);
+        }
+        return replayed;
+    }
+
+    private void replaySegment(Path file, long fromSequenceId, long toSequenceId, ArchiveRecordHandler<A> handler) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+            /**
+             * The mapping stays valid once the channel is closed.
+             */
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, Integer.MAX_VALUE));
+        }
+        Segments.readHeader(file, buffer, in, codec.getFormat());
+
+        int indexedEnd = buffer.position();
+        ByteBuffer index = readIndex(file);
+        while (index.remaining() >= Segments.INDEX_ENTRY_BYTES) {
+            long offset = index.getLong();
+            int length = index.getInt();
+            long minSequenceId = index.getLong();
+            long maxSequenceId = index.getLong();
+            /**
+             * Blocks follow each other, an entry which does not start where the previous block ended
+             * on the first record of a block is corrupt and the rest of the index is not trusted.
+             */
+            if (offset != indexedEnd || length <= 0 || offset + length > buffer.capacity()
+                    || !isBlockStart(buffer, indexedEnd, (int) (offset + length))) {
+                break;
+            }
+            indexedEnd = (int) (offset + length);
+            if (maxSequenceId < fromSequenceId || minSequenceId > toSequenceId) {
+                continue;
+            }
+            if (!replayRecords(file, buffer, (int) offset, indexedEnd, fromSequenceId, toSequenceId, handler)) {
+                return;
+            }
+        }
+
+        /**
+         * Records past the last valid index entry are scanned up to the first invalid one, from the
+         * end of the last block checked, so the scan starts on the first record of a block.
+         */
+        replayRecords(file, buffer, indexedEnd, buffer.capacity(), fromSequenceId, toSequenceId, handler);
+    }
+
+    /**
+     * @return whether a valid record holding the full sequenceId of a block starts at the offset
+     */
+    private boolean isBlockStart(ByteBuffer buffer, int offset, int end) throws IOException {
+        buffer.limit(end);
+        buffer.position(offset);
+        return Segments.checkRecord(buffer, in, crc) >= 0 && Segments.isBlockStart(in.readVarLong());
+    }
+
+    /**
+     * Replays the records from the start of a block. Each block starts with a record holding its
+     * sequenceId in full, which the deltas of the following records are added to.
+     *
+     * @return false if an invalid record was met before the end
+     */
+    private boolean replayRecords(Path file, ByteBuffer buffer, int start, int end, long fromSequenceId, long toSequenceId,
+            ArchiveRecordHandler<A> handler) throws IOException {
+        long previousSequenceId = 0;
+        int position = start;
+        while (position < end) {
+            buffer.limit(end);
+            buffer.position(position);
+            int next = Segments.checkRecord(buffer, in, crc);
+            long value = next < 0 ? 0 : in.readVarLong();
+            if (next < 0 || position == start && !Segments.isBlockStart(value)) {
+                if (end < buffer.capacity()) {
+                    System.err.println("Invalid record at offset " + position + " of archive segment " + file);
+                }
+                return false;
+            }
+            long sequenceId = Segments.sequenceId(value, previousSequenceId);
+            previousSequenceId = sequenceId;
+            if (sequenceId >= fromSequenceId && sequenceId <= toSequenceId) {
+                handler.onRecord(sequenceId, codec.decode(sequenceId, in));
+                replayed++;
+            }
+            position = next;
+        }
+        return true;
+    }
+
+    private static ByteBuffer readIndex(Path dataFile) throws IOException {
+        Path file = Segments.indexFile(dataFile);
+        if (!Files.exists(file)) {
+            return ByteBuffer.allocate(0);
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(file));
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.lexisnexis.bis.moreover.archive;
+
+import java.io.IOException;
+
+/**
+ * Receives the articles replayed from an archive.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public interface ArchiveRecordHandler<A> {
+
+    void onRecord(long sequenceId, A article) throws IOException;
+
+}
@@ -0,0 +1,139 @@
+package com.lexisnexis.bis.moreover.archive;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleAdapter;
+import com.lexisnexis.bis.moreover.harvest.Slice;
+import com.lexisnexis.bis.moreover.json.JSONArticleAdapter;
+import com.lexisnexis.bis.moreover.json.JSONArticleCodec;
+import com.lexisnexis.bis.moreover.sink.ArticleSink;
+import com.lexisnexis.bis.moreover.sink.ArticleSinks;
+import com.lexisnexis.bis.moreover.xml.XMLArticleAdapter;
+import com.lexisnexis.bis.moreover.xml.XMLArticleCodec;
+
+/**
+ * Replays a range of sequenceIds of an archive to the outputs a client would write to, without
+ * calling Metabase, e.g. to rebuild an output or load a day of articles into a new store.
+ * <p/>
+ * Articles are handed to the outputs in batches of {@link #BATCH_SIZE}, flushed after each batch.
+ */
+public final class ArchiveReplay {
+
+    public static final int BATCH_SIZE = 500;
+
+    private static final String ARCHIVE_DIR_OPTION = "archiveDir";
+    private static final String FORMAT_OPTION = "format";
+    private static final String FROM_OPTION = "from";
+    private static final String TO_OPTION = "to";
+    private static final String OUTPUT_OPTION = "output";
+
+    private static final Slice ARCHIVE_SLICE = new Slice("archive", null, null);
+
+    private ArchiveReplay() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        CommandLine commandLine = parseArgumentsGivenAsParameters(args);
+
+        if (commandLine.getOptionValue(ARCHIVE_DIR_OPTION) == null) {
+            System.out.println(getHelpDescription());
+            System.exit(1);
+        }
+        Path directory = Paths.get(commandLine.getOptionValue(ARCHIVE_DIR_OPTION));
+        long from = commandLine.getOptionValue(FROM_OPTION) != null ?
+                Long.parseLong(commandLine.getOptionValue(FROM_OPTION)) :
+                0;
+        long to = commandLine.getOptionValue(TO_OPTION) != null ?
+                Long.parseLong(commandLine.getOptionValue(TO_OPTION)) :
+                Long.MAX_VALUE;
+        String[] outputs = commandLine.getOptionValues(OUTPUT_OPTION);
+
+        String format = commandLine.getOptionValue(FORMAT_OPTION, JSONArticleCodec.FORMAT);
+        long startTime = System.currentTimeMillis();
+        long replayed;
+        if (JSONArticleCodec.FORMAT.equals(format)) {
+            replayed = replay(directory, from, to, outputs, new JSONArticleAdapter(), new JSONArticleCodec());
+        } else if (XMLArticleCodec.FORMAT.equals(format)) {
+            replayed = replay(directory, from, to, outputs, new XMLArticleAdapter(), new XMLArticleCodec());
+        } else {
+            System.out.println(getHelpDescription());
+            System.exit(1);
+            return;
+        }
+        System.out.println("Replayed " + replayed + " article(s) in " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    private static <A> long replay(Path directory, long from, long to, String[] outputs,
+            ArticleAdapter<A> adapter, ArticleCodec<A> codec) throws IOException {
+        try (ArticleSink<A> sink = ArticleSinks.create(outputs, adapter, codec)) {
+            List<A> batch = new ArrayList<>(BATCH_SIZE);
+            long replayed = new ArchiveReader<>(directory, codec).replay(from, to, (sequenceId, article) -> {
+                batch.add(article);
+                if (batch.size() == BATCH_SIZE) {
+                    sink.write(ARCHIVE_SLICE, batch);
+                    sink.flush();
+                    batch.clear();
+                }
+            });
+            if (!batch.isEmpty()) {
+                sink.write(ARCHIVE_SLICE, batch);
+            }
+            sink.flush();
+            return replayed;
+        }
+    }
+
+    private static CommandLine parseArgumentsGivenAsParameters(String[] args) {
+        Options options = createOptionForMenu();
+
+        CommandLineParser parser = new DefaultParser();
+        CommandLine commandLine = null;
+        try {
+            commandLine = parser.parse(options, args);
+        } catch (ParseException e) {
+            System.out.println(getHelpDescription());
+            System.exit(1);
+        }
+
+        return commandLine;
+    }
+
+    private static Options createOptionForMenu() {
+        Options options = new Options();
+        options.addOption(new Option("d", ARCHIVE_DIR_OPTION, true, null));
+        options.addOption(new Option("t", FORMAT_OPTION, true, null));
+        options.addOption(new Option("f", FROM_OPTION, true, null));
+        options.addOption(new Option("u", TO_OPTION, true, null));
+        options.addOption(new Option("o", OUTPUT_OPTION, true, null));
+        return options;
+    }
+
+    private static String getHelpDescription() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Usage commands: ");
+        builder.append("\n\n");
+        builder.append("-d | --archiveDir").append("\t").append("directory of the archive to replay (required)");
+        builder.append("\n");
+        builder.append("-t | --format").append("\t\t").append("format of the archived articles, json or xml (default json)");
+        builder.append("\n");
+        builder.append("-f | --from").append("\t\t").append("lowest sequenceId to replay, inclusive (default 0)");
+        builder.append("\n");
+        builder.append("-u | --to").append("\t\t").append("highest sequenceId to replay, inclusive (default no limit)");
+        builder.append("\n");
+        builder.append("-o | --output").append("\t\t").append("where to write the articles, as for the clients, repeatable (default stdout)");
+        builder.append("\n");
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,306 @@
+package com.lexisnexis.bis.moreover.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Appends articles to the segments of an archive, see {@link Segments} for the layout.
+ * <p/>
+ * Records are buffered and reach the segment on {@link #flush()}, which also writes the index
+ * entries of the blocks written since the previous flush and forces both files to disk. A new
+ * segment is started once the current one holds <i>maxSegmentBytes</i> or was opened more than
+ * <i>maxSegmentAgeMillis</i> ago. Like the rotating file sink, segments are only rolled over on
+ * flush, so a batch is never split across two segments.
+ * <p/>
+ * On open, the end of the last segment torn by a crash is truncated, and the writer starts a new
+ * segment with its first article.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class ArchiveWriter<A> implements Closeable {
+
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 256L * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_SEGMENT_AGE_MILLIS = 60L * 60 * 1000;
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final Path directory;
+
+    private final ArticleCodec<A> codec;
+
+    private final long maxSegmentBytes;
+
+    private final long maxSegmentAgeMillis;
+
+    private final ArchiveOutput record = new ArchiveOutput(16 * 1024);
+
+    private final ArchiveOutput frame = new ArchiveOutput(16);
+
+    private final ByteBuffer pendingIndex = ByteBuffer.allocate(Segments.INDEX_ENTRY_BYTES * 256);
+
+    private final CRC32 crc = new CRC32();
+
+    private long nextSegmentNumber;
+
+    private FileChannel dataChannel;
+
+    private OutputStream data;
+
+    private FileChannel indexChannel;
+
+    private long segmentBytes;
+
+    private long segmentOpenedMillis;
+
+    private long blockOffset;
+
+    private int blockRecords;
+
+    private long blockMinSequenceId;
+
+    private long blockMaxSequenceId;
+
+    private long previousSequenceId;
+
+    public ArchiveWriter(Path directory, ArticleCodec<A> codec) throws IOException {
+        this(directory, codec, DEFAULT_MAX_SEGMENT_BYTES, DEFAULT_MAX_SEGMENT_AGE_MILLIS);
+    }
+
+    public ArchiveWriter(Path directory, ArticleCodec<A> codec, long maxSegmentBytes, long maxSegmentAgeMillis) throws IOException {
+        if (maxSegmentBytes > Segments.MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Segments are limited to " + Segments.MAX_SEGMENT_BYTES + " bytes");
+        }
+        this.directory = directory;
+        this.codec = codec;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentAgeMillis = maxSegmentAgeMillis;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Appends an article.
+     *
+     * @param sequenceId the sequenceId of the article, never negative
+     * @param article the article
+     * @throws IOException if the segment cannot be written
+     */
+    public synchronized void append(long sequenceId, A article) throws IOException {
+        if (sequenceId < 0) {
+            throw new IllegalArgumentException("Negative sequenceId " + sequenceId);
+        }
+        if (data != null && segmentBytes >= Segments.MAX_SEGMENT_BYTES) {
+            /**
+             * Only reached by a single huge batch, the segment must stay mappable.
+             */
+            flush();
+            closeSegment();
+        }
+        if (data == null) {
+            openSegment();
+        }
+
+        record.reset();
+        if (blockRecords == 0) {
+            blockOffset = segmentBytes;
+            blockMinSequenceId = sequenceId;
+            blockMaxSequenceId = sequenceId;
+            record.writeVarLong(Segments.blockStart(sequenceId));
+        } else {
+            blockMinSequenceId = Math.min(blockMinSequenceId, sequenceId);
+            blockMaxSequenceId = Math.max(blockMaxSequenceId, sequenceId);
+            record.writeVarLong(Segments.delta(sequenceId - previousSequenceId));
+        }
+        codec.encode(article, record);
+
+        crc.reset();
+        crc.update(record.getBuffer(), 0, record.getLength());
+        frame.reset();
+        frame.writeVarLong(record.getLength());
+        data.write(frame.getBuffer(), 0, frame.getLength());
+        data.write(record.getBuffer(), 0, record.getLength());
+        frame.reset();
+        frame.writeInt((int) crc.getValue());
+        data.write(frame.getBuffer(), 0, frame.getLength());
+        segmentBytes += frame.getLength() + record.getLength() + varLongLength(record.getLength());
+
+        previousSequenceId = sequenceId;
+        if (++blockRecords == Segments.BLOCK_RECORDS) {
+            endBlock();
+        }
+    }
+
+    /**
+     * Writes the buffered records and their index entries and forces them to disk, then starts a
+     * new segment with the next article if the current one is full or old enough.
+     *
+     * @throws IOException if the segment cannot be written
+     */
+    public synchronized void flush() throws IOException {
+        if (data == null) {
+            return;
+        }
+        if (blockRecords > 0) {
+            endBlock();
+        }
+        writeIndex();
+        if (segmentBytes >= maxSegmentBytes || System.currentTimeMillis() - segmentOpenedMillis >= maxSegmentAgeMillis) {
+            closeSegment();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        closeSegment();
+    }
+
+    private void endBlock() throws IOException {
+        if (!pendingIndex.hasRemaining()) {
+            writeIndex();
+        }
+        pendingIndex.putLong(blockOffset);
+        pendingIndex.putInt((int) (segmentBytes - blockOffset));
+        pendingIndex.putLong(blockMinSequenceId);
+        pendingIndex.putLong(blockMaxSequenceId);
+        blockRecords = 0;
+    }
+
+    /**
+     * Index entries are only written once the records they point to are on disk, so that an
+     * entry never points past the end of a segment.
+     */
+    private void writeIndex() throws IOException {
+        data.flush();
+        dataChannel.force(false);
+        pendingIndex.flip();
+        while (pendingIndex.hasRemaining()) {
+            indexChannel.write(pendingIndex);
+        }
+        pendingIndex.clear();
+        indexChannel.force(false);
+    }
+
+    private void openSegment() throws IOException {
+        Path file = Segments.dataFile(directory, nextSegmentNumber++);
+        dataChannel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        indexChannel = FileChannel.open(Segments.indexFile(file), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        data = new BufferedOutputStream(Channels.newOutputStream(dataChannel), BUFFER_SIZE);
+
+        ArchiveOutput header = new ArchiveOutput(64);
+        Segments.writeHeader(header, codec.getFormat());
+        data.write(header.getBuffer(), 0, header.getLength());
+        segmentBytes = header.getLength();
+        segmentOpenedMillis = System.currentTimeMillis();
+        blockRecords = 0;
+    }
+
+    private void closeSegment() throws IOException {
+        if (data == null) {
+            return;
+        }
+        try {
+            data.close();
+        } finally {
+            indexChannel.close();
+            data = null;
+            dataChannel = null;
+            indexChannel = null;
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Path> segments = Segments.list(directory);
+        if (segments.isEmpty()) {
+            return;
+        }
+        Path last = segments.get(segments.size() - 1);
+        nextSegmentNumber = Segments.number(last) + 1;
+
+        long validLength = validLength(last);
+        if (validLength < Files.size(last)) {
+            System.err.println("Truncating archive segment " + last + " torn at " + validLength + " bytes");
+            try (FileChannel truncated = FileChannel.open(last, StandardOpenOption.WRITE)) {
+                truncated.truncate(validLength);
+            }
+        }
+
+        /**
+         * Drop the index entries past the valid end, and a last entry torn by a crash.
+         */
+        Path index = Segments.indexFile(last);
+        if (Files.exists(index)) {
+            try (FileChannel indexChannel = FileChannel.open(index, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long entries = indexChannel.size() / Segments.INDEX_ENTRY_BYTES;
+                ByteBuffer entry = ByteBuffer.allocate(Segments.INDEX_ENTRY_BYTES);
+                long validEntries = 0;
+                while (validEntries < entries) {
+                    entry.clear();
+                    indexChannel.read(entry, validEntries * Segments.INDEX_ENTRY_BYTES);
+                    if (entry.getLong(0) + entry.getInt(8) > validLength) {
+                        break;
+                    }
+                    validEntries++;
+                }
+                indexChannel.truncate(validEntries * Segments.INDEX_ENTRY_BYTES);
+            }
+        }
+    }
+
+    /**
+     * @return the length of the segment up to its last valid record
+     */
+    private long validLength(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return 0;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, Integer.MAX_VALUE));
+            ArchiveInput in = new ArchiveInput();
+            try {
+                Segments.readHeader(file, buffer, in, codec.getFormat());
+            } catch (IOException e) {
+                if (size < 64) {
+                    /**
+                     * A crash right after the segment was created, before its header reached the disk.
+                     */
+                    return 0;
+                }
+                throw e;
+            }
+            CRC32 check = new CRC32();
+            int position = buffer.position();
+            int next;
+            while ((next = Segments.checkRecord(buffer, in, check)) >= 0) {
+                position = next;
+                buffer.limit(buffer.capacity());
+                buffer.position(position);
+            }
+            return position;
+        }
+    }
+
+    private static int varLongLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.lexisnexis.bis.moreover.archive;
+
+import java.io.IOException;
+
+/**
+ * Writes the fields of the articles of a feed format into the archive and reads them back.
+ * The sequenceId is not part of the fields, the archive writes it itself.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public interface ArticleCodec<A> {
+
+    /**
+     * @return the name of the feed format, recorded in every segment so that formats are never mixed
+     */
+    String getFormat();
+
+    void encode(A article, ArchiveOutput out);
+
+    /**
+     * @param sequenceId the sequenceId of the archived article
+     * @param in the input positioned on the fields of the article
+     * @return the article
+     * @throws IOException if the fields are truncated or malformed
+     */
+    A decode(long sequenceId, ArchiveInput in) throws IOException;
+
+}
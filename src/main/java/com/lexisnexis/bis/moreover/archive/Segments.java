@@ -0,0 +1,184 @@
+package com.lexisnexis.bis.moreover.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Layout of the segment files of an archive, shared by the writer and the reader.
+ * <p/>
+ * An archive is a directory of segments named <i>segment-NNNNNNNNNNNNNNNNNNNN.arc</i>, numbered
+ * in the order they were written. A segment starts with a header, the magic number, the format
+ * version and the name of the feed format, followed by records:
+ * <pre>
+ *   varint  payload length
+ *   payload varint sequenceId, then the fields written by the {@link ArticleCodec}
+ *   int     CRC32 of the payload
+ * </pre>
+ * Records are grouped in blocks of up to {@link #BLOCK_RECORDS} records. The first record of a
+ * block holds its sequenceId in full, <i>sequenceId &lt;&lt; 1 | 1</i>, and each following one the
+ * zigzag encoded delta from the previous record, <i>zigzag(delta) &lt;&lt; 1</i>, so a block decodes
+ * on its own and deltas of a batch take a byte or two. Each segment has a sparse index,
+ * <i>segment-NNNNNNNNNNNNNNNNNNNN.idx</i>, with one entry per block: its offset, its length and
+ * the lowest and highest sequenceIds it holds. As the slices of a harvester share the archive,
+ * sequenceIds are only ordered within a batch, hence a range per block rather than a plain
+ * sequenceId to offset mapping. Blocks written after the last index entry, when the index was
+ * not written before a crash, are found by scanning the end of the segment, from the end of the
+ * last index entry whose block starts with a valid record holding a full sequenceId.
+ */
+final class Segments {
+
+    static final int MAGIC = 0x4D424152;
+    static final int VERSION = 1;
+
+    static final int BLOCK_RECORDS = 64;
+
+    /**
+     * Offset (long), length (int), lowest and highest sequenceIds (long).
+     */
+    static final int INDEX_ENTRY_BYTES = 8 + 4 + 8 + 8;
+
+    /**
+     * Segments are memory-mapped whole, which limits them to a single mapping.
+     */
+    static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private static final String PREFIX = "segment-";
+    static final String DATA_SUFFIX = ".arc";
+    static final String INDEX_SUFFIX = ".idx";
+
+    private Segments() {
+    }
+
+    static String name(long number) {
+        return String.format("%s%020d", PREFIX, number);
+    }
+
+    static Path dataFile(Path directory, long number) {
+        return directory.resolve(name(number) + DATA_SUFFIX);
+    }
+
+    static Path indexFile(Path dataFile) {
+        String name = dataFile.getFileName().toString();
+        return dataFile.resolveSibling(name.substring(0, name.length() - DATA_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    static long number(Path dataFile) {
+        String name = dataFile.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - DATA_SUFFIX.length()));
+    }
+
+    /**
+     * @return the data files of the archive, in the order they were written
+     */
+    static List<Path> list(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + DATA_SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    static long blockStart(long sequenceId) {
+        return sequenceId << 1 | 1;
+    }
+
+    /**
+     * @param value the encoded sequenceId of a record
+     * @return whether the record is the first of its block, holding its sequenceId in full
+     */
+    static boolean isBlockStart(long value) {
+        return (value & 1) != 0;
+    }
+
+    static long delta(long delta) {
+        return ((delta << 1) ^ (delta >> 63)) << 1;
+    }
+
+    /**
+     * @param value the encoded sequenceId of a record
+     * @param previousSequenceId the sequenceId of the previous record of the block
+     * @return the sequenceId of the record
+     */
+    static long sequenceId(long value, long previousSequenceId) {
+        if (isBlockStart(value)) {
+            return value >>> 1;
+        }
+        long zigzag = value >>> 1;
+        return previousSequenceId + ((zigzag >>> 1) ^ -(zigzag & 1));
+    }
+
+    static void writeHeader(ArchiveOutput out, String format) {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeString(format);
+    }
+
+    /**
+     * Reads the header of a segment, leaving the buffer on the first record.
+     *
+     * @throws IOException if the segment is not an archive segment of the given format
+     */
+    static void readHeader(Path file, ByteBuffer buffer, ArchiveInput in, String format) throws IOException {
+        if (buffer.remaining() < 5 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not an archive segment: " + file);
+        }
+        int version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version " + version + " of archive segment " + file);
+        }
+        in.setBuffer(buffer);
+        String segmentFormat = in.readString();
+        if (!format.equals(segmentFormat)) {
+            throw new IOException("Archive segment " + file + " holds " + segmentFormat + " articles, not " + format);
+        }
+    }
+
+    /**
+     * Checks the record at the position of the buffer and leaves the buffer limited to its payload.
+     *
+     * @return the position following the record, or -1 if the record is incomplete or corrupt,
+     *         which is expected at the end of a segment torn by a crash
+     */
+    static int checkRecord(ByteBuffer buffer, ArchiveInput in, CRC32 crc) {
+        int start = buffer.position();
+        int end = buffer.limit();
+        long payloadLength;
+        try {
+            payloadLength = in.readVarLong();
+        } catch (IOException e) {
+            return -1;
+        }
+        int payloadStart = buffer.position();
+        if (payloadLength <= 0 || payloadLength > end - payloadStart - 4) {
+            buffer.position(start);
+            return -1;
+        }
+        int payloadEnd = payloadStart + (int) payloadLength;
+        buffer.limit(payloadEnd);
+        crc.reset();
+        crc.update(buffer);
+        buffer.limit(end);
+        int expected = buffer.getInt(payloadEnd);
+        if ((int) crc.getValue() != expected) {
+            buffer.position(start);
+            return -1;
+        }
+        buffer.position(payloadStart);
+        buffer.limit(payloadEnd);
+        return payloadEnd + 4;
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.lexisnexis.bis.moreover.checkpoint;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import com.lexisnexis.bis.moreover.harvest.Slice;
+
+/**
+ * Keeps the sequenceId cursor of every slice so that a client can resume where it stopped.
+ * <p/>
+ * Implementations must be safe to call from the poll loops of several slices at the same time.
+ */
+public interface CheckpointStore extends Closeable {
+
+    /**
+     * @param slice the slice, identified by its key, number of slices and slice index
+     * @return the last sequenceId committed for the slice, or null if the slice was never committed
+     */
+    Long load(Slice slice);
+
+    /**
+     * Records that every article up to the given sequenceId has been delivered for the slice.
+     * The commit may be buffered and only become durable on the next {@link #flush()}.
+     *
+     * @param slice the slice
+     * @param sequenceId the sequenceId of the last article delivered
+     * @throws IOException if the commit triggered a flush which failed
+     */
+    void commit(Slice slice, long sequenceId) throws IOException;
+
+    /**
+     * Makes every buffered commit durable.
+     *
+     * @throws IOException if the commits could not be written
+     */
+    void flush() throws IOException;
+
+}
@@ -0,0 +1,326 @@
+package com.lexisnexis.bis.moreover.checkpoint;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.lexisnexis.bis.moreover.harvest.Slice;
+
+/**
+ * Crash-safe checkpoint store backed by an append-only log file.
+ * <p/>
+ * Every commit is a small record holding the key, the number of slices, the slice index and the
+ * sequenceId, framed by its length and a CRC32 checksum. Commits are buffered and written in
+ * batches, each batch being forced to disk before the flush returns, so a process killed with
+ * <i>kill -9</i> loses at most the commits of the current batch and restarts slightly behind,
+ * never ahead. A record torn by a crash fails its checksum and is truncated away on the next open.
+ * <p/>
+ * A batch is written when <i>batchSize</i> commits are pending, when the oldest pending commit is
+ * older than <i>maxDelayMillis</i>, and when the store is closed. Once the log holds too many
+ * records it is compacted into a new log holding only the latest cursor of each slice, which
+ * atomically replaces the old one.
+ */
+public class FileCheckpointStore implements CheckpointStore {
+
+    public static final String LOG_FILE_NAME = "checkpoints.log";
+
+    public static final int DEFAULT_BATCH_SIZE = 16;
+
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 1000;
+
+    private static final int COMPACTION_THRESHOLD = 10000;
+
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private static final int NO_SLICE = -1;
+
+    private final Path directory;
+
+    private final Path logFile;
+
+    private final int batchSize;
+
+    private final long maxDelayMillis;
+
+    private final Map<Slice, Long> committed = new HashMap<>();
+
+    private final Map<Slice, Long> pending = new LinkedHashMap<>();
+
+    private final ScheduledExecutorService flusher;
+
+    private FileChannel channel;
+
+    private int records;
+
+    private long oldestPendingMillis;
+
+    private FileCheckpointStore(Path directory, int batchSize, long maxDelayMillis) {
+        this.directory = directory;
+        this.logFile = directory.resolve(LOG_FILE_NAME);
+        this.batchSize = batchSize;
+        this.maxDelayMillis = maxDelayMillis;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the checkpoint store of the given directory with the default batching.
+     *
+     * @param directory the directory holding the checkpoint log, created if needed
+     * @return the opened store
+     * @throws IOException if the log cannot be read or opened
+     */
+    public static FileCheckpointStore open(Path directory) throws IOException {
+        return open(directory, DEFAULT_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * Opens the checkpoint store of the given directory, replaying its log to recover the last
+     * committed cursor of every slice.
+     *
+     * @param directory the directory holding the checkpoint log, created if needed
+     * @param batchSize the number of pending commits which triggers a write
+     * @param maxDelayMillis the maximum time a commit stays pending before being written
+     * @return the opened store
+     * @throws IOException if the log cannot be read or opened
+     */
+    public static FileCheckpointStore open(Path directory, int batchSize, long maxDelayMillis) throws IOException {
+        Files.createDirectories(directory);
+        FileCheckpointStore store = new FileCheckpointStore(directory, batchSize, maxDelayMillis);
+        store.recover();
+        store.flusher.scheduleWithFixedDelay(store::flushQuietly, maxDelayMillis, maxDelayMillis, TimeUnit.MILLISECONDS);
+        return store;
+    }
+
+    @Override
+    public synchronized Long load(Slice slice) {
+        Long sequenceId = pending.get(slice);
+        return sequenceId != null ? sequenceId : committed.get(slice);
+    }
+
+    @Override
+    public synchronized void commit(Slice slice, long sequenceId) throws IOException {
+        if (pending.isEmpty()) {
+            oldestPendingMillis = System.currentTimeMillis();
+        }
+        pending.put(slice, sequenceId);
+        if (pending.size() >= batchSize || System.currentTimeMillis() - oldestPendingMillis >= maxDelayMillis) {
+            flush();
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (pending.isEmpty() || channel == null) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (Map.Entry<Slice, Long> entry : pending.entrySet()) {
+            writeRecord(bytes, entry.getKey(), entry.getValue());
+        }
+        long position = channel.position();
+        try {
+            writeFully(channel, ByteBuffer.wrap(bytes.toByteArray()));
+            channel.force(false);
+        } catch (IOException e) {
+            /**
+             * Do not leave a partial batch in the middle of the log, later records would be
+             * unreachable on recovery. The batch stays pending and is retried on the next flush.
+             */
+            channel.truncate(position);
+            channel.position(position);
+            throw e;
+        }
+
+        records += pending.size();
+        committed.putAll(pending);
+        pending.clear();
+
+        if (records > COMPACTION_THRESHOLD) {
+            try {
+                compact();
+            } catch (IOException e) {
+                /**
+                 * The batch is already forced to the log, which stays valid and open: keep
+                 * appending to it and compact again on a later flush.
+                 */
+                System.err.println("Could not compact the checkpoint log " + logFile + ", appending to it still");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdownNow();
+        synchronized (this) {
+            if (channel != null) {
+                try {
+                    flush();
+                } finally {
+                    channel.close();
+                    channel = null;
+                }
+            }
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Replays the log up to its last valid record, drops any torn tail left by a crash and opens
+     * the log for appending.
+     */
+    private void recover() throws IOException {
+        long validLength = 0;
+        if (Files.exists(logFile)) {
+            try (InputStream in = Files.newInputStream(logFile)) {
+                DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+                while (true) {
+                    long recordLength = readRecord(data);
+                    if (recordLength < 0) {
+                        break;
+                    }
+                    validLength += recordLength;
+                    records++;
+                }
+            }
+        }
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() > validLength) {
+            System.err.println("Truncating " + (channel.size() - validLength) + " byte(s) of torn checkpoint records in " + logFile);
+            channel.truncate(validLength);
+            channel.force(false);
+        }
+        channel.position(validLength);
+    }
+
+    /**
+     * Reads one record into the committed cursors.
+     *
+     * @return the number of bytes of the record, or -1 at the end of the log or on a torn record
+     */
+    private long readRecord(DataInputStream data) throws IOException {
+        try {
+            int length = data.readInt();
+            if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                return -1;
+            }
+            byte[] payload = new byte[length];
+            data.readFully(payload);
+            int checksum = data.readInt();
+            if (checksum != checksum(payload)) {
+                return -1;
+            }
+            DataInputStream fields = new DataInputStream(new ByteArrayInputStream(payload));
+            String key = fields.readUTF();
+            int numberOfSlices = fields.readInt();
+            int sliceIndex = fields.readInt();
+            long sequenceId = fields.readLong();
+            committed.put(new Slice(key,
+                    numberOfSlices == NO_SLICE ? null : numberOfSlices,
+                    sliceIndex == NO_SLICE ? null : sliceIndex), sequenceId);
+            return 4 + length + 4;
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Rewrites the log with only the latest cursor of each slice, then atomically moves it over the old log.
+     * The old log stays open until the new one replaced it, so a failed compaction leaves the store
+     * appending to the old log.
+     */
+    private void compact() throws IOException {
+        Path compacted = directory.resolve(LOG_FILE_NAME + ".compact");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (Map.Entry<Slice, Long> entry : committed.entrySet()) {
+            writeRecord(bytes, entry.getKey(), entry.getValue());
+        }
+        FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            writeFully(out, ByteBuffer.wrap(bytes.toByteArray()));
+            out.force(true);
+            /** the channel follows the file through the move, it is the new log once moved */
+            Files.move(compacted, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                out.close();
+                Files.deleteIfExists(compacted);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        FileChannel old = channel;
+        channel = out;
+        records = committed.size();
+        try {
+            old.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void writeRecord(ByteArrayOutputStream bytes, Slice slice, long sequenceId) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeUTF(slice.getKey());
+        payload.writeInt(slice.getNumberOfSlices() != null ? slice.getNumberOfSlices() : NO_SLICE);
+        payload.writeInt(slice.getSliceIndex() != null ? slice.getSliceIndex() : NO_SLICE);
+        payload.writeLong(sequenceId);
+        payload.flush();
+
+        byte[] record = payloadBytes.toByteArray();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(record.length);
+        out.write(record);
+        out.writeInt(checksum(record));
+        out.flush();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.lexisnexis.bis.moreover.checkpoint;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.lexisnexis.bis.moreover.harvest.Slice;
+
+/**
+ * Checkpoint store keeping the cursors in memory only, used when no checkpoint directory is given.
+ * The cursors are lost when the process stops.
+ */
+public class MemoryCheckpointStore implements CheckpointStore {
+
+    private final ConcurrentMap<Slice, Long> cursors = new ConcurrentHashMap<>();
+
+    @Override
+    public Long load(Slice slice) {
+        return cursors.get(slice);
+    }
+
+    @Override
+    public void commit(Slice slice, long sequenceId) {
+        cursors.put(slice, sequenceId);
+    }
+
+    @Override
+    public void flush() {
+        // nothing to do, cursors are never written anywhere
+    }
+
+    @Override
+    public void close() {
+        // nothing to do, cursors are never written anywhere
+    }
+
+}
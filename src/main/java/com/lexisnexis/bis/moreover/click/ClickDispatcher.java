@@ -0,0 +1,351 @@
+package com.lexisnexis.bis.moreover.click;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Calls the click urls of licensed articles off the ingest thread.
+ * <p/>
+ * Certain licensed articles require them to be "clicked" to record royalty payments in compliance
+ * with LexisNexis rules. Submitted clicks go to a bounded queue drained by <i>concurrency</i>
+ * worker threads sharing a pool of keep-alive connections, so the poll loops never wait on a
+ * click. A failed click, on an I/O error or a 5xx or 429 status, is retried with an exponential
+ * backoff up to <i>maxAttempts</i> times. Redirects are not followed, the click is recorded by
+ * the first hop and following it would download the publisher page.
+ * <p/>
+ * When a {@link ClickJournal} is given, every click is journaled on submission and marked done on
+ * completion, and the clicks still pending when the dispatcher is opened are submitted again.
+ * <p/>
+ * Submitting never blocks. When the queue is full, which only happens when clicks fall far behind,
+ * the click is dropped and counted: a journaled click stays pending in the journal and is called
+ * when the next dispatcher opened on it submits the pending clicks again.
+ */
+public class ClickDispatcher implements Closeable {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 1000;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private static final int SOCKET_TIMEOUT_MILLIS = 10000;
+
+    private static final long JOURNAL_FORCE_MILLIS = 1000;
+
+    private final BlockingQueue<Click> queue;
+
+    private final CloseableHttpClient httpClient;
+
+    private final ClickJournal journal;
+
+    private final int maxAttempts;
+
+    private final long initialBackoffMillis;
+
+    private final ExecutorService workers;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder succeeded = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder retried = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder latencyCount = new LongAdder();
+
+    private final LongAdder latencyTotalMillis = new LongAdder();
+
+    private final AtomicLong latencyMaxMillis = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates a dispatcher with the default queue capacity, concurrency and retries.
+     *
+     * @param journal the journal of pending clicks, or null to keep them in memory only
+     */
+    public ClickDispatcher(ClickJournal journal) {
+        this(journal, DEFAULT_QUEUE_CAPACITY, DEFAULT_CONCURRENCY, DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF_MILLIS);
+    }
+
+    public ClickDispatcher(ClickJournal journal, int queueCapacity, int concurrency, int maxAttempts, long initialBackoffMillis) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.journal = journal;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(concurrency);
+        connectionManager.setDefaultMaxPerRoute(concurrency);
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+                        .setConnectionRequestTimeout(CONNECT_TIMEOUT_MILLIS)
+                        .setSocketTimeout(SOCKET_TIMEOUT_MILLIS)
+                        .build())
+                .disableRedirectHandling()
+                .disableAutomaticRetries()
+                .build();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "click-dispatcher-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "click-dispatcher-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < concurrency; i++) {
+            workers.execute(this::work);
+        }
+        if (journal != null) {
+            scheduler.scheduleWithFixedDelay(this::forceJournal, JOURNAL_FORCE_MILLIS, JOURNAL_FORCE_MILLIS, TimeUnit.MILLISECONDS);
+            resubmitPending();
+        }
+    }
+
+    /**
+     * Queues a click url to be called, or drops it if the queue is full.
+     *
+     * @param url the click url
+     * @return whether the click was queued
+     * @throws IOException if the click cannot be journaled
+     */
+    public boolean submit(String url) throws IOException {
+        long id = journal != null ? journal.append(url) : -1;
+        if (queue.offer(new Click(id, url))) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * @return the number of clicks waiting in the queue
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * @return the number of clicks being called
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    /**
+     * @return the number of clicks given up after a permanent error or too many attempts
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public long getRetried() {
+        return retried.sum();
+    }
+
+    /**
+     * @return the number of clicks submitted while the queue was full, left pending in the journal if any
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the mean time of a click call in milliseconds, whatever its outcome
+     */
+    public double getMeanLatencyMillis() {
+        long count = latencyCount.sum();
+        return count == 0 ? 0 : (double) latencyTotalMillis.sum() / count;
+    }
+
+    public long getMaxLatencyMillis() {
+        return latencyMaxMillis.get();
+    }
+
+    /**
+     * Stops the workers. Clicks which were not completed stay in the journal and are submitted
+     * again by the next dispatcher opened on it.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        workers.shutdownNow();
+        scheduler.shutdownNow();
+        try {
+            workers.awaitTermination(SOCKET_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            httpClient.close();
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+    private void resubmitPending() {
+        Map<Long, String> pending = journal.getPending();
+        if (!pending.isEmpty()) {
+            System.out.println("Submitting again " + pending.size() + " pending click(s)");
+        }
+        for (Map.Entry<Long, String> entry : pending.entrySet()) {
+            Click click = new Click(entry.getKey(), entry.getValue());
+            if (!queue.offer(click)) {
+                /**
+                 * Never block the constructor, the rest is delivered as the queue drains.
+                 */
+                scheduler.execute(() -> requeue(click));
+            }
+        }
+    }
+
+    private void work() {
+        while (running) {
+            Click click;
+            try {
+                click = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            inFlight.incrementAndGet();
+            try {
+                call(click);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private void call(Click click) {
+        click.attempts++;
+        long startTime = System.currentTimeMillis();
+        boolean retry;
+        try (CloseableHttpResponse response = httpClient.execute(new HttpGet(click.url))) {
+
+            /**
+             * Reading the whole body gives the connection back to the pool for the next click.
+             */
+            EntityUtils.consume(response.getEntity());
+            int status = response.getStatusLine().getStatusCode();
+            if (status < 400) {
+                recordLatency(System.currentTimeMillis() - startTime);
+                succeeded.increment();
+                complete(click);
+                return;
+            }
+            retry = status >= 500 || status == 429;
+            if (!retry) {
+                System.err.println("Giving up click [" + click.url + "] with status " + status);
+            }
+        } catch (IOException | RuntimeException e) {
+            retry = true;
+        }
+        recordLatency(System.currentTimeMillis() - startTime);
+
+        if (retry && !running) {
+            /**
+             * Closing, the click stays pending in the journal for the next run.
+             */
+            return;
+        }
+        if (retry && click.attempts < maxAttempts) {
+            retried.increment();
+            long backoff = initialBackoffMillis << (click.attempts - 1);
+            scheduler.schedule(() -> requeue(click), backoff, TimeUnit.MILLISECONDS);
+        } else {
+            failed.increment();
+            complete(click);
+        }
+    }
+
+    private void complete(Click click) {
+        if (journal != null && click.id >= 0) {
+            try {
+                journal.complete(click.id);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Queues a click again from the scheduler, which also forces the journal and runs the other
+     * retries, so a full queue only postpones the click.
+     */
+    private void requeue(Click click) {
+        if (running && !queue.offer(click)) {
+            scheduler.schedule(() -> requeue(click), initialBackoffMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void recordLatency(long millis) {
+        latencyCount.increment();
+        latencyTotalMillis.add(millis);
+        long max;
+        while (millis > (max = latencyMaxMillis.get()) && !latencyMaxMillis.compareAndSet(max, millis)) {
+            // another worker raised the maximum in between, compare again
+        }
+    }
+
+    private void forceJournal() {
+        try {
+            journal.force();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static class Click {
+
+        private final long id;
+
+        private final String url;
+
+        private int attempts;
+
+        private Click(long id, String url) {
+            this.id = id;
+            this.url = url;
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.lexisnexis.bis.moreover.click;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Append-only journal of the clicks which were submitted but not yet completed, so that clicks
+ * survive a restart of the client.
+ * <p/>
+ * Each submitted click appends an <i>A id url</i> line and each completed click, whether it
+ * succeeded or was given up, appends a <i>D id</i> line. Replaying the journal on open gives back
+ * the pending clicks in submission order. A last line without its line feed was torn by a crash
+ * and is ignored. Once many clicks were completed the journal is rewritten with the pending
+ * clicks only.
+ * <p/>
+ * Lines are handed to the operating system as they are appended and forced to disk on
+ * {@link #force()}, which the dispatcher calls periodically.
+ */
+public class ClickJournal implements Closeable {
+
+    private static final char ADDED = 'A';
+    private static final char DONE = 'D';
+    private static final char SEPARATOR = '\t';
+
+    private static final int COMPACTION_THRESHOLD = 10000;
+
+    private final Path file;
+
+    private final Map<Long, String> pending = new LinkedHashMap<>();
+
+    private FileChannel channel;
+
+    private Writer writer;
+
+    private long nextId;
+
+    private int completedSinceCompaction;
+
+    private ClickJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the journal, replaying it to recover the pending clicks.
+     *
+     * @param file the journal file, created if needed
+     * @return the opened journal
+     * @throws IOException if the journal cannot be read or opened
+     */
+    public static ClickJournal open(Path file) throws IOException {
+        ClickJournal journal = new ClickJournal(file);
+        journal.recover();
+        return journal;
+    }
+
+    /**
+     * @return the pending clicks by id, in submission order
+     */
+    public synchronized Map<Long, String> getPending() {
+        return new LinkedHashMap<>(pending);
+    }
+
+    /**
+     * Records a submitted click.
+     *
+     * @param url the click url
+     * @return the id of the click in the journal
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized long append(String url) throws IOException {
+        long id = nextId++;
+        writer.write(ADDED + "" + SEPARATOR + id + SEPARATOR + url + "\n");
+        writer.flush();
+        pending.put(id, url);
+        return id;
+    }
+
+    /**
+     * Records a completed click, either succeeded or given up.
+     *
+     * @param id the id of the click in the journal
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized void complete(long id) throws IOException {
+        if (pending.remove(id) == null) {
+            return;
+        }
+        writer.write(DONE + "" + SEPARATOR + id + "\n");
+        writer.flush();
+        if (++completedSinceCompaction > COMPACTION_THRESHOLD && completedSinceCompaction > 2 * pending.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Forces the lines appended so far to disk.
+     *
+     * @throws IOException if the journal cannot be forced
+     */
+    public synchronized void force() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            try {
+                writer.flush();
+                channel.force(false);
+            } finally {
+                writer.close();
+                channel = null;
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        if (Files.exists(file)) {
+            long validLength = validLength();
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                long read = 0;
+                String line;
+                while (read < validLength && (line = reader.readLine()) != null) {
+                    read += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                    replay(line);
+                }
+            }
+            if (validLength < Files.size(file)) {
+                try (FileChannel truncated = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    truncated.truncate(validLength);
+                }
+            }
+        }
+        openForAppend();
+    }
+
+    /**
+     * @return the length of the journal up to its last line feed, anything after it was torn by a crash
+     */
+    private long validLength() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            long position = raf.length();
+            while (position > 0) {
+                raf.seek(position - 1);
+                if (raf.read() == '\n') {
+                    return position;
+                }
+                position--;
+            }
+            return 0;
+        }
+    }
+
+    private void replay(String line) {
+        String[] fields = line.split(String.valueOf(SEPARATOR), 3);
+        try {
+            long id = Long.parseLong(fields[1]);
+            nextId = Math.max(nextId, id + 1);
+            if (fields[0].charAt(0) == ADDED && fields.length == 3) {
+                pending.put(id, fields[2]);
+            } else if (fields[0].charAt(0) == DONE) {
+                pending.remove(id);
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException | StringIndexOutOfBoundsException e) {
+            System.err.println("Ignoring invalid click journal line [" + line + "]");
+        }
+    }
+
+    private void openForAppend() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1);
+    }
+
+    /**
+     * Rewrites the journal with the pending clicks only, then atomically moves it over the old one.
+     */
+    private void compact() throws IOException {
+        Path compacted = file.resolveSibling(file.getFileName() + ".compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Writer compactedWriter = Channels.newWriter(out, StandardCharsets.UTF_8.newEncoder(), -1);
+            for (Map.Entry<Long, String> entry : pending.entrySet()) {
+                compactedWriter.write(ADDED + "" + SEPARATOR + entry.getKey() + SEPARATOR + entry.getValue() + "\n");
+            }
+            compactedWriter.flush();
+            out.force(true);
+        }
+        writer.close();
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openForAppend();
+        completedSinceCompaction = 0;
+    }
+
+}
@@ -0,0 +1,289 @@
+package com.lexisnexis.bis.moreover.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.lexisnexis.bis.moreover.harvest.Slice;
+
+/**
+ * Lease store kept in a directory shared by the nodes, on NFS or SMB for instance.
+ * <p/>
+ * Each slice has a small properties file holding the digest of its key, its owner, epoch, expiry
+ * and last committed sequenceId, and each node a heartbeat file holding its expiry. Files are
+ * written to a temporary file first and atomically moved over the previous version, so they are
+ * never read half written. Every read-modify-write of a lease is done while holding an exclusive lock on
+ * <i>leases.lock</i>, which makes it atomic across the nodes as long as the filesystem supports
+ * file locks, which NFSv4 and SMB do.
+ */
+public class FileLeaseStore implements LeaseStore {
+
+    public static final String LOCK_FILE_NAME = "leases.lock";
+
+    private static final String LEASE_SUFFIX = ".lease";
+
+    private static final String NODE_SUFFIX = ".node";
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    /**
+     * File locks are held by the process, not the thread, so the stores of one process opened on the
+     * same directory also synchronize on a shared monitor.
+     */
+    private static final ConcurrentMap<Path, Object> MONITORS = new ConcurrentHashMap<>();
+
+    private final Path directory;
+
+    private final Object monitor;
+
+    private FileLeaseStore(Path directory) {
+        this.directory = directory;
+        this.monitor = MONITORS.computeIfAbsent(directory, path -> new Object());
+    }
+
+    /**
+     * Opens the lease store of the given directory.
+     *
+     * @param directory the directory shared by the nodes, created if needed
+     * @return the opened store
+     * @throws IOException if the directory cannot be created
+     */
+    public static FileLeaseStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new FileLeaseStore(directory.toRealPath());
+    }
+
+    @Override
+    public Lease read(Slice slice) throws IOException {
+        return readLease(slice);
+    }
+
+    @Override
+    public Lease acquire(Slice slice, String owner, long leaseMillis) throws IOException {
+        return locked(() -> {
+            Lease current = readLease(slice);
+            long now = System.currentTimeMillis();
+            if (!current.isFree(now) && !owner.equals(current.getOwner())) {
+                return null;
+            }
+            Lease acquired = new Lease(slice, owner, current.getEpoch() + 1, now + leaseMillis, current.getSequenceId());
+            writeLease(acquired);
+            return acquired;
+        });
+    }
+
+    @Override
+    public Lease renew(Lease lease, long leaseMillis) throws IOException {
+        return locked(() -> {
+            Lease current = readHeld(lease);
+            Lease renewed = new Lease(lease.getSlice(), lease.getOwner(), lease.getEpoch(),
+                    System.currentTimeMillis() + leaseMillis, current.getSequenceId());
+            writeLease(renewed);
+            return renewed;
+        });
+    }
+
+    @Override
+    public void commit(Lease lease, long sequenceId) throws IOException {
+        locked(() -> {
+            Lease current = readHeld(lease);
+            writeLease(new Lease(lease.getSlice(), lease.getOwner(), lease.getEpoch(),
+                    current.getExpiresAtMillis(), sequenceId));
+            return null;
+        });
+    }
+
+    @Override
+    public void release(Lease lease) throws IOException {
+        locked(() -> {
+            Lease current = readLease(lease.getSlice());
+            if (lease.getOwner().equals(current.getOwner()) && lease.getEpoch() == current.getEpoch()) {
+                writeLease(new Lease(lease.getSlice(), null, lease.getEpoch(), 0, current.getSequenceId()));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void heartbeat(String node, long leaseMillis) throws IOException {
+        long expiresAtMillis = System.currentTimeMillis() + leaseMillis;
+        writeAtomically(directory.resolve(node + NODE_SUFFIX),
+                Long.toString(expiresAtMillis).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public void leave(String node) throws IOException {
+        Files.deleteIfExists(directory.resolve(node + NODE_SUFFIX));
+    }
+
+    @Override
+    public List<String> liveNodes() throws IOException {
+        List<String> nodes = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + NODE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    long expiresAtMillis = Long.parseLong(
+                            new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim());
+                    if (expiresAtMillis > now) {
+                        nodes.add(name.substring(0, name.length() - NODE_SUFFIX.length()));
+                    }
+                } catch (NoSuchFileException | NumberFormatException e) {
+                    // the node left meanwhile
+                }
+            }
+        }
+        Collections.sort(nodes);
+        return nodes;
+    }
+
+    @Override
+    public void close() {
+        // nothing to do, every write is done by the time each call returns
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public String toString() {
+        return "leases in " + directory;
+    }
+
+    /**
+     * Runs a read-modify-write of a lease while holding the lock of the directory.
+     */
+    private <T> T locked(LockedOperation<T> operation) throws IOException {
+        synchronized (monitor) {
+            try (FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE_NAME),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    return operation.run();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the lease of the slice and checks that it is still held under the given lease.
+     */
+    private Lease readHeld(Lease lease) throws IOException {
+        Lease current = readLease(lease.getSlice());
+        if (!lease.getOwner().equals(current.getOwner()) || lease.getEpoch() != current.getEpoch()
+                || current.getExpiresAtMillis() <= System.currentTimeMillis()) {
+            throw new LeaseLostException("Lost the " + lease + ", now " + current);
+        }
+        return current;
+    }
+
+    private Lease readLease(Slice slice) throws IOException {
+        String keyDigest = keyDigest(slice);
+        Path file = leaseFile(slice, keyDigest);
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return new Lease(slice, null, 0, 0, null);
+        }
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(bytes));
+        if (!keyDigest.equals(properties.getProperty("keyDigest"))) {
+            throw new IOException("The lease file [" + file + "] of " + slice + " belongs to another key");
+        }
+        String sequenceId = properties.getProperty("sequenceId");
+        return new Lease(slice,
+                properties.getProperty("owner"),
+                Long.parseLong(properties.getProperty("epoch")),
+                Long.parseLong(properties.getProperty("expiresAtMillis")),
+                sequenceId != null ? Long.valueOf(sequenceId) : null);
+    }
+
+    private void writeLease(Lease lease) throws IOException {
+        String keyDigest = keyDigest(lease.getSlice());
+        Properties properties = new Properties();
+        properties.setProperty("keyDigest", keyDigest);
+        properties.setProperty("slice", lease.getSlice().toString());
+        if (lease.getOwner() != null) {
+            properties.setProperty("owner", lease.getOwner());
+        }
+        properties.setProperty("epoch", Long.toString(lease.getEpoch()));
+        properties.setProperty("expiresAtMillis", Long.toString(lease.getExpiresAtMillis()));
+        if (lease.getSequenceId() != null) {
+            properties.setProperty("sequenceId", lease.getSequenceId().toString());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        properties.store(bytes, null);
+        writeAtomically(leaseFile(lease.getSlice(), keyDigest), bytes.toByteArray());
+    }
+
+    /**
+     * Names the lease file after the first 64 bits of the digest of the key rather than the key
+     * itself, which is a secret. The whole digest is stored in the file and checked on every read,
+     * so two keys whose names collide fail instead of sharing a lease and a cursor.
+     */
+    private Path leaseFile(Slice slice, String keyDigest) {
+        String name = String.format("%s-%s-%s", keyDigest.substring(0, 16),
+                slice.isSliced() ? slice.getNumberOfSlices() : "all",
+                slice.isSliced() ? slice.getSliceIndex() : "all");
+        return directory.resolve(name + LEASE_SUFFIX);
+    }
+
+    /**
+     * @return the hexadecimal SHA-256 digest of the key of the slice
+     */
+    private static String keyDigest(Slice slice) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest(slice.getKey().getBytes(StandardCharsets.UTF_8))) {
+            hex.append(String.format("%02x", b & 0xff));
+        }
+        return hex.toString();
+    }
+
+    private static void writeAtomically(Path file, byte[] bytes) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private interface LockedOperation<T> {
+
+        T run() throws IOException;
+    }
+
+}
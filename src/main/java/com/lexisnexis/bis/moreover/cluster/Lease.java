@@ -0,0 +1,76 @@
+package com.lexisnexis.bis.moreover.cluster;
+
+import com.lexisnexis.bis.moreover.harvest.Slice;
+
+/**
+ * The lease of one slice as recorded by a {@link LeaseStore}.
+ * <p/>
+ * A lease is held by one node until it expires, unless it is renewed before. Each time a slice
+ * is acquired its epoch is incremented, so an owner which paused past its lease and lost the
+ * slice to another node holds an older epoch and is refused when it renews or commits: stale
+ * owners are fenced. The lease carries the last sequenceId committed for the slice by any of its
+ * owners, so the next owner goes on from there.
+ */
+public class Lease {
+
+    private final Slice slice;
+
+    private final String owner;
+
+    private final long epoch;
+
+    private final long expiresAtMillis;
+
+    private final Long sequenceId;
+
+    public Lease(Slice slice, String owner, long epoch, long expiresAtMillis, Long sequenceId) {
+        this.slice = slice;
+        this.owner = owner;
+        this.epoch = epoch;
+        this.expiresAtMillis = expiresAtMillis;
+        this.sequenceId = sequenceId;
+    }
+
+    public Slice getSlice() {
+        return slice;
+    }
+
+    /**
+     * @return the node holding the lease, or null when the lease was released or never acquired
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return the number of times the slice was acquired
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    /**
+     * @return the last sequenceId committed for the slice, or null if it was never committed
+     */
+    public Long getSequenceId() {
+        return sequenceId;
+    }
+
+    /**
+     * @param nowMillis the current time
+     * @return true if no node holds the lease at the given time
+     */
+    public boolean isFree(long nowMillis) {
+        return owner == null || expiresAtMillis <= nowMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "lease of " + slice + " epoch " + epoch + (owner != null ? " held by " + owner : " free");
+    }
+
+}
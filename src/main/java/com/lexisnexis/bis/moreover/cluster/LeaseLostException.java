@@ -0,0 +1,17 @@
+package com.lexisnexis.bis.moreover.cluster;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a node renews or commits a lease which expired or was acquired by another node
+ * since. The node must stop pulling the slice.
+ */
+public class LeaseLostException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public LeaseLostException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.lexisnexis.bis.moreover.cluster;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+import com.lexisnexis.bis.moreover.harvest.Slice;
+
+/**
+ * Records which node pulls each slice of a feed, shared by every node of a cluster.
+ * <p/>
+ * Each operation on a lease must be atomic across the nodes: two nodes acquiring the same free
+ * slice at the same time must not both succeed. Nodes also announce themselves with heartbeats,
+ * so that every node knows how many nodes share the slices. Expiry times are compared with the
+ * clock of the calling node, the clocks of the nodes are expected to agree within a small part of
+ * the lease duration.
+ */
+public interface LeaseStore extends Closeable {
+
+    /**
+     * @param slice the slice
+     * @return the current lease of the slice, free with epoch 0 if it was never acquired
+     * @throws IOException if the lease cannot be read
+     */
+    Lease read(Slice slice) throws IOException;
+
+    /**
+     * Acquires the slice if it is free, or if it is still held by the same node from a previous run,
+     * and increments its epoch.
+     *
+     * @param slice the slice
+     * @param owner the node acquiring the slice
+     * @param leaseMillis the duration of the lease
+     * @return the acquired lease, or null if another node holds the slice
+     * @throws IOException if the lease cannot be read or written
+     */
+    Lease acquire(Slice slice, String owner, long leaseMillis) throws IOException;
+
+    /**
+     * Extends a lease held by the caller.
+     *
+     * @param lease the lease as acquired
+     * @param leaseMillis the duration of the lease from now
+     * @return the renewed lease
+     * @throws LeaseLostException if the lease expired or another node acquired the slice since
+     * @throws IOException if the lease cannot be read or written
+     */
+    Lease renew(Lease lease, long leaseMillis) throws IOException;
+
+    /**
+     * Records the last sequenceId delivered for the slice of a lease held by the caller.
+     *
+     * @param lease the lease as acquired
+     * @param sequenceId the sequenceId of the last article delivered
+     * @throws LeaseLostException if the lease expired or another node acquired the slice since
+     * @throws IOException if the lease cannot be read or written
+     */
+    void commit(Lease lease, long sequenceId) throws IOException;
+
+    /**
+     * Frees the slice of a lease so that another node can acquire it right away. Does nothing if
+     * the lease was already lost.
+     *
+     * @param lease the lease as acquired
+     * @throws IOException if the lease cannot be read or written
+     */
+    void release(Lease lease) throws IOException;
+
+    /**
+     * Announces that the node is alive for the given duration.
+     *
+     * @param node the node
+     * @param leaseMillis the duration after which the node is considered gone if it does not beat again
+     * @throws IOException if the heartbeat cannot be written
+     */
+    void heartbeat(String node, long leaseMillis) throws IOException;
+
+    /**
+     * Announces that the node leaves the cluster.
+     *
+     * @param node the node
+     * @throws IOException if the heartbeat cannot be removed
+     */
+    void leave(String node) throws IOException;
+
+    /**
+     * @return the nodes whose last heartbeat has not expired, sorted
+     * @throws IOException if the heartbeats cannot be read
+     */
+    List<String> liveNodes() throws IOException;
+
+}
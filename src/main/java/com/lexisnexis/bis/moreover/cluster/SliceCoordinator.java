@@ -0,0 +1,399 @@
+package com.lexisnexis.bis.moreover.cluster;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.lexisnexis.bis.moreover.checkpoint.CheckpointStore;
+import com.lexisnexis.bis.moreover.harvest.BatchFetcher;
+import com.lexisnexis.bis.moreover.harvest.BatchHandler;
+import com.lexisnexis.bis.moreover.harvest.PollScheduler;
+import com.lexisnexis.bis.moreover.harvest.Slice;
+import com.lexisnexis.bis.moreover.harvest.SliceLoop;
+import com.lexisnexis.bis.moreover.pipeline.PipelineStages;
+
+/**
+ * Shares the slices of a feed between the nodes of a cluster through a {@link LeaseStore}.
+ * <p/>
+ * Instead of a fixed slice per process, each node leases slices and runs one {@link SliceLoop}
+ * per slice it holds, like the {@link com.lexisnexis.bis.moreover.harvest.SliceHarvester}. Every
+ * third of the lease duration the coordinator beats, renews its leases and rebalances: with
+ * <i>n</i> slices and <i>k</i> live nodes each node holds <i>n / k</i> slices, the first nodes by
+ * name one more when it does not divide. A node holding more than its share stops the loops of
+ * the extra slices and releases them, a node holding less acquires free or expired slices. So when
+ * a node joins the others hand over slices to it within one round, and when a node dies its leases
+ * expire and are taken over by the others, from the last sequenceId the dead node committed.
+ * <p/>
+ * A slice is handed over gracefully: its loop finishes the call in progress and commits, then
+ * releases the lease from its own thread. The coordinator does not wait for it, a loop may be
+ * waiting for the access limit or for a slow call, and keeps beating and renewing the leases,
+ * including the one being handed over until it is released. Each commit of a loop is written to
+ * the lease as well as to the local checkpoint store, and is refused if the lease was lost
+ * meanwhile, which stops the loop. A node which paused past its lease may still deliver the batch
+ * it was handling once, but never commits over the new owner. A new owner resumes from the lease,
+ * or from the local checkpoint if it is further, or from the given sequenceId if the slice was
+ * never committed.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class SliceCoordinator<A> implements Closeable {
+
+    public static final long DEFAULT_LEASE_MILLIS = 30000;
+
+    private final LeaseStore leaseStore;
+
+    private final String node;
+
+    private final long leaseMillis;
+
+    private final BatchFetcher<A> fetcher;
+
+    private final BatchHandler<A> handler;
+
+    private final CheckpointStore checkpointStore;
+
+    private final Supplier<? extends PollScheduler> schedulers;
+
+    private final int pipelineDepth;
+
+    private final PipelineStages stages;
+
+    /**
+     * The leases held by this node, read by the loops when they commit.
+     */
+    private final ConcurrentMap<Slice, Lease> leases = new ConcurrentHashMap<>();
+
+    /**
+     * The loops of the slices held by this node, only touched by the coordinating thread.
+     */
+    private final Map<Slice, Owned> owned = new LinkedHashMap<>();
+
+    /**
+     * The loops stopped by a hand over which have not released their lease yet.
+     */
+    private final ConcurrentMap<Slice, Owned> handingOver = new ConcurrentHashMap<>();
+
+    private final CheckpointStore fencedCheckpointStore = new FencedCheckpointStore();
+
+    private final CountDownLatch stopSignal = new CountDownLatch(1);
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    public SliceCoordinator(LeaseStore leaseStore, String node, long leaseMillis, BatchFetcher<A> fetcher,
+            BatchHandler<A> handler, CheckpointStore checkpointStore, Supplier<? extends PollScheduler> schedulers,
+            int pipelineDepth) {
+        this(leaseStore, node, leaseMillis, fetcher, handler, checkpointStore, schedulers, pipelineDepth, null);
+    }
+
+    /**
+     * @param stages the decode and sink stages shared by the slice loops, or null
+     */
+    public SliceCoordinator(LeaseStore leaseStore, String node, long leaseMillis, BatchFetcher<A> fetcher,
+            BatchHandler<A> handler, CheckpointStore checkpointStore, Supplier<? extends PollScheduler> schedulers,
+            int pipelineDepth, PipelineStages stages) {
+        this.leaseStore = leaseStore;
+        this.node = node;
+        this.leaseMillis = leaseMillis;
+        this.fetcher = fetcher;
+        this.handler = handler;
+        this.checkpointStore = checkpointStore;
+        this.schedulers = schedulers;
+        this.pipelineDepth = pipelineDepth;
+        this.stages = stages;
+    }
+
+    /**
+     * @return the name of this process as a node, its pid and host name, <i>4242-harvester1</i> for instance
+     */
+    public static String defaultNodeId() {
+        return ManagementFactory.getRuntimeMXBean().getName().replace('@', '-').replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * Leases slices and pulls them until the coordinator is closed or the calling thread interrupted,
+     * then stops every loop and releases its lease.
+     *
+     * @param slices every slice of the feed
+     * @param sequenceId the sequenceId the slices never committed start from, null meaning the latest articles
+     * @throws InterruptedException if the calling thread is interrupted while waiting for a loop
+     */
+    public void coordinate(List<Slice> slices, Long sequenceId) throws InterruptedException {
+        try {
+            System.out.println("Node " + node + " sharing " + slices.size() + " slice(s) through " + leaseStore);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    rebalance(slices, sequenceId);
+                } catch (IOException e) {
+                    System.err.println("Unable to rebalance the slices of node " + node + ": " + e);
+                }
+                if (stopSignal.await(leaseMillis / 3, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            }
+        } finally {
+            try {
+                for (Slice slice : new ArrayList<>(owned.keySet())) {
+                    handOver(slice);
+                }
+                awaitHandOvers();
+                leaseStore.leave(node);
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                stopped.countDown();
+            }
+        }
+    }
+
+    /**
+     * Stops pulling and releases the leases so that the other nodes take over the slices right
+     * away, waiting for the loops to deliver their last batches for at most the lease duration.
+     */
+    @Override
+    public void close() {
+        stopSignal.countDown();
+        try {
+            stopped.await(leaseMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the slices held by this node
+     */
+    public List<Slice> getSlices() {
+        return new ArrayList<>(leases.keySet());
+    }
+
+    private void rebalance(List<Slice> slices, Long sequenceId) throws IOException {
+        leaseStore.heartbeat(node, leaseMillis);
+
+        for (Iterator<Map.Entry<Slice, Owned>> it = owned.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<Slice, Owned> entry = it.next();
+            Slice slice = entry.getKey();
+            Lease lease = leases.get(slice);
+            if (!entry.getValue().thread.isAlive()) {
+                /**
+                 * The loop stopped on an error or a refused commit, release the slice so that it is
+                 * acquired again, by this node or another, from its last commit.
+                 */
+                System.err.println("Poll loop of " + slice + " stopped, releasing its lease");
+                it.remove();
+                leases.remove(slice);
+                leaseStore.release(lease);
+                continue;
+            }
+            try {
+                leases.put(slice, leaseStore.renew(lease, leaseMillis));
+            } catch (LeaseLostException e) {
+                System.err.println(e.getMessage() + ", stopping its poll loop");
+                it.remove();
+                leases.remove(slice);
+                entry.getValue().loop.stop();
+            }
+        }
+        renewHandingOver();
+
+        List<String> nodes = leaseStore.liveNodes();
+        if (!nodes.contains(node)) {
+            nodes.add(node);
+            nodes.sort(null);
+        }
+        int rank = nodes.indexOf(node);
+        int share = slices.size() / nodes.size() + (rank < slices.size() % nodes.size() ? 1 : 0);
+
+        List<Slice> held = new ArrayList<>(owned.keySet());
+        for (int i = held.size() - 1; i >= share; i--) {
+            System.out.println("Handing over " + held.get(i) + " to rebalance " + slices.size() + " slice(s) over "
+                    + nodes.size() + " node(s)");
+            handOver(held.get(i));
+        }
+
+        /**
+         * Each node looks for free slices from its own offset, so that nodes starting together do not
+         * all compete for the first ones.
+         */
+        int offset = rank * slices.size() / nodes.size();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < slices.size() && owned.size() < share; i++) {
+            Slice slice = slices.get((offset + i) % slices.size());
+            if (owned.containsKey(slice) || handingOver.containsKey(slice)) {
+                continue;
+            }
+            Lease current = leaseStore.read(slice);
+            if (!current.isFree(now) && !node.equals(current.getOwner())) {
+                continue;
+            }
+            Lease lease = leaseStore.acquire(slice, node, leaseMillis);
+            if (lease != null) {
+                start(lease, sequenceId);
+            }
+        }
+    }
+
+    private void start(Lease lease, Long sequenceId) {
+        Slice slice = lease.getSlice();
+        Long startSequenceId = lease.getSequenceId();
+        Long localSequenceId = checkpointStore.load(slice);
+        if (localSequenceId != null && (startSequenceId == null || localSequenceId > startSequenceId)) {
+            startSequenceId = localSequenceId;
+        }
+        System.out.println("Acquired " + slice + " with epoch " + lease.getEpoch() + ", resuming from sequenceId=["
+                + (startSequenceId != null ? startSequenceId : sequenceId) + "]");
+
+        leases.put(slice, lease);
+        SliceLoop<A> loop = new SliceLoop<>(slice, startSequenceId != null ? startSequenceId : sequenceId, fetcher,
+                handler, fencedCheckpointStore, schedulers.get(), pipelineDepth, stages);
+        Owned loopOwned = new Owned(loop);
+        loopOwned.thread = new Thread(() -> runLoop(slice, loopOwned), "slice-loop-" + slice.getSliceIndex());
+        owned.put(slice, loopOwned);
+        loopOwned.thread.start();
+    }
+
+    /**
+     * Runs the loop of a slice, then releases its lease if the slice was handed over meanwhile.
+     */
+    private void runLoop(Slice slice, Owned loopOwned) {
+        try {
+            loopOwned.loop.run();
+        } finally {
+            if (loopOwned.finish()) {
+                release(slice);
+            }
+        }
+    }
+
+    /**
+     * Stops the loop of a slice without waiting for it, the loop commits its last batch and
+     * releases the lease from its own thread, or now if it already stopped.
+     */
+    private void handOver(Slice slice) {
+        Owned handedOver = owned.remove(slice);
+        handingOver.put(slice, handedOver);
+        handedOver.loop.stop();
+        if (handedOver.handOver()) {
+            release(slice);
+        }
+    }
+
+    private void release(Slice slice) {
+        try {
+            checkpointStore.flush();
+            Lease lease = leases.remove(slice);
+            if (lease != null) {
+                leaseStore.release(lease);
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to release the lease of " + slice + ": " + e);
+        } finally {
+            handingOver.remove(slice);
+        }
+    }
+
+    /**
+     * Renews the leases of the slices being handed over, so that their loops still commit their
+     * last batches however long they take.
+     */
+    private void renewHandingOver() throws IOException {
+        for (Slice slice : handingOver.keySet()) {
+            Lease lease = leases.get(slice);
+            if (lease == null) {
+                continue;
+            }
+            try {
+                /** the loop may release the lease meanwhile, it is then not put back */
+                leases.replace(slice, lease, leaseStore.renew(lease, leaseMillis));
+            } catch (LeaseLostException e) {
+                // released by its loop meanwhile, or lost, in which case the loop fails to commit
+            }
+        }
+    }
+
+    /**
+     * Waits for the loops being handed over to release their leases, renewing the leases meanwhile.
+     */
+    private void awaitHandOvers() throws IOException, InterruptedException {
+        while (!handingOver.isEmpty()) {
+            renewHandingOver();
+            Iterator<Owned> it = handingOver.values().iterator();
+            if (it.hasNext()) {
+                it.next().thread.join(leaseMillis / 3);
+            }
+        }
+    }
+
+    private static class Owned {
+
+        private final SliceLoop<?> loop;
+
+        private Thread thread;
+
+        private boolean handedOver;
+
+        private boolean finished;
+
+        private Owned(SliceLoop<?> loop) {
+            this.loop = loop;
+        }
+
+        /**
+         * @return whether the loop already finished, the lease is then released by the caller
+         */
+        private synchronized boolean handOver() {
+            handedOver = true;
+            return finished;
+        }
+
+        /**
+         * @return whether the slice was handed over, the lease is then released by the loop
+         */
+        private synchronized boolean finish() {
+            finished = true;
+            return handedOver;
+        }
+    }
+
+    /**
+     * The checkpoint store handed to the loops: each commit is written to the lease first, so a
+     * loop whose lease was lost fails to commit and stops, then to the local checkpoint store.
+     */
+    private class FencedCheckpointStore implements CheckpointStore {
+
+        @Override
+        public Long load(Slice slice) {
+            return checkpointStore.load(slice);
+        }
+
+        @Override
+        public void commit(Slice slice, long sequenceId) throws IOException {
+            Lease lease = leases.get(slice);
+            if (lease == null) {
+                throw new LeaseLostException("No lease held on " + slice);
+            }
+            leaseStore.commit(lease, sequenceId);
+            checkpointStore.commit(slice, sequenceId);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            checkpointStore.flush();
+        }
+
+        @Override
+        public void close() {
+            // the local checkpoint store is closed by its owner
+        }
+    }
+
+}
@@ -0,0 +1,254 @@
+package com.lexisnexis.bis.moreover.dedup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The keys seen recently, bounded in count and optionally in age.
+ * <p/>
+ * Keys are kept in a {@link LongHashSet} for lookups and in a ring of their insertion order and
+ * time, so the oldest key is evicted when the window is full or when it is older than
+ * <i>maxAgeMillis</i>. The memory used is fixed on creation, about 32 bytes per key of the window,
+ * and adding or checking a key allocates nothing.
+ * <p/>
+ * With a Bloom tier, evicted keys go on into a pair of {@link LongBloomFilter}s which keep
+ * answering for a longer horizon at about 1.2 bytes per key, at the price of rare false positives.
+ * When the current filter holds <i>bloomSize</i> keys it replaces the previous one and a new one is
+ * started, so the tier always remembers between <i>bloomSize</i> and twice as many evicted keys.
+ * <p/>
+ * The window can be saved to a file and loaded back, so it survives restarts. Not thread safe.
+ */
+public class DedupWindow {
+
+    private static final int MAGIC = 0x44445750;
+
+    private static final int VERSION = 1;
+
+    private final int capacity;
+
+    private final long maxAgeMillis;
+
+    private final int bloomSize;
+
+    private final LongHashSet keys;
+
+    private final long[] ringKeys;
+
+    private final long[] ringTimes;
+
+    /**
+     * position of the oldest key in the ring
+     */
+    private int head;
+
+    private int size;
+
+    private LongBloomFilter currentBloom;
+
+    private LongBloomFilter previousBloom;
+
+    /**
+     * @param capacity the largest number of keys of the window
+     * @param maxAgeMillis the age above which keys are evicted, 0 to bound the window by count only
+     * @param bloomSize the number of evicted keys of each Bloom filter, 0 for no Bloom tier
+     */
+    public DedupWindow(int capacity, long maxAgeMillis, int bloomSize) {
+        this.capacity = capacity;
+        this.maxAgeMillis = maxAgeMillis;
+        this.bloomSize = bloomSize;
+        this.keys = new LongHashSet(capacity);
+        this.ringKeys = new long[capacity];
+        this.ringTimes = new long[capacity];
+        if (bloomSize > 0) {
+            this.currentBloom = new LongBloomFilter(bloomSize);
+        }
+    }
+
+    /**
+     * @param key the key to look up
+     * @param now the current time in milliseconds
+     * @return whether the key was seen within the window, or probably seen before it with a Bloom tier
+     */
+    public boolean contains(long key, long now) {
+        expire(now);
+        if (keys.contains(key)) {
+            return true;
+        }
+        return currentBloom != null && (currentBloom.mightContain(key)
+                || (previousBloom != null && previousBloom.mightContain(key)));
+    }
+
+    /**
+     * Adds a key to the window, evicting the oldest key when the window is full.
+     *
+     * @param key the key seen
+     * @param now the current time in milliseconds
+     */
+    public void add(long key, long now) {
+        expire(now);
+        if (keys.contains(key)) {
+            return;
+        }
+        if (size == capacity) {
+            evictOldest();
+        }
+        int tail = (head + size) % capacity;
+        ringKeys[tail] = key;
+        ringTimes[tail] = now;
+        keys.add(key);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void expire(long now) {
+        if (maxAgeMillis <= 0) {
+            return;
+        }
+        while (size > 0 && ringTimes[head] < now - maxAgeMillis) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        long key = ringKeys[head];
+        keys.remove(key);
+        head = (head + 1) % capacity;
+        size--;
+
+        if (currentBloom != null) {
+            if (currentBloom.count() >= bloomSize) {
+                previousBloom = currentBloom;
+                currentBloom = new LongBloomFilter(bloomSize);
+            }
+            currentBloom.put(key);
+        }
+    }
+
+    /**
+     * Saves the window to a file, written aside then moved over the previous one so that a crash
+     * never leaves a partial window.
+     *
+     * @param file the file of the window
+     * @throws IOException if the window cannot be written
+     */
+    public void save(Path file) throws IOException {
+        Path saving = file.resolveSibling(file.getFileName() + ".saving");
+        try (FileOutputStream fileOut = new FileOutputStream(saving.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fileOut), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                int position = (head + i) % capacity;
+                out.writeLong(ringKeys[position]);
+                out.writeLong(ringTimes[position]);
+            }
+            out.writeInt(bloomSize);
+            if (bloomSize > 0) {
+                writeBloom(out, currentBloom);
+                writeBloom(out, previousBloom);
+            }
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(saving, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads a window saved with {@link #save(Path)} into this window. The most recent keys are kept
+     * when the saved window is larger than this one, and the Bloom tier is only loaded when it has
+     * the same size.
+     *
+     * @param file the file of the window
+     * @return false if there was no file, true if it was loaded
+     * @throws IOException if the file cannot be read or is corrupted
+     */
+    public boolean load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (InputStream fileIn = Files.newInputStream(file)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(fileIn), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a dedup window file " + file);
+            }
+            int savedSize = in.readInt();
+            long[] savedKeys = new long[savedSize];
+            long[] savedTimes = new long[savedSize];
+            for (int i = 0; i < savedSize; i++) {
+                savedKeys[i] = in.readLong();
+                savedTimes[i] = in.readLong();
+            }
+            int savedBloomSize = in.readInt();
+            LongBloomFilter savedCurrent = null;
+            LongBloomFilter savedPrevious = null;
+            if (savedBloomSize > 0) {
+                savedCurrent = readBloom(in);
+                savedPrevious = readBloom(in);
+            }
+            long checksum = checked.getChecksum().getValue();
+            if (in.readLong() != checksum) {
+                throw new IOException("Corrupted dedup window file " + file);
+            }
+
+            keys.clear();
+            head = 0;
+            size = 0;
+            if (savedBloomSize == bloomSize && bloomSize > 0) {
+                currentBloom = savedCurrent;
+                previousBloom = savedPrevious;
+            }
+            for (int i = Math.max(0, savedSize - capacity); i < savedSize; i++) {
+                ringKeys[size] = savedKeys[i];
+                ringTimes[size] = savedTimes[i];
+                keys.add(savedKeys[i]);
+                size++;
+            }
+            return true;
+        }
+    }
+
+    private static void writeBloom(DataOutputStream out, LongBloomFilter bloom) throws IOException {
+        if (bloom == null) {
+            out.writeInt(-1);
+            return;
+        }
+        long[] bits = bloom.getBits();
+        out.writeInt(bits.length);
+        out.writeInt(bloom.count());
+        for (long word : bits) {
+            out.writeLong(word);
+        }
+    }
+
+    private static LongBloomFilter readBloom(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        int count = in.readInt();
+        long[] bits = new long[length];
+        for (int i = 0; i < length; i++) {
+            bits[i] = in.readLong();
+        }
+        return new LongBloomFilter(bits, count);
+    }
+
+}
@@ -0,0 +1,221 @@
+package com.lexisnexis.bis.moreover.dedup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleAdapter;
+
+/**
+ * Suppresses the articles which were already delivered, across polls, slices and restarts.
+ * <p/>
+ * Each article is reduced to a key: its <i>id</i> in {@link Mode#ID} mode, so only the very same
+ * article is suppressed, or its <i>duplicateGroupId</i> in {@link Mode#GROUP} mode, so only the
+ * first article of each group of duplicates is delivered. Articles without a key are always
+ * delivered. The keys are kept in a bounded {@link DedupWindow}.
+ * <p/>
+ * Checking and recording are two steps: {@link #filter(List)} drops the duplicates of a batch,
+ * including the duplicates within the batch, and the delivered articles are only recorded with
+ * {@link #commit(List)} once they were written, so an article whose delivery failed is not
+ * suppressed when it is pulled again. In between, the keys of the batch are held as being
+ * delivered, so that a batch filtered meanwhile by another thread drops them too, until they are
+ * committed or let go by {@link #cancel(List)} when the delivery failed. The window is saved to
+ * its file at most every <i>saveIntervalMillis</i> from {@link #maybeSave()}, which is called once the sink is flushed,
+ * and when the deduplicator is closed.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class Deduplicator<A> implements Closeable {
+
+    public enum Mode {
+        /**
+         * suppress the articles whose id was already delivered
+         */
+        ID,
+        /**
+         * suppress the articles of a duplicate group whose first article was already delivered
+         */
+        GROUP;
+
+        /**
+         * @param value <i>id</i> or <i>group</i>
+         * @throws IllegalArgumentException if the value is not a mode
+         */
+        public static Mode parse(String value) {
+            return valueOf(value.toUpperCase());
+        }
+    }
+
+    public static final int DEFAULT_WINDOW_SIZE = 200000;
+
+    public static final long DEFAULT_SAVE_INTERVAL_MILLIS = 10000;
+
+    private final ArticleAdapter<A> adapter;
+
+    private final Mode mode;
+
+    private final DedupWindow window;
+
+    private final Path file;
+
+    private final long saveIntervalMillis;
+
+    /**
+     * Metabase returns at most 500 articles per call.
+     */
+    private static final int BATCH_CAPACITY = 500;
+
+    /**
+     * keys of the articles filtered and not committed yet, which also drops the duplicates within a
+     * batch, sized for a few batches written at once and replaced by a larger set when more are
+     */
+    private LongHashSet delivering = new LongHashSet(4 * BATCH_CAPACITY);
+
+    private long lastSaveTime;
+
+    private long suppressed;
+
+    /**
+     * @param adapter the adapter of the feed format
+     * @param mode what makes an article a duplicate
+     * @param window the window of keys, loaded from the file if there is one
+     * @param file the file the window is saved to, or null to keep it in memory only
+     * @param saveIntervalMillis the shortest time between two saves of the window
+     */
+    public Deduplicator(ArticleAdapter<A> adapter, Mode mode, DedupWindow window, Path file, long saveIntervalMillis) {
+        this.adapter = adapter;
+        this.mode = mode;
+        this.window = window;
+        this.file = file;
+        this.saveIntervalMillis = saveIntervalMillis;
+        this.lastSaveTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Creates a deduplicator whose window is loaded from the given file if it exists.
+     *
+     * @throws IOException if the saved window cannot be read
+     */
+    public static <A> Deduplicator<A> open(ArticleAdapter<A> adapter, Mode mode, DedupWindow window, Path file) throws IOException {
+        if (file != null && window.load(file)) {
+            System.out.println("Loaded " + window.size() + " key(s) of the dedup window");
+        }
+        return new Deduplicator<>(adapter, mode, window, file, DEFAULT_SAVE_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param articles the articles of a batch
+     * @return the articles which are not duplicates, in the same order
+     */
+    public synchronized List<A> filter(List<A> articles) {
+        long now = System.currentTimeMillis();
+        List<A> unique = new ArrayList<>(articles.size());
+        reserveDelivering(articles.size());
+        for (A article : articles) {
+            Long key = key(article);
+            if (key == null) {
+                unique.add(article);
+            } else if (window.contains(key, now) || !delivering.add(key)) {
+                suppressed++;
+            } else {
+                unique.add(article);
+            }
+        }
+        return unique;
+    }
+
+    /**
+     * @return whether the article is a duplicate of a delivered one
+     */
+    public synchronized boolean isDuplicate(A article) {
+        Long key = key(article);
+        if (key != null && (window.contains(key, System.currentTimeMillis()) || delivering.contains(key))) {
+            suppressed++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records the articles which were delivered.
+     */
+    public synchronized void commit(List<A> articles) {
+        long now = System.currentTimeMillis();
+        for (A article : articles) {
+            Long key = key(article);
+            if (key != null) {
+                window.add(key, now);
+                delivering.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Lets go of the articles of a batch whose delivery failed, which are delivered again when
+     * they are pulled again.
+     *
+     * @param articles the articles returned by {@link #filter(List)}
+     */
+    public synchronized void cancel(List<A> articles) {
+        for (A article : articles) {
+            Long key = key(article);
+            if (key != null) {
+                delivering.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Saves the window if it was not saved for <i>saveIntervalMillis</i>.
+     *
+     * @throws IOException if the window cannot be saved
+     */
+    public synchronized void maybeSave() throws IOException {
+        if (file != null && System.currentTimeMillis() - lastSaveTime >= saveIntervalMillis) {
+            save();
+        }
+    }
+
+    public synchronized void save() throws IOException {
+        if (file != null) {
+            window.save(file);
+            lastSaveTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * @return the number of articles suppressed so far
+     */
+    public synchronized long getSuppressed() {
+        return suppressed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        save();
+    }
+
+    /**
+     * Makes room in the keys being delivered for the keys of a batch.
+     */
+    private void reserveDelivering(int keys) {
+        if (delivering.size() + keys > delivering.getMaxSize()) {
+            LongHashSet larger = new LongHashSet(Math.max(2 * delivering.getMaxSize(), delivering.size() + keys));
+            larger.addAll(delivering);
+            delivering = larger;
+        }
+    }
+
+    private Long key(A article) {
+        if (mode == Mode.GROUP) {
+            Long duplicateGroupId = adapter.getDuplicateGroupId(article);
+            if (duplicateGroupId != null) {
+                return duplicateGroupId;
+            }
+        }
+        return adapter.getId(article);
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.lexisnexis.bis.moreover.dedup;
+
+/**
+ * A Bloom filter of primitive longs over a fixed <i>long[]</i> of bits.
+ * <p/>
+ * The filter answers whether a key might have been added, with no false negatives and about 1%
+ * false positives once it holds the number of keys it was sized for, using 10 bits per key. The
+ * probes of a key are derived from two hashes of it, so checking a key allocates nothing. The
+ * number of bits is rounded up to a power of two so that a probe is a mask rather than a division.
+ * Not thread safe.
+ */
+public class LongBloomFilter {
+
+    private static final int BITS_PER_KEY = 10;
+
+    private static final int HASH_COUNT = 7;
+
+    private final long[] bits;
+
+    private final long bitMask;
+
+    private int count;
+
+    /**
+     * @param expectedKeys the number of keys the filter is sized for
+     */
+    public LongBloomFilter(int expectedKeys) {
+        this(new long[Integer.highestOneBit((int) ((Math.max(1L, expectedKeys) * BITS_PER_KEY + 63) / 64) * 2 - 1)], 0);
+    }
+
+    LongBloomFilter(long[] bits, int count) {
+        this.bits = bits;
+        this.bitMask = (long) bits.length * 64 - 1;
+        this.count = count;
+    }
+
+    public void put(long key) {
+        long hash1 = LongHashSet.mix(key);
+        long hash2 = LongHashSet.mix(hash1) | 1;
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bit = (hash1 + i * hash2) & bitMask;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        count++;
+    }
+
+    /**
+     * @return false if the key was never added, true if it probably was
+     */
+    public boolean mightContain(long key) {
+        long hash1 = LongHashSet.mix(key);
+        long hash2 = LongHashSet.mix(hash1) | 1;
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bit = (hash1 + i * hash2) & bitMask;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of keys added
+     */
+    public int count() {
+        return count;
+    }
+
+    long[] getBits() {
+        return bits;
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.lexisnexis.bis.moreover.dedup;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs with open addressing and linear probing.
+ * <p/>
+ * Keys are stored in a single <i>long[]</i>, so adding and removing keys allocates nothing and the
+ * set does not hold a boxed {@link Long} per key. The table never grows: it is sized once for the
+ * largest number of keys it will hold, at a load factor of at most one half. Removal shifts the
+ * following keys of the probe sequence back instead of leaving tombstones, so a set which keeps
+ * adding and removing keys does not degrade. Not thread safe.
+ */
+public class LongHashSet {
+
+    /**
+     * Marks an empty slot of the table, the key 0 itself is held aside.
+     */
+    private static final long EMPTY = 0L;
+
+    private final long[] table;
+
+    private final int mask;
+
+    private boolean containsZero;
+
+    private int size;
+
+    /**
+     * @param maxSize the largest number of keys the set will hold
+     */
+    public LongHashSet(int maxSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, maxSize) * 2 - 1) << 1;
+        this.table = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return true if the key was added, false if the set already contained it
+     * @throws IllegalStateException if the set already holds as many keys as it was sized for
+     */
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = slot(key);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size >= table.length / 2) {
+            throw new IllegalStateException("LongHashSet is full at " + size + " keys");
+        }
+        table[slot] = key;
+        size++;
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY) {
+            return containsZero;
+        }
+        int slot = slot(key);
+        while (table[slot] != EMPTY) {
+            if (table[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the key was removed, false if the set did not contain it
+     */
+    public boolean remove(long key) {
+        if (key == EMPTY) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int slot = slot(key);
+        while (table[slot] != key) {
+            if (table[slot] == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        /**
+         * Shift back the keys following the removed one whose probe sequence goes through its slot.
+         */
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (table[next] != EMPTY) {
+            int home = slot(table[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                table[hole] = table[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[hole] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the largest number of keys the set can hold
+     */
+    public int getMaxSize() {
+        return table.length / 2;
+    }
+
+    /**
+     * Adds the keys of another set, to move them to a larger one.
+     *
+     * @throws IllegalStateException if this set cannot hold them all
+     */
+    public void addAll(LongHashSet other) {
+        if (other.containsZero) {
+            add(EMPTY);
+        }
+        for (long key : other.table) {
+            if (key != EMPTY) {
+                add(key);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        containsZero = false;
+        size = 0;
+    }
+
+    private int slot(long key) {
+        return (int) mix(key) & mask;
+    }
+
+    /**
+     * Spreads the bits of ids which often differ in their low bits only (the finalizer of SplitMix64).
+     */
+    static long mix(long key) {
+        key = (key ^ (key >>> 30)) * 0xbf58476d1ce4e5b9L;
+        key = (key ^ (key >>> 27)) * 0x94d049bb133111ebL;
+        return key ^ (key >>> 31);
+    }
+
+}
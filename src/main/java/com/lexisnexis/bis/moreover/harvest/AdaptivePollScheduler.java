@@ -0,0 +1,79 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.util.Random;
+
+/**
+ * Paces the calls of a slice from the backlog reported by Metabase.
+ * <p/>
+ * A call returning a full page (as many articles as the limit) means more articles are waiting,
+ * so the next call is made as soon as allowed, i.e. after the minimum interval which should be
+ * the 20 seconds access limit. When calls return sparse pages, less than half the limit, or fail,
+ * the interval grows by the backoff factor up to the maximum interval. Pages between the two
+ * keep the current interval.
+ * <p/>
+ * A random jitter, never negative so the access limit is always honoured, is added to every
+ * interval and the first call is delayed by a random part of the minimum interval, so the
+ * calls of the slices of a key spread out instead of all firing together.
+ */
+public class AdaptivePollScheduler implements PollScheduler {
+
+    public static final double DEFAULT_BACKOFF_FACTOR = 1.5;
+
+    public static final double DEFAULT_JITTER_RATIO = 0.1;
+
+    private final long minIntervalMillis;
+
+    private final long maxIntervalMillis;
+
+    private final int fullPageSize;
+
+    private final double backoffFactor;
+
+    private final double jitterRatio;
+
+    private final Random random;
+
+    private long intervalMillis;
+
+    public AdaptivePollScheduler(long minIntervalMillis, long maxIntervalMillis, int fullPageSize) {
+        this(minIntervalMillis, maxIntervalMillis, fullPageSize, DEFAULT_BACKOFF_FACTOR, DEFAULT_JITTER_RATIO, new Random());
+    }
+
+    public AdaptivePollScheduler(long minIntervalMillis, long maxIntervalMillis, int fullPageSize,
+            double backoffFactor, double jitterRatio, Random random) {
+        if (maxIntervalMillis < minIntervalMillis) {
+            throw new IllegalArgumentException("maxIntervalMillis [" + maxIntervalMillis
+                    + "] must not be lower than minIntervalMillis [" + minIntervalMillis + "]");
+        }
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.fullPageSize = fullPageSize;
+        this.backoffFactor = backoffFactor;
+        this.jitterRatio = jitterRatio;
+        this.random = random;
+        this.intervalMillis = minIntervalMillis;
+    }
+
+    @Override
+    public long initialDelay() {
+        return (long) (random.nextDouble() * minIntervalMillis * jitterRatio);
+    }
+
+    @Override
+    public long nextInterval(Batch<?> batch) {
+        if (batch.isSuccess() && batch.size() >= fullPageSize) {
+            intervalMillis = minIntervalMillis;
+        } else if (!batch.isSuccess() || batch.size() * 2 < fullPageSize) {
+            intervalMillis = Math.min(maxIntervalMillis, (long) (intervalMillis * backoffFactor));
+        }
+        return intervalMillis + (long) (random.nextDouble() * intervalMillis * jitterRatio);
+    }
+
+    /**
+     * @return the current interval, without jitter
+     */
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.util.List;
+
+/**
+ * Gives access to the fields of an article whatever its feed format, so that the same
+ * downstream code works on both the JSON and the XML entities.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public interface ArticleAdapter<A> {
+
+    Long getSequenceId(A article);
+
+    Long getId(A article);
+
+    /**
+     * @return the id shared by the article and its duplicates, or null if it is unknown
+     */
+    Long getDuplicateGroupId(A article);
+
+    String getTitle(A article);
+
+    String getUrl(A article);
+
+    /**
+     * @return the names of the licenses of the article, empty if the article has no license
+     */
+    List<String> getLicenseNames(A article);
+
+    /**
+     * @return whether the article has a license, without listing them
+     */
+    boolean isLicensed(A article);
+
+    /**
+     * @return the harvestDate of the article in epoch milliseconds, Long.MIN_VALUE if it has none
+     */
+    long getHarvestDateMillis(A article);
+
+}
@@ -0,0 +1,23 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.io.IOException;
+
+/**
+ * Receives the articles of a streamed batch one at a time, as soon as each one is decoded
+ * and while the rest of the response is still being read.
+ * <p/>
+ * A single listener is shared by all the slices of a harvester, so implementations
+ * must be safe to call from several threads.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public interface ArticleListener<A> {
+
+    /**
+     * @param slice the slice the article was pulled from
+     * @param article the article which was just decoded
+     * @throws IOException if the article could not be delivered, which aborts the decoding of the response
+     */
+    void onArticle(Slice slice, A article) throws IOException;
+
+}
@@ -0,0 +1,110 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The fields of the articles a consumer needs, the other ones are skipped by the decoders.
+ * <p/>
+ * A skipped field is passed over by the parser without its value being built, and stays null on
+ * the decoded article. The sequenceId is always decoded, the poll loops need it to move their
+ * cursor. Projections are immutable.
+ */
+public final class ArticleProjection {
+
+    public static final String SEQUENCE_ID = "sequenceId";
+
+    /**
+     * Every field of the articles, in the order of the Metabase responses. The tags and wordCount
+     * fields only exist in the JSON format.
+     */
+    public static final List<String> FIELDS = Collections.unmodifiableList(Arrays.asList(
+            SEQUENCE_ID, "id", "language", "languageCode", "title", "content", "contentWithMarkup", "extract",
+            "tags", "wordCount", "publishedDate", "harvestDate", "embargoDate", "licenseEndDate", "url",
+            "commentsUrl", "outboundUrls", "dataFormat", "copyright", "loginStatus", "duplicateGroupId",
+            "adultLanguage", "licenses"));
+
+    public static final ArticleProjection ALL = new ArticleProjection(null);
+
+    /**
+     * The included fields, or null when every field is.
+     */
+    private final Set<String> fields;
+
+    private ArticleProjection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * @param fields the fields to decode, the sequenceId being always added
+     * @return the projection
+     * @throws IllegalArgumentException if a field is not an article field
+     */
+    public static ArticleProjection of(String... fields) {
+        Set<String> included = new LinkedHashSet<>();
+        included.add(SEQUENCE_ID);
+        for (String field : fields) {
+            if (!FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown article field [" + field + "], expected one of " + FIELDS);
+            }
+            included.add(field);
+        }
+        return new ArticleProjection(included);
+    }
+
+    /**
+     * @param fields comma separated fields, as given on the command line
+     * @return the projection
+     * @throws IllegalArgumentException if a field is not an article field
+     */
+    public static ArticleProjection parse(String fields) {
+        String[] names = fields.split(",");
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim();
+        }
+        return of(names);
+    }
+
+    /**
+     * @param extraFields fields the projection must also include
+     * @return a projection including the fields of this one and the extra fields
+     */
+    public ArticleProjection with(String... extraFields) {
+        if (fields == null) {
+            return this;
+        }
+        Set<String> included = new LinkedHashSet<>(fields);
+        included.addAll(of(extraFields).fields);
+        return new ArticleProjection(included);
+    }
+
+    public boolean includes(String field) {
+        return fields == null || fields.contains(field);
+    }
+
+    public boolean isAll() {
+        return fields == null;
+    }
+
+    /**
+     * @return the fields which are skipped, in the order of {@link #FIELDS}
+     */
+    public Set<String> getExcluded() {
+        Set<String> excluded = new LinkedHashSet<>();
+        for (String field : FIELDS) {
+            if (!includes(field)) {
+                excluded.add(field);
+            }
+        }
+        return excluded;
+    }
+
+    @Override
+    public String toString() {
+        return fields == null ? "all fields" : String.join(",", fields);
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of one call to the Metabase API for a given slice: the status of the call
+ * and the articles it returned, in feed order.
+ * <p/>
+ * A streamed batch holds no article: each article was handed to an {@link ArticleListener}
+ * while the response was decoded, and the batch only reports how many there were.
+ * <p/>
+ * A batch may hold resources its articles depend on, such as the off-heap storage of their
+ * bodies or the pool they were decoded from, which are released once the batch was handled.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class Batch<A> {
+
+    /**
+     * constant used for the status attribute from <response> tag received via Metabase API call
+     */
+    public static final String SUCCESS = "SUCCESS";
+
+    private final Slice slice;
+
+    private final String status;
+
+    private final String messageCode;
+
+    private final List<A> articles;
+
+    private final int articleCount;
+
+    private final Long lastSequenceId;
+
+    private final boolean streamed;
+
+    private List<Closeable> resources;
+
+    public Batch(Slice slice, String status, String messageCode, List<A> articles, Long lastSequenceId) {
+        this(slice, status, messageCode, articles, articles != null ? articles.size() : 0, lastSequenceId, false);
+    }
+
+    private Batch(Slice slice, String status, String messageCode, List<A> articles, int articleCount,
+            Long lastSequenceId, boolean streamed) {
+        this.slice = slice;
+        this.status = status;
+        this.messageCode = messageCode;
+        this.articles = articles != null ? articles : Collections.<A>emptyList();
+        this.articleCount = articleCount;
+        this.lastSequenceId = lastSequenceId;
+        this.streamed = streamed;
+    }
+
+    /**
+     * Creates a batch whose articles were already handed one by one to an {@link ArticleListener}.
+     *
+     * @param slice the slice which was pulled
+     * @param status the status of the call
+     * @param messageCode the message code of the call
+     * @param articleCount the number of articles which were streamed
+     * @param lastSequenceId the sequenceId of the last article streamed, or null if none was
+     * @return the streamed batch
+     */
+    public static <A> Batch<A> streamed(Slice slice, String status, String messageCode, int articleCount, Long lastSequenceId) {
+        return new Batch<>(slice, status, messageCode, null, articleCount, lastSequenceId, true);
+    }
+
+    public Slice getSlice() {
+        return slice;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getMessageCode() {
+        return messageCode;
+    }
+
+    /**
+     * @return the articles of the batch, always empty for a streamed batch
+     */
+    public List<A> getArticles() {
+        return articles;
+    }
+
+    /**
+     * @return the sequenceId of the last article of the batch, or null when the batch holds no article
+     */
+    public Long getLastSequenceId() {
+        return lastSequenceId;
+    }
+
+    public boolean isSuccess() {
+        return SUCCESS.equals(status);
+    }
+
+    /**
+     * @return whether the articles were streamed to a listener instead of being held by the batch
+     */
+    public boolean isStreamed() {
+        return streamed;
+    }
+
+    /**
+     * @return the number of articles returned by the call, including streamed ones
+     */
+    public int size() {
+        return articleCount;
+    }
+
+    /**
+     * @param resource a resource the articles depend on, released by {@link #release()} in the order
+     *        the resources were added
+     */
+    public void addResource(Closeable resource) {
+        if (resources == null) {
+            resources = new ArrayList<>(2);
+        }
+        resources.add(resource);
+    }
+
+    /**
+     * Releases the resources the articles depend on, after which the articles must no longer be used.
+     */
+    public void release() {
+        if (resources != null) {
+            for (Closeable resource : resources) {
+                try {
+                    resource.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            resources = null;
+        }
+    }
+
+}
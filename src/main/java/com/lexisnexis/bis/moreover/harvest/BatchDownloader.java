@@ -0,0 +1,24 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.io.IOException;
+
+/**
+ * A {@link BatchFetcher} whose calls can be split in two: the download of the response, on the
+ * thread of the slice loop, and its decoding, on a worker of the decode stage of a staged loop, see
+ * {@link SliceLoop}.
+ * <p/>
+ * Implementations must be safe to call from several slice loops at the same time.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public interface BatchDownloader<A> extends BatchFetcher<A> {
+
+    /**
+     * @param slice the slice to pull
+     * @param sequenceId the sequenceId of the last article already received for this slice, or null
+     * @return the downloaded response of Metabase, to be decoded
+     * @throws IOException if the call failed
+     */
+    PendingBatch<A> download(Slice slice, Long sequenceId) throws IOException;
+
+}
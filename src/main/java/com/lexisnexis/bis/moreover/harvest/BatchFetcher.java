@@ -0,0 +1,22 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.io.IOException;
+
+/**
+ * Pulls one batch of articles of a slice from the Metabase API.
+ * <p/>
+ * Implementations must be safe to call from several slice loops at the same time.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public interface BatchFetcher<A> {
+
+    /**
+     * @param slice the slice to pull
+     * @param sequenceId the sequenceId of the last article already received for this slice, or null
+     * @return the batch returned by Metabase
+     * @throws IOException if the call or the decoding of the response failed
+     */
+    Batch<A> fetch(Slice slice, Long sequenceId) throws IOException;
+
+}
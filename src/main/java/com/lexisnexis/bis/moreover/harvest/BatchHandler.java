@@ -0,0 +1,21 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.io.IOException;
+
+/**
+ * Downstream pipeline receiving every batch pulled by the slice loops.
+ * <p/>
+ * A single handler is shared by all the slices of a harvester, so implementations
+ * must be safe to call from several threads.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public interface BatchHandler<A> {
+
+    /**
+     * @param batch the batch pulled by a slice loop
+     * @throws IOException if the batch could not be delivered, which stops the slice loop
+     */
+    void handle(Batch<A> batch) throws IOException;
+
+}
@@ -0,0 +1,24 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+/**
+ * Calls Metabase every <i>pauseMillis</i>, whatever the calls return.
+ */
+public class FixedPollScheduler implements PollScheduler {
+
+    private final long pauseMillis;
+
+    public FixedPollScheduler(long pauseMillis) {
+        this.pauseMillis = pauseMillis;
+    }
+
+    @Override
+    public long initialDelay() {
+        return 0;
+    }
+
+    @Override
+    public long nextInterval(Batch<?> batch) {
+        return pauseMillis;
+    }
+
+}
@@ -0,0 +1,1588 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.lexisnexis.bis.moreover.archive.ArticleCodec;
+import com.lexisnexis.bis.moreover.checkpoint.CheckpointStore;
+import com.lexisnexis.bis.moreover.checkpoint.FileCheckpointStore;
+import com.lexisnexis.bis.moreover.checkpoint.MemoryCheckpointStore;
+import com.lexisnexis.bis.moreover.cluster.FileLeaseStore;
+import com.lexisnexis.bis.moreover.cluster.LeaseStore;
+import com.lexisnexis.bis.moreover.cluster.SliceCoordinator;
+import com.lexisnexis.bis.moreover.click.ClickDispatcher;
+import com.lexisnexis.bis.moreover.click.ClickJournal;
+import com.lexisnexis.bis.moreover.dedup.DedupWindow;
+import com.lexisnexis.bis.moreover.dedup.Deduplicator;
+import com.lexisnexis.bis.moreover.intern.ArticleStringPools;
+import com.lexisnexis.bis.moreover.metrics.HarvestMetrics;
+import com.lexisnexis.bis.moreover.metrics.MetricsMBean;
+import com.lexisnexis.bis.moreover.metrics.MetricsRegistry;
+import com.lexisnexis.bis.moreover.metrics.PrometheusEndpoint;
+import com.lexisnexis.bis.moreover.offheap.DirectBufferPool;
+import com.lexisnexis.bis.moreover.offheap.OffHeapArena;
+import com.lexisnexis.bis.moreover.pipeline.PipelineStages;
+import com.lexisnexis.bis.moreover.profile.HarvestProfile;
+import com.lexisnexis.bis.moreover.profile.HarvestProfiles;
+import com.lexisnexis.bis.moreover.profile.ProfileHarvester;
+import com.lexisnexis.bis.moreover.ratelimit.AccessLimiter;
+import com.lexisnexis.bis.moreover.ratelimit.SharedAccessTable;
+import com.lexisnexis.bis.moreover.recycle.Recyclable;
+import com.lexisnexis.bis.moreover.recycle.RecyclingPool;
+import com.lexisnexis.bis.moreover.sink.ArticleSink;
+import com.lexisnexis.bis.moreover.sink.ArticleSinks;
+import com.lexisnexis.bis.moreover.transport.Download;
+import com.lexisnexis.bis.moreover.transport.InflaterPool;
+import com.lexisnexis.bis.moreover.transport.MetabaseTransport;
+import com.lexisnexis.bis.moreover.transport.ResponseBodyDecoder;
+
+/**
+ * Harvests a Metabase feed, whatever its format, from the command line of a sample client.
+ * <p/>
+ * The clients of each format only bind the format: the generated decoder of its responses, the
+ * streaming decoder of its articles and the access to the fields of its entities. Everything else
+ * is shared: the options of the command line, the slices and their poll loops, the leases, the
+ * access limit, the checkpoints, the outputs, the deduplication, the clicks, the metrics and the
+ * shutdown of it all.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ * @param <R> the response type of the feed format, the whole response bound at once
+ */
+public abstract class MetabaseClient<A extends Recyclable, R> implements BatchDownloader<A>, BatchHandler<A>, ArticleListener<A> {
+
+    
+    /**
+     * constants used to help construct the request url to Metabase API
+     */
+    private static final String MB_ENDPOINT = "http://metabase.moreover.com/api/v10/articles";
+    private static final String MB_KEY_PARAM_NAME = "key";
+    private static final String MB_SEQ_ID_PARAM_NAME = "sequence_id";
+    private static final String MB_LIMIT_PARAM_NAME = "limit";
+    private static final String MB_NUMBER_OF_SLICES = "number_of_slices";
+    private static final String MB_SLICE_INDEX = "slice_number";
+    private static final String MB_FORMAT = "format";
+
+    /**
+     * constants used for the menu
+     */
+    private static final String KEY_OPTION = "key";
+    private static final String SEQ_ID_OPTION = "sequenceId";
+    private static final String PAUSE_MILLIS_OPTION = "pauseMillis";
+    private static final String LIMIT_OPTION = "limit";
+    private static final String NUM_SLICES_OPTION = "numSlices";
+    private static final String SLICE_INDEX_OPTION = "sliceIndex";
+    private static final String ALL_SLICES_OPTION = "allSlices";
+    private static final String CHECKPOINT_DIR_OPTION = "checkpointDir";
+    private static final String STREAMING_OPTION = "streaming";
+    private static final String ADAPTIVE_OPTION = "adaptive";
+    private static final String MAX_PAUSE_MILLIS_OPTION = "maxPauseMillis";
+    private static final String PIPELINE_DEPTH_OPTION = "pipelineDepth";
+    private static final String CLICK_LICENSED_OPTION = "clickLicensed";
+    private static final String OUTPUT_OPTION = "output";
+    private static final String CONNECT_TIMEOUT_MILLIS_OPTION = "connectTimeoutMillis";
+    private static final String READ_TIMEOUT_MILLIS_OPTION = "readTimeoutMillis";
+    private static final String ENDPOINT_OPTION = "endpoint";
+    private static final String DEDUP_OPTION = "dedup";
+    private static final String DEDUP_WINDOW_SIZE_OPTION = "dedupWindowSize";
+    private static final String DEDUP_WINDOW_MILLIS_OPTION = "dedupWindowMillis";
+    private static final String DEDUP_BLOOM_SIZE_OPTION = "dedupBloomSize";
+    private static final String OFF_HEAP_CONTENT_OPTION = "offHeapContent";
+    private static final String FIELDS_OPTION = "fields";
+    private static final String METRICS_PORT_OPTION = "metricsPort";
+    private static final String LEASE_DIR_OPTION = "leaseDir";
+    private static final String NODE_ID_OPTION = "nodeId";
+    private static final String LEASE_MILLIS_OPTION = "leaseMillis";
+    private static final String RECYCLE_OPTION = "recycle";
+    private static final String DECODE_THREADS_OPTION = "decodeThreads";
+    private static final String SINK_THREADS_OPTION = "sinkThreads";
+    private static final String PROFILES_OPTION = "profiles";
+    private static final String POLL_THREADS_OPTION = "pollThreads";
+    private static final String ACCESS_LIMIT_MILLIS_OPTION = "accessLimitMillis";
+    private static final String ACCESS_LIMIT_FILE_OPTION = "accessLimitFile";
+    private static final String ACCESS_LIMIT_MARGIN_MILLIS_OPTION = "accessLimitMarginMillis";
+    private static final String ACCESS_LIMIT_PER_SLICE_OPTION = "accessLimitPerSlice";
+    
+    /**
+     * Maximum Download and the <i>limit</i> parameter:
+     * <p/>
+     * Please note that the maximum number of articles that can be returned in a single Metabase
+     * call is <b>500</b> articles. Calls that are up to date and set to run at an appropriate interval
+     * will normally return fewer than 500 articles, i.e. all the current articles that have become
+     * available since the previous call.
+     * <p/>
+     * If your calls are continuously hitting the maximum of 500 articles that may indicate you
+     * are not calling the Metabase frequently enough to keep up with the total output of articles
+     * <p/>
+     * Example to return only 10 articles:
+     * <i>http://metabase.moreover.com/api/v10/articles?key=profile_id&sequence_id=sequenceId&limit=10</i>
+     * <p/>
+     * Normally, if you do not provide the limit parameter to the request url it defaults to 500
+     */
+    private static final Integer DEFAULT_LIMIT = 500;
+    
+    /**
+     * You should schedule calls frequently enough to ensure you keep up with the daily volume of
+     * articles coming through in your Metabase feed.
+     * <p/>
+     * Customers set to receive all English language content would need to schedule calls to run once
+     * every <b>30</b>seconds (30000 milliseconds) in order to keep up with the volume of articles. Customers set to receive
+     * fewer articles, for example only posts from specific blogs or categories, may call less frequently,
+     * e.g. every couple of minutes. Please contact Client Services if you wish to discuss the
+     * appropriate call frequency for your configuration.
+     * <p/>
+     * Please note that there is a standard access limit set at <b>20</b>seconds (20000 milliseconds)
+     * between calls to the Metabase servers. More frequent calls may result in a denial of access for
+     * that call. The clients wait for the access limit of each key before calling, see
+     * {@link AccessLimiter}.
+     * <p/>
+     * If the volume of your output is such that you need to call more frequently then
+     * please contact Client Services.
+     */
+    private static final int DEFAULT_PAUSE_MILLIS = 20000;
+    
+    /**
+     * In adaptive mode, the longest pause between two calls of a slice whose calls keep returning
+     * few or no articles.
+     */
+    private static final int DEFAULT_MAX_PAUSE_MILLIS = 120000;
+    
+    /**
+     * name of the file, in the checkpoint directory, journaling the clicks not yet called
+     */
+    private static final String CLICK_JOURNAL_FILE_NAME = "clicks.journal";
+    
+    /**
+     * name of the file, in the checkpoint directory, saving the ids of the articles recently delivered
+     */
+    private static final String DEDUP_WINDOW_FILE_NAME = "dedup.window";
+
+    /**
+     * these are the fields which will be set in respect to what we give as arguments to the MetabaseAPITutorial class
+     */
+    private String key;
+    private Long seqId;
+    private Integer pauseMillis;
+    private Integer limit;
+    private Integer numberOfSlices;
+    private Integer sliceIndex;
+    private boolean allSlices;
+    private String checkpointDir;
+    private boolean streaming;
+    private boolean adaptive;
+    private Integer maxPauseMillis;
+    private int pipelineDepth;
+    private boolean clickLicensed;
+    private String[] outputs;
+    private Integer connectTimeoutMillis;
+    private Integer readTimeoutMillis;
+    private String endpoint;
+    private Deduplicator.Mode dedup;
+    private Integer dedupWindowSize;
+    private Long dedupWindowMillis;
+    private Integer dedupBloomSize;
+    private boolean offHeapContent;
+    private ArticleProjection projection = ArticleProjection.ALL;
+    private Integer metricsPort;
+    private String leaseDir;
+    private String nodeId;
+    private Long leaseMillis;
+    private RecyclingPool.Mode recycle;
+    private Integer decodeThreads;
+    private Integer sinkThreads;
+    private String profiles;
+    private Integer pollThreads;
+    private Long accessLimitMillis;
+    private String accessLimitFile;
+    private Long accessLimitMarginMillis;
+    private boolean accessLimitPerSlice;
+    
+    /**
+     * HTTP transport, click dispatcher and article sink shared by the poll loops of all slices
+     */
+    private MetabaseTransport transport;
+    private AccessLimiter accessLimiter;
+    private ClickDispatcher clickDispatcher;
+    private ArticleSink<A> articleSink;
+    private Deduplicator<A> deduplicator;
+    private DirectBufferPool contentPool;
+    private HarvestMetrics metrics;
+    
+    /**
+     * profiles harvested by this process by key, when several keys are harvested
+     */
+    private final Map<String, HarvestProfile> profilesByKey = new HashMap<>();
+    
+    /**
+     * articles each slice decodes into and releases once written, when they are recycled
+     */
+    private final Map<Slice, RecyclingPool<A>> articlePools = new ConcurrentHashMap<>();
+    
+    /**
+     * harvestDate of the last article streamed by each slice, until its batch is handled
+     */
+    private final Map<Slice, Long> streamedHarvestMillis = new ConcurrentHashMap<>();
+    private StreamingResponseDecoder<A> streamingDecoder;
+    
+    private final InflaterPool inflaterPool = new InflaterPool(1);
+    
+    /**
+     * binding of the feed format
+     */
+    private final String format;
+    private final ArticleAdapter<A> adapter;
+    private final ArticleCodec<A> codec;
+    private final Supplier<A> articleFactory;
+    
+    /**
+     * @param format the value of the format parameter of the calls, or null for the default XML format
+     * @param adapter the access to the fields of the articles of the format
+     * @param codec the codec writing the articles of the format to an archive
+     * @param articleFactory the constructor of the articles of the format, to recycle them
+     */
+    protected MetabaseClient(String format, ArticleAdapter<A> adapter, ArticleCodec<A> codec, Supplier<A> articleFactory) {
+        this.format = format;
+        this.adapter = adapter;
+        this.codec = codec;
+        this.articleFactory = articleFactory;
+    }
+    
+    public void run() {
+        
+        /**
+         * With profiles, every key of the profiles file is harvested by this process, each with its
+         * own slices, cursors, pacing and limit, on a few poll threads.
+         */
+        List<HarvestProfile> harvestProfiles = null;
+        if (profiles != null) {
+            try {
+                harvestProfiles = HarvestProfiles.load(Paths.get(profiles));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Unable to load the profiles of [" + profiles + "]");
+                e.printStackTrace();
+                return;
+            }
+            if (leaseDir != null) {
+                System.err.println("leaseDir cannot be combined with profiles");
+                return;
+            }
+            if (dedup != null) {
+                System.out.println("Deduplication is disabled with profiles, an article of a profile would suppress the same article of another");
+                dedup = null;
+            }
+            if (pipelineDepth > 0 || isStaged()) {
+                System.out.println("pipelineDepth, decodeThreads and sinkThreads are ignored with profiles");
+                pipelineDepth = 0;
+                decodeThreads = null;
+                sinkThreads = null;
+            }
+            for (HarvestProfile profile : harvestProfiles) {
+                profilesByKey.put(profile.getKey(), profile);
+            }
+            System.out.println("Harvesting " + harvestProfiles.size() + " profile(s) on " + pollThreads + " poll thread(s)");
+        }
+        
+        /**
+         * Whatever the projection, the fields deduplication and clicks rely on are decoded.
+         */
+        ArticleProjection decoded = projection;
+        if (dedup != null) {
+            decoded = decoded.with("id", "duplicateGroupId");
+        }
+        if (clickLicensed) {
+            decoded = decoded.with("url", "licenses");
+        }
+        setProjection(decoded);
+        if (!projection.isAll()) {
+            System.out.println("Decoding " + projection + " only");
+        }
+        
+        streamingDecoder = newStreamingDecoder(projection);
+        
+        /**
+         * A pipelined or staged slice needs the whole batch decoded to know where the next call
+         * starts, streamed articles would also be handled on the fetching thread out of the pipeline.
+         */
+        if ((pipelineDepth > 0 || isStaged()) && streaming) {
+            System.out.println("Streaming is disabled when pipelineDepth, decodeThreads or sinkThreads is set");
+            streaming = false;
+        }
+        
+        /**
+         * Streamed articles are delivered one at a time, there is no batch worth moving off the heap.
+         */
+        if (offHeapContent && !streaming) {
+            contentPool = new DirectBufferPool();
+        }
+        
+        /**
+         * The stages of each poll are timed whether or not the metrics endpoint is enabled, the
+         * metrics can always be read over JMX.
+         */
+        metrics = new HarvestMetrics(new MetricsRegistry());
+        metrics.registerStringPools(ArticleStringPools.all());
+        if (contentPool != null) {
+            metrics.registerContentPool(contentPool);
+        }
+        try {
+            MetricsMBean.register(metrics.getRegistry());
+        } catch (JMException e) {
+            System.err.println("Unable to register the metrics over JMX");
+            e.printStackTrace();
+        }
+        
+        /**
+         * Either pull the single slice given on the command line, or every slice of the feed
+         * from this process, or share every slice with the other nodes using the same lease
+         * directory. Each slice gets its own poll loop, sequenceId cursor and pacing.
+         */
+        if (leaseDir != null && numberOfSlices == null) {
+            System.err.println("numSlices is required to share the slices through leaseDir");
+            return;
+        }
+        List<Slice> slices;
+        if (harvestProfiles != null) {
+            slices = new ArrayList<>();
+            for (HarvestProfile profile : harvestProfiles) {
+                slices.addAll(profile.getSlices());
+            }
+        } else {
+            slices = (allSlices || leaseDir != null) && numberOfSlices != null ?
+                    Slice.allSlices(key, numberOfSlices) :
+                    Collections.singletonList(new Slice(key, numberOfSlices, sliceIndex));
+        }
+        int pollLoops = harvestProfiles != null ? Math.min(slices.size(), pollThreads) : slices.size();
+        
+        /**
+         * The connection pool holds one keep-alive connection per poll loop, or per poll thread
+         * with profiles.
+         */
+        try (PrometheusEndpoint endpoint = openMetricsEndpoint();
+                MetabaseTransport httpTransport = new MetabaseTransport(pollLoops, connectTimeoutMillis, readTimeoutMillis, metrics);
+                AccessLimiter limiter = openAccessLimiter();
+                CheckpointStore checkpointStore = openCheckpointStore();
+                LeaseStore leaseStore = openLeaseStore();
+                ClickDispatcher dispatcher = openClickDispatcher();
+                ArticleSink<A> sink = ArticleSinks.create(outputs, adapter, codec);
+                Deduplicator<A> articleDeduplicator = openDeduplicator();
+                PipelineStages stages = openPipelineStages(slices.size())) {
+            
+            /** the endpoint is closed with the other resources when the harvest ends */
+            if (endpoint != null) {
+                System.out.println("Serving metrics on http://localhost:" + endpoint.getPort() + PrometheusEndpoint.METRICS_PATH);
+            }
+            transport = httpTransport;
+            accessLimiter = limiter;
+            clickDispatcher = dispatcher;
+            articleSink = sink;
+            deduplicator = articleDeduplicator;
+            if (clickDispatcher != null) {
+                metrics.registerClickDispatcher(clickDispatcher);
+            }
+            if (deduplicator != null) {
+                metrics.registerDeduplicator(deduplicator);
+            }
+            
+            if (leaseStore != null) {
+                SliceCoordinator<A> coordinator = new SliceCoordinator<>(leaseStore, nodeId, leaseMillis, this, this,
+                        checkpointStore, this::createPollScheduler, pipelineDepth, stages);
+                
+                /**
+                 * Hand the slices over to the other nodes when the JVM is stopped, rather than
+                 * leave them waiting for the leases to expire.
+                 */
+                Runtime.getRuntime().addShutdownHook(new Thread(coordinator::close));
+                coordinator.coordinate(slices, seqId);
+                return;
+            }
+            
+            /**
+             * Resume each slice from its last committed cursor, falling back to the sequenceId
+             * of its profile or to the sequenceId argument for the slices which were never committed.
+             */
+            Map<Slice, Long> startCursors = new LinkedHashMap<>();
+            for (Slice slice : slices) {
+                Long committedSequenceId = checkpointStore.load(slice);
+                if (committedSequenceId != null) {
+                    System.out.println("Resuming " + slice + " from checkpoint sequenceId=[" + committedSequenceId + "]");
+                    startCursors.put(slice, committedSequenceId);
+                } else {
+                    HarvestProfile profile = getProfile(slice);
+                    startCursors.put(slice, profile != null && profile.getSequenceId() != null ? profile.getSequenceId() : seqId);
+                }
+            }
+            
+            if (harvestProfiles != null) {
+                ProfileHarvester<A> profileHarvester = new ProfileHarvester<>(this, this, checkpointStore,
+                        this::createPollScheduler, pollThreads);
+                profileHarvester.harvest(startCursors);
+                return;
+            }
+            
+            new SliceHarvester<A>(this, this, checkpointStore, this::createPollScheduler, pipelineDepth, stages)
+                    .harvest(startCursors);
+        } catch (InterruptedException | IOException e) {
+            e.printStackTrace();
+        } finally {
+            /** the pooled inflater of decompressResponse goes with the transport */
+            inflaterPool.close();
+        }
+    }
+    
+    private PollScheduler createPollScheduler() {
+        return createPollScheduler(null);
+    }
+    
+    /**
+     * Creates the scheduler pacing the calls of one slice. By default calls are made every
+     * pauseMillis. In adaptive mode a full page makes the slice call again after pauseMillis,
+     * while sparse pages make it back off gradually up to maxPauseMillis. The pacing of a profile
+     * overrides the pacing given on the command line.
+     * 
+     * @return the scheduler of a slice
+     */
+    private PollScheduler createPollScheduler(Slice slice) {
+        HarvestProfile profile = getProfile(slice);
+        int slicePauseMillis = profile != null && profile.getPauseMillis() != null ? profile.getPauseMillis() : pauseMillis;
+        int sliceMaxPauseMillis = profile != null && profile.getMaxPauseMillis() != null ? profile.getMaxPauseMillis() : maxPauseMillis;
+        if (profile != null && profile.getAdaptive() != null ? profile.getAdaptive() : adaptive) {
+            return new AdaptivePollScheduler(slicePauseMillis, Math.max(slicePauseMillis, sliceMaxPauseMillis), getPageSize(slice));
+        }
+        return new FixedPollScheduler(slicePauseMillis);
+    }
+    
+    /**
+     * @return the profile the slice is pulled for, or null when a single key is harvested
+     */
+    private HarvestProfile getProfile(Slice slice) {
+        return slice != null && slice.getProfile() != null ? profilesByKey.get(slice.getKey()) : null;
+    }
+    
+    /**
+     * @return the limit of the calls of the slice, the limit of its profile or the limit argument
+     */
+    private Integer getLimit(Slice slice) {
+        HarvestProfile profile = getProfile(slice);
+        return profile != null && profile.getLimit() != null ? profile.getLimit() : limit;
+    }
+    
+    /**
+     * @return the number of articles of a full page, the limit of the calls of the slice
+     */
+    private int getPageSize(Slice slice) {
+        Integer sliceLimit = getLimit(slice);
+        return sliceLimit != null && sliceLimit >= 1 && sliceLimit <= DEFAULT_LIMIT ? sliceLimit : DEFAULT_LIMIT;
+    }
+    
+    /**
+     * The pool of a slice holds the articles of the batch being decoded, of the batches waiting in
+     * its pipeline and of the batch being written.
+     * 
+     * @return the pool the articles of the slice are decoded into, or null when they are not recycled
+     */
+    private RecyclingPool<A> getArticlePool(Slice slice) {
+        if (recycle == null) {
+            return null;
+        }
+        return articlePools.computeIfAbsent(slice, poolSlice -> {
+            RecyclingPool<A> pool = new RecyclingPool<>(articleFactory, getPageSize(poolSlice) * (pipelineDepth + 2), recycle);
+            if (metrics != null) {
+                metrics.registerArticlePool(poolSlice, pool);
+            }
+            return pool;
+        });
+    }
+    
+    /**
+     * Starts the endpoint serving the metrics in the Prometheus text format, when a port was given.
+     * 
+     * @return the endpoint, or null when it is disabled
+     * @throws IOException if the port cannot be bound
+     */
+    private PrometheusEndpoint openMetricsEndpoint() throws IOException {
+        if (metricsPort == null) {
+            return null;
+        }
+        return new PrometheusEndpoint(metrics.getRegistry(), metricsPort);
+    }
+    
+    /**
+     * Opens the checkpoint store holding the sequenceId cursor of each slice. Cursors are only
+     * kept in memory unless a checkpoint directory was given on the command line.
+     * 
+     * @return the checkpoint store
+     * @throws IOException if the checkpoint log cannot be opened
+     */
+    private CheckpointStore openCheckpointStore() throws IOException {
+        if (checkpointDir == null) {
+            return new MemoryCheckpointStore();
+        }
+        final CheckpointStore checkpointStore = FileCheckpointStore.open(Paths.get(checkpointDir));
+        
+        /**
+         * Write the pending commits when the JVM is stopped, on kill -9 the store still
+         * recovers every commit which was already flushed.
+         */
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                checkpointStore.flush();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        return checkpointStore;
+    }
+    
+    /**
+     * @return whether the slices are staged, downloaded by their poll loops and decoded and
+     *         handled by the workers of the decode and sink stages
+     */
+    private boolean isStaged() {
+        return decodeThreads != null || sinkThreads != null;
+    }
+    
+    /**
+     * The decode stage runs one worker per core by default, the sink stage a single one as the
+     * batches are written to the shared outputs one at a time. Each stage queues up to one task per
+     * slice before the poll loops wait for it.
+     * 
+     * @return the stages shared by the poll loops, or null when the slices are not staged
+     */
+    private PipelineStages openPipelineStages(int slices) {
+        if (!isStaged()) {
+            return null;
+        }
+        PipelineStages stages = new PipelineStages(
+                decodeThreads != null ? decodeThreads : Runtime.getRuntime().availableProcessors(),
+                sinkThreads != null ? sinkThreads : 1,
+                slices);
+        System.out.println("Decoding on " + stages.getDecodeStage().getThreads() + " thread(s), handling on "
+                + stages.getSinkStage().getThreads() + " thread(s)");
+        if (metrics != null) {
+            metrics.registerPipelineStages(stages);
+        }
+        return stages;
+    }
+    
+    /**
+     * Opens the store of the slice leases shared with the other nodes, when a lease directory
+     * was given on the command line.
+     * 
+     * @return the lease store, or null when the slices are not shared
+     * @throws IOException if the lease directory cannot be created
+     */
+    private LeaseStore openLeaseStore() throws IOException {
+        if (leaseDir == null) {
+            return null;
+        }
+        return FileLeaseStore.open(Paths.get(leaseDir));
+    }
+    
+    /**
+     * Opens the access limiter holding back the calls of each key, or of each slice with
+     * accessLimitPerSlice, to one per accessLimitMillis plus accessLimitMarginMillis, shared with the
+     * other processes of the host through the accessLimitFile when one is given.
+     * 
+     * @return the access limiter, or null when the access limit is disabled
+     * @throws IOException if the access limit file cannot be opened
+     */
+    private AccessLimiter openAccessLimiter() throws IOException {
+        if (accessLimitMillis <= 0) {
+            if (accessLimitFile != null) {
+                System.out.println("accessLimitFile is ignored, the access limit is disabled");
+            }
+            return null;
+        }
+        SharedAccessTable sharedTable = accessLimitFile != null ? SharedAccessTable.open(Paths.get(accessLimitFile)) : null;
+        System.out.println("Calling each " + (accessLimitPerSlice ? "slice" : "key") + " at most once every "
+                + accessLimitMillis + " ms plus " + accessLimitMarginMillis + " ms"
+                + (sharedTable != null ? ", shared through [" + sharedTable.getFile() + "]" : ""));
+        return new AccessLimiter(accessLimitMillis, accessLimitMarginMillis, accessLimitPerSlice, sharedTable, metrics);
+    }
+    
+    /**
+     * Waits until the access limit of the slice lets it call Metabase, unless the access limit is
+     * disabled. The access limit is counted from the return of this method, right before the call.
+     */
+    private void awaitAccess(Slice slice) throws IOException {
+        if (accessLimiter != null) {
+            accessLimiter.acquire(slice);
+        }
+    }
+    
+    /**
+     * Calls Metabase once for the given slice, starting after the given sequenceId.
+     */
+    @Override
+    public Batch<A> fetch(Slice slice, Long sequenceId) throws IOException {
+        
+        String metabaseUrl = constructRequestUrlToMBAPI(slice.getKey(), sequenceId, getLimit(slice), slice.getNumberOfSlices(), slice.getSliceIndex());
+        awaitAccess(slice);
+        return streaming ? streamBatch(slice, metabaseUrl) : decodeBatch(slice, metabaseUrl, null);
+    }
+    
+    /**
+     * Calls Metabase in streaming mode: the response is inflated and decoded while it is read from
+     * the socket, and each article is handed to {@link #onArticle(Slice, Object)} as soon as it
+     * is decoded.
+     */
+    private Batch<A> streamBatch(Slice slice, String metabaseUrl) throws IOException {
+        RecyclingPool<A> articlePool = getArticlePool(slice);
+        if (articlePool == null) {
+            return transport.get(metabaseUrl, body -> streamingDecoder.decode(slice, body, this));
+        }
+        List<A> streamed = new ArrayList<>();
+        Batch<A> batch;
+        try {
+            batch = transport.get(metabaseUrl, body -> streamingDecoder.decode(slice, body, (streamedSlice, article) -> {
+                streamed.add(article);
+                onArticle(streamedSlice, article);
+            }, articlePool));
+        } catch (IOException | RuntimeException e) {
+            /**
+             * The articles streamed before the failure never reach a batch. The outputs may hold
+             * them until they are flushed, so they are only released once the outputs were.
+             */
+            try {
+                articleSink.flush();
+                articlePool.release(streamed);
+            } catch (IOException flushFailure) {
+                e.addSuppressed(flushFailure);
+            }
+            throw e;
+        }
+        batch.addResource(articlePool.lease(streamed));
+        return batch;
+    }
+    
+    /**
+     * Downloads the response of a call to Metabase for the given slice, to be decoded by
+     * {@link #decodeBatch(Slice, String, Download)} on a worker of the decode stage.
+     */
+    @Override
+    public PendingBatch<A> download(Slice slice, Long sequenceId) throws IOException {
+        String metabaseUrl = constructRequestUrlToMBAPI(slice.getKey(), sequenceId, getLimit(slice), slice.getNumberOfSlices(), slice.getSliceIndex());
+        awaitAccess(slice);
+        Download download = transport.download(metabaseUrl);
+        return () -> decodeBatch(slice, metabaseUrl, download);
+    }
+    
+    /**
+     * Decodes the response of a call into a batch, while it is downloaded or once it was.
+     * 
+     * @param download the downloaded response, or null to call Metabase and decode the response while it is read
+     */
+    private Batch<A> decodeBatch(Slice slice, String metabaseUrl, Download download) throws IOException {
+        
+        RecyclingPool<A> articlePool = getArticlePool(slice);
+        if (articlePool != null) {
+            
+            /**
+             * Recycled articles are decoded one by one into the articles the slice released, and
+             * released in turn once the batch was handled and the outputs flushed.
+             */
+            List<A> articles = new ArrayList<>(getPageSize(slice));
+            Batch<A> decoded;
+            try {
+                decoded = read(metabaseUrl, download,
+                        body -> streamingDecoder.decode(slice, body, (decodedSlice, article) -> articles.add(article), articlePool));
+            } catch (IOException | RuntimeException e) {
+                /** the articles decoded before the failure never reach a batch */
+                articlePool.release(articles);
+                throw e;
+            }
+            Batch<A> batch = new Batch<>(slice, decoded.getStatus(), decoded.getMessageCode(), articles, decoded.getLastSequenceId());
+            batch.addResource(articlePool.lease(articles));
+            if (contentPool != null && !articles.isEmpty()) {
+                batch.addResource(moveContentOffHeap(articles));
+            }
+            return batch;
+        }
+        
+        /**
+         * This decodes the response, uncompressed while it is read, into a Response object, which
+         * we will use to extract the necessary information and the article(s).
+         */
+        R response = read(metabaseUrl, download, this::readResponse);
+        List<A> articles = getArticles(response);
+        
+        Long lastSequenceId = null;
+        if (articles != null && !articles.isEmpty()) {
+            lastSequenceId = adapter.getSequenceId(articles.get(articles.size() - 1));
+        }
+        Batch<A> batch = new Batch<>(slice, getStatus(response), getMessageCode(response), articles, lastSequenceId);
+        if (contentPool != null && articles != null && !articles.isEmpty()) {
+            batch.addResource(moveContentOffHeap(articles));
+        }
+        return batch;
+    }
+    
+    private <T> T read(String metabaseUrl, Download download, ResponseBodyDecoder<T> decoder) throws IOException {
+        return download != null ? transport.decode(download, decoder) : transport.get(metabaseUrl, decoder);
+    }
+    
+    /**
+     * Moves the bodies of the articles of a batch to off-heap buffers, so that batches waiting in a
+     * pipeline or for the sink do not fill the old generation. The bodies are decoded again only
+     * by the outputs which read them.
+     * 
+     * @param articles the articles of the batch
+     * @return the arena holding the bodies, to release once the batch was handled
+     */
+    private OffHeapArena moveContentOffHeap(List<A> articles) {
+        OffHeapArena arena = new OffHeapArena(contentPool);
+        for (A article : articles) {
+            moveContentOffHeap(article, arena);
+        }
+        return arena;
+    }
+    
+    /**
+     * This example hands each batch to the article sink which, by default, prints out each article's
+     * title, click url, and the names of all licenses the article contains. The sink is flushed
+     * once per batch, so the output is written in one go instead of line by line.
+     * The sink keeps the articles of each batch together, so the batches of several slices are
+     * handed to it in parallel, the sink threads of a staged pipeline for instance. Only the
+     * deduplicator is shared: it holds the articles of a batch from the filter until they are
+     * committed, or cancelled if they could not be written.
+     */
+    @Override
+    public void handle(Batch<A> batch) throws IOException {
+        if (batch.isSuccess()) {
+            List<A> articles = deduplicator != null ? deduplicator.filter(batch.getArticles()) : batch.getArticles();
+            long sinkStartTime = System.nanoTime();
+            try {
+                articleSink.write(batch.getSlice(), articles);
+                articleSink.flush();
+            } catch (IOException | RuntimeException e) {
+                if (deduplicator != null) {
+                    deduplicator.cancel(articles);
+                }
+                throw e;
+            }
+            recordPoll(batch, System.nanoTime() - sinkStartTime);
+            if (deduplicator != null) {
+                deduplicator.commit(articles);
+                deduplicator.maybeSave();
+            }
+            for (A article : articles) {
+                clickIfLicensed(article);
+            }
+            String duplicates = articles.size() < batch.getArticles().size() ?
+                    ", " + (batch.getArticles().size() - articles.size()) + " duplicate(s) suppressed" :
+                    "";
+            if (batch.getSlice().isSliced() || batch.getSlice().getProfile() != null) {
+                System.out.println(batch.size() + " article(s) pulled for " + batch.getSlice() + duplicates + ".");
+            } else {
+                System.out.println(batch.size() + " article(s) pulled" + duplicates + ".");
+            }
+        } else {
+            streamedHarvestMillis.remove(batch.getSlice());
+            if (metrics != null) {
+                metrics.recordFailedCall();
+            }
+            System.out.println("Call to Metabase failed with status=[" + batch.getStatus() + "]");
+            System.out.println("Message code = [ " + batch.getMessageCode() + " ]");
+        }
+    }
+    
+    /**
+     * Records the size, the feed lag and the sink time of a successful poll.
+     */
+    private void recordPoll(Batch<A> batch, long sinkNanos) {
+        Long lastHarvestMillis = streamedHarvestMillis.remove(batch.getSlice());
+        if (!batch.isStreamed() && !batch.getArticles().isEmpty()) {
+            lastHarvestMillis = adapter.getHarvestDateMillis(batch.getArticles().get(batch.getArticles().size() - 1));
+        }
+        if (metrics != null) {
+            metrics.recordPoll(batch.getSlice(), batch.size(), getPageSize(batch.getSlice()),
+                    lastHarvestMillis != null ? lastHarvestMillis : Long.MIN_VALUE, sinkNanos);
+        }
+    }
+    
+    /**
+     * In streaming mode each article is written to the sink as soon as it is decoded, the batch
+     * handed to {@link #handle(Batch)} afterwards only holds the number of articles and flushes
+     * the sink.
+     */
+    @Override
+    public synchronized void onArticle(Slice slice, A article) throws IOException {
+        streamedHarvestMillis.put(slice, adapter.getHarvestDateMillis(article));
+        if (deduplicator != null && deduplicator.isDuplicate(article)) {
+            return;
+        }
+        List<A> articles = Collections.singletonList(article);
+        long sinkStartTime = System.nanoTime();
+        articleSink.write(slice, articles);
+        if (metrics != null) {
+            metrics.recordStreamedSink(System.nanoTime() - sinkStartTime);
+        }
+        if (deduplicator != null) {
+            deduplicator.commit(articles);
+        }
+        clickIfLicensed(article);
+    }
+    
+    /**
+     * Certain licensed articles require them to be "clicked" to record royalty payments
+     * in compliance with LexisNexis rules. When clicking is enabled, the click url of each
+     * licensed article is handed to the click dispatcher which calls it in the background.
+     * 
+     * @param article the article which was just delivered
+     */
+    private void clickIfLicensed(A article) {
+        if (clickDispatcher == null || adapter.getUrl(article) == null) {
+            return;
+        }
+        if (adapter.isLicensed(article)) {
+            try {
+                clickDispatcher.submit(adapter.getUrl(article));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    /**
+     * Opens the deduplicator suppressing the articles already delivered, when deduplication is
+     * enabled. The window of recently delivered articles is saved next to the checkpoints when a
+     * checkpoint directory is given, so it survives restarts.
+     * 
+     * @return the deduplicator, or null when deduplication is disabled
+     * @throws IOException if the saved window cannot be read
+     */
+    private Deduplicator<A> openDeduplicator() throws IOException {
+        if (dedup == null) {
+            return null;
+        }
+        DedupWindow window = new DedupWindow(dedupWindowSize, dedupWindowMillis, dedupBloomSize);
+        if (checkpointDir == null) {
+            return Deduplicator.open(adapter, dedup, window, null);
+        }
+        final Deduplicator<A> articleDeduplicator = Deduplicator.open(adapter, dedup, window,
+                Paths.get(checkpointDir).resolve(DEDUP_WINDOW_FILE_NAME));
+        
+        /**
+         * Save the window when the JVM is stopped, on kill -9 the last saved window is used.
+         */
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                articleDeduplicator.save();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        return articleDeduplicator;
+    }
+    
+    /**
+     * Opens the dispatcher calling the click urls of licensed articles, when clicking is enabled.
+     * Pending clicks are journaled next to the checkpoints when a checkpoint directory is given,
+     * so they survive restarts.
+     * 
+     * @return the click dispatcher, or null when clicking is disabled
+     * @throws IOException if the click journal cannot be opened
+     */
+    private ClickDispatcher openClickDispatcher() throws IOException {
+        if (!clickLicensed) {
+            return null;
+        }
+        ClickJournal journal = checkpointDir != null ?
+                ClickJournal.open(Paths.get(checkpointDir).resolve(CLICK_JOURNAL_FILE_NAME)) :
+                null;
+        return new ClickDispatcher(journal);
+    }
+    
+    /**
+     * Constructs a string based on the arguments read from the cmd line
+     *
+     * @param key   string representing the key
+     * @param seqId   long representing the sequenceId
+     * @param limit integer representing the maximum number of articles to be returned in the API call
+     * @param numSlices integer representing the number of slices or clients calling the API
+     * @param sliceIndex integer representing the slice this client is using to call the MB API
+     * @return string representing the request url constructed based on the given arguments
+     */
+    private String constructRequestUrlToMBAPI(String key, Long seqId, Integer limit, Integer numSlices, Integer sliceIndex) {
+
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append(endpoint).append("?");
+        stringBuilder.append(MB_KEY_PARAM_NAME).append("=").append(key);
+        if (seqId != null) {
+            stringBuilder.append("&");
+            stringBuilder.append(MB_SEQ_ID_PARAM_NAME).append("=").append(seqId);
+        }
+        if (limit != null) {
+            if (limit < 1 || limit > 500) {
+                stringBuilder.append("&");
+                stringBuilder.append(MB_LIMIT_PARAM_NAME).append("=").append(DEFAULT_LIMIT);
+            } else {
+                stringBuilder.append("&");
+                stringBuilder.append(MB_LIMIT_PARAM_NAME).append("=").append(limit);
+            }
+        }
+        if (numSlices != null && sliceIndex != null) {
+                stringBuilder.append("&");
+            stringBuilder.append(MB_NUMBER_OF_SLICES).append("=").append(numSlices);
+                stringBuilder.append("&");
+            stringBuilder.append(MB_SLICE_INDEX).append("=").append(sliceIndex);
+        }
+        if (format != null) {
+            stringBuilder.append("&");
+            stringBuilder.append(MB_FORMAT).append("=").append(format);
+        }
+        System.out.println(stringBuilder.toString());
+
+        return stringBuilder.toString();
+    }
+    
+    /**
+     * Convenience method to convert a gzipped byte array to a Response object. It runs the same
+     * decoding as a gzipped response read from the transport, which makes it the entry point of
+     * the decode benchmark.
+     * 
+     * @param compressedData The byte array containing gzipped data
+     * @return The decompressed response as a Response object
+     * @throws IOException if the response cannot be inflated or decoded
+     */
+    public R decompressResponse(byte[] compressedData) throws IOException {
+        try (InputStream body = inflaterPool.inflate(new ByteArrayInputStream(compressedData))) {
+            return readResponse(body);
+        }
+    }
+    
+    /**
+     * Converts the body of a response to a Response object, with the generated decoder of the
+     * format binding the fields of the projection only.
+     * 
+     * @param body The uncompressed body of the response
+     * @return The response as a Response object
+     * @throws IOException if the body cannot be read or decoded
+     */
+    protected abstract R readResponse(InputStream body) throws IOException;
+    
+    /**
+     * @return the decoder handing the articles of a response to a listener one by one, binding the
+     *         fields of the given projection only
+     */
+    protected abstract StreamingResponseDecoder<A> newStreamingDecoder(ArticleProjection projection);
+    
+    /**
+     * @return the status of the call, SUCCESS or FAILURE
+     */
+    protected abstract String getStatus(R response);
+    
+    protected abstract String getMessageCode(R response);
+    
+    /**
+     * @return the articles of the response, or null if it holds none
+     */
+    protected abstract List<A> getArticles(R response);
+    
+    /**
+     * Moves the bodies of an article to off-heap buffers of the arena, unless they already were.
+     */
+    protected abstract void moveContentOffHeap(A article, OffHeapArena arena);
+
+    /**
+     * This will take each argument from the CommandLine and set the fields so that we can easily work with the
+     * values from the command line
+     *
+     * @param args arguments from the command line
+     */
+    protected void setFieldsFromArguments(String[] args) {
+        CommandLine commandLine = parseArgumentsGivenAsParameters(args);
+
+        key = commandLine.getOptionValue(KEY_OPTION);
+        profiles = commandLine.getOptionValue(PROFILES_OPTION);
+        if (key == null && profiles == null) {
+            printHelp();
+            System.exit(1);
+        }
+        seqId = commandLine.getOptionValue(SEQ_ID_OPTION) != null ?
+                Long.parseLong(commandLine.getOptionValue(SEQ_ID_OPTION)) :
+                null;
+        pauseMillis = commandLine.getOptionValue(PAUSE_MILLIS_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(PAUSE_MILLIS_OPTION)) :
+                DEFAULT_PAUSE_MILLIS;
+        limit = commandLine.getOptionValue(LIMIT_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(LIMIT_OPTION)) :
+                null;
+        numberOfSlices = commandLine.getOptionValue(NUM_SLICES_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(NUM_SLICES_OPTION)) :
+                null;
+        sliceIndex = commandLine.getOptionValue(SLICE_INDEX_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(SLICE_INDEX_OPTION)) :
+                null;
+        allSlices = commandLine.hasOption(ALL_SLICES_OPTION);
+        checkpointDir = commandLine.getOptionValue(CHECKPOINT_DIR_OPTION);
+        streaming = commandLine.hasOption(STREAMING_OPTION);
+        adaptive = commandLine.hasOption(ADAPTIVE_OPTION);
+        maxPauseMillis = commandLine.getOptionValue(MAX_PAUSE_MILLIS_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(MAX_PAUSE_MILLIS_OPTION)) :
+                DEFAULT_MAX_PAUSE_MILLIS;
+        pipelineDepth = commandLine.getOptionValue(PIPELINE_DEPTH_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(PIPELINE_DEPTH_OPTION)) :
+                0;
+        clickLicensed = commandLine.hasOption(CLICK_LICENSED_OPTION);
+        outputs = commandLine.getOptionValues(OUTPUT_OPTION);
+        connectTimeoutMillis = commandLine.getOptionValue(CONNECT_TIMEOUT_MILLIS_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(CONNECT_TIMEOUT_MILLIS_OPTION)) :
+                MetabaseTransport.DEFAULT_CONNECT_TIMEOUT_MILLIS;
+        readTimeoutMillis = commandLine.getOptionValue(READ_TIMEOUT_MILLIS_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(READ_TIMEOUT_MILLIS_OPTION)) :
+                MetabaseTransport.DEFAULT_READ_TIMEOUT_MILLIS;
+        endpoint = commandLine.getOptionValue(ENDPOINT_OPTION) != null ?
+                commandLine.getOptionValue(ENDPOINT_OPTION) :
+                MB_ENDPOINT;
+        dedup = commandLine.getOptionValue(DEDUP_OPTION) != null ?
+                Deduplicator.Mode.parse(commandLine.getOptionValue(DEDUP_OPTION)) :
+                null;
+        dedupWindowSize = commandLine.getOptionValue(DEDUP_WINDOW_SIZE_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(DEDUP_WINDOW_SIZE_OPTION)) :
+                Deduplicator.DEFAULT_WINDOW_SIZE;
+        dedupWindowMillis = commandLine.getOptionValue(DEDUP_WINDOW_MILLIS_OPTION) != null ?
+                Long.parseLong(commandLine.getOptionValue(DEDUP_WINDOW_MILLIS_OPTION)) :
+                0L;
+        dedupBloomSize = commandLine.getOptionValue(DEDUP_BLOOM_SIZE_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(DEDUP_BLOOM_SIZE_OPTION)) :
+                0;
+        offHeapContent = commandLine.hasOption(OFF_HEAP_CONTENT_OPTION);
+        projection = commandLine.getOptionValue(FIELDS_OPTION) != null ?
+                ArticleProjection.parse(commandLine.getOptionValue(FIELDS_OPTION)) :
+                ArticleProjection.ALL;
+        metricsPort = commandLine.getOptionValue(METRICS_PORT_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(METRICS_PORT_OPTION)) :
+                null;
+        leaseDir = commandLine.getOptionValue(LEASE_DIR_OPTION);
+        nodeId = commandLine.getOptionValue(NODE_ID_OPTION) != null ?
+                commandLine.getOptionValue(NODE_ID_OPTION) :
+                SliceCoordinator.defaultNodeId();
+        leaseMillis = commandLine.getOptionValue(LEASE_MILLIS_OPTION) != null ?
+                Long.parseLong(commandLine.getOptionValue(LEASE_MILLIS_OPTION)) :
+                SliceCoordinator.DEFAULT_LEASE_MILLIS;
+        recycle = commandLine.getOptionValue(RECYCLE_OPTION) != null ?
+                RecyclingPool.Mode.parse(commandLine.getOptionValue(RECYCLE_OPTION)) :
+                null;
+        decodeThreads = commandLine.getOptionValue(DECODE_THREADS_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(DECODE_THREADS_OPTION)) :
+                null;
+        sinkThreads = commandLine.getOptionValue(SINK_THREADS_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(SINK_THREADS_OPTION)) :
+                null;
+        pollThreads = commandLine.getOptionValue(POLL_THREADS_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(POLL_THREADS_OPTION)) :
+                ProfileHarvester.DEFAULT_POLL_THREADS;
+        accessLimitMillis = commandLine.getOptionValue(ACCESS_LIMIT_MILLIS_OPTION) != null ?
+                Long.parseLong(commandLine.getOptionValue(ACCESS_LIMIT_MILLIS_OPTION)) :
+                AccessLimiter.DEFAULT_ACCESS_LIMIT_MILLIS;
+        accessLimitFile = commandLine.getOptionValue(ACCESS_LIMIT_FILE_OPTION);
+        accessLimitMarginMillis = commandLine.getOptionValue(ACCESS_LIMIT_MARGIN_MILLIS_OPTION) != null ?
+                Long.parseLong(commandLine.getOptionValue(ACCESS_LIMIT_MARGIN_MILLIS_OPTION)) :
+                AccessLimiter.DEFAULT_MARGIN_MILLIS;
+        accessLimitPerSlice = commandLine.hasOption(ACCESS_LIMIT_PER_SLICE_OPTION);
+    }
+
+    /**
+     * Take the arguments given at the command line and parse them to see everything is appropriate to the calling
+     * of the Metabase API
+     *
+     * @param args arguments that are given from the command line in order to make calls to the Metabase API
+     * @return CommandLine which will contain the values of the arguments given to the command line
+     */
+    private CommandLine parseArgumentsGivenAsParameters(String[] args) {
+        Options options = createOptionForMenu();
+
+        CommandLineParser parser = new DefaultParser();
+        CommandLine commandLine = null;
+        try {
+            commandLine = parser.parse(options, args);
+        } catch (ParseException e) {
+            printHelp();
+            System.exit(1);
+        }
+
+        return commandLine;
+    }
+
+    /**
+     * Helper methods for the menu.
+     * These can be ignored as they are meant for a better processing of the arguments from the command line.
+     */
+    public Options createOptionForMenu() {
+        Option tokenOption = new Option("k", KEY_OPTION, true, null);
+        Option seqIdOption = new Option("s", SEQ_ID_OPTION, true, null);
+        Option pauseMillisOption = new Option("p", PAUSE_MILLIS_OPTION, true, null);
+        Option limitOption = new Option("l", LIMIT_OPTION, true, null);
+        Option numSlicesOption = new Option("n", NUM_SLICES_OPTION, true, null);
+        Option sliceIndexOption = new Option("i", SLICE_INDEX_OPTION, true, null);
+        Option allSlicesOption = new Option("a", ALL_SLICES_OPTION, false, null);
+        Option checkpointDirOption = new Option("c", CHECKPOINT_DIR_OPTION, true, null);
+        Option streamingOption = new Option("t", STREAMING_OPTION, false, null);
+        Option adaptiveOption = new Option("d", ADAPTIVE_OPTION, false, null);
+        Option maxPauseMillisOption = new Option("m", MAX_PAUSE_MILLIS_OPTION, true, null);
+        Option pipelineDepthOption = new Option("f", PIPELINE_DEPTH_OPTION, true, null);
+        Option clickLicensedOption = new Option("u", CLICK_LICENSED_OPTION, false, null);
+        Option outputOption = new Option("o", OUTPUT_OPTION, true, null);
+        Option connectTimeoutMillisOption = new Option("x", CONNECT_TIMEOUT_MILLIS_OPTION, true, null);
+        Option readTimeoutMillisOption = new Option("r", READ_TIMEOUT_MILLIS_OPTION, true, null);
+        Option endpointOption = new Option("e", ENDPOINT_OPTION, true, null);
+        Option dedupOption = new Option("g", DEDUP_OPTION, true, null);
+        Option dedupWindowSizeOption = new Option("w", DEDUP_WINDOW_SIZE_OPTION, true, null);
+        Option dedupWindowMillisOption = new Option("j", DEDUP_WINDOW_MILLIS_OPTION, true, null);
+        Option dedupBloomSizeOption = new Option("b", DEDUP_BLOOM_SIZE_OPTION, true, null);
+        Option offHeapContentOption = new Option("z", OFF_HEAP_CONTENT_OPTION, false, null);
+        Option fieldsOption = new Option("q", FIELDS_OPTION, true, null);
+        Option metricsPortOption = new Option("y", METRICS_PORT_OPTION, true, null);
+        Option leaseDirOption = new Option("L", LEASE_DIR_OPTION, true, null);
+        Option nodeIdOption = new Option("N", NODE_ID_OPTION, true, null);
+        Option leaseMillisOption = new Option("T", LEASE_MILLIS_OPTION, true, null);
+        Option recycleOption = new Option("R", RECYCLE_OPTION, true, null);
+        Option decodeThreadsOption = new Option("D", DECODE_THREADS_OPTION, true, null);
+        Option sinkThreadsOption = new Option("S", SINK_THREADS_OPTION, true, null);
+        Option profilesOption = new Option("P", PROFILES_OPTION, true, null);
+        Option pollThreadsOption = new Option("W", POLL_THREADS_OPTION, true, null);
+        Option accessLimitMillisOption = new Option("A", ACCESS_LIMIT_MILLIS_OPTION, true, null);
+        Option accessLimitFileOption = new Option("M", ACCESS_LIMIT_FILE_OPTION, true, null);
+        Option accessLimitMarginMillisOption = new Option("G", ACCESS_LIMIT_MARGIN_MILLIS_OPTION, true, null);
+        Option accessLimitPerSliceOption = new Option("I", ACCESS_LIMIT_PER_SLICE_OPTION, false, null);
+
+        Options options = new Options();
+        options.addOption(tokenOption);
+        options.addOption(seqIdOption);
+        options.addOption(pauseMillisOption);
+        options.addOption(limitOption);
+        options.addOption(numSlicesOption);
+        options.addOption(sliceIndexOption);
+        options.addOption(allSlicesOption);
+        options.addOption(checkpointDirOption);
+        options.addOption(streamingOption);
+        options.addOption(adaptiveOption);
+        options.addOption(maxPauseMillisOption);
+        options.addOption(pipelineDepthOption);
+        options.addOption(clickLicensedOption);
+        options.addOption(outputOption);
+        options.addOption(connectTimeoutMillisOption);
+        options.addOption(readTimeoutMillisOption);
+        options.addOption(endpointOption);
+        options.addOption(dedupOption);
+        options.addOption(dedupWindowSizeOption);
+        options.addOption(dedupWindowMillisOption);
+        options.addOption(dedupBloomSizeOption);
+        options.addOption(offHeapContentOption);
+        options.addOption(fieldsOption);
+        options.addOption(metricsPortOption);
+        options.addOption(leaseDirOption);
+        options.addOption(nodeIdOption);
+        options.addOption(leaseMillisOption);
+        options.addOption(recycleOption);
+        options.addOption(decodeThreadsOption);
+        options.addOption(sinkThreadsOption);
+        options.addOption(profilesOption);
+        options.addOption(pollThreadsOption);
+        options.addOption(accessLimitMillisOption);
+        options.addOption(accessLimitFileOption);
+        options.addOption(accessLimitMarginMillisOption);
+        options.addOption(accessLimitPerSliceOption);
+
+        return options;
+    }
+    
+    /**
+     * if no arguments are passed to this class or the arguments were incorrect, this method will be called
+     * to see exactly which are the arguments, the correct way of calling them and so forth
+     */
+    public void printHelp() {
+        System.out.println(getHelpDescription());
+    }
+
+    private String getHelpDescription() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Usage commands: ");
+        builder.append("\n\n");
+        builder.append("-k | --key ").append("\t\t").append("Required unless profiles is set: key (key) necessary to build the request URL to MB API");
+        builder.append("\n");
+        builder.append("-s | --sequenceId").append("\t\t").append("sequence ID in order to call sequentially the MB API");
+        builder.append("\n");
+        builder.append("-p | --pauseMillis").append("\t\t").append("pause between 2 calls to the MB API in milliseconds");
+        builder.append("\n");
+        builder.append("-l | --limit").append("\t\t\t").append("maximum of articles to get from MB API (default 500 | maximum 500)");
+        builder.append("\n");
+        builder.append("-n | --numSlices").append("\t\t\t").append("number of slices or clients that will be calling the MB API");
+        builder.append("\n");
+        builder.append("-i | --sliceIndex").append("\t\t\t").append("the slice this client is using for calling the MB API");
+        builder.append("\n");
+        builder.append("-a | --allSlices").append("\t\t\t").append("pull all numSlices slices from this process, one poll loop per slice");
+        builder.append("\n");
+        builder.append("-c | --checkpointDir").append("\t\t").append("directory where the sequenceId of each slice is saved and resumed from");
+        builder.append("\n");
+        builder.append("-t | --streaming").append("\t\t\t").append("decode the response while it is downloaded and process each article as soon as it is decoded");
+        builder.append("\n");
+        builder.append("-d | --adaptive").append("\t\t\t").append("call again after pauseMillis on full pages and back off on sparse pages");
+        builder.append("\n");
+        builder.append("-m | --maxPauseMillis").append("\t\t").append("longest pause between 2 calls in adaptive mode in milliseconds (default 120000)");
+        builder.append("\n");
+        builder.append("-f | --pipelineDepth").append("\t\t").append("number of batches pulled ahead while previous ones are still processed (default 0)");
+        builder.append("\n");
+        builder.append("-u | --clickLicensed").append("\t\t").append("call the click url of licensed articles in the background to record royalty payments");
+        builder.append("\n");
+        builder.append("-o | --output").append("\t\t\t").append("where articles are written: stdout, ndjson:<file>, rotating:<directory> or archive:<directory>, may be repeated (default stdout)");
+        builder.append("\n");
+        builder.append("-x | --connectTimeoutMillis").append("\t").append("longest wait for a connection to the MB API in milliseconds (default 10000)");
+        builder.append("\n");
+        builder.append("-r | --readTimeoutMillis").append("\t\t").append("longest wait for data from the MB API in milliseconds (default 60000)");
+        builder.append("\n");
+        builder.append("-e | --endpoint").append("\t\t\t").append("url of the MB API articles endpoint, e.g. a local stand-in server (default " + MB_ENDPOINT + ")");
+        builder.append("\n");
+        builder.append("-g | --dedup").append("\t\t\t").append("suppress articles already delivered: id for the same article, group for the duplicates of a delivered article");
+        builder.append("\n");
+        builder.append("-w | --dedupWindowSize").append("\t\t").append("number of recently delivered articles remembered for deduplication (default 200000)");
+        builder.append("\n");
+        builder.append("-j | --dedupWindowMillis").append("\t").append("age in milliseconds after which delivered articles are forgotten, 0 for no age limit (default 0)");
+        builder.append("\n");
+        builder.append("-b | --dedupBloomSize").append("\t\t").append("number of forgotten articles still remembered approximately by Bloom filters (default 0)");
+        builder.append("\n");
+        builder.append("-z | --offHeapContent").append("\t\t").append("hold the content of the articles of a batch off the heap until the batch is written");
+        builder.append("\n");
+        builder.append("-q | --fields").append("\t\t\t").append("comma separated article fields to decode, the others are skipped and left null (default all)");
+        builder.append("\n");
+        builder.append("-y | --metricsPort").append("\t\t").append("port of the local endpoint serving the metrics in the Prometheus text format on /metrics");
+        builder.append("\n");
+        builder.append("-L | --leaseDir").append("\t\t\t").append("directory shared by the nodes pulling the numSlices slices of the key, each node leasing its share of the slices");
+        builder.append("\n");
+        builder.append("-N | --nodeId").append("\t\t\t").append("name of this node among the nodes sharing leaseDir (default <pid>-<host>)");
+        builder.append("\n");
+        builder.append("-T | --leaseMillis").append("\t\t").append("time in milliseconds after which the slices of a node which stopped are taken over (default 30000)");
+        builder.append("\n");
+        builder.append("-R | --recycle").append("\t\t\t").append("decode into the articles of the batches already written: pooled, or checked to fail on articles used once written");
+        builder.append("\n");
+        builder.append("-D | --decodeThreads").append("\t\t").append("stage the slices: download on the poll loops, decode on this number of threads (default one per core when staged)");
+        builder.append("\n");
+        builder.append("-S | --sinkThreads").append("\t\t").append("stage the slices: hand the decoded batches to the outputs on this number of threads (default 1 when staged)");
+        builder.append("\n");
+        builder.append("-P | --profiles").append("\t\t\t").append("properties file of the profiles to harvest from this process, each with its own key, cursor, slices, pacing and limit");
+        builder.append("\n");
+        builder.append("-W | --pollThreads").append("\t\t").append("number of threads calling the MB API for the profiles (default " + ProfileHarvester.DEFAULT_POLL_THREADS + ")");
+        builder.append("\n");
+        builder.append("-A | --accessLimitMillis").append("\t").append("shortest time between 2 calls of a key in milliseconds, 0 to disable (default " + AccessLimiter.DEFAULT_ACCESS_LIMIT_MILLIS + ")");
+        builder.append("\n");
+        builder.append("-M | --accessLimitFile").append("\t\t").append("file shared with the other processes of this host holding the access limit of each key");
+        builder.append("\n");
+        builder.append("-G | --accessLimitMarginMillis").append("\t").append("time added to the access limit between the sending of 2 calls in milliseconds (default " + AccessLimiter.DEFAULT_MARGIN_MILLIS + ")");
+        builder.append("\n");
+        builder.append("-I | --accessLimitPerSlice").append("\t").append("count the access limit per slice rather than per key");
+        builder.append("\n");
+
+        return builder.toString();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public Long getSeqId() {
+        return seqId;
+    }
+
+    public void setSeqId(Long seqId) {
+        this.seqId = seqId;
+    }
+
+    public Integer getPauseMillis() {
+        return pauseMillis;
+    }
+
+    public void setPauseMillis(Integer pauseMillis) {
+        this.pauseMillis = pauseMillis;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public Integer getNumberOfSlices() {
+        return numberOfSlices;
+    }
+
+    public void setNumberOfSlices(Integer numberOfSlices) {
+        this.numberOfSlices = numberOfSlices;
+    }
+
+    public Integer getSliceIndex() {
+        return sliceIndex;
+    }
+
+    public void setSliceIndex(Integer sliceIndex) {
+        this.sliceIndex = sliceIndex;
+    }
+
+    public boolean isAllSlices() {
+        return allSlices;
+    }
+
+    public void setAllSlices(boolean allSlices) {
+        this.allSlices = allSlices;
+    }
+
+    public String getCheckpointDir() {
+        return checkpointDir;
+    }
+
+    public void setCheckpointDir(String checkpointDir) {
+        this.checkpointDir = checkpointDir;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    public Integer getMaxPauseMillis() {
+        return maxPauseMillis;
+    }
+
+    public void setMaxPauseMillis(Integer maxPauseMillis) {
+        this.maxPauseMillis = maxPauseMillis;
+    }
+
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    public void setPipelineDepth(int pipelineDepth) {
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    public boolean isClickLicensed() {
+        return clickLicensed;
+    }
+
+    public void setClickLicensed(boolean clickLicensed) {
+        this.clickLicensed = clickLicensed;
+    }
+
+    public String[] getOutputs() {
+        return outputs;
+    }
+
+    public void setOutputs(String[] outputs) {
+        this.outputs = outputs;
+    }
+
+    public Integer getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(Integer connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    public Integer getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public void setReadTimeoutMillis(Integer readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public Deduplicator.Mode getDedup() {
+        return dedup;
+    }
+
+    public void setDedup(Deduplicator.Mode dedup) {
+        this.dedup = dedup;
+    }
+
+    public Integer getDedupWindowSize() {
+        return dedupWindowSize;
+    }
+
+    public void setDedupWindowSize(Integer dedupWindowSize) {
+        this.dedupWindowSize = dedupWindowSize;
+    }
+
+    public Long getDedupWindowMillis() {
+        return dedupWindowMillis;
+    }
+
+    public void setDedupWindowMillis(Long dedupWindowMillis) {
+        this.dedupWindowMillis = dedupWindowMillis;
+    }
+
+    public Integer getDedupBloomSize() {
+        return dedupBloomSize;
+    }
+
+    public void setDedupBloomSize(Integer dedupBloomSize) {
+        this.dedupBloomSize = dedupBloomSize;
+    }
+
+    public boolean isOffHeapContent() {
+        return offHeapContent;
+    }
+
+    public void setOffHeapContent(boolean offHeapContent) {
+        this.offHeapContent = offHeapContent;
+    }
+
+    public Integer getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setMetricsPort(Integer metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+
+    public String getLeaseDir() {
+        return leaseDir;
+    }
+
+    public void setLeaseDir(String leaseDir) {
+        this.leaseDir = leaseDir;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Long getLeaseMillis() {
+        return leaseMillis;
+    }
+
+    public void setLeaseMillis(Long leaseMillis) {
+        this.leaseMillis = leaseMillis;
+    }
+
+    public RecyclingPool.Mode getRecycle() {
+        return recycle;
+    }
+
+    public void setRecycle(RecyclingPool.Mode recycle) {
+        this.recycle = recycle;
+    }
+
+    public Integer getDecodeThreads() {
+        return decodeThreads;
+    }
+
+    public void setDecodeThreads(Integer decodeThreads) {
+        this.decodeThreads = decodeThreads;
+    }
+
+    public Integer getSinkThreads() {
+        return sinkThreads;
+    }
+
+    public void setSinkThreads(Integer sinkThreads) {
+        this.sinkThreads = sinkThreads;
+    }
+
+    public String getProfiles() {
+        return profiles;
+    }
+
+    public void setProfiles(String profiles) {
+        this.profiles = profiles;
+    }
+
+    public Integer getPollThreads() {
+        return pollThreads;
+    }
+
+    public void setPollThreads(Integer pollThreads) {
+        this.pollThreads = pollThreads;
+    }
+
+    public Long getAccessLimitMillis() {
+        return accessLimitMillis;
+    }
+
+    public void setAccessLimitMillis(Long accessLimitMillis) {
+        this.accessLimitMillis = accessLimitMillis;
+    }
+
+    public String getAccessLimitFile() {
+        return accessLimitFile;
+    }
+
+    public void setAccessLimitFile(String accessLimitFile) {
+        this.accessLimitFile = accessLimitFile;
+    }
+
+    public Long getAccessLimitMarginMillis() {
+        return accessLimitMarginMillis;
+    }
+
+    public void setAccessLimitMarginMillis(Long accessLimitMarginMillis) {
+        this.accessLimitMarginMillis = accessLimitMarginMillis;
+    }
+
+    public boolean isAccessLimitPerSlice() {
+        return accessLimitPerSlice;
+    }
+
+    public void setAccessLimitPerSlice(boolean accessLimitPerSlice) {
+        this.accessLimitPerSlice = accessLimitPerSlice;
+    }
+
+    public ArticleProjection getProjection() {
+        return projection;
+    }
+
+    /**
+     * Sets the fields of the articles to decode.
+     */
+    public void setProjection(ArticleProjection projection) {
+        this.projection = projection;
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.io.IOException;
+
+/**
+ * The response of a call to Metabase, downloaded but not decoded yet, see {@link BatchDownloader}.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public interface PendingBatch<A> {
+
+    /**
+     * Inflates and binds the response, on a worker of the decode stage. Called once.
+     *
+     * @return the decoded batch
+     * @throws IOException if the response cannot be decoded
+     */
+    Batch<A> decode() throws IOException;
+
+}
@@ -0,0 +1,22 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+/**
+ * Decides how long a slice loop waits between two calls to Metabase.
+ * <p/>
+ * Each slice loop gets its own scheduler instance, so implementations may keep per-slice state
+ * without synchronization.
+ */
+public interface PollScheduler {
+
+    /**
+     * @return the time in milliseconds to wait before the first call of the slice
+     */
+    long initialDelay();
+
+    /**
+     * @param batch the batch returned by the call which just completed
+     * @return the time in milliseconds between the start of that call and the start of the next one
+     */
+    long nextInterval(Batch<?> batch);
+
+}
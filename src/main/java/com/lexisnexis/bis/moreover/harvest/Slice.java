@@ -0,0 +1,123 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Identifies one slice of a Metabase feed.
+ * <p/>
+ * The Metabase API can split the output of a key into <i>number_of_slices</i> disjoint
+ * slices, each one pulled with its own <i>slice_number</i> and its own sequence ID cursor.
+ * When no slicing is used both the number of slices and the slice index are null and the
+ * slice stands for the whole feed of the key.
+ * <p/>
+ * A slice pulled for one of several profiles harvested by the same process carries the name of its
+ * profile, which tags its output and its metrics. The name is a label only, slices are equal when
+ * their keys and slicing are, so that their checkpoints are found whatever the profile is named.
+ */
+public class Slice {
+
+    private final String profile;
+
+    private final String key;
+
+    private final Integer numberOfSlices;
+
+    private final Integer sliceIndex;
+
+    public Slice(String key, Integer numberOfSlices, Integer sliceIndex) {
+        this(null, key, numberOfSlices, sliceIndex);
+    }
+
+    /**
+     * @param profile the name of the profile the slice is pulled for, or null
+     */
+    public Slice(String profile, String key, Integer numberOfSlices, Integer sliceIndex) {
+        this.profile = profile;
+        this.key = key;
+        this.numberOfSlices = numberOfSlices;
+        this.sliceIndex = sliceIndex;
+    }
+
+    /**
+     * Builds every slice of a key, from slice index 0 to numberOfSlices - 1.
+     *
+     * @param key the Metabase key
+     * @param numberOfSlices the number of slices the feed is split into
+     * @return the list of all slices of the key
+     */
+    public static List<Slice> allSlices(String key, int numberOfSlices) {
+        return allSlices(null, key, numberOfSlices);
+    }
+
+    /**
+     * Builds every slice of the key of a profile, from slice index 0 to numberOfSlices - 1.
+     *
+     * @param profile the name of the profile, or null
+     * @param key the Metabase key
+     * @param numberOfSlices the number of slices the feed is split into
+     * @return the list of all slices of the key
+     */
+    public static List<Slice> allSlices(String profile, String key, int numberOfSlices) {
+        List<Slice> slices = new ArrayList<>();
+        for (int i = 0; i < numberOfSlices; i++) {
+            slices.add(new Slice(profile, key, numberOfSlices, i));
+        }
+        return slices;
+    }
+
+    /**
+     * @return the name of the profile the slice is pulled for, or null
+     */
+    public String getProfile() {
+        return profile;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Integer getNumberOfSlices() {
+        return numberOfSlices;
+    }
+
+    public Integer getSliceIndex() {
+        return sliceIndex;
+    }
+
+    public boolean isSliced() {
+        return numberOfSlices != null && sliceIndex != null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Slice)) {
+            return false;
+        }
+        Slice other = (Slice) o;
+        return key.equals(other.key)
+                && (numberOfSlices == null ? other.numberOfSlices == null : numberOfSlices.equals(other.numberOfSlices))
+                && (sliceIndex == null ? other.sliceIndex == null : sliceIndex.equals(other.sliceIndex));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = key.hashCode();
+        result = 31 * result + (numberOfSlices != null ? numberOfSlices.hashCode() : 0);
+        result = 31 * result + (sliceIndex != null ? sliceIndex.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        String slice = isSliced() ? "slice " + sliceIndex + "/" + numberOfSlices : "all";
+        if (profile == null) {
+            return slice;
+        }
+        return isSliced() ? profile + " " + slice : profile;
+    }
+
+}
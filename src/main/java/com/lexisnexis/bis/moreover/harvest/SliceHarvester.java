@@ -0,0 +1,100 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.lexisnexis.bis.moreover.checkpoint.CheckpointStore;
+import com.lexisnexis.bis.moreover.pipeline.PipelineStages;
+
+/**
+ * Harvests several slices of a Metabase feed from a single process.
+ * <p/>
+ * Instead of running one JVM per <i>slice_number</i>, the harvester starts one {@link SliceLoop}
+ * per slice, each on its own thread with its own cursor and its own {@link PollScheduler}. All loops share the same
+ * {@link BatchFetcher}, and therefore the same HTTP client, the same {@link BatchHandler} and the
+ * same {@link CheckpointStore}. With a pipeline depth above zero every slice loop is pipelined,
+ * and with {@link PipelineStages} every slice loop is staged on the stages shared by all of them,
+ * see {@link SliceLoop}.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class SliceHarvester<A> {
+
+    private final BatchFetcher<A> fetcher;
+
+    private final BatchHandler<A> handler;
+
+    private final CheckpointStore checkpointStore;
+
+    private final Supplier<? extends PollScheduler> schedulers;
+
+    private final int pipelineDepth;
+
+    private final PipelineStages stages;
+
+    private final List<SliceLoop<A>> loops = new ArrayList<>();
+
+    public SliceHarvester(BatchFetcher<A> fetcher, BatchHandler<A> handler, CheckpointStore checkpointStore,
+            Supplier<? extends PollScheduler> schedulers, int pipelineDepth) {
+        this(fetcher, handler, checkpointStore, schedulers, pipelineDepth, null);
+    }
+
+    /**
+     * @param stages the decode and sink stages shared by the slice loops, or null
+     */
+    public SliceHarvester(BatchFetcher<A> fetcher, BatchHandler<A> handler, CheckpointStore checkpointStore,
+            Supplier<? extends PollScheduler> schedulers, int pipelineDepth, PipelineStages stages) {
+        this.fetcher = fetcher;
+        this.handler = handler;
+        this.checkpointStore = checkpointStore;
+        this.schedulers = schedulers;
+        this.pipelineDepth = pipelineDepth;
+        this.stages = stages;
+    }
+
+    /**
+     * Runs one poll loop per slice and blocks until every loop has stopped.
+     *
+     * @param startCursors the sequenceId each slice starts from, null values meaning the latest articles
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the loops
+     */
+    public void harvest(Map<Slice, Long> startCursors) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(startCursors.size(), new SliceThreadFactory());
+        try {
+            for (Map.Entry<Slice, Long> entry : startCursors.entrySet()) {
+                SliceLoop<A> loop = new SliceLoop<>(entry.getKey(), entry.getValue(), fetcher, handler, checkpointStore,
+                        schedulers.get(), pipelineDepth, stages);
+                loops.add(loop);
+                executor.execute(loop);
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // keep waiting for the slice loops, they only stop on error or interruption
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public List<SliceLoop<A>> getLoops() {
+        return loops;
+    }
+
+    private static class SliceThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "slice-loop-" + count.getAndIncrement());
+        }
+    }
+
+}
@@ -0,0 +1,379 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.lexisnexis.bis.moreover.checkpoint.CheckpointStore;
+import com.lexisnexis.bis.moreover.pipeline.PipelineStages;
+import com.lexisnexis.bis.moreover.pipeline.Strand;
+
+/**
+ * The poll loop of a single slice.
+ * <p/>
+ * Each loop owns its own sequenceId cursor and its own pacing: it calls Metabase, hands the
+ * batch to the shared handler, moves its cursor to the last article received, commits the cursor
+ * to the checkpoint store and then waits until the interval given by its {@link PollScheduler}
+ * has elapsed since the start of the call. The cursor is only committed once the handler
+ * returned, so a restart never skips articles which were not delivered.
+ * <p/>
+ * A call which fails, on a timeout for instance, is reported and paced like a failed batch, the
+ * slice calls again from the same cursor after the next interval. A handler failure stops the loop.
+ * <p/>
+ * With a pipeline depth above zero the loop is pipelined: the next call only depends on the
+ * sequenceId of the last article of the previous batch, which is known as soon as the batch is
+ * decoded, so the loop queues each batch for a consumer thread of its own and goes on calling
+ * Metabase at its usual pace while the consumer is still handling the previous batches. At most
+ * <i>pipelineDepth</i> batches wait for the consumer, the calls block when the queue is full,
+ * and batches are handled in the order they were pulled.
+ * <p/>
+ * With {@link PipelineStages} the loop is staged: the loop only downloads the responses of its
+ * slice, the decode stage inflates and binds them and the sink stage hands them to the handler, on
+ * worker pools shared by all the slices. The loop waits for the decoding of each response, which
+ * gives the cursor of the next call, then queues the batch on a strand of its own on the sink
+ * stage, so that the batches of a slice are still handled and committed in order. At most
+ * <i>pipelineDepth + 1</i> batches of a slice are decoded and not yet handled, beyond that the
+ * loop waits before calling Metabase again, so a sink falling behind slows down the calls instead
+ * of filling the heap with batches. The decoding runs on the loop itself when the fetcher cannot
+ * split its calls, see {@link BatchDownloader}.
+ * <p/>
+ * A loop may also be driven by a timer instead of a thread of its own, which calls {@link #poll()}
+ * at the intervals it returns, see {@link com.lexisnexis.bis.moreover.profile.ProfileHarvester}.
+ * <p/>
+ * A loop stopped with {@link #stop()} finishes the call in progress, delivers and commits the
+ * batches already pulled and returns, so that another process can go on from its last commit.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class SliceLoop<A> implements Runnable {
+
+    private final Slice slice;
+
+    private final BatchFetcher<A> fetcher;
+
+    private final BatchHandler<A> handler;
+
+    private final CheckpointStore checkpointStore;
+
+    private final PollScheduler scheduler;
+
+    private final int pipelineDepth;
+
+    private final PipelineStages stages;
+
+    private volatile Long sequenceId;
+
+    private final Batch<A> failedCall;
+
+    private final CountDownLatch stopSignal = new CountDownLatch(1);
+
+    public SliceLoop(Slice slice, Long sequenceId, BatchFetcher<A> fetcher, BatchHandler<A> handler,
+            CheckpointStore checkpointStore, PollScheduler scheduler) {
+        this(slice, sequenceId, fetcher, handler, checkpointStore, scheduler, 0);
+    }
+
+    public SliceLoop(Slice slice, Long sequenceId, BatchFetcher<A> fetcher, BatchHandler<A> handler,
+            CheckpointStore checkpointStore, PollScheduler scheduler, int pipelineDepth) {
+        this(slice, sequenceId, fetcher, handler, checkpointStore, scheduler, pipelineDepth, null);
+    }
+
+    /**
+     * @param stages the decode and sink stages of a staged loop, or null
+     */
+    public SliceLoop(Slice slice, Long sequenceId, BatchFetcher<A> fetcher, BatchHandler<A> handler,
+            CheckpointStore checkpointStore, PollScheduler scheduler, int pipelineDepth, PipelineStages stages) {
+        this.slice = slice;
+        this.sequenceId = sequenceId;
+        this.fetcher = fetcher;
+        this.handler = handler;
+        this.checkpointStore = checkpointStore;
+        this.scheduler = scheduler;
+        this.pipelineDepth = pipelineDepth;
+        this.stages = stages;
+        this.failedCall = new Batch<>(slice, null, null, null, null);
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (stopSignal.await(scheduler.initialDelay(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+
+            if (stages != null) {
+                runStaged();
+            } else if (pipelineDepth > 0) {
+                runPipelined();
+            } else {
+                runSequential();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Poll loop of " + slice + " stopped");
+            e.printStackTrace();
+        }
+    }
+
+    private void runSequential() throws IOException, InterruptedException {
+        while (!Thread.currentThread().isInterrupted() && !isStopping()) {
+
+            long startTime = System.currentTimeMillis();
+
+            pace(startTime, poll());
+        }
+    }
+
+    /**
+     * Calls Metabase once from the cursor of the slice and delivers the batch, for a loop driven
+     * by a timer. Calls of a same loop must not overlap.
+     *
+     * @return the interval to wait from the start of the call before the next one
+     * @throws IOException if the handler failed, which stops the slice
+     */
+    public long poll() throws IOException {
+        Batch<A> batch = fetch(sequenceId);
+        if (batch != null) {
+            deliver(batch);
+        }
+        return scheduler.nextInterval(batch != null ? batch : failedCall);
+    }
+
+    /**
+     * @return the delay before the first call, for a loop driven by a timer
+     */
+    public long initialDelay() {
+        return scheduler.initialDelay();
+    }
+
+    private void runPipelined() throws IOException, InterruptedException {
+        final BlockingQueue<Batch<A>> inFlight = new ArrayBlockingQueue<>(pipelineDepth);
+        final Batch<A> endOfPipeline = new Batch<>(slice, null, null, null, null);
+        final Thread fetcherThread = Thread.currentThread();
+
+        Thread consumer = new Thread(() -> {
+            try {
+                Batch<A> batch;
+                while ((batch = inFlight.take()) != endOfPipeline) {
+                    deliver(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Consumer of " + slice + " stopped");
+                e.printStackTrace();
+                fetcherThread.interrupt();
+            }
+        }, fetcherThread.getName() + "-consumer");
+        consumer.start();
+
+        /**
+         * The fetch cursor runs ahead of the delivered one by up to the batches in flight.
+         */
+        Long fetchSequenceId = sequenceId;
+        boolean interrupted = false;
+        try {
+            while (!Thread.currentThread().isInterrupted() && !isStopping() && consumer.isAlive()) {
+
+                long startTime = System.currentTimeMillis();
+
+                Batch<A> batch = fetch(fetchSequenceId);
+                if (batch != null) {
+                    inFlight.put(batch);
+                    if (batch.getLastSequenceId() != null) {
+                        fetchSequenceId = batch.getLastSequenceId();
+                    }
+                }
+
+                pace(startTime, scheduler.nextInterval(batch != null ? batch : failedCall));
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            throw e;
+        } finally {
+            if (interrupted || Thread.currentThread().isInterrupted()) {
+                consumer.interrupt();
+            } else if (consumer.isAlive()) {
+                /**
+                 * The fetcher failed or was stopped, let the consumer deliver the batches already pulled.
+                 */
+                inFlight.put(endOfPipeline);
+                consumer.join();
+            }
+        }
+    }
+
+    private void runStaged() throws IOException, InterruptedException {
+        final int maxInFlight = pipelineDepth + 1;
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+        final Strand sinkStrand = new Strand(stages.getSinkStage());
+        final AtomicReference<IOException> sinkFailure = new AtomicReference<>();
+
+        /**
+         * The fetch cursor runs ahead of the delivered one by up to the batches in flight.
+         */
+        Long fetchSequenceId = sequenceId;
+        try {
+            while (!Thread.currentThread().isInterrupted() && !isStopping() && sinkFailure.get() == null) {
+
+                if (!inFlight.tryAcquire()) {
+                    stages.fetchWaited();
+                    inFlight.acquire();
+                }
+
+                long startTime = System.currentTimeMillis();
+
+                Batch<A> batch = null;
+                try {
+                    batch = fetchStaged(fetchSequenceId);
+                } finally {
+                    if (batch == null) {
+                        inFlight.release();
+                    }
+                }
+                if (batch != null) {
+                    final Batch<A> decoded = batch;
+                    stages.batchDecoded();
+                    sinkStrand.submit(() -> {
+                        try {
+                            if (sinkFailure.get() == null) {
+                                deliver(decoded);
+                            } else {
+                                decoded.release();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            System.err.println("Sink of " + slice + " stopped");
+                            e.printStackTrace();
+                            sinkFailure.compareAndSet(null, e instanceof IOException ? (IOException) e : new IOException(e));
+                        } finally {
+                            stages.batchHandled();
+                            inFlight.release();
+                        }
+                    });
+                    if (batch.getLastSequenceId() != null) {
+                        fetchSequenceId = batch.getLastSequenceId();
+                    }
+                }
+
+                pace(startTime, scheduler.nextInterval(batch != null ? batch : failedCall));
+            }
+        } finally {
+            if (!Thread.currentThread().isInterrupted()) {
+                /**
+                 * The fetcher failed or was stopped, let the sink stage deliver the batches already pulled.
+                 */
+                inFlight.acquire(maxInFlight);
+            }
+        }
+        if (sinkFailure.get() != null) {
+            throw sinkFailure.get();
+        }
+    }
+
+    /**
+     * Downloads a response from the given cursor and waits for the decode stage to decode it.
+     *
+     * @return the batch pulled, or null if the call failed
+     */
+    private Batch<A> fetchStaged(Long fetchSequenceId) throws InterruptedException {
+        if (!(fetcher instanceof BatchDownloader)) {
+            return fetch(fetchSequenceId);
+        }
+        try {
+            PendingBatch<A> pending = ((BatchDownloader<A>) fetcher).download(slice, fetchSequenceId);
+            CompletableFuture<Batch<A>> decoded = new CompletableFuture<>();
+            stages.getDecodeStage().submit(() -> {
+                try {
+                    decoded.complete(pending.decode());
+                } catch (Throwable e) {
+                    decoded.completeExceptionally(e);
+                }
+            });
+            return decoded.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            System.err.println("Call to Metabase failed for " + slice + ": " + e.getCause());
+            return null;
+        } catch (IOException e) {
+            System.err.println("Call to Metabase failed for " + slice + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Calls Metabase from the given cursor.
+     *
+     * @return the batch pulled, or null if the call failed
+     */
+    private Batch<A> fetch(Long fetchSequenceId) {
+        try {
+            return fetcher.fetch(slice, fetchSequenceId);
+        } catch (IOException e) {
+            System.err.println("Call to Metabase failed for " + slice + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Hands a batch to the handler, then moves the cursor to the sequenceId of the last article
+     * received and commits it. The batch is released once handled, whatever the outcome.
+     */
+    private void deliver(Batch<A> batch) throws IOException {
+        try {
+            handler.handle(batch);
+        } finally {
+            batch.release();
+        }
+
+        if (batch.getLastSequenceId() != null) {
+            sequenceId = batch.getLastSequenceId();
+            checkpointStore.commit(slice, sequenceId);
+        }
+    }
+
+    /**
+     * Waits until the interval has elapsed since the start of the call, or until the loop is stopped.
+     */
+    private void pace(long startTime, long interval) throws InterruptedException {
+        long endTime = System.currentTimeMillis();
+
+        if (endTime < (startTime + interval)) {
+            long diff = startTime + interval - endTime;
+            stopSignal.await(diff, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Asks the loop to return once the call in progress and the batches already pulled are
+     * delivered. Does not wait for it.
+     */
+    public void stop() {
+        stopSignal.countDown();
+    }
+
+    public boolean isStopping() {
+        return stopSignal.getCount() == 0;
+    }
+
+    public Slice getSlice() {
+        return slice;
+    }
+
+    /**
+     * @return the sequenceId of the last article delivered by this slice
+     */
+    public Long getSequenceId() {
+        return sequenceId;
+    }
+
+}
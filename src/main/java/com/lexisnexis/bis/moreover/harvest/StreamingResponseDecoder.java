@@ -0,0 +1,37 @@
+package com.lexisnexis.bis.moreover.harvest;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.lexisnexis.bis.moreover.recycle.Recyclable;
+import com.lexisnexis.bis.moreover.recycle.RecyclingPool;
+
+/**
+ * Decodes a Metabase response article by article while it is read, handing each article to a
+ * listener as soon as it is decoded instead of binding the whole response.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public interface StreamingResponseDecoder<A extends Recyclable> {
+
+    /**
+     * Decodes the response read from the given stream, which is closed once the response is decoded.
+     *
+     * @param slice the slice the response was pulled for
+     * @param in the uncompressed response
+     * @param listener the listener receiving each article
+     * @return the streamed batch holding the status of the call and the number of articles
+     * @throws IOException if the response cannot be read or is not a Metabase response
+     */
+    Batch<A> decode(Slice slice, InputStream in, ArticleListener<A> listener) throws IOException;
+
+    /**
+     * Decodes the response read from the given stream into articles acquired from a pool, which the
+     * listener keeps track of to release them once they were flushed.
+     *
+     * @param pool the pool of the articles of the slice, or null to allocate new ones
+     * @see #decode(Slice, InputStream, ArticleListener)
+     */
+    Batch<A> decode(Slice slice, InputStream in, ArticleListener<A> listener, RecyclingPool<A> pool) throws IOException;
+
+}
@@ -0,0 +1,42 @@
+package com.lexisnexis.bis.moreover.intern;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The string pools of the low-cardinality article fields, shared by the JSON and XML decoders and
+ * by the archive replay.
+ * <p/>
+ * Tags are more varied than the other fields, their pool has more slots.
+ */
+public final class ArticleStringPools {
+
+    public static final StringPool LANGUAGE = new StringPool("language");
+
+    public static final StringPool LANGUAGE_CODE = new StringPool("languageCode");
+
+    public static final StringPool DATA_FORMAT = new StringPool("dataFormat");
+
+    public static final StringPool LOGIN_STATUS = new StringPool("loginStatus");
+
+    public static final StringPool COPYRIGHT = new StringPool("copyright");
+
+    public static final StringPool LICENSE_NAME = new StringPool("licenseName");
+
+    public static final StringPool TAG = new StringPool("tag", 16384, 64);
+
+    private static final List<StringPool> ALL = Collections.unmodifiableList(Arrays.asList(
+            LANGUAGE, LANGUAGE_CODE, DATA_FORMAT, LOGIN_STATUS, COPYRIGHT, LICENSE_NAME, TAG));
+
+    private ArticleStringPools() {
+    }
+
+    /**
+     * @return every pool, to report their metrics
+     */
+    public static List<StringPool> all() {
+        return ALL;
+    }
+
+}
@@ -0,0 +1,221 @@
+package com.lexisnexis.bis.moreover.intern;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, concurrent pool of canonical strings for the article fields which repeat a small set
+ * of values, so that millions of articles share one String per language, license name or tag.
+ * <p/>
+ * The pool is a two-way set associative table: a value is looked up in the two slots of its bucket
+ * by the hash of its characters, or of its bytes when they are ASCII, straight from the buffer of the
+ * decoder, and a String is only created when neither slot holds that value yet. A new value takes the
+ * first slot of its bucket and moves the previous one to the second, so two frequent values sharing a
+ * bucket do not evict each other. The pool never holds more than its number of slots, and values
+ * longer than <i>maxLength</i> are not pooled.
+ * <p/>
+ * The slots are read and written without locking. Strings are immutable, so a thread reading a slot
+ * sees either an older value or a complete String, at worst the value is created twice.
+ */
+public class StringPool {
+
+    public static final int DEFAULT_SLOTS = 1024;
+
+    public static final int DEFAULT_MAX_LENGTH = 256;
+
+    private final String name;
+
+    private final String[] slots;
+
+    private final int mask;
+
+    private final int maxLength;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public StringPool(String name) {
+        this(name, DEFAULT_SLOTS, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param name the name of the pool, reported with its metrics
+     * @param slots the number of slots, rounded up to a power of two
+     * @param maxLength the length above which values are not pooled
+     */
+    public StringPool(String name, int slots, int maxLength) {
+        if (slots < 2 || slots > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid number of slots [" + slots + "]");
+        }
+        int capacity = 2;
+        while (capacity < slots) {
+            capacity <<= 1;
+        }
+        this.name = name;
+        this.slots = new String[capacity];
+        this.mask = capacity - 1;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @param chars the characters holding the value, e.g. the text buffer of a parser
+     * @param offset the index of the first character of the value
+     * @param length the number of characters of the value
+     * @return the canonical String of the value
+     */
+    public String intern(char[] chars, int offset, int length) {
+        if (length > maxLength) {
+            misses.increment();
+            return new String(chars, offset, length);
+        }
+        int hash = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int bucket = bucket(hash);
+        for (int slot = bucket; slot < bucket + 2; slot++) {
+            String pooled = slots[slot];
+            if (pooled != null && pooled.hashCode() == hash && matches(pooled, chars, offset, length)) {
+                hits.increment();
+                return pooled;
+            }
+        }
+        return add(bucket, new String(chars, offset, length));
+    }
+
+    /**
+     * Looks the value up from its UTF-8 bytes. Values holding other than ASCII characters are
+     * decoded first, the bytes of an ASCII value are its characters.
+     *
+     * @param utf8 the bytes holding the value
+     * @param offset the index of the first byte of the value
+     * @param length the number of bytes of the value
+     * @return the canonical String of the value
+     */
+    public String intern(byte[] utf8, int offset, int length) {
+        if (length > maxLength) {
+            misses.increment();
+            return new String(utf8, offset, length, StandardCharsets.UTF_8);
+        }
+        int hash = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            byte b = utf8[i];
+            if (b < 0) {
+                return intern(new String(utf8, offset, length, StandardCharsets.UTF_8));
+            }
+            hash = 31 * hash + b;
+        }
+        int bucket = bucket(hash);
+        for (int slot = bucket; slot < bucket + 2; slot++) {
+            String pooled = slots[slot];
+            if (pooled != null && pooled.hashCode() == hash && matches(pooled, utf8, offset, length)) {
+                hits.increment();
+                return pooled;
+            }
+        }
+        return add(bucket, new String(utf8, offset, length, StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * @param value a value already decoded, or null
+     * @return the canonical String of the value, or null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        if (value.length() > maxLength) {
+            misses.increment();
+            return value;
+        }
+        int bucket = bucket(value.hashCode());
+        for (int slot = bucket; slot < bucket + 2; slot++) {
+            String pooled = slots[slot];
+            if (value.equals(pooled)) {
+                hits.increment();
+                return pooled;
+            }
+        }
+        return add(bucket, value);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the share of the lookups which found their value in the pool, from 0 to 1
+     */
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * @return the number of slots holding a value
+     */
+    public int getSize() {
+        int size = 0;
+        for (String value : slots) {
+            if (value != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s pool: %.1f%% hits, %d value(s)", name, getHitRate() * 100, getSize());
+    }
+
+    /**
+     * @return the index of the first slot of the bucket of the hash
+     */
+    private int bucket(int hash) {
+        int mixed = hash * 0x9E3779B9;
+        return (mixed ^ (mixed >>> 16)) & mask & ~1;
+    }
+
+    private String add(int bucket, String value) {
+        misses.increment();
+        slots[bucket + 1] = slots[bucket];
+        slots[bucket] = value;
+        return value;
+    }
+
+    private static boolean matches(String pooled, char[] chars, int offset, int length) {
+        if (pooled.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (pooled.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String pooled, byte[] ascii, int offset, int length) {
+        if (pooled.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (pooled.charAt(i) != ascii[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.lexisnexis.bis.moreover.json;
+
+import java.util.Set;
+
+import org.codehaus.jackson.Version;
+import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.Module;
+import org.codehaus.jackson.map.deser.BeanDeserializerBuilder;
+import org.codehaus.jackson.map.deser.BeanDeserializerModifier;
+import org.codehaus.jackson.map.introspect.BasicBeanDescription;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleProjection;
+import com.lexisnexis.bis.moreover.json.metabase.entities.Article;
+
+/**
+ * Jackson module binding only the fields of an {@link ArticleProjection} on the JSON articles.
+ * <p/>
+ * The excluded properties are removed from the deserializer of {@link Article} and declared
+ * ignorable, so the parser skips their values token by token: skipped strings are scanned for
+ * their closing quote but never decoded, and skipped arrays and objects are never bound.
+ * The module must be registered before the mapper decodes its first article. The clients decode
+ * with the {@link GeneratedJSONDecoder}, which skips these fields itself, this module projects the
+ * ObjectMapper binding the generated decoder is checked against.
+ */
+public class ArticleProjectionModule extends Module {
+
+    private final ArticleProjection projection;
+
+    public ArticleProjectionModule(ArticleProjection projection) {
+        this.projection = projection;
+    }
+
+    @Override
+    public String getModuleName() {
+        return "ArticleProjection";
+    }
+
+    @Override
+    public Version version() {
+        return Version.unknownVersion();
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        final Set<String> excluded = projection.getExcluded();
+        context.addBeanDeserializerModifier(new BeanDeserializerModifier() {
+            @Override
+            public BeanDeserializerBuilder updateBuilder(DeserializationConfig config, BasicBeanDescription beanDesc,
+                    BeanDeserializerBuilder builder) {
+                if (beanDesc.getBeanClass() == Article.class) {
+                    for (String field : excluded) {
+                        builder.removeProperty(field);
+                        builder.addIgnorable(field);
+                    }
+                }
+                return builder;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,330 @@
+package com.lexisnexis.bis.moreover.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleProjection;
+import com.lexisnexis.bis.moreover.intern.ArticleStringPools;
+import com.lexisnexis.bis.moreover.json.metabase.entities.Article;
+import com.lexisnexis.bis.moreover.json.metabase.entities.JSONResponse;
+import com.lexisnexis.bis.moreover.json.metabase.entities.License;
+
+/**
+ * Decodes the JSON Metabase entities straight from the tokens of a parser, without reflection.
+ * <p/>
+ * Generated by <i>DecoderGenerator</i> from the setters and annotations of the entities, do not
+ * edit: run <i>mvn -P codegen compile exec:exec</i> after changing an entity. Each object is
+ * decoded by a switch on its field names calling the setters directly, binding the same values as
+ * the ObjectMapper, see {@link JSONScalars}. Unknown fields and the article fields out of the
+ * projection are skipped.
+ */
+public final class GeneratedJSONDecoder {
+
+    private GeneratedJSONDecoder() {
+    }
+
+    /**
+     * @param parser the parser, before or on the start of the response object
+     * @param projection the article fields to decode
+     * @return the response
+     * @throws IOException if the response cannot be read or is not a Metabase response
+     */
+    public static JSONResponse decodeResponse(JsonParser parser, ArticleProjection projection) throws IOException {
+        if (parser.getCurrentToken() == null) {
+            parser.nextToken();
+        }
+        return decodeJSONResponse(parser, projection);
+    }
+
+    public static JSONResponse decodeJSONResponse(JsonParser parser, ArticleProjection projection) throws IOException {
+        JSONScalars.expect(parser, JsonToken.START_OBJECT, JSONResponse.class);
+        JSONResponse value = new JSONResponse();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "status":
+                    value.setStatus(JSONScalars.readString(parser));
+                    break;
+                case "messageCode":
+                    value.setMessageCode(JSONScalars.readString(parser));
+                    break;
+                case "userMessage":
+                    value.setUserMessage(JSONScalars.readString(parser));
+                    break;
+                case "developerMessage":
+                    value.setDeveloperMessage(JSONScalars.readString(parser));
+                    break;
+                case "articles":
+                    if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+                        value.setArticles(null);
+                    } else {
+                        JSONScalars.expect(parser, JsonToken.START_ARRAY, List.class);
+                        List<Article> articles = new ArrayList<>();
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            articles.add(parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : decodeArticle(parser, projection));
+                        }
+                        value.setArticles(articles);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        return value;
+    }
+
+    public static Article decodeArticle(JsonParser parser, ArticleProjection projection) throws IOException {
+        return decodeArticle(parser, projection, new Article());
+    }
+
+    /**
+     * Decodes into a new or recycled {@link Article}, reusing the lists and nested entities it held.
+     */
+    public static Article decodeArticle(JsonParser parser, ArticleProjection projection, Article value) throws IOException {
+        JSONScalars.expect(parser, JsonToken.START_OBJECT, Article.class);
+        List<String> recycledTags = value.getTags();
+        value.setTags(null);
+        List<String> recycledOutboundUrls = value.getOutboundUrls();
+        value.setOutboundUrls(null);
+        List<License> recycledLicenses = value.getLicenses();
+        value.setLicenses(null);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "sequenceId":
+                    value.setSequenceId(JSONScalars.readLong(parser));
+                    break;
+                case "id":
+                    if (projection.includes("id")) {
+                        value.setId(JSONScalars.readLong(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "language":
+                    if (projection.includes("language")) {
+                        value.setLanguage(JSONScalars.readPooled(parser, ArticleStringPools.LANGUAGE));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "languageCode":
+                    if (projection.includes("languageCode")) {
+                        value.setLanguageCode(JSONScalars.readPooled(parser, ArticleStringPools.LANGUAGE_CODE));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "title":
+                    if (projection.includes("title")) {
+                        value.setTitle(JSONScalars.readString(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "content":
+                    if (projection.includes("content")) {
+                        value.setContent(JSONScalars.readString(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "contentWithMarkup":
+                    if (projection.includes("contentWithMarkup")) {
+                        value.setContentWithMarkup(JSONScalars.readString(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "extract":
+                    if (projection.includes("extract")) {
+                        value.setExtract(JSONScalars.readString(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "tags":
+                    if (projection.includes("tags")) {
+                        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+                            value.setTags(null);
+                        } else {
+                            JSONScalars.expect(parser, JsonToken.START_ARRAY, List.class);
+                            List<String> tags = recycledTags != null ? recycledTags : new ArrayList<>();
+                            tags.clear();
+                            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                                tags.add(JSONScalars.readPooled(parser, ArticleStringPools.TAG));
+                            }
+                            value.setTags(tags);
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "wordCount":
+                    if (projection.includes("wordCount")) {
+                        value.setWordCount(JSONScalars.readLong(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "publishedDate":
+                    if (projection.includes("publishedDate")) {
+                        value.setPublishedDateMillis(JSONScalars.readMillis(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "harvestDate":
+                    if (projection.includes("harvestDate")) {
+                        value.setHarvestDateMillis(JSONScalars.readMillis(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "embargoDate":
+                    if (projection.includes("embargoDate")) {
+                        value.setEmbargoDateMillis(JSONScalars.readMillis(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "licenseEndDate":
+                    if (projection.includes("licenseEndDate")) {
+                        value.setLicenseEndDateMillis(JSONScalars.readMillis(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "url":
+                    if (projection.includes("url")) {
+                        value.setUrl(JSONScalars.readString(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "commentsUrl":
+                    if (projection.includes("commentsUrl")) {
+                        value.setCommentsUrl(JSONScalars.readString(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "outboundUrls":
+                    if (projection.includes("outboundUrls")) {
+                        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+                            value.setOutboundUrls(null);
+                        } else {
+                            JSONScalars.expect(parser, JsonToken.START_ARRAY, List.class);
+                            List<String> outboundUrls = recycledOutboundUrls != null ? recycledOutboundUrls : new ArrayList<>();
+                            outboundUrls.clear();
+                            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                                outboundUrls.add(JSONScalars.readString(parser));
+                            }
+                            value.setOutboundUrls(outboundUrls);
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "dataFormat":
+                    if (projection.includes("dataFormat")) {
+                        value.setDataFormat(JSONScalars.readPooled(parser, ArticleStringPools.DATA_FORMAT));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "copyright":
+                    if (projection.includes("copyright")) {
+                        value.setCopyright(JSONScalars.readPooled(parser, ArticleStringPools.COPYRIGHT));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "loginStatus":
+                    if (projection.includes("loginStatus")) {
+                        value.setLoginStatus(JSONScalars.readPooled(parser, ArticleStringPools.LOGIN_STATUS));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "duplicateGroupId":
+                    if (projection.includes("duplicateGroupId")) {
+                        value.setDuplicateGroupId(JSONScalars.readLong(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "adultLanguage":
+                    if (projection.includes("adultLanguage")) {
+                        value.setAdultLanguage(JSONScalars.readBoolean(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "licenses":
+                    if (projection.includes("licenses")) {
+                        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+                            value.setLicenses(null);
+                        } else {
+                            JSONScalars.expect(parser, JsonToken.START_ARRAY, List.class);
+                            List<License> licenses = recycledLicenses != null ? recycledLicenses : new ArrayList<>();
+                            int licensesSize = 0;
+                            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                                License recycledLicense = licensesSize < licenses.size() ? licenses.get(licensesSize) : null;
+                                License licensesElement = parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : decodeLicense(parser, projection, recycledLicense != null ? recycledLicense : new License());
+                                if (licensesSize < licenses.size()) {
+                                    licenses.set(licensesSize, licensesElement);
+                                } else {
+                                    licenses.add(licensesElement);
+                                }
+                                licensesSize++;
+                            }
+                            while (licenses.size() > licensesSize) {
+                                licenses.remove(licenses.size() - 1);
+                            }
+                            value.setLicenses(licenses);
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        return value;
+    }
+
+    public static License decodeLicense(JsonParser parser, ArticleProjection projection) throws IOException {
+        return decodeLicense(parser, projection, new License());
+    }
+
+    /**
+     * Decodes into a new or recycled {@link License}.
+     */
+    public static License decodeLicense(JsonParser parser, ArticleProjection projection, License value) throws IOException {
+        JSONScalars.expect(parser, JsonToken.START_OBJECT, License.class);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "name":
+                    value.setName(JSONScalars.readPooled(parser, ArticleStringPools.LICENSE_NAME));
+                    break;
+                default:
+                    JSONScalars.unknownField(parser, License.class, field);
+                    break;
+            }
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.lexisnexis.bis.moreover.json;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleAdapter;
+import com.lexisnexis.bis.moreover.json.metabase.entities.Article;
+import com.lexisnexis.bis.moreover.json.metabase.entities.License;
+
+/**
+ * {@link ArticleAdapter} of the JSON feed entities.
+ */
+public class JSONArticleAdapter implements ArticleAdapter<Article> {
+
+    @Override
+    public Long getSequenceId(Article article) {
+        return article.getSequenceId();
+    }
+
+    @Override
+    public Long getId(Article article) {
+        return article.getId();
+    }
+
+    @Override
+    public Long getDuplicateGroupId(Article article) {
+        return article.getDuplicateGroupId();
+    }
+
+    @Override
+    public String getTitle(Article article) {
+        return article.getTitle();
+    }
+
+    @Override
+    public String getUrl(Article article) {
+        return article.getUrl();
+    }
+
+    @Override
+    public List<String> getLicenseNames(Article article) {
+        if (article.getLicenses() == null || article.getLicenses().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>(article.getLicenses().size());
+        for (License license : article.getLicenses()) {
+            names.add(license.getName());
+        }
+        return names;
+    }
+
+    @Override
+    public boolean isLicensed(Article article) {
+        return article.getLicenses() != null && !article.getLicenses().isEmpty();
+    }
+
+    @Override
+    public long getHarvestDateMillis(Article article) {
+        return article.getHarvestDateMillis();
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.lexisnexis.bis.moreover.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.lexisnexis.bis.moreover.archive.ArchiveInput;
+import com.lexisnexis.bis.moreover.archive.ArchiveOutput;
+import com.lexisnexis.bis.moreover.archive.ArticleCodec;
+import com.lexisnexis.bis.moreover.intern.ArticleStringPools;
+import com.lexisnexis.bis.moreover.json.metabase.entities.Article;
+import com.lexisnexis.bis.moreover.json.metabase.entities.License;
+
+/**
+ * {@link ArticleCodec} of the JSON feed entities. Fields are written in a fixed order, any change
+ * of it needs a new archive version. Bodies held off the heap are copied as they are, without
+ * being decoded.
+ */
+public class JSONArticleCodec implements ArticleCodec<Article> {
+
+    public static final String FORMAT = "json";
+
+    @Override
+    public String getFormat() {
+        return FORMAT;
+    }
+
+    @Override
+    public void encode(Article article, ArchiveOutput out) {
+        out.writeLong(article.getId());
+        out.writeString(article.getLanguage());
+        out.writeString(article.getLanguageCode());
+        out.writeString(article.getTitle());
+        if (article.getContentText() != null) {
+            out.writeUtf8(article.getContentText().asByteBuffer());
+        } else {
+            out.writeString(article.getContent());
+        }
+        if (article.getContentWithMarkupText() != null) {
+            out.writeUtf8(article.getContentWithMarkupText().asByteBuffer());
+        } else {
+            out.writeString(article.getContentWithMarkup());
+        }
+        out.writeString(article.getExtract());
+        out.writeStrings(article.getTags());
+        out.writeLong(article.getWordCount());
+        out.writeTimestamp(article.getPublishedDateMillis());
+        out.writeTimestamp(article.getHarvestDateMillis());
+        out.writeTimestamp(article.getEmbargoDateMillis());
+        out.writeTimestamp(article.getLicenseEndDateMillis());
+        out.writeString(article.getUrl());
+        out.writeString(article.getCommentsUrl());
+        out.writeStrings(article.getOutboundUrls());
+        out.writeString(article.getDataFormat());
+        out.writeString(article.getCopyright());
+        out.writeString(article.getLoginStatus());
+        out.writeLong(article.getDuplicateGroupId());
+        out.writeBoolean(article.isAdultLanguage());
+        out.writeStrings(licenseNames(article.getLicenses()));
+    }
+
+    @Override
+    public Article decode(long sequenceId, ArchiveInput in) throws IOException {
+        Article article = new Article();
+        article.setSequenceId(sequenceId);
+        article.setId(in.readLong());
+        article.setLanguage(in.readString(ArticleStringPools.LANGUAGE));
+        article.setLanguageCode(in.readString(ArticleStringPools.LANGUAGE_CODE));
+        article.setTitle(in.readString());
+        article.setContent(in.readString());
+        article.setContentWithMarkup(in.readString());
+        article.setExtract(in.readString());
+        article.setTags(in.readStrings(ArticleStringPools.TAG));
+        article.setWordCount(in.readLong());
+        article.setPublishedDateMillis(in.readTimestamp());
+        article.setHarvestDateMillis(in.readTimestamp());
+        article.setEmbargoDateMillis(in.readTimestamp());
+        article.setLicenseEndDateMillis(in.readTimestamp());
+        article.setUrl(in.readString());
+        article.setCommentsUrl(in.readString());
+        article.setOutboundUrls(in.readStrings());
+        article.setDataFormat(in.readString(ArticleStringPools.DATA_FORMAT));
+        article.setCopyright(in.readString(ArticleStringPools.COPYRIGHT));
+        article.setLoginStatus(in.readString(ArticleStringPools.LOGIN_STATUS));
+        article.setDuplicateGroupId(in.readLong());
+        article.setAdultLanguage(in.readBoolean());
+        article.setLicenses(licenses(in.readStrings(ArticleStringPools.LICENSE_NAME)));
+        return article;
+    }
+
+    private static List<String> licenseNames(List<License> licenses) {
+        if (licenses == null) {
+            return null;
+        }
+        List<String> names = new ArrayList<>(licenses.size());
+        for (License license : licenses) {
+            names.add(license.getName());
+        }
+        return names;
+    }
+
+    private static List<License> licenses(List<String> names) {
+        if (names == null) {
+            return null;
+        }
+        List<License> licenses = new ArrayList<>(names.size());
+        for (String name : names) {
+            License license = new License();
+            license.setName(name);
+            licenses.add(license);
+        }
+        return licenses;
+    }
+
+}
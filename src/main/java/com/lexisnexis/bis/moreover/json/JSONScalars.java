@@ -0,0 +1,161 @@
+package com.lexisnexis.bis.moreover.json;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Date;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.io.NumberInput;
+import org.codehaus.jackson.map.JsonMappingException;
+import org.codehaus.jackson.map.exc.UnrecognizedPropertyException;
+import org.codehaus.jackson.map.util.StdDateFormat;
+
+import com.lexisnexis.bis.moreover.intern.StringPool;
+import com.lexisnexis.bis.moreover.time.MetabaseTimestamps;
+
+/**
+ * Reads the scalar values of the JSON entities for {@link GeneratedJSONDecoder}, from the current
+ * token of the parser, the way the ObjectMapper binds them: numbers given as strings are parsed,
+ * scalars bound to a String are taken as text, null values give null, or false and
+ * {@link MetabaseTimestamps#NONE} for the primitive fields.
+ */
+public final class JSONScalars {
+
+    private JSONScalars() {
+    }
+
+    public static String readString(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isScalarValue()) {
+            return parser.getText();
+        }
+        throw mappingException(parser, String.class);
+    }
+
+    /**
+     * @return the canonical String of the value in the pool, looked up straight from the text buffer
+     *         of the parser
+     */
+    public static String readPooled(JsonParser parser, StringPool pool) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return pool.intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isScalarValue()) {
+            return pool.intern(parser.getText());
+        }
+        throw mappingException(parser, String.class);
+    }
+
+    public static Long readLong(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getLongValue();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText().trim();
+            if (text.length() == 0) {
+                return null;
+            }
+            try {
+                return NumberInput.parseLong(text);
+            } catch (IllegalArgumentException e) {
+                throw new JsonMappingException("Not a valid Long value: \"" + text + "\"", parser.getCurrentLocation());
+            }
+        }
+        throw mappingException(parser, Long.class);
+    }
+
+    public static boolean readBoolean(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_TRUE) {
+            return true;
+        }
+        if (token == JsonToken.VALUE_FALSE || token == JsonToken.VALUE_NULL) {
+            return false;
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue() != 0;
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText().trim();
+            if ("true".equals(text)) {
+                return true;
+            }
+            if ("false".equals(text) || text.length() == 0) {
+                return false;
+            }
+            throw new JsonMappingException("Not a valid boolean value: \"" + text + "\"", parser.getCurrentLocation());
+        }
+        throw mappingException(parser, Boolean.TYPE);
+    }
+
+    /**
+     * Reads a date with {@link MetabaseTimestamps} straight from the text buffer of the parser, dates
+     * of another form being parsed as Jackson does, and numbers taken as epoch milliseconds.
+     *
+     * @return the date in epoch milliseconds, or {@link MetabaseTimestamps#NONE} for null or empty
+     */
+    public static long readMillis(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            long millis = MetabaseTimestamps.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            if (millis != MetabaseTimestamps.NONE) {
+                return millis;
+            }
+            String text = parser.getText().trim();
+            if (text.length() == 0) {
+                return MetabaseTimestamps.NONE;
+            }
+            try {
+                return new StdDateFormat().parse(text).getTime();
+            } catch (ParseException e) {
+                throw new JsonMappingException("Not a valid date: \"" + text + "\"", parser.getCurrentLocation(), e);
+            }
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return MetabaseTimestamps.NONE;
+        }
+        throw mappingException(parser, Date.class);
+    }
+
+    public static Date readDate(JsonParser parser) throws IOException {
+        long millis = readMillis(parser);
+        return millis != MetabaseTimestamps.NONE ? new Date(millis) : null;
+    }
+
+    /**
+     * @throws JsonMappingException if the current token is not the expected one
+     */
+    public static void expect(JsonParser parser, JsonToken expected, Class<?> type) throws IOException {
+        if (parser.getCurrentToken() != expected) {
+            throw mappingException(parser, type);
+        }
+    }
+
+    /**
+     * @throws UnrecognizedPropertyException for a field of an entity which does not ignore unknown fields
+     */
+    public static void unknownField(JsonParser parser, Class<?> type, String field) throws IOException {
+        throw UnrecognizedPropertyException.from(parser, type, field);
+    }
+
+    private static JsonMappingException mappingException(JsonParser parser, Class<?> type) {
+        return new JsonMappingException("Can not deserialize instance of " + type.getName() + " out of "
+                + parser.getCurrentToken() + " token", parser.getCurrentLocation());
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.lexisnexis.bis.moreover.json;
+
+import java.io.IOException;
+import java.util.Date;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.DeserializationContext;
+import org.codehaus.jackson.map.deser.std.StdScalarDeserializer;
+
+import com.lexisnexis.bis.moreover.time.MetabaseTimestamps;
+
+/**
+ * Deserializes the dates of the JSON articles with {@link MetabaseTimestamps}, straight from the
+ * text buffer of the parser, instead of the default Jackson date parsing which builds a String,
+ * a Calendar and several intermediate objects per value. Dates of another form and numeric
+ * timestamps are left to the default parsing.
+ */
+public class MetabaseDateDeserializer extends StdScalarDeserializer<Date> {
+
+    public MetabaseDateDeserializer() {
+        super(Date.class);
+    }
+
+    @Override
+    public Date deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+            long millis = MetabaseTimestamps.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            if (millis != MetabaseTimestamps.NONE) {
+                return new Date(millis);
+            }
+        }
+        return _parseDate(parser, context);
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.lexisnexis.bis.moreover.json;
+
+import java.io.IOException;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.DeserializationContext;
+import org.codehaus.jackson.map.deser.std.StdScalarDeserializer;
+
+import com.lexisnexis.bis.moreover.intern.ArticleStringPools;
+import com.lexisnexis.bis.moreover.intern.StringPool;
+
+/**
+ * Deserializes a low-cardinality field of the JSON articles to the canonical String of its
+ * {@link StringPool}, looked up straight from the text buffer of the parser, so that no String is
+ * created for a value already pooled.
+ * <p/>
+ * Jackson instantiates deserializers from the annotations, each pool has its own subclass.
+ */
+public abstract class PooledStringDeserializer extends StdScalarDeserializer<String> {
+
+    private final StringPool pool;
+
+    protected PooledStringDeserializer(StringPool pool) {
+        super(String.class);
+        this.pool = pool;
+    }
+
+    @Override
+    public String deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            return pool.intern(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        if (token.isScalarValue()) {
+            return pool.intern(parser.getText());
+        }
+        throw context.mappingException(_valueClass, token);
+    }
+
+    public static class Language extends PooledStringDeserializer {
+        public Language() {
+            super(ArticleStringPools.LANGUAGE);
+        }
+    }
+
+    public static class LanguageCode extends PooledStringDeserializer {
+        public LanguageCode() {
+            super(ArticleStringPools.LANGUAGE_CODE);
+        }
+    }
+
+    public static class DataFormat extends PooledStringDeserializer {
+        public DataFormat() {
+            super(ArticleStringPools.DATA_FORMAT);
+        }
+    }
+
+    public static class LoginStatus extends PooledStringDeserializer {
+        public LoginStatus() {
+            super(ArticleStringPools.LOGIN_STATUS);
+        }
+    }
+
+    public static class Copyright extends PooledStringDeserializer {
+        public Copyright() {
+            super(ArticleStringPools.COPYRIGHT);
+        }
+    }
+
+    public static class LicenseName extends PooledStringDeserializer {
+        public LicenseName() {
+            super(ArticleStringPools.LICENSE_NAME);
+        }
+    }
+
+    public static class Tag extends PooledStringDeserializer {
+        public Tag() {
+            super(ArticleStringPools.TAG);
+        }
+    }
+
+}
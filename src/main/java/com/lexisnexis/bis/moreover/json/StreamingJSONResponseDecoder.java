@@ -0,0 +1,124 @@
+package com.lexisnexis.bis.moreover.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleListener;
+import com.lexisnexis.bis.moreover.harvest.ArticleProjection;
+import com.lexisnexis.bis.moreover.harvest.Batch;
+import com.lexisnexis.bis.moreover.harvest.Slice;
+import com.lexisnexis.bis.moreover.harvest.StreamingResponseDecoder;
+import com.lexisnexis.bis.moreover.json.metabase.entities.Article;
+import com.lexisnexis.bis.moreover.recycle.RecyclingPool;
+
+/**
+ * Decodes a JSON Metabase response while it is being read.
+ * <p/>
+ * Instead of binding the whole response into a {@link com.lexisnexis.bis.moreover.json.metabase.entities.JSONResponse}
+ * holding a list of every article, the decoder walks the response token by token and binds one
+ * {@link Article} at a time. Each article is handed to the listener as soon as its object closes,
+ * so the first article is processed while the rest of the response is still on the wire and only
+ * one article is held in memory at a time. The articles are bound by the {@link GeneratedJSONDecoder},
+ * with the fields of the projection only.
+ */
+public class StreamingJSONResponseDecoder implements StreamingResponseDecoder<Article> {
+
+    private final JsonFactory jsonFactory;
+
+    private final ArticleProjection projection;
+
+    public StreamingJSONResponseDecoder(JsonFactory jsonFactory) {
+        this(jsonFactory, ArticleProjection.ALL);
+    }
+
+    public StreamingJSONResponseDecoder(JsonFactory jsonFactory, ArticleProjection projection) {
+        this.jsonFactory = jsonFactory;
+        this.projection = projection;
+    }
+
+    /**
+     * Decodes the response read from the given stream, which is closed once the response is decoded.
+     *
+     * @param slice the slice the response was pulled for
+     * @param in the uncompressed JSON response
+     * @param listener the listener receiving each article
+     * @return the streamed batch holding the status of the call and the number of articles
+     * @throws IOException if the response cannot be read or is not a Metabase JSON response
+     */
+    @Override
+    public Batch<Article> decode(Slice slice, InputStream in, ArticleListener<Article> listener) throws IOException {
+        return decode(slice, in, listener, null);
+    }
+
+    /**
+     * Decodes the response read from the given stream into articles acquired from a pool, which the
+     * listener keeps track of to release them once they were flushed.
+     *
+     * @param slice the slice the response was pulled for
+     * @param in the uncompressed JSON response
+     * @param listener the listener receiving each article
+     * @param pool the pool of the articles of the slice, or null to allocate new ones
+     * @return the streamed batch holding the status of the call and the number of articles
+     * @throws IOException if the response cannot be read or is not a Metabase JSON response
+     */
+    @Override
+    public Batch<Article> decode(Slice slice, InputStream in, ArticleListener<Article> listener,
+            RecyclingPool<Article> pool) throws IOException {
+        JsonParser parser = jsonFactory.createJsonParser(in);
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException("Expected the Metabase response to be a JSON object", parser.getCurrentLocation());
+            }
+
+            String status = null;
+            String messageCode = null;
+            int articleCount = 0;
+            Long lastSequenceId = null;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+
+                if ("status".equals(fieldName)) {
+                    status = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                } else if ("messageCode".equals(fieldName)) {
+                    messageCode = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                } else if ("articles".equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        Article article = pool != null ? decodeRecycled(parser, pool)
+                                : GeneratedJSONDecoder.decodeArticle(parser, projection);
+                        articleCount++;
+                        lastSequenceId = article.getSequenceId();
+                        listener.onArticle(slice, article);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            return Batch.streamed(slice, status, messageCode, articleCount, lastSequenceId);
+        } finally {
+            parser.close();
+        }
+    }
+
+    /**
+     * Decodes the next article into one acquired from the pool, giving it back when decoding fails
+     * since the listener never receives it.
+     */
+    private Article decodeRecycled(JsonParser parser, RecyclingPool<Article> pool) throws IOException {
+        Article recycled = pool.acquire();
+        try {
+            return GeneratedJSONDecoder.decodeArticle(parser, projection, recycled);
+        } catch (IOException | RuntimeException e) {
+            pool.release(recycled);
+            throw e;
+        }
+    }
+
+}
@@ -3,10 +3,18 @@ package com.lexisnexis.bis.moreover.json.metabase.entities;
 import java.util.Date;
 import java.util.List;
 
+import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+import org.codehaus.jackson.map.annotate.JsonDeserialize;
+
+import com.lexisnexis.bis.moreover.json.MetabaseDateDeserializer;
+import com.lexisnexis.bis.moreover.json.PooledStringDeserializer;
+import com.lexisnexis.bis.moreover.offheap.Utf8Text;
+import com.lexisnexis.bis.moreover.recycle.Recyclable;
+import com.lexisnexis.bis.moreover.time.MetabaseTimestamps;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
-public class Article {
+public class Article implements Recyclable {
 
     private Long sequenceId;
 
@@ -22,19 +30,23 @@ public class Article {
 
     private String contentWithMarkup;
 
+    private Utf8Text contentText;
+
+    private Utf8Text contentWithMarkupText;
+
     private String extract;
     
     private List<String> tags;
     
     private Long wordCount;
 
-    private Date publishedDate;
+    private long publishedDate = MetabaseTimestamps.NONE;
 
-    private Date harvestDate;
+    private long harvestDate = MetabaseTimestamps.NONE;
 
-    private Date embargoDate;
+    private long embargoDate = MetabaseTimestamps.NONE;
 
-    private Date licenseEndDate;
+    private long licenseEndDate = MetabaseTimestamps.NONE;
 
     private String url;
 
@@ -54,7 +66,13 @@ public class Article {
     
     private List<License> licenses;
 
+    /**
+     * Set while the article is released to a checked pool, reading it then fails.
+     */
+    private boolean released;
+
     public Long getSequenceId() {
+        checkNotReleased();
         return sequenceId;
     }
 
@@ -63,6 +81,7 @@ public class Article {
     }
 
     public Long getId() {
+        checkNotReleased();
         return id;
     }
 
@@ -71,14 +90,17 @@ public class Article {
     }
 
     public String getLanguage() {
+        checkNotReleased();
         return language;
     }
 
+    @JsonDeserialize(using = PooledStringDeserializer.Language.class)
     public void setLanguage(String language) {
         this.language = language;
     }
 
     public String getTitle() {
+        checkNotReleased();
         return title;
     }
 
@@ -87,22 +109,64 @@ public class Article {
     }
 
     public String getContent() {
-        return content;
+        checkNotReleased();
+        return content != null || contentText == null ? content : contentText.toString();
     }
 
     public void setContent(String content) {
         this.content = content;
+        this.contentText = null;
+    }
+
+    /**
+     * @return the content stored off the heap, or null when it is held as a String
+     */
+    @JsonIgnore
+    public Utf8Text getContentText() {
+        checkNotReleased();
+        return contentText;
+    }
+
+    /**
+     * Replaces the content by its off-heap copy, decoded again by {@link #getContent()} on demand.
+     */
+    @JsonIgnore
+    public void setContentText(Utf8Text contentText) {
+        this.contentText = contentText;
+        this.content = null;
     }
 
     public String getContentWithMarkup() {
-        return contentWithMarkup;
+        checkNotReleased();
+        return contentWithMarkup != null || contentWithMarkupText == null ? contentWithMarkup : contentWithMarkupText.toString();
     }
 
     public void setContentWithMarkup(String contentWithMarkup) {
         this.contentWithMarkup = contentWithMarkup;
+        this.contentWithMarkupText = null;
+    }
+
+    /**
+     * @return the content with markup stored off the heap, or null when it is held as a String
+     */
+    @JsonIgnore
+    public Utf8Text getContentWithMarkupText() {
+        checkNotReleased();
+        return contentWithMarkupText;
+    }
+
+    /**
+     * Replaces the content with markup by its off-heap copy, decoded again by
+     * {@link #getContentWithMarkup()} on demand.
+     */
+    @JsonIgnore
+    public void setContentWithMarkupText(Utf8Text contentWithMarkupText) {
+        this.contentWithMarkupText = contentWithMarkupText;
+        this.contentWithMarkup = null;
     }
 
     public String getExtract() {
+        checkNotReleased();
         return extract;
     }
 
@@ -111,38 +175,103 @@ public class Article {
     }
 
     public Date getPublishedDate() {
-        return publishedDate;
+        checkNotReleased();
+        return publishedDate != MetabaseTimestamps.NONE ? new Date(publishedDate) : null;
     }
 
+    @JsonDeserialize(using = MetabaseDateDeserializer.class)
     public void setPublishedDate(Date publishedDate) {
+        this.publishedDate = publishedDate != null ? publishedDate.getTime() : MetabaseTimestamps.NONE;
+    }
+
+    /**
+     * @return the publishedDate in epoch milliseconds, or {@link MetabaseTimestamps#NONE} when there is none
+     */
+    @JsonIgnore
+    public long getPublishedDateMillis() {
+        checkNotReleased();
+        return publishedDate;
+    }
+
+    @JsonIgnore
+    public void setPublishedDateMillis(long publishedDate) {
         this.publishedDate = publishedDate;
     }
 
     public Date getHarvestDate() {
-        return harvestDate;
+        checkNotReleased();
+        return harvestDate != MetabaseTimestamps.NONE ? new Date(harvestDate) : null;
     }
 
+    @JsonDeserialize(using = MetabaseDateDeserializer.class)
     public void setHarvestDate(Date harvestDate) {
+        this.harvestDate = harvestDate != null ? harvestDate.getTime() : MetabaseTimestamps.NONE;
+    }
+
+    /**
+     * @return the harvestDate in epoch milliseconds, or {@link MetabaseTimestamps#NONE} when there is none
+     */
+    @JsonIgnore
+    public long getHarvestDateMillis() {
+        checkNotReleased();
+        return harvestDate;
+    }
+
+    @JsonIgnore
+    public void setHarvestDateMillis(long harvestDate) {
         this.harvestDate = harvestDate;
     }
 
     public Date getEmbargoDate() {
-        return embargoDate;
+        checkNotReleased();
+        return embargoDate != MetabaseTimestamps.NONE ? new Date(embargoDate) : null;
     }
 
+    @JsonDeserialize(using = MetabaseDateDeserializer.class)
     public void setEmbargoDate(Date embargoDate) {
+        this.embargoDate = embargoDate != null ? embargoDate.getTime() : MetabaseTimestamps.NONE;
+    }
+
+    /**
+     * @return the embargoDate in epoch milliseconds, or {@link MetabaseTimestamps#NONE} when there is none
+     */
+    @JsonIgnore
+    public long getEmbargoDateMillis() {
+        checkNotReleased();
+        return embargoDate;
+    }
+
+    @JsonIgnore
+    public void setEmbargoDateMillis(long embargoDate) {
         this.embargoDate = embargoDate;
     }
 
     public Date getLicenseEndDate() {
-        return licenseEndDate;
+        checkNotReleased();
+        return licenseEndDate != MetabaseTimestamps.NONE ? new Date(licenseEndDate) : null;
     }
 
+    @JsonDeserialize(using = MetabaseDateDeserializer.class)
     public void setLicenseEndDate(Date licenseEndDate) {
+        this.licenseEndDate = licenseEndDate != null ? licenseEndDate.getTime() : MetabaseTimestamps.NONE;
+    }
+
+    /**
+     * @return the licenseEndDate in epoch milliseconds, or {@link MetabaseTimestamps#NONE} when there is none
+     */
+    @JsonIgnore
+    public long getLicenseEndDateMillis() {
+        checkNotReleased();
+        return licenseEndDate;
+    }
+
+    @JsonIgnore
+    public void setLicenseEndDateMillis(long licenseEndDate) {
         this.licenseEndDate = licenseEndDate;
     }
 
     public String getUrl() {
+        checkNotReleased();
         return url;
     }
 
@@ -151,6 +280,7 @@ public class Article {
     }
 
     public String getCommentsUrl() {
+        checkNotReleased();
         return commentsUrl;
     }
 
@@ -159,6 +289,7 @@ public class Article {
     }
 
     public List<String> getOutboundUrls() {
+        checkNotReleased();
         return outboundUrls;
     }
 
@@ -167,30 +298,37 @@ public class Article {
     }
 
     public String getDataFormat() {
+        checkNotReleased();
         return dataFormat;
     }
 
+    @JsonDeserialize(using = PooledStringDeserializer.DataFormat.class)
     public void setDataFormat(String dataFormat) {
         this.dataFormat = dataFormat;
     }
 
     public String getCopyright() {
+        checkNotReleased();
         return copyright;
     }
 
+    @JsonDeserialize(using = PooledStringDeserializer.Copyright.class)
     public void setCopyright(String copyright) {
         this.copyright = copyright;
     }
 
     public String getLoginStatus() {
+        checkNotReleased();
         return loginStatus;
     }
 
+    @JsonDeserialize(using = PooledStringDeserializer.LoginStatus.class)
     public void setLoginStatus(String loginStatus) {
         this.loginStatus = loginStatus;
     }
 
     public Long getDuplicateGroupId() {
+        checkNotReleased();
         return duplicateGroupId;
     }
 
@@ -199,6 +337,7 @@ public class Article {
     }
 
     public boolean isAdultLanguage() {
+        checkNotReleased();
         return adultLanguage;
     }
 
@@ -207,6 +346,7 @@ public class Article {
     }
 
     public List<License> getLicenses() {
+        checkNotReleased();
         return licenses;
     }
 
@@ -215,27 +355,83 @@ public class Article {
     }
 
     public String getLanguageCode() {
+        checkNotReleased();
         return languageCode;
     }
 
+    @JsonDeserialize(using = PooledStringDeserializer.LanguageCode.class)
     public void setLanguageCode(String languageCode) {
         this.languageCode = languageCode;
     }
 
     public List<String> getTags() {
+        checkNotReleased();
         return tags;
     }
 
+    @JsonDeserialize(contentUsing = PooledStringDeserializer.Tag.class)
     public void setTags(List<String> tags) {
         this.tags = tags;
     }
 
     public Long getWordCount() {
+        checkNotReleased();
         return wordCount;
     }
 
     public void setWordCount(Long wordCount) {
         this.wordCount = wordCount;
     }
-    
+
+    @Override
+    public void recycle() {
+        sequenceId = null;
+        id = null;
+        language = null;
+        languageCode = null;
+        title = null;
+        content = null;
+        contentWithMarkup = null;
+        contentText = null;
+        contentWithMarkupText = null;
+        extract = null;
+        if (tags != null) {
+            tags.clear();
+        }
+        wordCount = null;
+        publishedDate = MetabaseTimestamps.NONE;
+        harvestDate = MetabaseTimestamps.NONE;
+        embargoDate = MetabaseTimestamps.NONE;
+        licenseEndDate = MetabaseTimestamps.NONE;
+        url = null;
+        commentsUrl = null;
+        if (outboundUrls != null) {
+            outboundUrls.clear();
+        }
+        dataFormat = null;
+        copyright = null;
+        loginStatus = null;
+        duplicateGroupId = null;
+        adultLanguage = false;
+        if (licenses != null) {
+            for (License license : licenses) {
+                if (license != null) {
+                    license.recycle();
+                }
+            }
+        }
+        released = false;
+    }
+
+    @Override
+    public void markReleased() {
+        released = true;
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("Article read after it was released to its pool");
+        }
+    }
+
 }
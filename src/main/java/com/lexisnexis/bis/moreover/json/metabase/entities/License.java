@@ -1,15 +1,44 @@
 package com.lexisnexis.bis.moreover.json.metabase.entities;
 
-public class License {
+import org.codehaus.jackson.map.annotate.JsonDeserialize;
+
+import com.lexisnexis.bis.moreover.json.PooledStringDeserializer;
+import com.lexisnexis.bis.moreover.recycle.Recyclable;
+
+public class License implements Recyclable {
 
     private String name;
 
+    /**
+     * Set while the license is released to a checked pool, reading it then fails.
+     */
+    private boolean released;
+
     public String getName() {
+        checkNotReleased();
         return name;
     }
 
+    @JsonDeserialize(using = PooledStringDeserializer.LicenseName.class)
     public void setName(String name) {
         this.name = name;
-    }    
-    
+    }
+
+    @Override
+    public void recycle() {
+        name = null;
+        released = false;
+    }
+
+    @Override
+    public void markReleased() {
+        released = true;
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("License read after it was released to its pool");
+        }
+    }
+
 }
@@ -0,0 +1,11 @@
+package com.lexisnexis.bis.moreover.metrics;
+
+/**
+ * A value read when the metrics are reported, the depth of a queue or a hit rate for instance.
+ */
+@FunctionalInterface
+public interface Gauge {
+
+    double getValue();
+
+}
@@ -0,0 +1,272 @@
+package com.lexisnexis.bis.moreover.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.lexisnexis.bis.moreover.click.ClickDispatcher;
+import com.lexisnexis.bis.moreover.dedup.Deduplicator;
+import com.lexisnexis.bis.moreover.harvest.Slice;
+import com.lexisnexis.bis.moreover.intern.StringPool;
+import com.lexisnexis.bis.moreover.offheap.DirectBufferPool;
+import com.lexisnexis.bis.moreover.pipeline.PipelineStages;
+import com.lexisnexis.bis.moreover.pipeline.WorkerStage;
+import com.lexisnexis.bis.moreover.recycle.RecyclingPool;
+import com.lexisnexis.bis.moreover.transport.InflaterPool;
+
+/**
+ * The metrics of the stages of a poll, recorded by the transport and the clients.
+ * <p/>
+ * Each call to Metabase records its request latency, until the headers of the response are
+ * received, then the time spent reading the body from the network, inflating it and binding it,
+ * and the compressed and inflated sizes of the body. Each successful poll records the time spent
+ * writing its articles to the sink, its number of articles, whether the page was full, and the feed
+ * lag of its slice: the time elapsed since the harvestDate of its last article. A successful poll
+ * without articles sets the lag of its slice to 0, the slice being up to date.
+ * <p/>
+ * Each call held back by the access limiter records the time it waited before going, 0 when the
+ * key could be called right away.
+ * <p/>
+ * In streaming mode articles are written to the sink while the body is bound, the time spent
+ * writing them is counted by the poll thread and taken out of the bind time.
+ */
+public class HarvestMetrics {
+
+    private final MetricsRegistry registry;
+
+    private final Histogram accessWait;
+
+    private final Histogram request;
+
+    private final Histogram transfer;
+
+    private final Histogram decompress;
+
+    private final Histogram bind;
+
+    private final Histogram sink;
+
+    private final Histogram compressedBytes;
+
+    private final Histogram inflatedBytes;
+
+    private final Histogram articlesPerPoll;
+
+    private final Histogram feedLag;
+
+    private final Counter polls;
+
+    private final Counter fullPages;
+
+    private final Counter failedCalls;
+
+    private final Counter delayedCalls;
+
+    private final ConcurrentMap<Slice, AtomicLong> sliceLags = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<long[]> streamedSinkNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    public HarvestMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+        this.accessWait = registry.histogram("metabase_access_wait_seconds",
+                "Time a call waited for the access limit of its key before going", MetricsRegistry.NANOS);
+        this.request = registry.histogram("metabase_request_seconds",
+                "Time from sending a call to receiving the headers of its response", MetricsRegistry.NANOS);
+        this.transfer = registry.histogram("metabase_transfer_seconds",
+                "Time spent reading the body of a response from the network", MetricsRegistry.NANOS);
+        this.decompress = registry.histogram("metabase_decompress_seconds",
+                "Time spent inflating the body of a response", MetricsRegistry.NANOS);
+        this.bind = registry.histogram("metabase_bind_seconds",
+                "Time spent binding the body of a response to articles", MetricsRegistry.NANOS);
+        this.sink = registry.histogram("metabase_sink_seconds",
+                "Time spent writing the articles of a poll to the outputs", MetricsRegistry.NANOS);
+        this.compressedBytes = registry.histogram("metabase_response_compressed_bytes",
+                "Size of the body of a response as received", 1);
+        this.inflatedBytes = registry.histogram("metabase_response_inflated_bytes",
+                "Size of the body of a response once inflated", 1);
+        this.articlesPerPoll = registry.histogram("metabase_articles_per_poll",
+                "Number of articles pulled by a successful poll", 1);
+        this.feedLag = registry.histogram("metabase_feed_lag_seconds",
+                "Time elapsed since the harvestDate of the last article of a poll", MetricsRegistry.MILLIS);
+        this.polls = registry.counter("metabase_polls_total", "Number of successful polls");
+        this.fullPages = registry.counter("metabase_full_pages_total", "Number of successful polls which returned a full page");
+        this.failedCalls = registry.counter("metabase_failed_calls_total",
+                "Number of calls which failed or answered a FAILURE status");
+        this.delayedCalls = registry.counter("metabase_access_delayed_calls_total",
+                "Number of calls held back by the access limit of their key");
+        registry.gauge("metabase_full_page_ratio", "Share of the successful polls which returned a full page",
+                () -> polls.get() == 0 ? 0 : (double) fullPages.get() / polls.get());
+    }
+
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Records the wait of a call for the access limit of its key.
+     *
+     * @param nanos the time waited
+     * @param delayed whether the call was held back, rather than let go right away
+     */
+    public void recordAccessWait(long nanos, boolean delayed) {
+        accessWait.record(nanos);
+        if (delayed) {
+            delayedCalls.increment();
+        }
+    }
+
+    public void recordRequest(long nanos) {
+        request.record(nanos);
+    }
+
+    /**
+     * Records the reading of the body of a response.
+     *
+     * @param compressed the size of the body as received
+     * @param inflated the size of the body once inflated
+     * @param transferNanos the time spent reading from the network
+     * @param decompressNanos the time spent inflating
+     * @param bindNanos the time spent binding, streamed sink writes included
+     */
+    public void recordResponse(long compressed, long inflated, long transferNanos, long decompressNanos, long bindNanos) {
+        compressedBytes.record(compressed);
+        inflatedBytes.record(inflated);
+        transfer.record(transferNanos);
+        decompress.record(decompressNanos);
+        bind.record(bindNanos - streamedSinkNanos.get()[0]);
+    }
+
+    /**
+     * Records a call which failed, from the thread which made it. The streamed writes counted
+     * meanwhile are dropped.
+     */
+    public void recordFailedCall() {
+        streamedSinkNanos.get()[0] = 0;
+        failedCalls.increment();
+    }
+
+    /**
+     * Counts the time spent writing a streamed article, from the thread decoding the response.
+     */
+    public void recordStreamedSink(long nanos) {
+        streamedSinkNanos.get()[0] += nanos;
+    }
+
+    /**
+     * Records a successful poll, from the thread which decoded it when articles were streamed.
+     *
+     * @param slice the slice polled
+     * @param articles the number of articles pulled
+     * @param pageSize the number of articles of a full page
+     * @param lastHarvestMillis the harvestDate of the last article in epoch milliseconds, or
+     *        {@link Long#MIN_VALUE} when there is none
+     * @param sinkNanos the time spent writing the articles, streamed writes excluded
+     */
+    public void recordPoll(Slice slice, int articles, int pageSize, long lastHarvestMillis, long sinkNanos) {
+        long[] streamed = streamedSinkNanos.get();
+        sink.record(sinkNanos + streamed[0]);
+        streamed[0] = 0;
+
+        polls.increment();
+        if (articles >= pageSize) {
+            fullPages.increment();
+        }
+        articlesPerPoll.record(articles);
+
+        AtomicLong sliceLag = sliceLags.get(slice);
+        if (sliceLag == null) {
+            AtomicLong lag = new AtomicLong();
+            sliceLag = sliceLags.putIfAbsent(slice, lag);
+            if (sliceLag == null) {
+                sliceLag = lag;
+                registry.gauge("metabase_slice_feed_lag_seconds", "Feed lag of the last successful poll of a slice",
+                        () -> lag.get() * MetricsRegistry.MILLIS, sliceLabels(slice));
+            }
+        }
+        if (articles > 0 && lastHarvestMillis != Long.MIN_VALUE) {
+            long lagMillis = Math.max(0, System.currentTimeMillis() - lastHarvestMillis);
+            feedLag.record(lagMillis);
+            sliceLag.set(lagMillis);
+        } else if (articles == 0) {
+            sliceLag.set(0);
+        }
+    }
+
+    public void registerStringPools(Iterable<StringPool> pools) {
+        for (StringPool pool : pools) {
+            registry.gauge("metabase_string_pool_hit_ratio", "Share of the lookups of a string pool which found their value",
+                    pool::getHitRate, "pool", pool.getName());
+            registry.gauge("metabase_string_pool_values", "Number of values held by a string pool",
+                    pool::getSize, "pool", pool.getName());
+        }
+    }
+
+    public void registerContentPool(DirectBufferPool pool) {
+        registry.gauge("metabase_offheap_pages_in_use", "Off-heap pages holding the content of batches not yet written",
+                pool::getPagesInUse);
+        registry.gauge("metabase_offheap_pages_pooled", "Off-heap pages free for reuse", pool::getPooledPages);
+        registry.gauge("metabase_offheap_pages_allocated", "Off-heap pages allocated since the start",
+                pool::getPagesAllocated);
+    }
+
+    public void registerInflaterPool(InflaterPool pool) {
+        registry.gauge("metabase_inflaters_in_use", "Inflaters held by the responses being read", pool::getInUse);
+        registry.gauge("metabase_inflaters_pooled", "Inflaters free for reuse", pool::getPooled);
+        registry.gauge("metabase_inflaters_created", "Inflaters created since the start", pool::getCreated);
+    }
+
+    public void registerArticlePool(Slice slice, RecyclingPool<?> pool) {
+        registry.gauge("metabase_article_pool_hit_ratio", "Share of the articles of a slice decoded into a recycled article",
+                pool::getHitRate, sliceLabels(slice));
+        registry.gauge("metabase_article_pool_pooled", "Recycled articles of a slice free for reuse",
+                pool::getPooled, sliceLabels(slice));
+        registry.gauge("metabase_article_pool_allocated", "Articles of a slice allocated because its pool was empty",
+                pool::getAllocated, sliceLabels(slice));
+    }
+
+    public void registerClickDispatcher(ClickDispatcher dispatcher) {
+        registry.gauge("metabase_click_queue_depth", "Clicks waiting to be called", dispatcher::getQueueDepth);
+        registry.gauge("metabase_click_in_flight", "Clicks being called", dispatcher::getInFlight);
+        registry.gauge("metabase_click_succeeded", "Clicks called successfully", dispatcher::getSucceeded);
+        registry.gauge("metabase_click_failed", "Clicks given up", dispatcher::getFailed);
+        registry.gauge("metabase_click_retried", "Click attempts retried", dispatcher::getRetried);
+        registry.gauge("metabase_click_dropped", "Clicks dropped because the queue was full", dispatcher::getDropped);
+        registry.gauge("metabase_click_latency_mean_seconds", "Mean time of a click call",
+                () -> dispatcher.getMeanLatencyMillis() * MetricsRegistry.MILLIS);
+        registry.gauge("metabase_click_latency_max_seconds", "Longest time of a click call",
+                () -> dispatcher.getMaxLatencyMillis() * MetricsRegistry.MILLIS);
+    }
+
+    public void registerPipelineStages(PipelineStages stages) {
+        for (WorkerStage stage : new WorkerStage[] { stages.getDecodeStage(), stages.getSinkStage() }) {
+            registry.gauge("metabase_stage_queue_depth", "Tasks waiting for a worker of a stage",
+                    stage::getQueueDepth, "stage", stage.getName());
+            registry.gauge("metabase_stage_busy_workers", "Workers of a stage running a task",
+                    stage::getBusyWorkers, "stage", stage.getName());
+            registry.gauge("metabase_stage_completed", "Tasks run by the workers of a stage",
+                    stage::getCompleted, "stage", stage.getName());
+            registry.gauge("metabase_stage_blocked_submits", "Submissions to a stage which waited for room in its queue",
+                    stage::getBlockedSubmits, "stage", stage.getName());
+        }
+        registry.gauge("metabase_sink_backlog_batches", "Decoded batches waiting for the sink stage or being handled",
+                stages::getSinkBacklog);
+        registry.gauge("metabase_fetch_backpressure_waits", "Calls delayed until the batches in flight of their slice were handled",
+                stages::getFetchWaits);
+    }
+
+    public void registerDeduplicator(Deduplicator<?> deduplicator) {
+        registry.gauge("metabase_dedup_suppressed", "Articles suppressed as already delivered", deduplicator::getSuppressed);
+    }
+
+    /**
+     * @return the labels of a slice, with the name of its profile when it has one
+     */
+    private static String[] sliceLabels(Slice slice) {
+        String sliceLabel = slice.isSliced() ? String.valueOf(slice.getSliceIndex()) : "all";
+        if (slice.getProfile() != null) {
+            return new String[] { "profile", slice.getProfile(), "slice", sliceLabel };
+        }
+        return new String[] { "slice", sliceLabel };
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.lexisnexis.bis.moreover.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.lexisnexis.bis.moreover.metrics.MetricsRegistry.Metric;
+
+/**
+ * Exposes the metrics of a registry over JMX, as the read-only attributes of a single bean.
+ * <p/>
+ * Each counter and gauge is one attribute named after its name and labels,
+ * <i>metabase_feed_lag_seconds[slice=3]</i> for instance. Each histogram gives its count, mean,
+ * 0.5, 0.9 and 0.99 quantiles and maximum, in the reported unit, as attributes suffixed with
+ * <i>.count</i>, <i>.mean</i>, <i>.p50</i>, <i>.p90</i>, <i>.p99</i> and <i>.max</i>. The attributes
+ * are listed again on each call, so the metrics registered after the bean show up as well.
+ */
+public class MetricsMBean implements DynamicMBean {
+
+    public static final String OBJECT_NAME = "com.lexisnexis.bis.moreover:type=Metrics";
+
+    private final MetricsRegistry registry;
+
+    public MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Registers the bean of the registry in the platform MBean server, replacing any bean already
+     * registered under {@link #OBJECT_NAME}.
+     *
+     * @param registry the metrics to expose
+     * @throws JMException if the bean cannot be registered
+     */
+    public static void register(MetricsRegistry registry) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(new MetricsMBean(registry), name);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Object value = attributes().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        Map<String, Object> attributes = attributes();
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            if (attributes.containsKey(name)) {
+                list.add(new Attribute(name, attributes.get(name)));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metric [" + attribute.getName() + "] is read-only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : attributes().entrySet()) {
+            infos.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                    entry.getKey(), true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Metabase client metrics",
+                infos.toArray(new MBeanAttributeInfo[infos.size()]), null, null, null);
+    }
+
+    private Map<String, Object> attributes() {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (Metric metric : registry.getMetrics()) {
+            String name = metric.getLabels().isEmpty() ?
+                    metric.getName() :
+                    metric.getName() + "[" + metric.getLabels().replace("\"", "") + "]";
+            Object value = metric.getValue();
+            if (value instanceof Histogram) {
+                Histogram histogram = (Histogram) value;
+                double scale = metric.getScale();
+                attributes.put(name + ".count", histogram.getCount());
+                attributes.put(name + ".mean", histogram.getMean() * scale);
+                attributes.put(name + ".p50", histogram.getQuantile(0.5) * scale);
+                attributes.put(name + ".p90", histogram.getQuantile(0.9) * scale);
+                attributes.put(name + ".p99", histogram.getQuantile(0.99) * scale);
+                attributes.put(name + ".max", histogram.getMax() * scale);
+            } else if (value instanceof Counter) {
+                attributes.put(name, ((Counter) value).get());
+            } else {
+                attributes.put(name, ((Gauge) value).getValue());
+            }
+        }
+        return attributes;
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.lexisnexis.bis.moreover.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The metrics of a client, by name and labels, read by the JMX bean and the Prometheus endpoint.
+ * <p/>
+ * Names follow the Prometheus conventions, <i>metabase_request_seconds</i> for instance. A metric
+ * may be registered several times under different labels, the feed lag of each slice for instance.
+ * Registering a histogram or a counter again under the same name and labels returns the registered
+ * one, registering a gauge again replaces it.
+ */
+public class MetricsRegistry {
+
+    /**
+     * Converts durations recorded in nanoseconds to seconds.
+     */
+    public static final double NANOS = 1e-9;
+
+    /**
+     * Converts durations recorded in milliseconds to seconds.
+     */
+    public static final double MILLIS = 1e-3;
+
+    private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * @param name the name of the histogram
+     * @param help the description of the histogram
+     * @param scale the factor turning the recorded values into the reported unit, e.g. {@link #NANOS}
+     * @param labels the names and values of the labels, alternately
+     * @return the histogram
+     */
+    public Histogram histogram(String name, String help, double scale, String... labels) {
+        return (Histogram) register(new Metric(name, help, formatLabels(labels), scale, new Histogram()), false).value;
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) register(new Metric(name, help, formatLabels(labels), 1, new Counter()), false).value;
+    }
+
+    public void gauge(String name, String help, Gauge gauge, String... labels) {
+        register(new Metric(name, help, formatLabels(labels), 1, gauge), true);
+    }
+
+    /**
+     * @return the registered metrics, sorted by name and labels
+     */
+    public List<Metric> getMetrics() {
+        List<Metric> sorted = new ArrayList<>(metrics.values());
+        sorted.sort((first, second) -> first.name.equals(second.name) ?
+                first.labels.compareTo(second.labels) :
+                first.name.compareTo(second.name));
+        return sorted;
+    }
+
+    private Metric register(Metric metric, boolean replace) {
+        if (replace) {
+            metrics.put(metric.getKey(), metric);
+            return metric;
+        }
+        Metric registered = metrics.putIfAbsent(metric.getKey(), metric);
+        if (registered == null) {
+            return metric;
+        }
+        if (registered.value.getClass() != metric.value.getClass()) {
+            throw new IllegalArgumentException("Metric [" + metric.getKey() + "] is already registered with another type");
+        }
+        return registered;
+    }
+
+    private static String formatLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name and value pairs");
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"")
+                    .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append('"');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * A registered metric: a {@link Histogram}, a {@link Counter} or a {@link Gauge}.
+     */
+    public static class Metric {
+
+        private final String name;
+
+        private final String help;
+
+        private final String labels;
+
+        private final double scale;
+
+        private final Object value;
+
+        private Metric(String name, String help, String labels, double scale, Object value) {
+            this.name = name;
+            this.help = help;
+            this.labels = labels;
+            this.scale = scale;
+            this.value = value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHelp() {
+            return help;
+        }
+
+        /**
+         * @return the labels in the Prometheus form, <i>slice="3"</i>, or an empty string
+         */
+        public String getLabels() {
+            return labels;
+        }
+
+        /**
+         * @return the factor turning the recorded values into the reported unit
+         */
+        public double getScale() {
+            return scale;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        /**
+         * @return the name and labels identifying the metric, <i>metabase_feed_lag_seconds{slice="3"}</i>
+         */
+        public String getKey() {
+            return labels.isEmpty() ? name : name + "{" + labels + "}";
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.lexisnexis.bis.moreover.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.lexisnexis.bis.moreover.metrics.MetricsRegistry.Metric;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the metrics of a registry in the Prometheus text format on <i>/metrics</i>.
+ * <p/>
+ * Histograms are exposed as summaries with their 0.5, 0.9 and 0.99 quantiles, their sum and count,
+ * and their maximum as a gauge of its own, <i>metabase_request_seconds_max</i> for instance.
+ * Counters and gauges are exposed as they are. The endpoint is meant to be scraped locally, it
+ * answers on a single daemon thread.
+ */
+public class PrometheusEndpoint implements Closeable {
+
+    public static final String METRICS_PATH = "/metrics";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+    private final MetricsRegistry registry;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    /**
+     * Starts serving the metrics.
+     *
+     * @param registry the metrics to serve
+     * @param port the port to listen to, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public PrometheusEndpoint(MetricsRegistry registry, int port) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-endpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(executor);
+        this.server.createContext(METRICS_PATH, this::handle);
+        this.server.start();
+    }
+
+    /**
+     * @return the port the endpoint listens to
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = format(registry).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @param registry the metrics
+     * @return the metrics in the Prometheus text format
+     */
+    public static String format(MetricsRegistry registry) {
+        StringBuilder builder = new StringBuilder();
+        String family = null;
+        StringBuilder maxima = new StringBuilder();
+        for (Metric metric : registry.getMetrics()) {
+            Object value = metric.getValue();
+            if (!metric.getName().equals(family)) {
+                builder.append(maxima);
+                maxima.setLength(0);
+                family = metric.getName();
+                String type = value instanceof Histogram ? "summary" : value instanceof Counter ? "counter" : "gauge";
+                builder.append("# HELP ").append(family).append(' ').append(metric.getHelp()).append('\n');
+                builder.append("# TYPE ").append(family).append(' ').append(type).append('\n');
+                if (value instanceof Histogram) {
+                    maxima.append("# HELP ").append(family).append("_max Maximum of ").append(metric.getHelp()).append('\n');
+                    maxima.append("# TYPE ").append(family).append("_max gauge\n");
+                }
+            }
+            if (value instanceof Histogram) {
+                Histogram histogram = (Histogram) value;
+                for (double quantile : QUANTILES) {
+                    String labels = metric.getLabels().isEmpty() ?
+                            "quantile=\"" + quantile + "\"" :
+                            metric.getLabels() + ",quantile=\"" + quantile + "\"";
+                    sample(builder, family, labels, histogram.getQuantile(quantile) * metric.getScale());
+                }
+                sample(builder, family + "_sum", metric.getLabels(), histogram.getSum() * metric.getScale());
+                sample(builder, family + "_count", metric.getLabels(), histogram.getCount());
+                sample(maxima, family + "_max", metric.getLabels(), histogram.getMax() * metric.getScale());
+            } else if (value instanceof Counter) {
+                sample(builder, family, metric.getLabels(), ((Counter) value).get());
+            } else {
+                sample(builder, family, metric.getLabels(), ((Gauge) value).getValue());
+            }
+        }
+        builder.append(maxima);
+        return builder.toString();
+    }
+
+    private static void sample(StringBuilder builder, String name, String labels, double value) {
+        builder.append(name);
+        if (!labels.isEmpty()) {
+            builder.append('{').append(labels).append('}');
+        }
+        builder.append(' ');
+        if (Double.isNaN(value)) {
+            builder.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            builder.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            builder.append((long) value);
+        } else {
+            builder.append(Double.toString(value));
+        }
+        builder.append('\n');
+    }
+
+}
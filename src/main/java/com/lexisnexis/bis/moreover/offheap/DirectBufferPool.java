@@ -0,0 +1,93 @@
+package com.lexisnexis.bis.moreover.offheap;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of fixed size direct buffers, the pages the {@link OffHeapArena}s store article bodies in.
+ * <p/>
+ * Allocating a direct buffer is slow and its memory is only given back once the buffer is
+ * garbage collected, so released pages are kept for the next arenas, up to <i>maxPooledPages</i>.
+ * Pages released beyond that are left to the garbage collector. The pool is shared by the slices
+ * and safe to call from several threads.
+ */
+public class DirectBufferPool {
+
+    public static final int DEFAULT_PAGE_SIZE = 256 * 1024;
+
+    public static final int DEFAULT_MAX_POOLED_PAGES = 64;
+
+    private final int pageSize;
+
+    private final int maxPooledPages;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> pages = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private final AtomicInteger inUse = new AtomicInteger();
+
+    private final LongAdder allocated = new LongAdder();
+
+    public DirectBufferPool() {
+        this(DEFAULT_PAGE_SIZE, DEFAULT_MAX_POOLED_PAGES);
+    }
+
+    public DirectBufferPool(int pageSize, int maxPooledPages) {
+        this.pageSize = pageSize;
+        this.maxPooledPages = maxPooledPages;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * @return a cleared page, taken from the pool or newly allocated
+     */
+    public ByteBuffer acquire() {
+        inUse.incrementAndGet();
+        ByteBuffer page = pages.poll();
+        if (page != null) {
+            pooled.decrementAndGet();
+            page.clear();
+            return page;
+        }
+        allocated.increment();
+        return ByteBuffer.allocateDirect(pageSize);
+    }
+
+    /**
+     * @param page a page acquired from this pool, which must no longer be used
+     */
+    public void release(ByteBuffer page) {
+        inUse.decrementAndGet();
+        if (pooled.incrementAndGet() <= maxPooledPages) {
+            pages.offer(page);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of pages held by arenas
+     */
+    public int getPagesInUse() {
+        return inUse.get();
+    }
+
+    public int getPooledPages() {
+        return pooled.get();
+    }
+
+    /**
+     * @return the number of pages allocated since the pool was created, a steadily growing count
+     *         means the pool is too small for the batches in flight
+     */
+    public long getPagesAllocated() {
+        return allocated.sum();
+    }
+
+}
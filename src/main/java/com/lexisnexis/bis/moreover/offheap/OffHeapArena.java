@@ -0,0 +1,80 @@
+package com.lexisnexis.bis.moreover.offheap;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the bodies of the articles of one batch as UTF-8 in direct buffers, outside of the heap.
+ * <p/>
+ * Bodies are appended one after the other to pages acquired from a {@link DirectBufferPool}, a
+ * body larger than a page getting a direct buffer of its own. Closing the arena gives its pages
+ * back to the pool, after which the {@link Utf8Text} views it returned throw on any access.
+ * An arena is used by one thread at a time.
+ */
+public class OffHeapArena implements Closeable {
+
+    private final DirectBufferPool pool;
+
+    private final List<ByteBuffer> pages = new ArrayList<>();
+
+    private ByteBuffer current;
+
+    private volatile boolean released;
+
+    public OffHeapArena(DirectBufferPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Copies a body off the heap.
+     *
+     * @param text the body
+     * @return the view of the stored body, or null if the body is null
+     */
+    public Utf8Text store(String text) {
+        if (released) {
+            throw new IllegalStateException("Arena already released");
+        }
+        if (text == null) {
+            return null;
+        }
+        int byteLength = Utf8.encodedLength(text);
+        ByteBuffer page;
+        if (byteLength > pool.getPageSize()) {
+            page = ByteBuffer.allocateDirect(byteLength);
+        } else {
+            if (current == null || current.remaining() < byteLength) {
+                current = pool.acquire();
+                pages.add(current);
+            }
+            page = current;
+        }
+        int offset = page.position();
+        Utf8.encode(text, page);
+        return new Utf8Text(this, page, offset, byteLength, text.length());
+    }
+
+    boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * Gives the pages back to the pool. The views returned by {@link #store(String)} must no
+     * longer be used.
+     */
+    @Override
+    public void close() {
+        if (released) {
+            return;
+        }
+        released = true;
+        for (ByteBuffer page : pages) {
+            pool.release(page);
+        }
+        pages.clear();
+        current = null;
+    }
+
+}
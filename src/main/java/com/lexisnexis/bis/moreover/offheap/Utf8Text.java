@@ -0,0 +1,149 @@
+package com.lexisnexis.bis.moreover.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A read-only view of a body stored as UTF-8 by an {@link OffHeapArena}.
+ * <p/>
+ * The body is only decoded into a String by {@link #toString()}. Bodies of ASCII characters only,
+ * most of them, are indexed directly by {@link #charAt(int)}; other ones are decoded from the
+ * last position read, so that reading them in order stays linear. Once its arena is released the
+ * view throws {@link IllegalStateException} on any access, its page being reused by another batch.
+ */
+public final class Utf8Text implements CharSequence {
+
+    private final OffHeapArena arena;
+
+    private final ByteBuffer buffer;
+
+    private final int offset;
+
+    private final int byteLength;
+
+    private final int length;
+
+    /**
+     * Position of the last character read, for the bodies which are not ASCII only.
+     */
+    private int cursorIndex;
+
+    private int cursorOffset;
+
+    Utf8Text(OffHeapArena arena, ByteBuffer buffer, int offset, int byteLength, int length) {
+        this.arena = arena;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.byteLength = byteLength;
+        this.length = length;
+        this.cursorOffset = offset;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return the length of the body in UTF-8
+     */
+    public int getByteLength() {
+        return byteLength;
+    }
+
+    public boolean isAscii() {
+        return byteLength == length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        checkLive();
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        if (isAscii()) {
+            return (char) buffer.get(offset + index);
+        }
+        if (index < cursorIndex) {
+            cursorIndex = 0;
+            cursorOffset = offset;
+        }
+        while (true) {
+            int b = buffer.get(cursorOffset) & 0xFF;
+            if (b < 0x80) {
+                if (cursorIndex == index) {
+                    return (char) b;
+                }
+                cursorIndex++;
+                cursorOffset++;
+            } else if (b < 0xE0) {
+                if (cursorIndex == index) {
+                    return (char) (((b & 0x1F) << 6) | (buffer.get(cursorOffset + 1) & 0x3F));
+                }
+                cursorIndex++;
+                cursorOffset += 2;
+            } else if (b < 0xF0) {
+                if (cursorIndex == index) {
+                    return (char) (((b & 0x0F) << 12) | ((buffer.get(cursorOffset + 1) & 0x3F) << 6)
+                            | (buffer.get(cursorOffset + 2) & 0x3F));
+                }
+                cursorIndex++;
+                cursorOffset += 3;
+            } else {
+                /**
+                 * A supplementary code point, two chars in UTF-16.
+                 */
+                if (cursorIndex == index || cursorIndex + 1 == index) {
+                    int codePoint = ((b & 0x07) << 18) | ((buffer.get(cursorOffset + 1) & 0x3F) << 12)
+                            | ((buffer.get(cursorOffset + 2) & 0x3F) << 6) | (buffer.get(cursorOffset + 3) & 0x3F);
+                    return cursorIndex == index ? Character.highSurrogate(codePoint) : Character.lowSurrogate(codePoint);
+                }
+                cursorIndex += 2;
+                cursorOffset += 4;
+            }
+        }
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        checkLive();
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        if (isAscii()) {
+            return new Utf8Text(arena, buffer, offset + start, end - start, end - start);
+        }
+        return toString().substring(start, end);
+    }
+
+    /**
+     * @return a read-only buffer of the UTF-8 bytes of the body, valid until the arena is released
+     */
+    public ByteBuffer asByteBuffer() {
+        checkLive();
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.limit(offset + byteLength);
+        bytes.position(offset);
+        return bytes.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Decodes the body.
+     */
+    @Override
+    public String toString() {
+        checkLive();
+        byte[] bytes = new byte[byteLength];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void checkLive() {
+        if (arena.isReleased()) {
+            throw new IllegalStateException("Body read after its batch was released");
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.lexisnexis.bis.moreover.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue of several producers and several consumers, the queue of the tasks of a
+ * {@link WorkerStage}.
+ * <p/>
+ * The elements are held in a ring whose slots each carry a sequence number telling whether the
+ * slot is free for the offer of a given position or holds the element of a given position, so
+ * that producers and consumers only compete on the compare and set of the position they claim and
+ * never block one another. Offering to a full queue and polling an empty one fail right away, the
+ * stages decide whether to wait. The capacity is rounded up to a power of two.
+ *
+ * @param <E> the element type
+ */
+public class BoundedQueue<E> {
+
+    private final int mask;
+
+    private final AtomicReferenceArray<E> elements;
+
+    private final AtomicLongArray sequences;
+
+    /**
+     * the position of the next element to poll
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * the position of the next element to offer
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    public BoundedQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of a queue must be positive, not " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @param element the element to add
+     * @return false if the queue is full
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    /**
+                     * Publishes the element to the consumer of this position.
+                     */
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * @return the oldest element, or null if the queue is empty
+     */
+    public E poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    E element = elements.get(index);
+                    elements.lazySet(index, null);
+                    /**
+                     * Frees the slot for the producer of the position one lap ahead.
+                     */
+                    sequences.set(index, position + mask + 1);
+                    return element;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    /**
+     * @return the number of elements, only an estimate while elements are added or removed
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+}
@@ -0,0 +1,213 @@
+package com.lexisnexis.bis.moreover.pipeline;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs tasks after a delay on an executor, with a single timer thread whatever the number of tasks
+ * waiting, the polls of hundreds of slices for instance.
+ * <p/>
+ * Time is cut in ticks of {@link #getTickMillis()} and the waiting tasks are hashed into the
+ * buckets of a wheel by the tick they are due at, the wheel turning by one bucket per tick. A task
+ * due further away than one turn of the wheel counts the turns left before it is due. At every tick
+ * the timer thread moves the tasks scheduled meanwhile into their buckets, then hands the due
+ * tasks of the current bucket to the executor, so scheduling is a lock-free offer and each tick
+ * only looks at the tasks of one bucket. Tasks run at most one tick late, never early.
+ */
+public class HashedTimerWheel implements Closeable {
+
+    public static final long DEFAULT_TICK_MILLIS = 100;
+
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final long tickNanos;
+
+    private final int mask;
+
+    /**
+     * the buckets of the wheel, only touched by the timer thread
+     */
+    private final LinkedList<Timeout>[] wheel;
+
+    private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+
+    private final Executor executor;
+
+    private final Thread timer;
+
+    private final long startTime;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    /**
+     * @param name the name of the timer thread
+     * @param tickMillis the duration of a tick, the precision of the delays
+     * @param wheelSize the number of buckets, rounded up to a power of two
+     * @param executor the executor running the tasks once due
+     */
+    public HashedTimerWheel(String name, long tickMillis, int wheelSize, Executor executor) {
+        if (tickMillis < 1 || wheelSize < 1) {
+            throw new IllegalArgumentException("The tick and the size of a timer wheel must be positive");
+        }
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) {
+            size <<= 1;
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.mask = size - 1;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        LinkedList<Timeout>[] buckets = new LinkedList[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new LinkedList<>();
+        }
+        this.wheel = buckets;
+        this.executor = executor;
+        this.startTime = System.nanoTime();
+        this.timer = new Thread(this::turn, name);
+        timer.setDaemon(true);
+        timer.start();
+    }
+
+    /**
+     * @param task the task to run
+     * @param delayMillis the delay after which the task is handed to the executor
+     * @return the handle cancelling the task
+     * @throws RejectedExecutionException if the wheel is closed
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        if (closed) {
+            throw new RejectedExecutionException("The timer wheel is closed");
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)));
+        pending.incrementAndGet();
+        scheduled.offer(timeout);
+        return timeout;
+    }
+
+    private void turn() {
+        long tick = 0;
+        while (!closed) {
+            long deadline = (tick + 1) * tickNanos;
+            long sleepNanos;
+            while ((sleepNanos = deadline - (System.nanoTime() - startTime)) > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                if (closed) {
+                    return;
+                }
+            }
+            transferScheduled(tick);
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    /**
+     * Moves the tasks scheduled since the last tick into the bucket of the tick they are due at,
+     * the current one for tasks already due.
+     */
+    private void transferScheduled(long tick) {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.isCancelled()) {
+                pending.decrementAndGet();
+                continue;
+            }
+            long dueTick = Math.max(tick, (timeout.deadline + tickNanos - 1) / tickNanos - 1);
+            timeout.remainingRounds = (dueTick - tick) / wheel.length;
+            wheel[(int) (dueTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(LinkedList<Timeout> bucket) {
+        for (Iterator<Timeout> i = bucket.iterator(); i.hasNext();) {
+            Timeout timeout = i.next();
+            if (timeout.isCancelled()) {
+                i.remove();
+                pending.decrementAndGet();
+            } else if (timeout.remainingRounds <= 0) {
+                i.remove();
+                pending.decrementAndGet();
+                try {
+                    executor.execute(timeout.task);
+                } catch (RejectedExecutionException e) {
+                    System.err.println("Timer task rejected: " + e.getMessage());
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+    public long getTickMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+    }
+
+    public int getWheelSize() {
+        return wheel.length;
+    }
+
+    /**
+     * @return the number of tasks waiting to be due
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Stops the timer thread, the tasks still waiting are dropped.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(timer);
+        try {
+            timer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A task waiting on the wheel.
+     */
+    public static final class Timeout {
+
+        private final Runnable task;
+
+        /**
+         * the time the task is due at, in nanoseconds since the start of the wheel
+         */
+        private final long deadline;
+
+        private long remainingRounds;
+
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Keeps the task from running if it is not due yet.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.lexisnexis.bis.moreover.pipeline;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The decode and sink stages shared by the staged slice loops of a process, see
+ * {@link com.lexisnexis.bis.moreover.harvest.SliceLoop}.
+ * <p/>
+ * The poll loop of each slice is the fetch stage: it downloads a response and hands it to the
+ * decode stage, whose workers inflate and bind the responses of all the slices in parallel. The
+ * decoded batches go to the sink stage, whose workers hand the batches of all the slices to the
+ * handler in parallel, those of one slice in order. Besides the queues of the stages, the decoded
+ * batches waiting for the sink stage and the times a slice loop waited for the sink stage to catch
+ * up are counted here.
+ */
+public class PipelineStages implements Closeable {
+
+    private final WorkerStage decodeStage;
+
+    private final WorkerStage sinkStage;
+
+    private final AtomicInteger sinkBacklog = new AtomicInteger();
+
+    private final LongAdder fetchWaits = new LongAdder();
+
+    /**
+     * @param decodeThreads the number of workers of the decode stage
+     * @param sinkThreads the number of workers of the sink stage
+     * @param queueCapacity the number of tasks waiting for the workers of each stage, at least the
+     *        number of slices so that a slice loop only waits when a stage falls behind
+     */
+    public PipelineStages(int decodeThreads, int sinkThreads, int queueCapacity) {
+        this.decodeStage = new WorkerStage("decode", decodeThreads, queueCapacity);
+        this.sinkStage = new WorkerStage("sink", sinkThreads, queueCapacity);
+    }
+
+    public WorkerStage getDecodeStage() {
+        return decodeStage;
+    }
+
+    public WorkerStage getSinkStage() {
+        return sinkStage;
+    }
+
+    /**
+     * @return the number of decoded batches waiting for a worker of the sink stage or being handled
+     */
+    public int getSinkBacklog() {
+        return sinkBacklog.get();
+    }
+
+    /**
+     * @return the number of times a slice loop waited for its batches in flight to be handled
+     *         before calling Metabase again
+     */
+    public long getFetchWaits() {
+        return fetchWaits.sum();
+    }
+
+    public void batchDecoded() {
+        sinkBacklog.incrementAndGet();
+    }
+
+    public void batchHandled() {
+        sinkBacklog.decrementAndGet();
+    }
+
+    public void fetchWaited() {
+        fetchWaits.increment();
+    }
+
+    /**
+     * Lets the stages finish their queued tasks and stops their workers.
+     */
+    @Override
+    public void close() {
+        decodeStage.close();
+        sinkStage.close();
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.lexisnexis.bis.moreover.pipeline;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs tasks one at a time and in the order they were submitted on the workers of a
+ * {@link WorkerStage}, the batches of one slice on the sink stage for instance.
+ * <p/>
+ * A strand is queued on its stage when it gets a task while it is not already queued or running.
+ * Its worker runs one task then queues the strand again behind the other strands if it has more,
+ * so that a busy slice does not starve the others. The tasks of several strands run in parallel on
+ * the workers of the stage, those of one strand never do. A strand takes at most one place in the
+ * queue of the stage, and the tasks waiting in a strand are not bounded by the strand, the caller
+ * bounds them, a slice by its batches in flight.
+ */
+public class Strand {
+
+    private final WorkerStage stage;
+
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public Strand(WorkerStage stage) {
+        this.stage = stage;
+    }
+
+    /**
+     * @param task the task to run after the tasks already submitted
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the stage
+     */
+    public void submit(Runnable task) throws InterruptedException {
+        tasks.offer(task);
+        if (scheduled.compareAndSet(false, true)) {
+            stage.submit(this::drain);
+        }
+    }
+
+    /**
+     * Runs the next task and queues the strand again if it has more. A task submitted while the
+     * strand is being unscheduled is picked up here, and the strand goes on running on this worker
+     * when the queue of the stage is full rather than wait for room in its own stage.
+     */
+    private void drain() {
+        while (true) {
+            Runnable task = tasks.poll();
+            if (task != null) {
+                task.run();
+            }
+            scheduled.set(false);
+            if (tasks.isEmpty() || !scheduled.compareAndSet(false, true) || stage.trySubmit(this::drain)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the number of tasks waiting to run
+     */
+    public int size() {
+        return tasks.size();
+    }
+
+}
@@ -0,0 +1,173 @@
+package com.lexisnexis.bis.moreover.pipeline;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A stage of the harvest pipeline: a pool of worker threads running the tasks of a
+ * {@link BoundedQueue}.
+ * <p/>
+ * Submitting a task to a full queue waits until a worker takes one, which is how a stage falling
+ * behind slows down the stage feeding it instead of piling up its work on the heap. Idle workers
+ * spin briefly then park for growing periods, up to {@link #MAX_IDLE_PARK_NANOS}, so that an idle
+ * stage costs next to nothing and a busy one never waits on a lock. The depth of the queue, the
+ * busy workers, the tasks run and the submissions which had to wait are counted for the metrics.
+ * A task failure is reported and does not stop its worker, tasks report their failures themselves.
+ */
+public class WorkerStage implements Closeable {
+
+    public static final long MAX_IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final long MIN_IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private static final int IDLE_SPINS = 100;
+
+    private final String name;
+
+    private final BoundedQueue<Runnable> tasks;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final AtomicInteger busy = new AtomicInteger();
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder blockedSubmits = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * @param name the name of the stage, which names its threads
+     * @param threads the number of workers
+     * @param queueCapacity the number of tasks waiting for a worker before submissions wait
+     */
+    public WorkerStage(String name, int threads, int queueCapacity) {
+        this.name = name;
+        this.tasks = new BoundedQueue<>(queueCapacity);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::work, name + "-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Queues a task for the workers, waiting while the queue is full.
+     *
+     * @param task the task
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     * @throws RejectedExecutionException if the stage is closed
+     */
+    public void submit(Runnable task) throws InterruptedException {
+        if (tasks.offer(task)) {
+            return;
+        }
+        blockedSubmits.increment();
+        long parkNanos = MIN_IDLE_PARK_NANOS;
+        do {
+            if (closed) {
+                throw new RejectedExecutionException("Stage " + name + " is closed");
+            }
+            LockSupport.parkNanos(this, parkNanos);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            parkNanos = Math.min(parkNanos * 2, MAX_IDLE_PARK_NANOS);
+        } while (!tasks.offer(task));
+    }
+
+    /**
+     * Queues a task for the workers unless the queue is full.
+     *
+     * @param task the task
+     * @return false if the queue is full or the stage is closed
+     */
+    public boolean trySubmit(Runnable task) {
+        return !closed && tasks.offer(task);
+    }
+
+    private void work() {
+        int idle = 0;
+        long parkNanos = MIN_IDLE_PARK_NANOS;
+        while (true) {
+            Runnable task = tasks.poll();
+            if (task == null) {
+                if (closed) {
+                    return;
+                }
+                if (++idle > IDLE_SPINS) {
+                    LockSupport.parkNanos(this, parkNanos);
+                    parkNanos = Math.min(parkNanos * 2, MAX_IDLE_PARK_NANOS);
+                }
+                continue;
+            }
+            idle = 0;
+            parkNanos = MIN_IDLE_PARK_NANOS;
+            busy.incrementAndGet();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Task of stage " + name + " failed");
+                e.printStackTrace();
+            } finally {
+                busy.decrementAndGet();
+                completed.increment();
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return workers.size();
+    }
+
+    /**
+     * @return the number of tasks waiting for a worker
+     */
+    public int getQueueDepth() {
+        return tasks.size();
+    }
+
+    public int getBusyWorkers() {
+        return busy.get();
+    }
+
+    public long getCompleted() {
+        return completed.sum();
+    }
+
+    /**
+     * @return the number of submissions which waited for room in the queue, the times this stage
+     *         held back the stage feeding it
+     */
+    public long getBlockedSubmits() {
+        return blockedSubmits.sum();
+    }
+
+    /**
+     * Stops taking tasks, lets the workers run the tasks already queued and waits for them.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.lexisnexis.bis.moreover.profile;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.lexisnexis.bis.moreover.harvest.Slice;
+
+/**
+ * One Metabase key harvested along with others by the same process, see {@link ProfileHarvester}.
+ * <p/>
+ * Each profile has its own key, cursor, slicing, pacing and limit. The settings a profile leaves
+ * out are null and fall back to those given on the command line.
+ */
+public class HarvestProfile {
+
+    private final String name;
+
+    private final String key;
+
+    private Long sequenceId;
+
+    private Integer limit;
+
+    private Integer numberOfSlices;
+
+    private Integer sliceIndex;
+
+    private Integer pauseMillis;
+
+    private Boolean adaptive;
+
+    private Integer maxPauseMillis;
+
+    public HarvestProfile(String name, String key) {
+        this.name = name;
+        this.key = key;
+    }
+
+    /**
+     * @return the slice given by sliceIndex, every slice of the key when only numSlices is given,
+     *         or the whole feed of the key
+     */
+    public List<Slice> getSlices() {
+        if (numberOfSlices != null && sliceIndex == null) {
+            return Slice.allSlices(name, key, numberOfSlices);
+        }
+        return Collections.singletonList(new Slice(name, key, numberOfSlices, sliceIndex));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the sequenceId the slices of the profile start from when they were never committed, or null
+     */
+    public Long getSequenceId() {
+        return sequenceId;
+    }
+
+    public void setSequenceId(Long sequenceId) {
+        this.sequenceId = sequenceId;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public Integer getNumberOfSlices() {
+        return numberOfSlices;
+    }
+
+    public void setNumberOfSlices(Integer numberOfSlices) {
+        this.numberOfSlices = numberOfSlices;
+    }
+
+    public Integer getSliceIndex() {
+        return sliceIndex;
+    }
+
+    public void setSliceIndex(Integer sliceIndex) {
+        this.sliceIndex = sliceIndex;
+    }
+
+    public Integer getPauseMillis() {
+        return pauseMillis;
+    }
+
+    public void setPauseMillis(Integer pauseMillis) {
+        this.pauseMillis = pauseMillis;
+    }
+
+    public Boolean getAdaptive() {
+        return adaptive;
+    }
+
+    public void setAdaptive(Boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    public Integer getMaxPauseMillis() {
+        return maxPauseMillis;
+    }
+
+    public void setMaxPauseMillis(Integer maxPauseMillis) {
+        this.maxPauseMillis = maxPauseMillis;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
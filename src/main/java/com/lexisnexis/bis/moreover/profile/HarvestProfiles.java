@@ -0,0 +1,98 @@
+package com.lexisnexis.bis.moreover.profile;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the profiles harvested by a process from a properties file.
+ * <p/>
+ * Each property is named after its profile and one of {@link #PROPERTIES}, for instance:
+ * <pre>
+ * acme.key=...
+ * acme.limit=200
+ * acme.numSlices=3
+ * globex.key=...
+ * globex.pauseMillis=60000
+ * globex.adaptive=true
+ * </pre>
+ * Every profile needs a key and a key belongs to one profile only. A profile with numSlices and
+ * without sliceIndex pulls every slice of its key. The profiles are returned sorted by name.
+ */
+public final class HarvestProfiles {
+
+    public static final List<String> PROPERTIES = Arrays.asList("key", "sequenceId", "limit", "numSlices",
+            "sliceIndex", "pauseMillis", "adaptive", "maxPauseMillis");
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private HarvestProfiles() {
+    }
+
+    /**
+     * @param file the properties file
+     * @return the profiles of the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a property is not recognised or a profile is invalid
+     */
+    public static List<HarvestProfile> load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return parse(properties);
+    }
+
+    public static List<HarvestProfile> parse(Properties properties) {
+        Map<String, Map<String, String>> settings = new TreeMap<>();
+        for (String property : properties.stringPropertyNames()) {
+            int dot = property.lastIndexOf('.');
+            String name = dot > 0 ? property.substring(0, dot) : null;
+            String setting = property.substring(dot + 1);
+            if (name == null || !NAME.matcher(name).matches() || !PROPERTIES.contains(setting)) {
+                throw new IllegalArgumentException("Unknown profile property [" + property + "], expected <profile>.<setting> with a setting among "
+                        + PROPERTIES);
+            }
+            settings.computeIfAbsent(name, profileName -> new HashMap<>()).put(setting, properties.getProperty(property).trim());
+        }
+
+        List<HarvestProfile> profiles = new ArrayList<>();
+        Map<String, String> profileByKey = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> entry : settings.entrySet()) {
+            String name = entry.getKey();
+            Map<String, String> values = entry.getValue();
+            String key = values.get("key");
+            if (key == null || key.isEmpty()) {
+                throw new IllegalArgumentException("Profile [" + name + "] has no key");
+            }
+            String previous = profileByKey.put(key, name);
+            if (previous != null) {
+                throw new IllegalArgumentException("Profiles [" + previous + "] and [" + name + "] have the same key");
+            }
+            HarvestProfile profile = new HarvestProfile(name, key);
+            profile.setSequenceId(values.containsKey("sequenceId") ? Long.valueOf(values.get("sequenceId")) : null);
+            profile.setLimit(values.containsKey("limit") ? Integer.valueOf(values.get("limit")) : null);
+            profile.setNumberOfSlices(values.containsKey("numSlices") ? Integer.valueOf(values.get("numSlices")) : null);
+            profile.setSliceIndex(values.containsKey("sliceIndex") ? Integer.valueOf(values.get("sliceIndex")) : null);
+            profile.setPauseMillis(values.containsKey("pauseMillis") ? Integer.valueOf(values.get("pauseMillis")) : null);
+            profile.setAdaptive(values.containsKey("adaptive") ? Boolean.valueOf(values.get("adaptive")) : null);
+            profile.setMaxPauseMillis(values.containsKey("maxPauseMillis") ? Integer.valueOf(values.get("maxPauseMillis")) : null);
+            if (profile.getSliceIndex() != null && profile.getNumberOfSlices() == null) {
+                throw new IllegalArgumentException("Profile [" + name + "] has a sliceIndex without numSlices");
+            }
+            profiles.add(profile);
+        }
+        return profiles;
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.lexisnexis.bis.moreover.profile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.lexisnexis.bis.moreover.checkpoint.CheckpointStore;
+import com.lexisnexis.bis.moreover.harvest.BatchFetcher;
+import com.lexisnexis.bis.moreover.harvest.BatchHandler;
+import com.lexisnexis.bis.moreover.harvest.PollScheduler;
+import com.lexisnexis.bis.moreover.harvest.Slice;
+import com.lexisnexis.bis.moreover.harvest.SliceLoop;
+import com.lexisnexis.bis.moreover.pipeline.HashedTimerWheel;
+
+/**
+ * Harvests the slices of many profiles from a single process, on a few threads.
+ * <p/>
+ * Where the {@link com.lexisnexis.bis.moreover.harvest.SliceHarvester} gives every slice a thread
+ * sleeping between its calls, most of the slices of hundreds of profiles are waiting for their
+ * next call at any time. Here each slice is a {@link SliceLoop} driven by a shared
+ * {@link HashedTimerWheel}: when the next call of a slice is due, the wheel hands it to a small
+ * pool of poll threads, which calls Metabase, delivers the batch, commits the cursor and puts the
+ * slice back on the wheel for the interval given by its {@link PollScheduler}, counted from the
+ * start of the call. The calls of a slice never overlap, the calls of different slices run in
+ * parallel up to the number of poll threads, and a slice whose handler fails stops on its own.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class ProfileHarvester<A> {
+
+    public static final int DEFAULT_POLL_THREADS = 4;
+
+    private final BatchFetcher<A> fetcher;
+
+    private final BatchHandler<A> handler;
+
+    private final CheckpointStore checkpointStore;
+
+    private final Function<Slice, ? extends PollScheduler> schedulers;
+
+    private final int pollThreads;
+
+    private final List<ScheduledPoll> polls = new ArrayList<>();
+
+    /**
+     * @param schedulers the scheduler of each slice, built from the pacing of its profile
+     * @param pollThreads the number of threads calling Metabase
+     */
+    public ProfileHarvester(BatchFetcher<A> fetcher, BatchHandler<A> handler, CheckpointStore checkpointStore,
+            Function<Slice, ? extends PollScheduler> schedulers, int pollThreads) {
+        this.fetcher = fetcher;
+        this.handler = handler;
+        this.checkpointStore = checkpointStore;
+        this.schedulers = schedulers;
+        this.pollThreads = pollThreads;
+    }
+
+    /**
+     * Schedules the first call of every slice and blocks until every slice has stopped.
+     *
+     * @param startCursors the sequenceId each slice starts from, null values meaning the latest articles
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the slices
+     */
+    public void harvest(Map<Slice, Long> startCursors) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(pollThreads, new PollThreadFactory());
+        CountDownLatch stopped = new CountDownLatch(startCursors.size());
+        try (HashedTimerWheel wheel = new HashedTimerWheel("poll-timer", HashedTimerWheel.DEFAULT_TICK_MILLIS,
+                HashedTimerWheel.DEFAULT_WHEEL_SIZE, executor)) {
+            for (Map.Entry<Slice, Long> entry : startCursors.entrySet()) {
+                SliceLoop<A> loop = new SliceLoop<>(entry.getKey(), entry.getValue(), fetcher, handler, checkpointStore,
+                        schedulers.apply(entry.getKey()));
+                ScheduledPoll poll = new ScheduledPoll(loop, wheel, stopped);
+                polls.add(poll);
+                poll.schedule(loop.initialDelay());
+            }
+            stopped.await();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Stops every slice, right away when it is waiting for its next call, once its call in
+     * progress is delivered otherwise.
+     */
+    public void stop() {
+        for (ScheduledPoll poll : polls) {
+            poll.stop();
+        }
+    }
+
+    public List<SliceLoop<A>> getLoops() {
+        List<SliceLoop<A>> loops = new ArrayList<>();
+        for (ScheduledPoll poll : polls) {
+            loops.add(poll.loop);
+        }
+        return loops;
+    }
+
+    /**
+     * The next call of a slice, waiting on the wheel or running on a poll thread. Whoever moves it
+     * from waiting to done, the stop or the poll thread, counts the slice as stopped.
+     */
+    private class ScheduledPoll implements Runnable {
+
+        private static final int WAITING = 0;
+
+        private static final int RUNNING = 1;
+
+        private static final int DONE = 2;
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private final SliceLoop<A> loop;
+
+        private final HashedTimerWheel wheel;
+
+        private final CountDownLatch stopped;
+
+        private volatile HashedTimerWheel.Timeout timeout;
+
+        private ScheduledPoll(SliceLoop<A> loop, HashedTimerWheel wheel, CountDownLatch stopped) {
+            this.loop = loop;
+            this.wheel = wheel;
+            this.stopped = stopped;
+        }
+
+        @Override
+        public void run() {
+            if (!state.compareAndSet(WAITING, RUNNING)) {
+                return;
+            }
+            long startTime = System.currentTimeMillis();
+            long interval;
+            try {
+                interval = loop.isStopping() ? 0 : loop.poll();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Poll loop of " + loop.getSlice() + " stopped");
+                e.printStackTrace();
+                finish();
+                return;
+            }
+            if (loop.isStopping()) {
+                finish();
+                return;
+            }
+            state.set(WAITING);
+            schedule(startTime + interval - System.currentTimeMillis());
+            if (loop.isStopping() && state.compareAndSet(WAITING, DONE)) {
+                timeout.cancel();
+                stopped.countDown();
+            }
+        }
+
+        private void schedule(long delayMillis) {
+            timeout = wheel.schedule(this, delayMillis);
+        }
+
+        private void stop() {
+            loop.stop();
+            if (state.compareAndSet(WAITING, DONE)) {
+                HashedTimerWheel.Timeout waiting = timeout;
+                if (waiting != null) {
+                    waiting.cancel();
+                }
+                stopped.countDown();
+            }
+        }
+
+        private void finish() {
+            state.set(DONE);
+            stopped.countDown();
+        }
+
+    }
+
+    private static class PollThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "poll-" + count.getAndIncrement());
+        }
+    }
+
+}
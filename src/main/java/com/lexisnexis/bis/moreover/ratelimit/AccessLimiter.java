@@ -0,0 +1,149 @@
+package com.lexisnexis.bis.moreover.ratelimit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.lexisnexis.bis.moreover.harvest.Slice;
+import com.lexisnexis.bis.moreover.metrics.HarvestMetrics;
+
+/**
+ * Holds back the calls to Metabase so that no key is called more often than the access limit,
+ * whatever the slices, threads and processes calling it.
+ * <p/>
+ * Metabase counts the access limit per key, across the slices of the key, between the times the
+ * calls reach it. So each key has a {@link TokenBucket} letting a call go one access limit plus a
+ * margin after the previous call of the key went. Counting from the time the calls are sent rather
+ * than from the time they end packs the calls as tightly as the limit allows, however long they
+ * take. The margin covers a call reaching Metabase later after being sent than the next one, the
+ * first call of a connection which has to connect first for instance. A call waits for its time
+ * instead of being denied by Metabase and losing a whole poll. With <i>perSlice</i> each slice of a
+ * key has a bucket of its own, for the keys whose limit Metabase counts per slice.
+ * <p/>
+ * With a {@link SharedAccessTable}, the call then reserves its time in the file shared by the
+ * processes of the host, not before the time the bucket of the process let it go, and waits for
+ * the later of the two: the bucket of the process orders the calls of its threads without touching
+ * the file, the shared one keeps the processes pulling the same key, a node restarted before the
+ * previous one exited or several jobs on one key, within the limit.
+ * <p/>
+ * The time each call waited is recorded by the metrics.
+ */
+public class AccessLimiter implements Closeable {
+
+    public static final long DEFAULT_ACCESS_LIMIT_MILLIS = 20000;
+
+    public static final long DEFAULT_MARGIN_MILLIS = 250;
+
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long accessLimitMillis;
+
+    private final long marginMillis;
+
+    private final boolean perSlice;
+
+    private final SharedAccessTable sharedTable;
+
+    private final HarvestMetrics metrics;
+
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param accessLimitMillis the shortest time between two calls of a key, as counted by Metabase
+     * @param marginMillis the time added to the access limit between the sending of two calls
+     * @param perSlice whether the calls are limited per slice rather than per key
+     * @param sharedTable the table shared with the other processes of the host, or null
+     * @param metrics the metrics recording the waits, or null
+     */
+    public AccessLimiter(long accessLimitMillis, long marginMillis, boolean perSlice, SharedAccessTable sharedTable,
+            HarvestMetrics metrics) {
+        if (accessLimitMillis < 1 || marginMillis < 0) {
+            throw new IllegalArgumentException("The access limit must be positive and its margin not negative, not "
+                    + accessLimitMillis + " and " + marginMillis);
+        }
+        this.accessLimitMillis = accessLimitMillis;
+        this.marginMillis = marginMillis;
+        this.perSlice = perSlice;
+        this.sharedTable = sharedTable;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Waits until the slice may be called, and counts the access limit of its key from now on.
+     *
+     * @param slice the slice about to be called
+     * @throws InterruptedIOException if the calling thread is interrupted while waiting
+     * @throws IOException if the shared table cannot be updated
+     */
+    public void acquire(Slice slice) throws IOException {
+        long startTime = System.nanoTime();
+        String bucketKey = bucketKey(slice);
+        long intervalMillis = accessLimitMillis + marginMillis;
+        long deadline = buckets.computeIfAbsent(bucketKey,
+                key -> new TokenBucket(TimeUnit.MILLISECONDS.toNanos(intervalMillis))).take(startTime);
+
+        if (sharedTable != null) {
+            long nowNanos = System.nanoTime();
+            long nowMillis = System.currentTimeMillis();
+            long notBeforeMillis = nowMillis + Math.max(0, (deadline - nowNanos + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI);
+            long grantedMillis = sharedTable.take(bucketKey, notBeforeMillis, intervalMillis);
+            long sharedDeadline = nowNanos + (grantedMillis - nowMillis) * NANOS_PER_MILLI;
+            if (sharedDeadline - deadline > 0) {
+                deadline = sharedDeadline;
+            }
+        }
+
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the access limit of " + slice);
+            }
+        }
+        long waitedNanos = System.nanoTime() - startTime;
+        if (metrics != null) {
+            metrics.recordAccessWait(waitedNanos, waitedNanos >= NANOS_PER_MILLI);
+        }
+    }
+
+    /**
+     * @return the name of the bucket of a slice, also hashed by the shared table
+     */
+    private String bucketKey(Slice slice) {
+        return perSlice && slice.isSliced() ?
+                slice.getKey() + "/" + slice.getSliceIndex() + "/" + slice.getNumberOfSlices() :
+                slice.getKey();
+    }
+
+    public long getAccessLimitMillis() {
+        return accessLimitMillis;
+    }
+
+    public long getMarginMillis() {
+        return marginMillis;
+    }
+
+    public boolean isPerSlice() {
+        return perSlice;
+    }
+
+    public SharedAccessTable getSharedTable() {
+        return sharedTable;
+    }
+
+    /**
+     * Closes the shared table, if any.
+     */
+    @Override
+    public void close() throws IOException {
+        if (sharedTable != null) {
+            sharedTable.close();
+        }
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.lexisnexis.bis.moreover.ratelimit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Token buckets of a single token kept in a memory-mapped file shared by the processes of a host,
+ * the cross-process tier of the {@link AccessLimiter}.
+ * <p/>
+ * The file holds a fixed table of {@link #SLOTS} slots, each the fingerprint of a key and the
+ * earliest time of its next call, see {@link TokenBucket}, in epoch milliseconds as every process
+ * reads the same clock. The keys themselves are never written. A key is found by linear probing
+ * from its fingerprint, and a slot whose next call is free to go is as good as free, so it is
+ * taken over by the next key needing a slot. Taking a token reads and writes one slot of the
+ * mapped file, no system call besides the lock: an
+ * exclusive lock on the header of the file makes it atomic across the processes, and a monitor
+ * per file across the threads of a process, file locks being held by the process. The file must be
+ * on a local filesystem, the mapped pages of a network filesystem are not shared between hosts.
+ */
+public class SharedAccessTable implements Closeable {
+
+    public static final int SLOTS = 4096;
+
+    private static final int MAGIC = 0x4d424154;
+
+    private static final int VERSION = 2;
+
+    private static final int HEADER_BYTES = 16;
+
+    /**
+     * a slot holds the fingerprint of its key and the earliest time of its next call
+     */
+    private static final int SLOT_BYTES = 16;
+
+    private static final int NEXT = 8;
+
+    private static final int FILE_BYTES = HEADER_BYTES + SLOTS * SLOT_BYTES;
+
+    /**
+     * File locks are held by the process, not the thread, so the tables of one process opened on the
+     * same file also synchronize on a shared monitor.
+     */
+    private static final ConcurrentMap<Path, Object> MONITORS = new ConcurrentHashMap<>();
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer table;
+
+    private final Object monitor;
+
+    private SharedAccessTable(Path file, FileChannel channel, MappedByteBuffer table) {
+        this.file = file;
+        this.channel = channel;
+        this.table = table;
+        this.monitor = MONITORS.computeIfAbsent(file, path -> new Object());
+    }
+
+    /**
+     * Opens the table of the given file, created empty if needed.
+     *
+     * @param file the file shared by the processes
+     * @return the opened table
+     * @throws IOException if the file cannot be created or mapped, or is not an access table
+     */
+    public static SharedAccessTable open(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer table;
+            FileLock lock = channel.lock(0, HEADER_BYTES, false);
+            try {
+                long size = channel.size();
+                if (size != 0 && size != FILE_BYTES) {
+                    throw new IOException("[" + file + "] is not an access table, its size is " + size);
+                }
+                table = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_BYTES);
+                if (size == 0) {
+                    table.putInt(0, MAGIC);
+                    table.putInt(4, VERSION);
+                    table.putInt(8, SLOTS);
+                } else if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION || table.getInt(8) != SLOTS) {
+                    throw new IOException("[" + file + "] is not an access table of version " + VERSION);
+                }
+            } finally {
+                lock.release();
+            }
+            return new SharedAccessTable(file.toRealPath(), channel, table);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes the token of the bucket of a key, reserving the time of the call, see {@link TokenBucket#take(long)}.
+     *
+     * @param key the key
+     * @param notBeforeMillis the earliest time the call may go, the grant of the in-process tier
+     * @param intervalMillis the shortest time between the start of a call and the start of the next one
+     * @return the time at which the call may go, notBeforeMillis or later
+     * @throws IOException if the table cannot be locked, or every slot holds a bucket in use
+     */
+    public long take(String key, long notBeforeMillis, long intervalMillis) throws IOException {
+        synchronized (monitor) {
+            FileLock lock = channel.lock(0, HEADER_BYTES, false);
+            try {
+                int offset = offset(key);
+                long granted = Math.max(table.getLong(offset + NEXT), notBeforeMillis);
+                table.putLong(offset + NEXT, granted + intervalMillis);
+                return granted;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Finds the slot of a key, claiming one for a new key, while holding the lock of the table.
+     *
+     * @return the offset of the slot in the file
+     */
+    private int offset(String key) throws IOException {
+        long fingerprint = fingerprint(key);
+        int slot = find(fingerprint, System.currentTimeMillis());
+        if (slot < 0) {
+            throw new IOException("The " + SLOTS + " slots of the access table [" + file + "] are in use");
+        }
+        int offset = HEADER_BYTES + slot * SLOT_BYTES;
+        if (table.getLong(offset) != fingerprint) {
+            table.putLong(offset, fingerprint);
+            table.putLong(offset + NEXT, 0);
+        }
+        return offset;
+    }
+
+    /**
+     * @return the slot of the key, or the first slot on its probe which is free or whose next call
+     *         is free to go, or -1
+     */
+    private int find(long fingerprint, long nowMillis) {
+        int mask = SLOTS - 1;
+        int start = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+        int reusable = -1;
+        for (int i = 0; i < SLOTS; i++) {
+            int slot = (start + i) & mask;
+            int offset = HEADER_BYTES + slot * SLOT_BYTES;
+            long slotFingerprint = table.getLong(offset);
+            if (slotFingerprint == fingerprint) {
+                return slot;
+            }
+            if (slotFingerprint == 0) {
+                return reusable >= 0 ? reusable : slot;
+            }
+            if (reusable < 0 && table.getLong(offset + NEXT) <= nowMillis) {
+                reusable = slot;
+            }
+        }
+        return reusable;
+    }
+
+    /**
+     * @return the 64-bit FNV-1a hash of the key, never 0 which marks a free slot
+     */
+    static long fingerprint(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
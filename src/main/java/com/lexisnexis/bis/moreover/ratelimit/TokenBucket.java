@@ -0,0 +1,52 @@
+package com.lexisnexis.bis.moreover.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free bucket of a single token, the in-process tier of the {@link AccessLimiter}.
+ * <p/>
+ * Rather than counting its token the bucket keeps the earliest time of the next call, so that
+ * taking the token is a single compare and set. A call takes the token and is told when it may
+ * go, now if the bucket held the token, otherwise one interval after the previous call was let go.
+ * The interval is counted from the time each call goes, whatever the time the call then takes, so
+ * the calls of a bucket are packed one interval apart. Times are in nanoseconds of
+ * {@link System#nanoTime()}.
+ */
+public class TokenBucket {
+
+    private final long intervalNanos;
+
+    private final AtomicLong next;
+
+    /**
+     * @param intervalNanos the shortest time between the start of a call and the start of the next one
+     */
+    public TokenBucket(long intervalNanos) {
+        if (intervalNanos < 1) {
+            throw new IllegalArgumentException("The interval of a token bucket must be positive");
+        }
+        this.intervalNanos = intervalNanos;
+        this.next = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes the token, reserving the time of the call.
+     *
+     * @param nowNanos the current time
+     * @return the time at which the call may go, nowNanos or later
+     */
+    public long take(long nowNanos) {
+        while (true) {
+            long current = next.get();
+            long granted = current - nowNanos > 0 ? current : nowNanos;
+            if (next.compareAndSet(current, granted + intervalNanos)) {
+                return granted;
+            }
+        }
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+}
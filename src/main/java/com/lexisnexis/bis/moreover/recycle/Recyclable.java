@@ -0,0 +1,22 @@
+package com.lexisnexis.bis.moreover.recycle;
+
+/**
+ * An entity which can be reset and decoded into again instead of being left to the garbage
+ * collector, see {@link RecyclingPool}.
+ */
+public interface Recyclable {
+
+    /**
+     * Resets every field to the value of a new instance. The lists are emptied but kept, and the
+     * nested entities of a list are recycled in place, so that the next decoding into this
+     * instance reuses them instead of allocating its own.
+     */
+    void recycle();
+
+    /**
+     * Marks the instance as released to its pool: until it is recycled again, reading it throws
+     * an {@link IllegalStateException}.
+     */
+    void markReleased();
+
+}
@@ -0,0 +1,156 @@
+package com.lexisnexis.bis.moreover.recycle;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Pool of recycled entities, the articles the decoders of a slice fill instead of allocating new
+ * ones.
+ * <p/>
+ * The articles of a batch are acquired while the response is decoded and released all at once
+ * when the batch was handled and the sink flushed, see {@link #lease(List)}. A released article
+ * is recycled right away, so the Strings it referenced are not kept alive by the pool, and its
+ * lists and licenses are reused by the next article decoded into it. Up to <i>capacity</i>
+ * articles are kept, those released beyond that are left to the garbage collector, so the pool
+ * should hold the articles of every batch a slice may have in flight.
+ * <p/>
+ * Nothing prevents a sink from keeping an article past the flush, which would then change under
+ * it. In {@link Mode#CHECKED} mode the released articles are marked, so that reading one throws
+ * an {@link IllegalStateException} pointing at the faulty code, and reused in the order they were
+ * released, so that they stay marked as long as possible. The pool is safe to call from several
+ * threads, the fetching thread and the handling thread of a pipelined slice for instance.
+ *
+ * @param <T> the entity type
+ */
+public class RecyclingPool<T extends Recyclable> {
+
+    public enum Mode {
+        /**
+         * reuse the released articles, most recently released first
+         */
+        POOLED,
+        /**
+         * mark the released articles so that any use after release fails, and reuse them oldest first
+         */
+        CHECKED;
+
+        /**
+         * @param value <i>pooled</i> or <i>checked</i>
+         * @throws IllegalArgumentException if the value is not a mode
+         */
+        public static Mode parse(String value) {
+            return valueOf(value.toUpperCase());
+        }
+    }
+
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private final Supplier<T> factory;
+
+    private final int capacity;
+
+    private final Mode mode;
+
+    private final ArrayDeque<T> free;
+
+    private long acquired;
+
+    private long allocated;
+
+    public RecyclingPool(Supplier<T> factory, int capacity, Mode mode) {
+        this.factory = factory;
+        this.capacity = capacity;
+        this.mode = mode;
+        this.free = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * @return a recycled entity, taken from the pool or newly allocated
+     */
+    public T acquire() {
+        T entity;
+        synchronized (this) {
+            acquired++;
+            entity = mode == Mode.CHECKED ? free.pollLast() : free.pollFirst();
+            if (entity == null) {
+                allocated++;
+            }
+        }
+        if (entity == null) {
+            return factory.get();
+        }
+        if (mode == Mode.CHECKED) {
+            entity.recycle();
+        }
+        return entity;
+    }
+
+    /**
+     * @param entity an entity acquired from this pool, which must no longer be used
+     */
+    public void release(T entity) {
+        if (entity == null) {
+            return;
+        }
+        entity.recycle();
+        if (mode == Mode.CHECKED) {
+            entity.markReleased();
+        }
+        synchronized (this) {
+            if (free.size() < capacity) {
+                free.addFirst(entity);
+            }
+        }
+    }
+
+    /**
+     * @param entities entities acquired from this pool, which must no longer be used
+     */
+    public void release(List<? extends T> entities) {
+        for (int i = 0; i < entities.size(); i++) {
+            release(entities.get(i));
+        }
+    }
+
+    /**
+     * @param entities the entities of a batch
+     * @return the resource releasing the entities to this pool when the batch is released
+     */
+    public Closeable lease(List<? extends T> entities) {
+        return () -> release(entities);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int getPooled() {
+        return free.size();
+    }
+
+    public synchronized long getAcquired() {
+        return acquired;
+    }
+
+    /**
+     * @return the number of entities allocated because the pool was empty, a steadily growing count
+     *         means the pool is too small for the batches in flight
+     */
+    public synchronized long getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * @return the share of the acquisitions served by a recycled entity
+     */
+    public synchronized double getHitRate() {
+        return acquired > 0 ? (double) (acquired - allocated) / acquired : 0;
+    }
+
+}
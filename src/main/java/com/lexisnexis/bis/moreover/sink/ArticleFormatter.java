@@ -0,0 +1,25 @@
+package com.lexisnexis.bis.moreover.sink;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.lexisnexis.bis.moreover.harvest.Slice;
+
+/**
+ * Turns an article into text for the sinks writing to a character stream.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public interface ArticleFormatter<A> {
+
+    /**
+     * Appends the article to the given writer, which must neither be flushed nor closed.
+     *
+     * @param slice the slice the article was pulled from
+     * @param article the article
+     * @param out the writer
+     * @throws IOException if the article cannot be written
+     */
+    void format(Slice slice, A article, Writer out) throws IOException;
+
+}
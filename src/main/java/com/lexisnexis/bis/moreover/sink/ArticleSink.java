@@ -0,0 +1,37 @@
+package com.lexisnexis.bis.moreover.sink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+import com.lexisnexis.bis.moreover.harvest.Slice;
+
+/**
+ * Destination of the articles pulled from Metabase.
+ * <p/>
+ * Sinks receive whole batches and may buffer what they write: nothing is guaranteed to reach
+ * the destination before {@link #flush()}, which the harvester calls at every batch boundary.
+ * A single sink is shared by all the slices of a harvester, so implementations must be safe to
+ * call from several threads, and the articles of one call to {@link #write(Slice, List)} must
+ * not be interleaved with the articles of another. Articles must not be kept once flushed: the
+ * bodies of a batch may be held off the heap and released as soon as the batch was handled.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public interface ArticleSink<A> extends Closeable {
+
+    /**
+     * @param slice the slice the articles were pulled from
+     * @param articles the articles, in feed order
+     * @throws IOException if the articles cannot be written
+     */
+    void write(Slice slice, List<A> articles) throws IOException;
+
+    /**
+     * Makes every article written so far reach the destination.
+     *
+     * @throws IOException if the articles cannot be flushed
+     */
+    void flush() throws IOException;
+
+}
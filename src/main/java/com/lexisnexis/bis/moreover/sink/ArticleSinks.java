@@ -0,0 +1,64 @@
+package com.lexisnexis.bis.moreover.sink;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.lexisnexis.bis.moreover.archive.ArchiveArticleSink;
+import com.lexisnexis.bis.moreover.archive.ArticleCodec;
+import com.lexisnexis.bis.moreover.harvest.ArticleAdapter;
+
+/**
+ * Builds the sinks given on the command line.
+ * <p/>
+ * Each output is one of:
+ * <ul>
+ * <li><i>stdout</i>: prints the title, url, licenses and sequenceId of each article</li>
+ * <li><i>ndjson:file</i>: appends each article as a line of JSON to the file</li>
+ * <li><i>rotating:directory</i>: writes each article as a line of JSON to files of the directory, rolled over by size and age</li>
+ * <li><i>archive:directory</i>: appends each article to the binary archive of the directory, which can be replayed later</li>
+ * </ul>
+ * Several outputs are consumed in parallel.
+ */
+public final class ArticleSinks {
+
+    public static final String STDOUT = "stdout";
+    public static final String NDJSON_PREFIX = "ndjson:";
+    public static final String ROTATING_PREFIX = "rotating:";
+    public static final String ARCHIVE_PREFIX = "archive:";
+
+    private ArticleSinks() {
+    }
+
+    /**
+     * @param outputs the outputs, stdout when empty
+     * @param adapter the adapter of the feed format
+     * @param codec the archive codec of the feed format
+     * @return the sink writing to all the outputs
+     * @throws IOException if an output file cannot be opened
+     * @throws IllegalArgumentException if an output is not recognised
+     */
+    public static <A> ArticleSink<A> create(String[] outputs, ArticleAdapter<A> adapter, ArticleCodec<A> codec) throws IOException {
+        if (outputs == null || outputs.length == 0) {
+            return new StdoutArticleSink<>(new TextArticleFormatter<>(adapter));
+        }
+        List<ArticleSink<A>> sinks = new ArrayList<>();
+        for (String output : outputs) {
+            if (STDOUT.equals(output)) {
+                sinks.add(new StdoutArticleSink<>(new TextArticleFormatter<>(adapter)));
+            } else if (output.startsWith(NDJSON_PREFIX)) {
+                sinks.add(new NdjsonFileArticleSink<A>(Paths.get(output.substring(NDJSON_PREFIX.length()))));
+            } else if (output.startsWith(ROTATING_PREFIX)) {
+                sinks.add(new RotatingFileArticleSink<A>(Paths.get(output.substring(ROTATING_PREFIX.length()))));
+            } else if (output.startsWith(ARCHIVE_PREFIX)) {
+                sinks.add(new ArchiveArticleSink<>(Paths.get(output.substring(ARCHIVE_PREFIX.length())), adapter, codec));
+            } else {
+                throw new IllegalArgumentException("Unknown output [" + output + "], expected " + STDOUT + ", "
+                        + NDJSON_PREFIX + "file, " + ROTATING_PREFIX + "directory or " + ARCHIVE_PREFIX + "directory");
+            }
+        }
+        return sinks.size() == 1 ? sinks.get(0) : new FanOutArticleSink<>(sinks);
+    }
+
+}
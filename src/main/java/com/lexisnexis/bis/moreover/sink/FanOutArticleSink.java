@@ -0,0 +1,90 @@
+package com.lexisnexis.bis.moreover.sink;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.lexisnexis.bis.moreover.harvest.Slice;
+
+/**
+ * Sink handing every batch to several sinks, which consume it in parallel.
+ * <p/>
+ * Each call waits for all the sinks to be done with the batch, so a flush of the fan-out means
+ * every sink was flushed. The first failure of a sink is rethrown once all the sinks returned.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class FanOutArticleSink<A> implements ArticleSink<A> {
+
+    private final List<ArticleSink<A>> sinks;
+
+    private final ExecutorService executor;
+
+    public FanOutArticleSink(List<ArticleSink<A>> sinks) {
+        this.sinks = new ArrayList<>(sinks);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(sinks.size(), runnable -> {
+            Thread thread = new Thread(runnable, "article-sink-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void write(Slice slice, List<A> articles) throws IOException {
+        forEachSink(sink -> sink.write(slice, articles));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        forEachSink(ArticleSink::flush);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            forEachSink(ArticleSink::close);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void forEachSink(SinkOperation<A> operation) throws IOException {
+        List<Future<Void>> futures = new ArrayList<>(sinks.size());
+        for (ArticleSink<A> sink : sinks) {
+            futures.add(executor.submit(() -> {
+                operation.apply(sink);
+                return null;
+            }));
+        }
+        IOException failure = null;
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException ?
+                            (IOException) e.getCause() :
+                            new IOException("Article sink failed", e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the article sinks", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private interface SinkOperation<A> {
+
+        void apply(ArticleSink<A> sink) throws IOException;
+    }
+
+}
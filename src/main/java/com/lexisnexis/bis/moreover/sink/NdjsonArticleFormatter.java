@@ -0,0 +1,50 @@
+package com.lexisnexis.bis.moreover.sink;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializationConfig;
+import org.codehaus.jackson.node.ObjectNode;
+
+import com.lexisnexis.bis.moreover.harvest.Slice;
+
+/**
+ * Formats each article as one line of JSON (newline delimited JSON), dates being written in
+ * ISO 8601.
+ * <p/>
+ * The generator neither flushes nor closes the writer, so a batch of articles reaches the
+ * underlying stream in as few writes as its buffer allows. The articles of a profile harvested
+ * along with others start with a <i>profile</i> field holding the name of the profile.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class NdjsonArticleFormatter<A> implements ArticleFormatter<A> {
+
+    private final ObjectMapper mapper;
+
+    public NdjsonArticleFormatter() {
+        mapper = new ObjectMapper();
+        mapper.configure(SerializationConfig.Feature.FLUSH_AFTER_WRITE_VALUE, false);
+        mapper.configure(SerializationConfig.Feature.WRITE_DATES_AS_TIMESTAMPS, false);
+        mapper.getJsonFactory().configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        mapper.getJsonFactory().configure(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM, false);
+    }
+
+    @Override
+    public void format(Slice slice, A article, Writer out) throws IOException {
+        JsonGenerator generator = mapper.getJsonFactory().createJsonGenerator(out);
+        if (slice.getProfile() != null) {
+            ObjectNode tagged = mapper.createObjectNode();
+            tagged.put("profile", slice.getProfile());
+            tagged.putAll((ObjectNode) mapper.valueToTree(article));
+            mapper.writeTree(generator, tagged);
+        } else {
+            mapper.writeValue(generator, article);
+        }
+        generator.writeRaw('\n');
+        generator.close();
+    }
+
+}
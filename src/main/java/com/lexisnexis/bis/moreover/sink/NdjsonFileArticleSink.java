@@ -0,0 +1,24 @@
+package com.lexisnexis.bis.moreover.sink;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sink appending the articles to a single file, one JSON document per line.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class NdjsonFileArticleSink<A> extends WriterArticleSink<A> {
+
+    public NdjsonFileArticleSink(Path file) throws IOException {
+        super(new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND), StandardCharsets.UTF_8),
+                BUFFER_SIZE), new NdjsonArticleFormatter<A>());
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.lexisnexis.bis.moreover.sink;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.apache.commons.io.output.CountingOutputStream;
+
+/**
+ * Sink writing the articles as newline delimited JSON to a sequence of files in a directory.
+ * <p/>
+ * A new file is started once the current one holds <i>maxBytes</i> or was opened more than
+ * <i>maxAgeMillis</i> ago. Files are only rolled over on {@link #flush()}, so a batch is never
+ * split across two files. Files are named after the time they were opened,
+ * <i>articles-yyyyMMdd-HHmmss-SSS.ndjson</i>.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class RotatingFileArticleSink<A> extends WriterArticleSink<A> {
+
+    public static final long DEFAULT_MAX_BYTES = 128L * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_AGE_MILLIS = 60L * 60 * 1000;
+
+    private static final String FILE_PREFIX = "articles-";
+    private static final String FILE_SUFFIX = ".ndjson";
+
+    private final Path directory;
+
+    private final long maxBytes;
+
+    private final long maxAgeMillis;
+
+    private CountingOutputStream counter;
+
+    private long openedMillis;
+
+    public RotatingFileArticleSink(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES, DEFAULT_MAX_AGE_MILLIS);
+    }
+
+    public RotatingFileArticleSink(Path directory, long maxBytes, long maxAgeMillis) throws IOException {
+        super(null, new NdjsonArticleFormatter<A>());
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        Files.createDirectories(directory);
+        setWriter(openNextFile());
+    }
+
+    /**
+     * Flushes the current file and rolls over to a new one if needed. The batches written meanwhile
+     * are only held back while the file is replaced, the previous file being closed outside the lock.
+     */
+    @Override
+    public void flush() throws IOException {
+        Writer previous;
+        synchronized (this) {
+            super.flush();
+            if (counter.getByteCount() < maxBytes && System.currentTimeMillis() - openedMillis < maxAgeMillis) {
+                return;
+            }
+            previous = getWriter();
+            setWriter(openNextFile());
+        }
+        previous.close();
+    }
+
+    private Writer openNextFile() throws IOException {
+        openedMillis = System.currentTimeMillis();
+        String name = FILE_PREFIX + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date(openedMillis));
+        Path file = directory.resolve(name + FILE_SUFFIX);
+        for (int i = 1; Files.exists(file); i++) {
+            file = directory.resolve(name + "-" + i + FILE_SUFFIX);
+        }
+        counter = new CountingOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+        return new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+}
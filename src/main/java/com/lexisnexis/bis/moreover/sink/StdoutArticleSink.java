@@ -0,0 +1,34 @@
+package com.lexisnexis.bis.moreover.sink;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sink printing the articles on the standard output.
+ * <p/>
+ * Instead of going through the synchronized {@link System#out} print stream for every line, the
+ * articles of a batch are formatted into a private buffer which is written to the standard output
+ * at the batch boundary.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class StdoutArticleSink<A> extends WriterArticleSink<A> {
+
+    public StdoutArticleSink(ArticleFormatter<A> formatter) {
+        super(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8),
+                BUFFER_SIZE), formatter);
+    }
+
+    /**
+     * Flushes the standard output, which is never closed.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+}
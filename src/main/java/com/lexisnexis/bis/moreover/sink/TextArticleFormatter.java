@@ -0,0 +1,49 @@
+package com.lexisnexis.bis.moreover.sink;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleAdapter;
+import com.lexisnexis.bis.moreover.harvest.Slice;
+
+/**
+ * Formats each article's title, click url, the names of all licenses the article contains
+ * and its sequenceId, one per line, followed by an empty line. The articles of a profile
+ * harvested along with others are tagged with the name of the profile first.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class TextArticleFormatter<A> implements ArticleFormatter<A> {
+
+    private final ArticleAdapter<A> adapter;
+
+    public TextArticleFormatter(ArticleAdapter<A> adapter) {
+        this.adapter = adapter;
+    }
+
+    @Override
+    public void format(Slice slice, A article, Writer out) throws IOException {
+        if (slice.getProfile() != null) {
+            out.write("PROFILE: ");
+            out.write(slice.getProfile());
+            out.write('\n');
+        }
+        out.write("TITLE: ");
+        out.write(String.valueOf(adapter.getTitle(article)));
+        out.write("\nURL: ");
+        out.write(String.valueOf(adapter.getUrl(article)));
+        out.write("\nLICENSES: [");
+        List<String> licenses = adapter.getLicenseNames(article);
+        for (int i = 0; i < licenses.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(String.valueOf(licenses.get(i)));
+        }
+        out.write("]\nSEQUENCE ID: ");
+        out.write(String.valueOf(adapter.getSequenceId(article)));
+        out.write("\n\n");
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.lexisnexis.bis.moreover.sink;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import com.lexisnexis.bis.moreover.harvest.Slice;
+
+/**
+ * Sink formatting the articles to a buffered character stream, which is only flushed at
+ * batch boundaries.
+ * <p/>
+ * Each batch is formatted into a buffer of its own, outside the lock of the sink, so the threads
+ * writing to one sink format their batches in parallel and only take turns to append them.
+ *
+ * @param <A> the article type of the feed format (JSON or XML)
+ */
+public class WriterArticleSink<A> implements ArticleSink<A> {
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ArticleFormatter<A> formatter;
+
+    private Writer out;
+
+    public WriterArticleSink(Writer out, ArticleFormatter<A> formatter) {
+        this.out = out;
+        this.formatter = formatter;
+    }
+
+    @Override
+    public void write(Slice slice, List<A> articles) throws IOException {
+        CharArrayWriter batch = new CharArrayWriter(articles.size() * 1024);
+        for (A article : articles) {
+            formatter.format(slice, article, batch);
+        }
+        synchronized (this) {
+            batch.writeTo(out);
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    protected Writer getWriter() {
+        return out;
+    }
+
+    /**
+     * Replaces the writer, the caller is responsible for closing the previous one.
+     */
+    protected void setWriter(Writer out) {
+        this.out = out;
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.lexisnexis.bis.moreover.stub;
+
+import java.util.List;
+
+/**
+ * The articles served by the stand-in server, in sequenceId order.
+ */
+public interface Corpus {
+
+    /**
+     * @param sequenceId the sequenceId of the last article received by the caller, or null for the latest articles
+     * @param limit the maximum number of articles to return
+     * @param numberOfSlices the number of slices of the feed, or 0 when the caller is not sliced
+     * @param sliceNumber the slice of the caller, from 0 to numberOfSlices - 1
+     * @return the next articles of the slice, in sequenceId order
+     */
+    List<CorpusArticle> next(Long sequenceId, int limit, int numberOfSlices, int sliceNumber);
+
+}
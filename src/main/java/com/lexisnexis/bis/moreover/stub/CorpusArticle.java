@@ -0,0 +1,44 @@
+package com.lexisnexis.bis.moreover.stub;
+
+import java.util.Map;
+
+/**
+ * An article served by the stand-in server, held independently of the format it is served in.
+ * <p/>
+ * The fields are kept in the order of a Metabase response. Their values are strings, numbers,
+ * booleans, lists of values, or maps for nested objects such as a license or the source.
+ */
+public class CorpusArticle {
+
+    private final long sequenceId;
+
+    private final long id;
+
+    private final Map<String, Object> fields;
+
+    public CorpusArticle(long sequenceId, long id, Map<String, Object> fields) {
+        this.sequenceId = sequenceId;
+        this.id = id;
+        this.fields = fields;
+    }
+
+    public long getSequenceId() {
+        return sequenceId;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return whether the article belongs to the given slice, articles are spread over the slices by id
+     */
+    public boolean isInSlice(int numberOfSlices, int sliceNumber) {
+        return Math.floorMod(id, numberOfSlices) == sliceNumber;
+    }
+
+}
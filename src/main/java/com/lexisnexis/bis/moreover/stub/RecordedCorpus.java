@@ -0,0 +1,122 @@
+package com.lexisnexis.bis.moreover.stub;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * The articles of Metabase responses recorded in JSON.
+ * <p/>
+ * Every file of the directory is read as a JSON response, gzipped when its name ends with .gz,
+ * as saved from a call with <i>format=json</i>. The articles of all the files are served in
+ * sequenceId order, each article once even when it was recorded several times. The recorded
+ * fields are served as they are, in both formats.
+ */
+public class RecordedCorpus implements Corpus {
+
+    private final List<CorpusArticle> articles;
+
+    private RecordedCorpus(List<CorpusArticle> articles) {
+        this.articles = articles;
+    }
+
+    /**
+     * @param directory the directory of the recorded responses
+     * @return the corpus of the recorded articles
+     * @throws IOException if a response cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    public static RecordedCorpus load(Path directory) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<CorpusArticle> articles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (!Files.isRegularFile(file)) {
+                    continue;
+                }
+                try (InputStream in = file.toString().endsWith(".gz") ?
+                        new GZIPInputStream(Files.newInputStream(file)) :
+                        Files.newInputStream(file)) {
+                    Map<String, Object> response = mapper.readValue(in, Map.class);
+                    List<Map<String, Object>> recorded = (List<Map<String, Object>>) response.get("articles");
+                    if (recorded == null) {
+                        continue;
+                    }
+                    for (Map<String, Object> fields : recorded) {
+                        articles.add(new CorpusArticle(toLong(fields.get("sequenceId")), toLong(fields.get("id")), fields));
+                    }
+                } catch (RuntimeException e) {
+                    throw new IOException("Invalid recorded response " + file, e);
+                }
+            }
+        }
+
+        Collections.sort(articles, Comparator.comparingLong(CorpusArticle::getSequenceId));
+        List<CorpusArticle> unique = new ArrayList<>(articles.size());
+        for (CorpusArticle article : articles) {
+            if (unique.isEmpty() || unique.get(unique.size() - 1).getSequenceId() != article.getSequenceId()) {
+                unique.add(article);
+            }
+        }
+        return new RecordedCorpus(unique);
+    }
+
+    @Override
+    public List<CorpusArticle> next(Long sequenceId, int limit, int numberOfSlices, int sliceNumber) {
+        int position;
+        if (sequenceId != null) {
+            position = firstAfter(sequenceId);
+        } else {
+            position = Math.max(0, articles.size() - limit * Math.max(1, numberOfSlices));
+        }
+
+        List<CorpusArticle> next = new ArrayList<>();
+        for (; position < articles.size() && next.size() < limit; position++) {
+            CorpusArticle article = articles.get(position);
+            if (numberOfSlices > 0 && !article.isInSlice(numberOfSlices, sliceNumber)) {
+                continue;
+            }
+            next.add(article);
+        }
+        return next;
+    }
+
+    public int size() {
+        return articles.size();
+    }
+
+    /**
+     * @return the position of the first article whose sequenceId is above the given one
+     */
+    private int firstAfter(long sequenceId) {
+        int low = 0;
+        int high = articles.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (articles.get(middle).getSequenceId() <= sequenceId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.parseLong(String.valueOf(value));
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.lexisnexis.bis.moreover.stub;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Writes the responses of the stand-in server in the JSON or the XML format of Metabase.
+ * <p/>
+ * In XML each field of an article is an element. A list of values is written as one element per
+ * value named after the field, as the <i>outboundUrls</i> of the Metabase entities, and a list of
+ * objects is wrapped in an element named after the field holding one element per object named
+ * after the singular of the field, as the <i>licenses</i>. Empty lists are left out.
+ */
+public class ResponseRenderer {
+
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILURE = "FAILURE";
+
+    private final ObjectMapper mapper;
+
+    private final XMLOutputFactory xmlOutputFactory;
+
+    public ResponseRenderer() {
+        this.mapper = new ObjectMapper();
+        this.mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        this.xmlOutputFactory = XMLOutputFactory.newInstance();
+    }
+
+    /**
+     * @param json whether to write JSON, XML otherwise
+     * @param status the status of the call
+     * @param messageCode the message code of a failure, or null
+     * @param message the message of a failure, or null
+     * @param articles the articles returned
+     * @param out the stream the response is written to, left open
+     */
+    public void render(boolean json, String status, String messageCode, String message,
+            List<CorpusArticle> articles, OutputStream out) throws IOException {
+        if (json) {
+            renderJson(status, messageCode, message, articles, out);
+        } else {
+            try {
+                renderXml(status, messageCode, message, articles, out);
+            } catch (XMLStreamException e) {
+                throw new IOException("Unable to write the XML response", e);
+            }
+        }
+    }
+
+    private void renderJson(String status, String messageCode, String message,
+            List<CorpusArticle> articles, OutputStream out) throws IOException {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", status);
+        if (messageCode != null) {
+            response.put("messageCode", messageCode);
+            response.put("userMessage", message);
+            response.put("developerMessage", message);
+        }
+        List<Map<String, Object>> fields = new ArrayList<>(articles.size());
+        for (CorpusArticle article : articles) {
+            fields.add(article.getFields());
+        }
+        response.put("articles", fields);
+        mapper.writeValue(out, response);
+    }
+
+    private void renderXml(String status, String messageCode, String message,
+            List<CorpusArticle> articles, OutputStream out) throws XMLStreamException {
+        XMLStreamWriter writer = xmlOutputFactory.createXMLStreamWriter(out, "UTF-8");
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeStartElement("response");
+        writeElement(writer, "status", status);
+        if (messageCode != null) {
+            writeElement(writer, "messageCode", messageCode);
+            writeElement(writer, "userMessage", message);
+            writeElement(writer, "developerMessage", message);
+        }
+        writer.writeStartElement("articles");
+        for (CorpusArticle article : articles) {
+            writer.writeStartElement("article");
+            writeFields(writer, article.getFields());
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+        writer.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeFields(XMLStreamWriter writer, Map<String, Object> fields) throws XMLStreamException {
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            String name = field.getKey();
+            Object value = field.getValue();
+            if (value instanceof Map) {
+                writer.writeStartElement(name);
+                writeFields(writer, (Map<String, Object>) value);
+                writer.writeEndElement();
+            } else if (value instanceof List) {
+                List<Object> values = (List<Object>) value;
+                if (values.isEmpty()) {
+                    continue;
+                }
+                if (values.get(0) instanceof Map) {
+                    writer.writeStartElement(name);
+                    for (Object item : values) {
+                        writer.writeStartElement(singular(name));
+                        writeFields(writer, (Map<String, Object>) item);
+                        writer.writeEndElement();
+                    }
+                    writer.writeEndElement();
+                } else {
+                    for (Object item : values) {
+                        writeElement(writer, name, String.valueOf(item));
+                    }
+                }
+            } else if (value != null) {
+                writeElement(writer, name, String.valueOf(value));
+            }
+        }
+    }
+
+    private static void writeElement(XMLStreamWriter writer, String name, String text) throws XMLStreamException {
+        writer.writeStartElement(name);
+        if (text != null) {
+            writer.writeCharacters(text);
+        }
+        writer.writeEndElement();
+    }
+
+    private static String singular(String name) {
+        return name.endsWith("s") ? name.substring(0, name.length() - 1) : name;
+    }
+
+}
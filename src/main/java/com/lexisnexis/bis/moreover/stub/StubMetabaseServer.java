@@ -0,0 +1,473 @@
+package com.lexisnexis.bis.moreover.stub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stand-in for the v10 articles API of Metabase, to run the clients offline and under
+ * reproducible conditions.
+ * <p/>
+ * The server answers <i>/api/v10/articles</i> from a {@link Corpus}, either a {@link SyntheticCorpus}
+ * or a {@link RecordedCorpus}, and honours the <i>key</i>, <i>sequence_id</i>, <i>limit</i>,
+ * <i>number_of_slices</i>, <i>slice_number</i> and <i>format=json</i> parameters. Responses are
+ * gzipped when the call accepts it. Like Metabase it enforces the access limit between two calls
+ * of the same key and slice, answering a FAILURE status to calls coming too early.
+ * <p/>
+ * To reproduce slow or faulty conditions the server can add latency before each response, throttle
+ * the bandwidth of the responses, answer FAILURE statuses at random, and cut responses at random
+ * half way through their body before closing the connection.
+ * <p/>
+ * Point a client at the server with its <i>endpoint</i> parameter, e.g.
+ * <i>--endpoint http://localhost:8080/api/v10/articles</i>.
+ */
+public class StubMetabaseServer implements Closeable {
+
+    public static final String ARTICLES_PATH = "/api/v10/articles";
+
+    public static final int DEFAULT_PORT = 8080;
+
+    public static final long DEFAULT_ACCESS_LIMIT_MILLIS = 20000;
+
+    public static final long DEFAULT_BACKLOG = 5000;
+
+    public static final double DEFAULT_ARTICLES_PER_SECOND = 10;
+
+    public static final String ACCESS_LIMIT_CODE = "ACCESS_LIMIT";
+    public static final String MISSING_KEY_CODE = "MISSING_KEY";
+    public static final String INVALID_PARAMETER_CODE = "INVALID_PARAMETER";
+    public static final String INJECTED_FAILURE_CODE = "INJECTED_FAILURE";
+
+    private static final int MAX_LIMIT = 500;
+
+    /**
+     * constants used for the menu
+     */
+    private static final String PORT_OPTION = "port";
+    private static final String RECORDED_DIR_OPTION = "recordedDir";
+    private static final String BACKLOG_OPTION = "backlog";
+    private static final String ARTICLES_PER_SECOND_OPTION = "articlesPerSecond";
+    private static final String SEED_OPTION = "seed";
+    private static final String LATENCY_MILLIS_OPTION = "latencyMillis";
+    private static final String BYTES_PER_SECOND_OPTION = "bytesPerSecond";
+    private static final String ACCESS_LIMIT_MILLIS_OPTION = "accessLimitMillis";
+    private static final String FAILURE_RATE_OPTION = "failureRate";
+    private static final String TRUNCATE_RATE_OPTION = "truncateRate";
+
+    private final Corpus corpus;
+
+    private final ResponseRenderer renderer = new ResponseRenderer();
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final Map<String, Long> lastCalls = new ConcurrentHashMap<>();
+
+    private final Random random;
+
+    private long latencyMillis;
+
+    private long bytesPerSecond;
+
+    private long accessLimitMillis = DEFAULT_ACCESS_LIMIT_MILLIS;
+
+    private double failureRate;
+
+    private double truncateRate;
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder denied = new LongAdder();
+
+    private final LongAdder injectedFailures = new LongAdder();
+
+    private final LongAdder truncated = new LongAdder();
+
+    private final LongAdder articlesServed = new LongAdder();
+
+    /**
+     * Creates the server, which starts answering once {@link #start()} is called.
+     *
+     * @param port the port to listen to, 0 for any free port
+     * @param corpus the articles to serve
+     * @param seed the seed of the injected faults
+     * @throws IOException if the port cannot be bound
+     */
+    public StubMetabaseServer(int port, Corpus corpus, long seed) throws IOException {
+        this.corpus = corpus;
+        this.random = new Random(seed);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-metabase-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(executor);
+        this.server.createContext(ARTICLES_PATH, this::handle);
+    }
+
+    public static void main(String[] args) throws IOException {
+        CommandLine commandLine = parseArgumentsGivenAsParameters(args);
+
+        long seed = commandLine.getOptionValue(SEED_OPTION) != null ?
+                Long.parseLong(commandLine.getOptionValue(SEED_OPTION)) :
+                0;
+        Corpus corpus;
+        if (commandLine.getOptionValue(RECORDED_DIR_OPTION) != null) {
+            RecordedCorpus recorded = RecordedCorpus.load(Paths.get(commandLine.getOptionValue(RECORDED_DIR_OPTION)));
+            System.out.println("Serving " + recorded.size() + " recorded article(s)");
+            corpus = recorded;
+        } else {
+            long backlog = commandLine.getOptionValue(BACKLOG_OPTION) != null ?
+                    Long.parseLong(commandLine.getOptionValue(BACKLOG_OPTION)) :
+                    DEFAULT_BACKLOG;
+            double articlesPerSecond = commandLine.getOptionValue(ARTICLES_PER_SECOND_OPTION) != null ?
+                    Double.parseDouble(commandLine.getOptionValue(ARTICLES_PER_SECOND_OPTION)) :
+                    DEFAULT_ARTICLES_PER_SECOND;
+            System.out.println("Serving a synthetic feed of " + backlog + " article(s) then " + articlesPerSecond + " article(s) per second");
+            corpus = new SyntheticCorpus(seed, backlog, articlesPerSecond);
+        }
+
+        int port = commandLine.getOptionValue(PORT_OPTION) != null ?
+                Integer.parseInt(commandLine.getOptionValue(PORT_OPTION)) :
+                DEFAULT_PORT;
+        final StubMetabaseServer server = new StubMetabaseServer(port, corpus, seed);
+        if (commandLine.getOptionValue(LATENCY_MILLIS_OPTION) != null) {
+            server.setLatencyMillis(Long.parseLong(commandLine.getOptionValue(LATENCY_MILLIS_OPTION)));
+        }
+        if (commandLine.getOptionValue(BYTES_PER_SECOND_OPTION) != null) {
+            server.setBytesPerSecond(Long.parseLong(commandLine.getOptionValue(BYTES_PER_SECOND_OPTION)));
+        }
+        if (commandLine.getOptionValue(ACCESS_LIMIT_MILLIS_OPTION) != null) {
+            server.setAccessLimitMillis(Long.parseLong(commandLine.getOptionValue(ACCESS_LIMIT_MILLIS_OPTION)));
+        }
+        if (commandLine.getOptionValue(FAILURE_RATE_OPTION) != null) {
+            server.setFailureRate(Double.parseDouble(commandLine.getOptionValue(FAILURE_RATE_OPTION)));
+        }
+        if (commandLine.getOptionValue(TRUNCATE_RATE_OPTION) != null) {
+            server.setTruncateRate(Double.parseDouble(commandLine.getOptionValue(TRUNCATE_RATE_OPTION)));
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println(server.getCalls() + " call(s), " + server.getDenied() + " denied by the access limit, "
+                    + server.getInjectedFailures() + " injected failure(s), " + server.getTruncated() + " truncated, "
+                    + server.getArticlesServed() + " article(s) served");
+        }));
+        server.start();
+        System.out.println("Listening on " + server.getEndpoint());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return the port the server listens to
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the endpoint to give to the clients
+     */
+    public String getEndpoint() {
+        return "http://localhost:" + getPort() + ARTICLES_PATH;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            calls.increment();
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            boolean json = "json".equalsIgnoreCase(parameters.get("format"));
+
+            String key = parameters.get("key");
+            if (key == null || key.isEmpty()) {
+                fail(exchange, json, MISSING_KEY_CODE, "The key parameter is required");
+                return;
+            }
+
+            Long sequenceId;
+            int limit;
+            int numberOfSlices = 0;
+            int sliceNumber = 0;
+            try {
+                sequenceId = parameters.get("sequence_id") != null ? Long.parseLong(parameters.get("sequence_id")) : null;
+                limit = parameters.get("limit") != null ? Integer.parseInt(parameters.get("limit")) : MAX_LIMIT;
+                if (parameters.get("number_of_slices") != null && parameters.get("slice_number") != null) {
+                    numberOfSlices = Integer.parseInt(parameters.get("number_of_slices"));
+                    sliceNumber = Integer.parseInt(parameters.get("slice_number"));
+                }
+            } catch (NumberFormatException e) {
+                fail(exchange, json, INVALID_PARAMETER_CODE, "Invalid number " + e.getMessage());
+                return;
+            }
+            if (limit < 1 || limit > MAX_LIMIT) {
+                limit = MAX_LIMIT;
+            }
+            if (numberOfSlices < 0 || sliceNumber < 0 || (numberOfSlices > 0 && sliceNumber >= numberOfSlices)) {
+                fail(exchange, json, INVALID_PARAMETER_CODE, "slice_number must be between 0 and number_of_slices - 1");
+                return;
+            }
+
+            if (!acquireAccess(key + "/" + numberOfSlices + "/" + sliceNumber)) {
+                denied.increment();
+                fail(exchange, json, ACCESS_LIMIT_CODE, "Calls must be at least " + accessLimitMillis + " ms apart");
+                return;
+            }
+            if (failureRate > 0 && random.nextDouble() < failureRate) {
+                injectedFailures.increment();
+                fail(exchange, json, INJECTED_FAILURE_CODE, "Failure injected by the stand-in server");
+                return;
+            }
+
+            List<CorpusArticle> articles = corpus.next(sequenceId, limit, numberOfSlices, sliceNumber);
+            articlesServed.add(articles.size());
+            respond(exchange, json, ResponseRenderer.SUCCESS, null, null, articles);
+        } catch (IOException | RuntimeException e) {
+            /**
+             * Mostly the client going away in the middle of a response.
+             */
+            System.err.println("Unable to answer " + exchange.getRequestURI() + ": " + e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Records the call of a caller if its previous call was long enough ago.
+     *
+     * @return whether the call is allowed
+     */
+    private boolean acquireAccess(String caller) {
+        if (accessLimitMillis <= 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        boolean[] allowed = new boolean[1];
+        lastCalls.compute(caller, (c, lastCall) -> {
+            allowed[0] = lastCall == null || now - lastCall >= accessLimitMillis;
+            return allowed[0] ? now : lastCall;
+        });
+        return allowed[0];
+    }
+
+    private void fail(HttpExchange exchange, boolean json, String messageCode, String message) throws IOException {
+        respond(exchange, json, ResponseRenderer.FAILURE, messageCode, message, Collections.<CorpusArticle>emptyList());
+    }
+
+    private void respond(HttpExchange exchange, boolean json, String status, String messageCode, String message,
+            List<CorpusArticle> articles) throws IOException {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(buffer) : buffer) {
+            renderer.render(json, status, messageCode, message, articles, out);
+        }
+        byte[] body = buffer.toByteArray();
+
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", json ? "application/json;charset=UTF-8" : "application/xml;charset=UTF-8");
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, body.length);
+
+        int length = body.length;
+        if (truncateRate > 0 && random.nextDouble() < truncateRate) {
+            /**
+             * Closing the exchange before the announced length was written closes the connection.
+             */
+            truncated.increment();
+            length = body.length / 2;
+        }
+        OutputStream out = bytesPerSecond > 0 ?
+                new ThrottledOutputStream(exchange.getResponseBody(), bytesPerSecond) :
+                exchange.getResponseBody();
+        out.write(body, 0, length);
+        out.flush();
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static CommandLine parseArgumentsGivenAsParameters(String[] args) {
+        Options options = createOptionForMenu();
+
+        CommandLineParser parser = new DefaultParser();
+        CommandLine commandLine = null;
+        try {
+            commandLine = parser.parse(options, args);
+        } catch (ParseException e) {
+            System.out.println(getHelpDescription());
+            System.exit(1);
+        }
+
+        return commandLine;
+    }
+
+    private static Options createOptionForMenu() {
+        Options options = new Options();
+        options.addOption(new Option("p", PORT_OPTION, true, null));
+        options.addOption(new Option("r", RECORDED_DIR_OPTION, true, null));
+        options.addOption(new Option("b", BACKLOG_OPTION, true, null));
+        options.addOption(new Option("a", ARTICLES_PER_SECOND_OPTION, true, null));
+        options.addOption(new Option("s", SEED_OPTION, true, null));
+        options.addOption(new Option("l", LATENCY_MILLIS_OPTION, true, null));
+        options.addOption(new Option("w", BYTES_PER_SECOND_OPTION, true, null));
+        options.addOption(new Option("c", ACCESS_LIMIT_MILLIS_OPTION, true, null));
+        options.addOption(new Option("f", FAILURE_RATE_OPTION, true, null));
+        options.addOption(new Option("t", TRUNCATE_RATE_OPTION, true, null));
+        return options;
+    }
+
+    private static String getHelpDescription() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Usage commands: ");
+        builder.append("\n\n");
+        builder.append("-p | --port").append("\t\t\t").append("port to listen to (default 8080)");
+        builder.append("\n");
+        builder.append("-r | --recordedDir").append("\t\t").append("directory of recorded JSON responses to serve instead of a synthetic feed");
+        builder.append("\n");
+        builder.append("-b | --backlog").append("\t\t\t").append("number of synthetic articles available on startup (default 5000)");
+        builder.append("\n");
+        builder.append("-a | --articlesPerSecond").append("\t").append("number of synthetic articles published every second (default 10)");
+        builder.append("\n");
+        builder.append("-s | --seed").append("\t\t\t").append("seed of the synthetic articles and of the injected faults (default 0)");
+        builder.append("\n");
+        builder.append("-l | --latencyMillis").append("\t\t").append("latency added before each response in milliseconds (default 0)");
+        builder.append("\n");
+        builder.append("-w | --bytesPerSecond").append("\t\t").append("bandwidth of each response in bytes per second (default unlimited)");
+        builder.append("\n");
+        builder.append("-c | --accessLimitMillis").append("\t").append("shortest time between 2 calls of a key and slice, 0 to disable (default 20000)");
+        builder.append("\n");
+        builder.append("-f | --failureRate").append("\t\t").append("share of calls answered with a FAILURE status, from 0 to 1 (default 0)");
+        builder.append("\n");
+        builder.append("-t | --truncateRate").append("\t\t").append("share of responses cut half way through their body, from 0 to 1 (default 0)");
+        builder.append("\n");
+
+        return builder.toString();
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * @param bytesPerSecond the bandwidth of each response, 0 for unlimited
+     */
+    public void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public long getAccessLimitMillis() {
+        return accessLimitMillis;
+    }
+
+    /**
+     * @param accessLimitMillis the shortest time between two calls of a key and slice, 0 to disable the limit
+     */
+    public void setAccessLimitMillis(long accessLimitMillis) {
+        this.accessLimitMillis = accessLimitMillis;
+    }
+
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public double getTruncateRate() {
+        return truncateRate;
+    }
+
+    public void setTruncateRate(double truncateRate) {
+        this.truncateRate = truncateRate;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getDenied() {
+        return denied.sum();
+    }
+
+    public long getInjectedFailures() {
+        return injectedFailures.sum();
+    }
+
+    public long getTruncated() {
+        return truncated.sum();
+    }
+
+    public long getArticlesServed() {
+        return articlesServed.sum();
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.lexisnexis.bis.moreover.stub;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * A live feed of generated articles.
+ * <p/>
+ * The feed starts with a backlog of articles and then publishes <i>articlesPerSecond</i> new
+ * articles every second, so that a client can both catch up and keep up with it. Articles are not
+ * stored: the article at a given position of the feed is generated from that position and the
+ * seed, so the same article is served with the same content on every call and by every server
+ * started with the same seed. Texts are made of words drawn from a fixed vocabulary and urls point
+ * to example.com.
+ */
+public class SyntheticCorpus implements Corpus {
+
+    public static final long BASE_SEQUENCE_ID = 100000000L;
+
+    private static final String[] WORDS = {
+        "market", "shares", "report", "company", "growth", "quarter", "investors", "analysts",
+        "said", "the", "a", "of", "to", "in", "and", "for", "on", "with", "new", "year",
+        "percent", "billion", "government", "policy", "energy", "technology", "according", "data",
+        "customers", "service", "announced", "expected", "sales", "rate", "results", "week",
+        "officials", "city", "plans", "industry", "global", "local", "team", "season", "price"
+    };
+
+    private static final String[] LICENSES = { "Licensed Publisher", "Premium Content", "Print Partner" };
+
+    private final long seed;
+
+    private final long backlog;
+
+    private final double articlesPerSecond;
+
+    private final long startTime;
+
+    /**
+     * @param seed the seed of the generated content
+     * @param backlog the number of articles available when the server starts
+     * @param articlesPerSecond the number of articles published every second afterwards
+     */
+    public SyntheticCorpus(long seed, long backlog, double articlesPerSecond) {
+        this.seed = seed;
+        this.backlog = backlog;
+        this.articlesPerSecond = articlesPerSecond;
+        this.startTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public List<CorpusArticle> next(Long sequenceId, int limit, int numberOfSlices, int sliceNumber) {
+        long available = available();
+
+        /**
+         * Without a sequenceId the latest articles are returned.
+         */
+        long position = sequenceId != null ?
+                Math.max(0, sequenceId - BASE_SEQUENCE_ID + 1) :
+                Math.max(0, available - (long) limit * Math.max(1, numberOfSlices));
+
+        List<CorpusArticle> articles = new ArrayList<>();
+        for (; position < available && articles.size() < limit; position++) {
+            if (numberOfSlices > 0 && Math.floorMod(articleId(position), numberOfSlices) != sliceNumber) {
+                continue;
+            }
+            articles.add(article(position));
+        }
+        return articles;
+    }
+
+    /**
+     * @return the number of articles published so far
+     */
+    public long available() {
+        return backlog + (long) ((System.currentTimeMillis() - startTime) / 1000.0 * articlesPerSecond);
+    }
+
+    private long articleId(long position) {
+        return 27000000000L + Math.floorMod(mix(seed ^ position), 1000000000L);
+    }
+
+    /**
+     * Generates the article at the given position of the feed.
+     */
+    CorpusArticle article(long position) {
+        Random random = new Random(mix(seed + position));
+        long id = articleId(position);
+        long sequenceId = BASE_SEQUENCE_ID + position;
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        long harvestTime = startTime + (long) ((position - backlog) / Math.max(articlesPerSecond, 0.001) * 1000);
+
+        String title = capitalize(words(random, 6 + random.nextInt(8)));
+        List<String> paragraphs = new ArrayList<>();
+        int paragraphCount = 3 + random.nextInt(10);
+        for (int p = 0; p < paragraphCount; p++) {
+            paragraphs.add(capitalize(words(random, 30 + random.nextInt(60))) + ".");
+        }
+
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("sequenceId", String.valueOf(sequenceId));
+        fields.put("id", String.valueOf(id));
+        fields.put("language", "English");
+        fields.put("languageCode", "en");
+        fields.put("title", title);
+        fields.put("content", String.join("\n\n", paragraphs));
+        fields.put("contentWithMarkup", "<p>" + String.join("</p><p>", paragraphs) + "</p>");
+        fields.put("extract", paragraphs.get(0));
+        fields.put("publishedDate", dateFormat.format(new Date(harvestTime - random.nextInt(3600000))));
+        fields.put("harvestDate", dateFormat.format(new Date(harvestTime)));
+        fields.put("url", "http://www.example.com/news/" + id + "/" + title.toLowerCase().replace(' ', '-'));
+        List<String> outboundUrls = new ArrayList<>();
+        int outboundCount = random.nextInt(4);
+        for (int o = 0; o < outboundCount; o++) {
+            outboundUrls.add("http://link" + o + ".example.com/" + random.nextInt(100000));
+        }
+        fields.put("outboundUrls", outboundUrls);
+        fields.put("dataFormat", "text");
+        fields.put("copyright", "Copyright Example Media");
+        fields.put("loginStatus", "NO_LOGIN_REQUIRED");
+
+        /**
+         * About one article in ten is a duplicate of one of the previous hundred articles.
+         */
+        long duplicateGroupId = id;
+        if (position > 0 && random.nextInt(10) == 0) {
+            duplicateGroupId = articleId(Math.max(0, position - 1 - random.nextInt(100)));
+        }
+        fields.put("duplicateGroupId", String.valueOf(duplicateGroupId));
+        fields.put("adultLanguage", "false");
+        if (random.nextInt(5) == 0) {
+            Map<String, Object> license = new LinkedHashMap<>();
+            license.put("name", LICENSES[random.nextInt(LICENSES.length)]);
+            fields.put("licenses", Collections.singletonList(license));
+        } else {
+            fields.put("licenses", Collections.emptyList());
+        }
+        Map<String, Object> source = new LinkedHashMap<>();
+        source.put("id", String.valueOf(id % 100000));
+        source.put("name", "Source " + random.nextInt(5000));
+        source.put("homeUrl", "http://www.example.com");
+        source.put("category", "Local");
+        fields.put("source", source);
+
+        return new CorpusArticle(sequenceId, id, fields);
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static String capitalize(String text) {
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+
+    /**
+     * Spreads consecutive positions over unrelated values (the finalizer of SplitMix64).
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.lexisnexis.bis.moreover.stub;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * Writes to the underlying stream at no more than a given number of bytes per second, to
+ * reproduce a slow link.
+ * <p/>
+ * Bytes are written in chunks of a tenth of a second worth of bandwidth, each chunk waiting until
+ * the time at which the bytes before it would have been sent.
+ */
+public class ThrottledOutputStream extends FilterOutputStream {
+
+    private final long bytesPerSecond;
+
+    private final int chunkSize;
+
+    private final long startTime;
+
+    private long written;
+
+    public ThrottledOutputStream(OutputStream out, long bytesPerSecond) {
+        super(out);
+        this.bytesPerSecond = bytesPerSecond;
+        this.chunkSize = (int) Math.max(1, Math.min(64 * 1024, bytesPerSecond / 10));
+        this.startTime = System.nanoTime();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int chunk = Math.min(len, chunkSize);
+            pace();
+            out.write(b, off, chunk);
+            written += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    private void pace() throws IOException {
+        long dueNanos = startTime + written * 1000000000L / bytesPerSecond;
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            out.flush();
+            try {
+                Thread.sleep(waitNanos / 1000000, (int) (waitNanos % 1000000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttling the response");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.lexisnexis.bis.moreover.time;
+
+/**
+ * Parses and formats the timestamps of the Metabase responses, <i>2016-07-31T21:00:14Z</i>,
+ * as epoch milliseconds without allocating.
+ * <p/>
+ * The parser reads ISO 8601 date-times with seconds, an optional fraction of a second and either a
+ * <i>Z</i> or a numeric offset, <i>+01:00</i> or <i>+0100</i>, straight from the characters of a
+ * token. The date is turned into a day number with integer arithmetic instead of going through a
+ * Calendar. Anything else is rejected with an IllegalArgumentException, so that callers can fall
+ * back to a general parser.
+ */
+public final class MetabaseTimestamps {
+
+    /**
+     * Marks a missing timestamp in a primitive field.
+     */
+    public static final long NONE = Long.MIN_VALUE;
+
+    private static final int MAX_LENGTH = 40;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[MAX_LENGTH]);
+
+    private MetabaseTimestamps() {
+    }
+
+    /**
+     * @param text the timestamp
+     * @return the timestamp in epoch milliseconds
+     * @throws IllegalArgumentException if the text is not a timestamp of the supported form
+     */
+    public static long parse(CharSequence text) {
+        int length = text.length();
+        if (length > MAX_LENGTH) {
+            throw invalid(text);
+        }
+        char[] chars = SCRATCH.get();
+        for (int i = 0; i < length; i++) {
+            chars[i] = text.charAt(i);
+        }
+        long millis = parse(chars, 0, length);
+        if (millis == NONE) {
+            throw invalid(text);
+        }
+        return millis;
+    }
+
+    /**
+     * @param chars the characters holding the timestamp, e.g. the text buffer of a JSON parser
+     * @param offset the index of the first character of the timestamp
+     * @param length the number of characters of the timestamp
+     * @return the timestamp in epoch milliseconds, or {@link #NONE} if the characters are not a
+     *         timestamp of the supported form
+     */
+    public static long parse(char[] chars, int offset, int length) {
+        int end = offset + length;
+        if (length < 20 || chars[offset + 4] != '-' || chars[offset + 7] != '-'
+                || (chars[offset + 10] != 'T' && chars[offset + 10] != 't')
+                || chars[offset + 13] != ':' || chars[offset + 16] != ':') {
+            return NONE;
+        }
+        int year = digits(chars, offset, 4);
+        int month = digits(chars, offset + 5, 2);
+        int day = digits(chars, offset + 8, 2);
+        int hour = digits(chars, offset + 11, 2);
+        int minute = digits(chars, offset + 14, 2);
+        int second = digits(chars, offset + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return NONE;
+        }
+
+        int position = offset + 19;
+        int millis = 0;
+        if (chars[position] == '.') {
+            position++;
+            int fractionStart = position;
+            int scale = 100;
+            while (position < end && chars[position] >= '0' && chars[position] <= '9') {
+                millis += (chars[position] - '0') * scale;
+                scale /= 10;
+                position++;
+            }
+            if (position == fractionStart) {
+                return NONE;
+            }
+        }
+
+        int offsetMinutes;
+        int zoneLength = end - position;
+        if (zoneLength == 1 && (chars[position] == 'Z' || chars[position] == 'z')) {
+            offsetMinutes = 0;
+        } else if ((zoneLength == 6 && chars[position + 3] == ':') || zoneLength == 5) {
+            int sign = chars[position] == '+' ? 1 : chars[position] == '-' ? -1 : 0;
+            int offsetHours = digits(chars, position + 1, 2);
+            int offsetMinutesOfHour = digits(chars, position + zoneLength - 2, 2);
+            if (sign == 0 || offsetHours < 0 || offsetHours > 18 || offsetMinutesOfHour < 0 || offsetMinutesOfHour > 59) {
+                return NONE;
+            }
+            offsetMinutes = sign * (offsetHours * 60 + offsetMinutesOfHour);
+        } else {
+            return NONE;
+        }
+
+        long seconds = epochDay(year, month, day) * 86400L + hour * 3600 + minute * 60 + second - offsetMinutes * 60L;
+        return seconds * 1000 + millis;
+    }
+
+    /**
+     * Formats a timestamp in UTC, <i>2016-07-31T21:00:14Z</i>, with milliseconds only when there are some.
+     *
+     * @param millis the timestamp in epoch milliseconds
+     * @return the formatted timestamp
+     */
+    public static String format(long millis) {
+        StringBuilder builder = new StringBuilder(24);
+        formatTo(millis, builder);
+        return builder.toString();
+    }
+
+    public static void formatTo(long millis, StringBuilder out) {
+        long epochDay = Math.floorDiv(millis, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(millis, MILLIS_PER_DAY);
+
+        /**
+         * Inverse of epochDay, counting in eras of 400 years starting on March 1st.
+         */
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        pad(out, year, 4).append('-');
+        pad(out, month, 2).append('-');
+        pad(out, day, 2).append('T');
+        pad(out, millisOfDay / 3600000, 2).append(':');
+        pad(out, millisOfDay / 60000 % 60, 2).append(':');
+        pad(out, millisOfDay / 1000 % 60, 2);
+        if (millisOfDay % 1000 != 0) {
+            pad(out.append('.'), millisOfDay % 1000, 3);
+        }
+        out.append('Z');
+    }
+
+    /**
+     * @return the number of days from 1970-01-01 to the given date of the proleptic Gregorian calendar
+     */
+    static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * @return the value of the decimal digits, or -1 if one of the characters is not a digit
+     */
+    private static int digits(char[] chars, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static StringBuilder pad(StringBuilder out, long value, int width) {
+        String digits = Long.toString(value);
+        for (int i = digits.length(); i < width; i++) {
+            out.append('0');
+        }
+        return out.append(digits);
+    }
+
+    private static IllegalArgumentException invalid(CharSequence text) {
+        return new IllegalArgumentException("Not a Metabase timestamp [" + text + "]");
+    }
+
+}
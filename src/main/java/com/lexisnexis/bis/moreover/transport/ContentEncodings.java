@@ -0,0 +1,64 @@
+package com.lexisnexis.bis.moreover.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * The content encodings understood by the transport.
+ * <p/>
+ * Metabase compresses its responses with gzip when asked to, but nothing guarantees it does for
+ * every response, error pages from a proxy for instance are usually sent as they are. The body is
+ * therefore decoded from the <i>Content-Encoding</i> header of each response instead of being
+ * assumed to be gzipped. Gzipped bodies are inflated with the pooled inflaters of an
+ * {@link InflaterPool}.
+ */
+public final class ContentEncodings {
+
+    public static final String GZIP = "gzip";
+    public static final String X_GZIP = "x-gzip";
+    public static final String IDENTITY = "identity";
+
+    /**
+     * the value of the <i>Accept-Encoding</i> header of every call
+     */
+    public static final String ACCEPT_ENCODING = GZIP + ", " + IDENTITY;
+
+    private ContentEncodings() {
+    }
+
+    /**
+     * Wraps the body of a response so that it reads the uncompressed content.
+     *
+     * @param response the response
+     * @param inflaterPool the pool of the inflaters of gzipped bodies
+     * @return the uncompressed body, read from the connection as it is consumed
+     * @throws IOException if the body cannot be read or its content encoding is not supported
+     */
+    public static InputStream decode(ClientHttpResponse response, InflaterPool inflaterPool) throws IOException {
+        return decode(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING), response.getBody(), inflaterPool);
+    }
+
+    /**
+     * Wraps a body so that it reads the uncompressed content.
+     *
+     * @param contentEncoding the <i>Content-Encoding</i> header of the response, or null
+     * @param body the body as received
+     * @param inflaterPool the pool of the inflaters of gzipped bodies
+     * @return the uncompressed body, closing it gives its inflater back to the pool
+     * @throws IOException if the body cannot be read or its content encoding is not supported
+     */
+    public static InputStream decode(String contentEncoding, InputStream body, InflaterPool inflaterPool) throws IOException {
+        if (contentEncoding == null || contentEncoding.trim().isEmpty()
+                || IDENTITY.equalsIgnoreCase(contentEncoding.trim())) {
+            return body;
+        }
+        if (GZIP.equalsIgnoreCase(contentEncoding.trim()) || X_GZIP.equalsIgnoreCase(contentEncoding.trim())) {
+            return inflaterPool.inflate(body);
+        }
+        throw new IOException("Unsupported Content-Encoding [" + contentEncoding + "]");
+    }
+
+}
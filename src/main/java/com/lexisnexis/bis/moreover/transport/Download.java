@@ -0,0 +1,42 @@
+package com.lexisnexis.bis.moreover.transport;
+
+/**
+ * The body of a Metabase response read from the connection but not decoded yet, still compressed
+ * as it was received, see {@link MetabaseTransport#download(String)}.
+ */
+public class Download {
+
+    private final byte[] body;
+
+    private final String contentEncoding;
+
+    private final long transferNanos;
+
+    Download(byte[] body, String contentEncoding, long transferNanos) {
+        this.body = body;
+        this.contentEncoding = contentEncoding;
+        this.transferNanos = transferNanos;
+    }
+
+    /**
+     * @return the body as received
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return the Content-Encoding of the body, or null
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * @return the time spent reading the body from the connection
+     */
+    public long getTransferNanos() {
+        return transferNanos;
+    }
+
+}
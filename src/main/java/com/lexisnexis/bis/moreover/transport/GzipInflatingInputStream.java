@@ -0,0 +1,253 @@
+package com.lexisnexis.bis.moreover.transport;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import com.lexisnexis.bis.moreover.transport.InflaterPool.PooledInflater;
+
+/**
+ * Reads the uncompressed content of a gzipped stream with a pooled inflater, see {@link InflaterPool}.
+ * <p/>
+ * The gzip framing (RFC 1952) is parsed here and the inflater only sees the raw deflate data: the
+ * header with its optional extra field, file name, comment and header checksum, then the trailer
+ * whose CRC-32 and size are checked against the inflated content. Like <i>GZIPInputStream</i>,
+ * concatenated members are read as one stream and anything following the last member which does
+ * not start like a gzip header is ignored. The content is inflated straight into the buffer of the
+ * caller, the buffer of the parser reading the response, without going through a buffer of its own.
+ */
+final class GzipInflatingInputStream extends InputStream {
+
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+    private static final int DEFLATE = 8;
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final InputStream in;
+
+    private final InflaterPool pool;
+
+    private PooledInflater pooled;
+
+    private final Inflater inflater;
+
+    private final CRC32 crc;
+
+    private final byte[] buffer;
+
+    /**
+     * the bytes of the buffer not handed to the inflater yet, from position to limit
+     */
+    private int position;
+
+    private int limit;
+
+    private boolean eof;
+
+    private byte[] single;
+
+    GzipInflatingInputStream(InputStream in, InflaterPool pool) throws IOException {
+        this.in = in;
+        this.pool = pool;
+        this.pooled = pool.acquire();
+        this.inflater = pooled.inflater;
+        this.crc = pooled.crc;
+        this.buffer = pooled.buffer;
+        try {
+            readHeader(true);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (single == null) {
+            single = new byte[1];
+        }
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (pooled == null) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (!eof) {
+            int inflated;
+            try {
+                inflated = inflater.inflate(b, off, len);
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage() != null ? e.getMessage() : "Invalid deflate data");
+            }
+            if (inflated > 0) {
+                crc.update(b, off, inflated);
+                return inflated;
+            }
+            if (inflater.finished()) {
+                position = limit - inflater.getRemaining();
+                readTrailer();
+                eof = !readHeader(false);
+            } else if (inflater.needsDictionary()) {
+                throw new ZipException("Unexpected preset dictionary in the gzip stream");
+            } else if (inflater.needsInput()) {
+                if (position == limit) {
+                    fill();
+                }
+                inflater.setInput(buffer, position, limit - position);
+                position = limit;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Like <i>InflaterInputStream</i>, the content is not known to be at its end before it is.
+     */
+    @Override
+    public int available() throws IOException {
+        if (pooled == null) {
+            throw new IOException("Stream closed");
+        }
+        return eof ? 0 : 1;
+    }
+
+    /**
+     * Gives the inflater back to the pool and closes the gzipped stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (pooled != null) {
+            PooledInflater released = pooled;
+            pooled = null;
+            pool.release(released);
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the header of a member and readies the inflater for its data.
+     *
+     * @param first whether the member is the first one, the end of the stream or anything else
+     *        than a gzip header ending the content after the first one
+     * @return false if there is no further member
+     */
+    private boolean readHeader(boolean first) throws IOException {
+        if (!first) {
+            if (position == limit && !tryFill()) {
+                return false;
+            }
+            if ((buffer[position] & 0xff) != GZIP_MAGIC_1) {
+                return false;
+            }
+        }
+        crc.reset();
+        int magic1 = readHeaderByte();
+        int magic2 = readHeaderByte();
+        if (magic1 != GZIP_MAGIC_1 || magic2 != GZIP_MAGIC_2) {
+            if (first) {
+                throw new ZipException("Not in GZIP format");
+            }
+            return false;
+        }
+        if (readHeaderByte() != DEFLATE) {
+            throw new ZipException("Unsupported compression method in the gzip header");
+        }
+        int flags = readHeaderByte();
+
+        /**
+         * modification time, extra flags and operating system
+         */
+        for (int i = 0; i < 6; i++) {
+            readHeaderByte();
+        }
+        if ((flags & FEXTRA) != 0) {
+            int length = readHeaderByte() | readHeaderByte() << 8;
+            for (int i = 0; i < length; i++) {
+                readHeaderByte();
+            }
+        }
+        if ((flags & FNAME) != 0) {
+            while (readHeaderByte() != 0) {
+                // skip the zero terminated file name
+            }
+        }
+        if ((flags & FCOMMENT) != 0) {
+            while (readHeaderByte() != 0) {
+                // skip the zero terminated comment
+            }
+        }
+        if ((flags & FHCRC) != 0) {
+            int expected = (int) crc.getValue() & 0xffff;
+            if ((readByte() | readByte() << 8) != expected) {
+                throw new ZipException("Corrupt GZIP header");
+            }
+        }
+        crc.reset();
+        inflater.reset();
+        return true;
+    }
+
+    /**
+     * Checks the CRC-32 and the size, modulo 2^32, of the inflated member.
+     */
+    private void readTrailer() throws IOException {
+        long expectedCrc = readInt();
+        long expectedSize = readInt();
+        if (expectedCrc != crc.getValue() || expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+    }
+
+    private long readInt() throws IOException {
+        return (readByte() | readByte() << 8 | readByte() << 16 | (long) readByte() << 24) & 0xffffffffL;
+    }
+
+    private int readHeaderByte() throws IOException {
+        int b = readByte();
+        crc.update(b);
+        return b;
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit) {
+            fill();
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    private void fill() throws IOException {
+        if (!tryFill()) {
+            throw new EOFException("Unexpected end of the gzip stream");
+        }
+    }
+
+    /**
+     * @return false at the end of the gzipped stream
+     */
+    private boolean tryFill() throws IOException {
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.lexisnexis.bis.moreover.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+
+/**
+ * Pool of the inflaters, and of their input buffers, the gzipped responses are inflated with.
+ * <p/>
+ * A <i>GZIPInputStream</i> creates an {@link Inflater} and its buffers for every response, and
+ * the native memory of the inflater is only freed when the stream is closed, or when the inflater
+ * is finalized if it never is. The streams of {@link #inflate(InputStream)} instead take an
+ * inflater from the pool and give it back, reset, when they are closed, so that each poll loop
+ * keeps reusing the same one. Up to <i>maxPooled</i> inflaters are kept, one per poll loop is
+ * enough, those released beyond that and those of a closed pool are ended right away. The pool
+ * is shared by the slices and safe to call from several threads.
+ */
+public class InflaterPool implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final int maxPooled;
+
+    private final int bufferSize;
+
+    private final ConcurrentLinkedQueue<PooledInflater> inflaters = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    private final AtomicInteger inUse = new AtomicInteger();
+
+    private final LongAdder created = new LongAdder();
+
+    private volatile boolean closed;
+
+    public InflaterPool(int maxPooled) {
+        this(maxPooled, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param maxPooled the number of inflaters kept for reuse, the number of poll loops
+     * @param bufferSize the size of the buffer the compressed bytes are read into
+     */
+    public InflaterPool(int maxPooled, int bufferSize) {
+        this.maxPooled = maxPooled;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Wraps a gzipped stream so that it reads the uncompressed content. The gzip header is read
+     * before returning, closing the returned stream closes the gzipped one and gives the inflater
+     * back to the pool.
+     *
+     * @param gzipped the gzipped stream
+     * @return the uncompressed stream
+     * @throws IOException if the header cannot be read or is not a gzip header
+     */
+    public InputStream inflate(InputStream gzipped) throws IOException {
+        return new GzipInflatingInputStream(gzipped, this);
+    }
+
+    PooledInflater acquire() {
+        inUse.incrementAndGet();
+        PooledInflater inflater = inflaters.poll();
+        if (inflater != null) {
+            pooled.decrementAndGet();
+            return inflater;
+        }
+        created.increment();
+        return new PooledInflater(bufferSize);
+    }
+
+    void release(PooledInflater inflater) {
+        inUse.decrementAndGet();
+        inflater.inflater.reset();
+        inflater.crc.reset();
+        if (!closed) {
+            if (pooled.incrementAndGet() <= maxPooled) {
+                inflaters.offer(inflater);
+                /**
+                 * The pool may have been closed while the inflater was offered.
+                 */
+                if (closed) {
+                    endPooled();
+                }
+                return;
+            }
+            pooled.decrementAndGet();
+        }
+        inflater.inflater.end();
+    }
+
+    /**
+     * @return the number of inflaters held by open streams
+     */
+    public int getInUse() {
+        return inUse.get();
+    }
+
+    public int getPooled() {
+        return pooled.get();
+    }
+
+    /**
+     * @return the number of inflaters created since the pool was created, a steadily growing count
+     *         means the pool is too small for the calls in flight
+     */
+    public long getCreated() {
+        return created.sum();
+    }
+
+    /**
+     * Ends the pooled inflaters, those of the streams still open are ended when they are closed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        endPooled();
+    }
+
+    private void endPooled() {
+        PooledInflater inflater;
+        while ((inflater = inflaters.poll()) != null) {
+            pooled.decrementAndGet();
+            inflater.inflater.end();
+        }
+    }
+
+    /**
+     * An inflater of raw deflate data, the gzip framing being parsed by the stream, with the buffer
+     * its input is read into and the checksum of its output.
+     */
+    static final class PooledInflater {
+
+        final Inflater inflater = new Inflater(true);
+
+        final CRC32 crc = new CRC32();
+
+        final byte[] buffer;
+
+        PooledInflater(int bufferSize) {
+            this.buffer = new byte[bufferSize];
+        }
+    }
+
+}
@@ -0,0 +1,266 @@
+package com.lexisnexis.bis.moreover.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import com.lexisnexis.bis.moreover.metrics.HarvestMetrics;
+
+/**
+ * The HTTP transport shared by the poll loops of all slices.
+ * <p/>
+ * The {@link RestTemplate} runs on a pool of keep-alive connections, so consecutive calls of a
+ * slice reuse the same connection instead of opening a new one for every call. The pool holds
+ * at most one connection per poll loop. Connections idle for longer than the keep-alive given by
+ * the server, or than {@link #MAX_IDLE_MILLIS}, are closed in the background, and a pooled
+ * connection is checked before being reused after a pause.
+ * <p/>
+ * Every call has a connect timeout and a read timeout, so a server which stops answering fails
+ * the call instead of freezing the poll loop. Calls ask for a gzipped response, and the body is
+ * handed to the decoder as a stream uncompressed according to its <i>Content-Encoding</i>, see
+ * {@link ContentEncodings}, by an inflater of the pool of the transport which each call gives back
+ * once its body is decoded.
+ * <p/>
+ * A call can also be split in two, see {@link #download(String)}: the body is read from the
+ * connection as it was received, which frees the connection, and decoded later on another thread.
+ */
+public class MetabaseTransport implements Closeable {
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 60000;
+
+    public static final long MAX_IDLE_MILLIS = 5 * 60 * 1000;
+
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 2000;
+
+    private final CloseableHttpClient httpClient;
+
+    private final RestTemplate restTemplate;
+
+    private final HarvestMetrics metrics;
+
+    private final InflaterPool inflaterPool;
+
+    /**
+     * @param maxConnections the size of the connection pool, the number of poll loops
+     * @param connectTimeoutMillis the longest wait for a connection to be established
+     * @param readTimeoutMillis the longest wait for data on an established connection
+     */
+    public MetabaseTransport(int maxConnections, int connectTimeoutMillis, int readTimeoutMillis) {
+        this(maxConnections, connectTimeoutMillis, readTimeoutMillis, null);
+    }
+
+    /**
+     * @param maxConnections the size of the connection pool, the number of poll loops
+     * @param connectTimeoutMillis the longest wait for a connection to be established
+     * @param readTimeoutMillis the longest wait for data on an established connection
+     * @param metrics the metrics recording the stages of each call, or null
+     */
+    public MetabaseTransport(int maxConnections, int connectTimeoutMillis, int readTimeoutMillis, HarvestMetrics metrics) {
+        this.metrics = metrics;
+        this.inflaterPool = new InflaterPool(maxConnections);
+        if (metrics != null) {
+            metrics.registerInflaterPool(inflaterPool);
+        }
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+
+        /**
+         * The content encoding is negotiated here rather than by HttpClient, which would otherwise
+         * inflate the body itself and drop the Content-Encoding header.
+         */
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeoutMillis)
+                        .setConnectionRequestTimeout(connectTimeoutMillis)
+                        .setSocketTimeout(readTimeoutMillis)
+                        .build())
+                .disableContentCompression()
+                .evictExpiredConnections()
+                .evictIdleConnections(MAX_IDLE_MILLIS, TimeUnit.MILLISECONDS)
+                .build();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        this.restTemplate = new RestTemplate(requestFactory);
+    }
+
+    /**
+     * Calls the given url and decodes the body of the response while it is read.
+     *
+     * @param url the url to call
+     * @param decoder the decoder of the uncompressed body
+     * @return the decoded response
+     * @throws IOException if the call fails, times out, answers an error status, or the body cannot be decoded
+     */
+    public <T> T get(String url, ResponseBodyDecoder<T> decoder) throws IOException {
+        final long startTime = System.nanoTime();
+        return execute(url, response -> {
+            if (metrics == null) {
+                try (InputStream body = ContentEncodings.decode(response, inflaterPool)) {
+                    return decoder.decode(body);
+                }
+            }
+            return decodeMetered(response, decoder, startTime);
+        });
+    }
+
+    /**
+     * Calls the given url and reads the body of the response without decoding it, to be decoded
+     * with {@link #decode(Download, ResponseBodyDecoder)}.
+     *
+     * @param url the url to call
+     * @return the body of the response, still compressed
+     * @throws IOException if the call fails, times out or answers an error status
+     */
+    public Download download(String url) throws IOException {
+        final long startTime = System.nanoTime();
+        return execute(url, response -> {
+            long transferStartTime = System.nanoTime();
+            if (metrics != null) {
+                metrics.recordRequest(transferStartTime - startTime);
+            }
+            byte[] body;
+            try (InputStream in = response.getBody()) {
+                body = IOUtils.toByteArray(in);
+            }
+            return new Download(body, response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING),
+                    System.nanoTime() - transferStartTime);
+        });
+    }
+
+    /**
+     * Uncompresses and decodes a downloaded body.
+     *
+     * @param download the body read by {@link #download(String)}
+     * @param decoder the decoder of the uncompressed body
+     * @return the decoded response
+     * @throws IOException if the body cannot be decoded
+     */
+    public <T> T decode(Download download, ResponseBodyDecoder<T> decoder) throws IOException {
+        long decodeStartTime = System.nanoTime();
+        MeteredInputStream inflated = new MeteredInputStream(ContentEncodings.decode(download.getContentEncoding(),
+                new ByteArrayInputStream(download.getBody()), inflaterPool));
+
+        /**
+         * The gzip header is read while the inflating stream is built.
+         */
+        long headerNanos = System.nanoTime() - decodeStartTime;
+        T decoded;
+        try {
+            decoded = decoder.decode(inflated);
+        } catch (IOException | RuntimeException e) {
+            recordFailedCall();
+            throw e;
+        } finally {
+            inflated.close();
+        }
+        if (metrics != null) {
+            long decodeNanos = System.nanoTime() - decodeStartTime;
+            long inflateNanos = Math.min(decodeNanos, headerNanos + inflated.getNanos());
+            metrics.recordResponse(download.getBody().length, inflated.getBytes(), download.getTransferNanos(),
+                    inflateNanos, decodeNanos - inflateNanos);
+        }
+        return decoded;
+    }
+
+    /**
+     * Executes a call, turning the errors of the RestTemplate into the I/O errors of the call.
+     */
+    private <T> T execute(String url, ResponseExtractor<T> extractor) throws IOException {
+        try {
+            return restTemplate.execute(url, HttpMethod.GET,
+                    request -> request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, ContentEncodings.ACCEPT_ENCODING),
+                    extractor);
+        } catch (ResourceAccessException e) {
+            recordFailedCall();
+            /**
+             * RestTemplate wraps the I/O errors of the call, timeouts included.
+             */
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getMessage(), e);
+        } catch (RestClientException e) {
+            recordFailedCall();
+            throw new IOException("Call to [" + url + "] failed: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            recordFailedCall();
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the body between two metered streams, one counting the bytes received and the time
+     * spent waiting for them, the other the bytes inflated and the time spent inflating them,
+     * waits included. The rest of the decoding time is spent binding.
+     */
+    private <T> T decodeMetered(ClientHttpResponse response, ResponseBodyDecoder<T> decoder, long startTime) throws IOException {
+        long decodeStartTime = System.nanoTime();
+        metrics.recordRequest(decodeStartTime - startTime);
+
+        MeteredInputStream compressed = new MeteredInputStream(response.getBody());
+        MeteredInputStream inflated;
+        try {
+            inflated = new MeteredInputStream(ContentEncodings.decode(
+                    response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING), compressed, inflaterPool));
+        } catch (IOException | RuntimeException e) {
+            compressed.close();
+            throw e;
+        }
+
+        /**
+         * The gzip header is read while the inflating stream is built.
+         */
+        long headerNanos = System.nanoTime() - decodeStartTime;
+        T decoded;
+        try {
+            decoded = decoder.decode(inflated);
+        } finally {
+            inflated.close();
+        }
+        long decodeNanos = System.nanoTime() - decodeStartTime;
+
+        long inflateNanos = headerNanos + inflated.getNanos();
+        metrics.recordResponse(compressed.getBytes(), inflated.getBytes(), compressed.getNanos(),
+                Math.max(0, inflateNanos - compressed.getNanos()), Math.max(0, decodeNanos - inflateNanos));
+        return decoded;
+    }
+
+    private void recordFailedCall() {
+        if (metrics != null) {
+            metrics.recordFailedCall();
+        }
+    }
+
+    public RestTemplate getRestTemplate() {
+        return restTemplate;
+    }
+
+    public InflaterPool getInflaterPool() {
+        return inflaterPool;
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+        inflaterPool.close();
+    }
+
+}
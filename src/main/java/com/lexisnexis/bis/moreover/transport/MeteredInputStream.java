@@ -0,0 +1,71 @@
+package com.lexisnexis.bis.moreover.transport;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a stream and the time spent reading them.
+ * <p/>
+ * Stacked around each layer of a response body, the connection and the inflater, the counts tell
+ * apart the time spent waiting for the network, inflating and binding.
+ */
+class MeteredInputStream extends FilterInputStream {
+
+    private long bytes;
+
+    private long nanos;
+
+    MeteredInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        try {
+            int b = super.read();
+            if (b >= 0) {
+                bytes++;
+            }
+            return b;
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        try {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                bytes += read;
+            }
+            return read;
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long start = System.nanoTime();
+        try {
+            long skipped = super.skip(n);
+            bytes += skipped;
+            return skipped;
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    long getNanos() {
+        return nanos;
+    }
+
+}
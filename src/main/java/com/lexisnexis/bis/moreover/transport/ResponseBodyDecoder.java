@@ -0,0 +1,20 @@
+package com.lexisnexis.bis.moreover.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes the body of a Metabase response while it is read from the connection.
+ *
+ * @param <T> the type of the decoded response
+ */
+public interface ResponseBodyDecoder<T> {
+
+    /**
+     * @param body the body of the response, already uncompressed whatever its content encoding
+     * @return the decoded response
+     * @throws IOException if the body cannot be read or decoded
+     */
+    T decode(InputStream body) throws IOException;
+
+}
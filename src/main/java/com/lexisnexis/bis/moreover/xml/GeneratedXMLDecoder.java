@@ -0,0 +1,332 @@
+package com.lexisnexis.bis.moreover.xml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleProjection;
+import com.lexisnexis.bis.moreover.intern.ArticleStringPools;
+import com.lexisnexis.bis.moreover.xml.metabase.entities.Article;
+import com.lexisnexis.bis.moreover.xml.metabase.entities.Articles;
+import com.lexisnexis.bis.moreover.xml.metabase.entities.License;
+import com.lexisnexis.bis.moreover.xml.metabase.entities.Licenses;
+import com.lexisnexis.bis.moreover.xml.metabase.entities.XMLResponse;
+
+/**
+ * Decodes the XML Metabase entities straight from the events of a StAX reader, without reflection.
+ * <p/>
+ * Generated by <i>DecoderGenerator</i> from the JAXB annotations of the entities, do not edit:
+ * run <i>mvn -P codegen compile exec:exec</i> after changing an entity. Each element is decoded
+ * by a switch on the names of its children calling the setters directly, binding the same values
+ * as JAXB, see {@link XMLScalars}. Unknown elements and the article fields out of the projection
+ * are skipped.
+ */
+public final class GeneratedXMLDecoder {
+
+    private GeneratedXMLDecoder() {
+    }
+
+    /**
+     * @param reader the reader, before or on the start of the <i>response</i> element
+     * @param projection the article fields to decode
+     * @return the response
+     * @throws XMLStreamException if the response cannot be read or is not a Metabase response
+     */
+    public static XMLResponse decodeResponse(XMLStreamReader reader, ArticleProjection projection) throws XMLStreamException {
+        if (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+            XMLScalars.nextElement(reader);
+        }
+        if (reader.getEventType() != XMLStreamConstants.START_ELEMENT || !"response".equals(reader.getLocalName())) {
+            throw new XMLStreamException("Expected the Metabase response to be a response element", reader.getLocation());
+        }
+        return decodeXMLResponse(reader, projection);
+    }
+
+    public static XMLResponse decodeXMLResponse(XMLStreamReader reader, ArticleProjection projection) throws XMLStreamException {
+        XMLResponse value = new XMLResponse();
+        while (XMLScalars.nextElement(reader)) {
+            switch (reader.getLocalName()) {
+                case "status":
+                    value.setStatus(XMLScalars.readString(reader));
+                    break;
+                case "messageCode":
+                    value.setMessageCode(XMLScalars.readString(reader));
+                    break;
+                case "userMessage":
+                    value.setUserMessage(XMLScalars.readString(reader));
+                    break;
+                case "developerMessage":
+                    value.setDeveloperMessage(XMLScalars.readString(reader));
+                    break;
+                case "articles":
+                    value.setArticles(decodeArticles(reader, projection));
+                    break;
+                default:
+                    XMLScalars.skipElement(reader);
+                    break;
+            }
+        }
+        return value;
+    }
+
+    public static Articles decodeArticles(XMLStreamReader reader, ArticleProjection projection) throws XMLStreamException {
+        Articles value = new Articles();
+        List<Article> articles = null;
+        while (XMLScalars.nextElement(reader)) {
+            switch (reader.getLocalName()) {
+                case "article":
+                    if (articles == null) {
+                        articles = new ArrayList<>();
+                    }
+                    articles.add(decodeArticle(reader, projection));
+                    break;
+                default:
+                    XMLScalars.skipElement(reader);
+                    break;
+            }
+        }
+        if (articles != null) {
+            value.setArticles(articles);
+        }
+        return value;
+    }
+
+    public static Article decodeArticle(XMLStreamReader reader, ArticleProjection projection) throws XMLStreamException {
+        return decodeArticle(reader, projection, new Article());
+    }
+
+    /**
+     * Decodes into a new or recycled {@link Article}, reusing the lists and nested entities it held.
+     */
+    public static Article decodeArticle(XMLStreamReader reader, ArticleProjection projection, Article value) throws XMLStreamException {
+        List<String> recycledOutboundUrls = value.getOutboundUrls();
+        value.setOutboundUrls(null);
+        Licenses recycledLicenses = value.getLicenses();
+        value.setLicenses(null);
+        List<String> outboundUrls = null;
+        while (XMLScalars.nextElement(reader)) {
+            switch (reader.getLocalName()) {
+                case "sequenceId":
+                    value.setSequenceId(XMLScalars.readLong(reader));
+                    break;
+                case "id":
+                    if (projection.includes("id")) {
+                        value.setId(XMLScalars.readLong(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "language":
+                    if (projection.includes("language")) {
+                        value.setLanguage(XMLScalars.readPooled(reader, ArticleStringPools.LANGUAGE));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "languageCode":
+                    if (projection.includes("languageCode")) {
+                        value.setLanguageCode(XMLScalars.readPooled(reader, ArticleStringPools.LANGUAGE_CODE));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "title":
+                    if (projection.includes("title")) {
+                        value.setTitle(XMLScalars.readString(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "content":
+                    if (projection.includes("content")) {
+                        value.setContent(XMLScalars.readString(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "contentWithMarkup":
+                    if (projection.includes("contentWithMarkup")) {
+                        value.setContentWithMarkup(XMLScalars.readString(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "extract":
+                    if (projection.includes("extract")) {
+                        value.setExtract(XMLScalars.readString(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "publishedDate":
+                    if (projection.includes("publishedDate")) {
+                        value.setPublishedDateMillis(XMLScalars.readMillis(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "harvestDate":
+                    if (projection.includes("harvestDate")) {
+                        value.setHarvestDateMillis(XMLScalars.readMillis(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "embargoDate":
+                    if (projection.includes("embargoDate")) {
+                        value.setEmbargoDateMillis(XMLScalars.readMillis(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "licenseEndDate":
+                    if (projection.includes("licenseEndDate")) {
+                        value.setLicenseEndDateMillis(XMLScalars.readMillis(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "url":
+                    if (projection.includes("url")) {
+                        value.setUrl(XMLScalars.readString(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "commentsUrl":
+                    if (projection.includes("commentsUrl")) {
+                        value.setCommentsUrl(XMLScalars.readString(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "outboundUrls":
+                    if (projection.includes("outboundUrls")) {
+                        if (outboundUrls == null) {
+                            outboundUrls = recycledOutboundUrls != null ? recycledOutboundUrls : new ArrayList<>();
+                            outboundUrls.clear();
+                        }
+                        outboundUrls.add(XMLScalars.readString(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "dataFormat":
+                    if (projection.includes("dataFormat")) {
+                        value.setDataFormat(XMLScalars.readPooled(reader, ArticleStringPools.DATA_FORMAT));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "copyright":
+                    if (projection.includes("copyright")) {
+                        value.setCopyright(XMLScalars.readPooled(reader, ArticleStringPools.COPYRIGHT));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "loginStatus":
+                    if (projection.includes("loginStatus")) {
+                        value.setLoginStatus(XMLScalars.readPooled(reader, ArticleStringPools.LOGIN_STATUS));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "duplicateGroupId":
+                    if (projection.includes("duplicateGroupId")) {
+                        value.setDuplicateGroupId(XMLScalars.readLong(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "adultLanguage":
+                    if (projection.includes("adultLanguage")) {
+                        value.setAdultLanguage(XMLScalars.readBoolean(reader));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                case "licenses":
+                    if (projection.includes("licenses")) {
+                        value.setLicenses(decodeLicenses(reader, projection, recycledLicenses != null ? recycledLicenses : new Licenses()));
+                    } else {
+                        XMLScalars.skipElement(reader);
+                    }
+                    break;
+                default:
+                    XMLScalars.skipElement(reader);
+                    break;
+            }
+        }
+        if (outboundUrls != null) {
+            value.setOutboundUrls(outboundUrls);
+        }
+        return value;
+    }
+
+    public static Licenses decodeLicenses(XMLStreamReader reader, ArticleProjection projection) throws XMLStreamException {
+        return decodeLicenses(reader, projection, new Licenses());
+    }
+
+    /**
+     * Decodes into a new or recycled {@link Licenses}, reusing the lists and nested entities it held.
+     */
+    public static Licenses decodeLicenses(XMLStreamReader reader, ArticleProjection projection, Licenses value) throws XMLStreamException {
+        List<License> recycledLicenses = value.getLicenses();
+        value.setLicenses(null);
+        List<License> licenses = null;
+        int licensesSize = 0;
+        while (XMLScalars.nextElement(reader)) {
+            switch (reader.getLocalName()) {
+                case "license":
+                    if (licenses == null) {
+                        licenses = recycledLicenses != null ? recycledLicenses : new ArrayList<>();
+                    }
+                    License recycledLicense = licensesSize < licenses.size() ? licenses.get(licensesSize) : null;
+                    License licensesElement = decodeLicense(reader, projection, recycledLicense != null ? recycledLicense : new License());
+                    if (licensesSize < licenses.size()) {
+                        licenses.set(licensesSize, licensesElement);
+                    } else {
+                        licenses.add(licensesElement);
+                    }
+                    licensesSize++;
+                    break;
+                default:
+                    XMLScalars.skipElement(reader);
+                    break;
+            }
+        }
+        if (licenses != null) {
+            while (licenses.size() > licensesSize) {
+                licenses.remove(licenses.size() - 1);
+            }
+            value.setLicenses(licenses);
+        }
+        return value;
+    }
+
+    public static License decodeLicense(XMLStreamReader reader, ArticleProjection projection) throws XMLStreamException {
+        return decodeLicense(reader, projection, new License());
+    }
+
+    /**
+     * Decodes into a new or recycled {@link License}.
+     */
+    public static License decodeLicense(XMLStreamReader reader, ArticleProjection projection, License value) throws XMLStreamException {
+        while (XMLScalars.nextElement(reader)) {
+            switch (reader.getLocalName()) {
+                case "name":
+                    value.setName(XMLScalars.readPooled(reader, ArticleStringPools.LICENSE_NAME));
+                    break;
+                default:
+                    XMLScalars.skipElement(reader);
+                    break;
+            }
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.lexisnexis.bis.moreover.xml;
+
+import java.util.Date;
+
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+
+import com.lexisnexis.bis.moreover.time.MetabaseTimestamps;
+
+/**
+ * Binds the dates of the XML articles with {@link MetabaseTimestamps} instead of the JAXB date
+ * binding, which goes through an XMLGregorianCalendar and a GregorianCalendar for every value.
+ * Dates of another form are left to the JAXB parsing.
+ */
+public class MetabaseDateAdapter extends XmlAdapter<String, Date> {
+
+    @Override
+    public Date unmarshal(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return new Date(MetabaseTimestamps.parse(text));
+        } catch (IllegalArgumentException e) {
+            return DatatypeConverter.parseDateTime(text.trim()).getTime();
+        }
+    }
+
+    @Override
+    public String marshal(Date date) {
+        return date != null ? MetabaseTimestamps.format(date.getTime()) : null;
+    }
+
+}
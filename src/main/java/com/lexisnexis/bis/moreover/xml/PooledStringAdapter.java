@@ -0,0 +1,69 @@
+package com.lexisnexis.bis.moreover.xml;
+
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+
+import com.lexisnexis.bis.moreover.intern.ArticleStringPools;
+import com.lexisnexis.bis.moreover.intern.StringPool;
+
+/**
+ * Binds a low-cardinality field of the XML articles to the canonical String of its
+ * {@link StringPool}. JAXB hands the text of the element as a String, which is dropped as soon as
+ * the canonical one is found, so the articles held in memory share one String per value.
+ * <p/>
+ * JAXB instantiates adapters from the annotations, each pool has its own subclass.
+ */
+public abstract class PooledStringAdapter extends XmlAdapter<String, String> {
+
+    private final StringPool pool;
+
+    protected PooledStringAdapter(StringPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public String unmarshal(String text) {
+        return pool.intern(text);
+    }
+
+    @Override
+    public String marshal(String value) {
+        return value;
+    }
+
+    public static class Language extends PooledStringAdapter {
+        public Language() {
+            super(ArticleStringPools.LANGUAGE);
+        }
+    }
+
+    public static class LanguageCode extends PooledStringAdapter {
+        public LanguageCode() {
+            super(ArticleStringPools.LANGUAGE_CODE);
+        }
+    }
+
+    public static class DataFormat extends PooledStringAdapter {
+        public DataFormat() {
+            super(ArticleStringPools.DATA_FORMAT);
+        }
+    }
+
+    public static class LoginStatus extends PooledStringAdapter {
+        public LoginStatus() {
+            super(ArticleStringPools.LOGIN_STATUS);
+        }
+    }
+
+    public static class Copyright extends PooledStringAdapter {
+        public Copyright() {
+            super(ArticleStringPools.COPYRIGHT);
+        }
+    }
+
+    public static class LicenseName extends PooledStringAdapter {
+        public LicenseName() {
+            super(ArticleStringPools.LICENSE_NAME);
+        }
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.lexisnexis.bis.moreover.xml;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleProjection;
+
+/**
+ * StAX reader hiding the child elements of the <i>article</i> elements which are not part of an
+ * {@link ArticleProjection}, so that JAXB never binds them.
+ * <p/>
+ * A hidden element is skipped event by event up to its end: its text is scanned by the parser but
+ * never turned into a String, and none of its children are bound. The clients decode with the
+ * {@link GeneratedXMLDecoder}, which skips these elements itself, this reader projects the JAXB
+ * binding the generated decoder is checked against.
+ */
+public class ProjectingXMLStreamReader extends StreamReaderDelegate {
+
+    private static final String ARTICLE_ELEMENT = "article";
+
+    private final ArticleProjection projection;
+
+    private int depth;
+
+    /**
+     * Depth of the article element being read, or -1 outside of articles.
+     */
+    private int articleDepth = -1;
+
+    public ProjectingXMLStreamReader(XMLStreamReader reader, ArticleProjection projection) {
+        super(reader);
+        this.projection = projection;
+        if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+            enter();
+        }
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+        int event = super.next();
+        while (true) {
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (depth == articleDepth + 1 && articleDepth >= 0 && !projection.includes(getLocalName())) {
+                    skipElement();
+                    event = super.next();
+                    continue;
+                }
+                enter();
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                if (depth == articleDepth) {
+                    articleDepth = -1;
+                }
+            }
+            return event;
+        }
+    }
+
+    /**
+     * The underlying reader reads up to the end of the element, which must be accounted for.
+     */
+    @Override
+    public String getElementText() throws XMLStreamException {
+        String text = super.getElementText();
+        depth--;
+        return text;
+    }
+
+    @Override
+    public int nextTag() throws XMLStreamException {
+        int event = next();
+        while (event == XMLStreamConstants.CHARACTERS && isWhiteSpace()
+                || event == XMLStreamConstants.SPACE
+                || event == XMLStreamConstants.COMMENT
+                || event == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+            event = next();
+        }
+        if (event != XMLStreamConstants.START_ELEMENT && event != XMLStreamConstants.END_ELEMENT) {
+            throw new XMLStreamException("Expected a start or end tag", getLocation());
+        }
+        return event;
+    }
+
+    private void enter() {
+        if (articleDepth < 0 && ARTICLE_ELEMENT.equals(getLocalName())) {
+            articleDepth = depth;
+        }
+        depth++;
+    }
+
+    /**
+     * Moves the underlying reader to the end of the element it is on.
+     */
+    private void skipElement() throws XMLStreamException {
+        int level = 1;
+        while (level > 0) {
+            int event = super.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                level++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                level--;
+            }
+        }
+    }
+
+}
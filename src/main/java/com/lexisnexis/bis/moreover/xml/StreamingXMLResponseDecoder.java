@@ -0,0 +1,131 @@
+package com.lexisnexis.bis.moreover.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleListener;
+import com.lexisnexis.bis.moreover.harvest.ArticleProjection;
+import com.lexisnexis.bis.moreover.harvest.Batch;
+import com.lexisnexis.bis.moreover.harvest.Slice;
+import com.lexisnexis.bis.moreover.harvest.StreamingResponseDecoder;
+import com.lexisnexis.bis.moreover.xml.metabase.entities.Article;
+import com.lexisnexis.bis.moreover.recycle.RecyclingPool;
+
+/**
+ * Decodes an XML Metabase response while it is being read.
+ * <p/>
+ * Instead of unmarshalling the whole {@link com.lexisnexis.bis.moreover.xml.metabase.entities.XMLResponse}
+ * tree, the decoder pulls the response with StAX. The <i>status</i> and <i>messageCode</i> elements
+ * are read as they come, and each <i>article</i> element is bound on its own by the
+ * {@link GeneratedXMLDecoder} and handed to the listener as soon as it closes, so only one article
+ * is held in memory at a time. With a projection, the article fields which are not part of it are
+ * skipped.
+ */
+public class StreamingXMLResponseDecoder implements StreamingResponseDecoder<Article> {
+
+    private static final String STATUS_ELEMENT = "status";
+    private static final String MESSAGE_CODE_ELEMENT = "messageCode";
+    private static final String ARTICLE_ELEMENT = "article";
+
+    private final XMLInputFactory xmlInputFactory;
+
+    private final ArticleProjection projection;
+
+    public StreamingXMLResponseDecoder() {
+        this(SampleMetabaseXMLClient.newXMLInputFactory(), ArticleProjection.ALL);
+    }
+
+    public StreamingXMLResponseDecoder(XMLInputFactory xmlInputFactory, ArticleProjection projection) {
+        this.xmlInputFactory = xmlInputFactory;
+        this.projection = projection;
+    }
+
+    /**
+     * Decodes the response read from the given stream, which is closed once the response is decoded.
+     *
+     * @param slice the slice the response was pulled for
+     * @param in the uncompressed XML response
+     * @param listener the listener receiving each article
+     * @return the streamed batch holding the status of the call and the number of articles
+     * @throws IOException if the response cannot be read or is not a Metabase XML response
+     */
+    @Override
+    public Batch<Article> decode(Slice slice, InputStream in, ArticleListener<Article> listener) throws IOException {
+        return decode(slice, in, listener, null);
+    }
+
+    /**
+     * Decodes the response read from the given stream into articles acquired from a pool, which the
+     * listener keeps track of to release them once they were flushed.
+     *
+     * @param slice the slice the response was pulled for
+     * @param in the uncompressed XML response
+     * @param listener the listener receiving each article
+     * @param pool the pool of the articles of the slice, or null to allocate new ones
+     * @return the streamed batch holding the status of the call and the number of articles
+     * @throws IOException if the response cannot be read or is not a Metabase XML response
+     */
+    @Override
+    public Batch<Article> decode(Slice slice, InputStream in, ArticleListener<Article> listener,
+            RecyclingPool<Article> pool) throws IOException {
+        try {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(in);
+            try {
+                String status = null;
+                String messageCode = null;
+                int articleCount = 0;
+                Long lastSequenceId = null;
+
+                int event = reader.getEventType();
+                while (true) {
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        String name = reader.getLocalName();
+                        if (STATUS_ELEMENT.equals(name)) {
+                            status = reader.getElementText();
+                        } else if (MESSAGE_CODE_ELEMENT.equals(name)) {
+                            messageCode = reader.getElementText();
+                        } else if (ARTICLE_ELEMENT.equals(name)) {
+                            Article article = pool != null ? decodeRecycled(reader, pool)
+                                    : GeneratedXMLDecoder.decodeArticle(reader, projection);
+                            articleCount++;
+                            lastSequenceId = article.getSequenceId();
+                            listener.onArticle(slice, article);
+                        }
+                    }
+                    if (!reader.hasNext()) {
+                        break;
+                    }
+                    event = reader.next();
+                }
+
+                return Batch.streamed(slice, status, messageCode, articleCount, lastSequenceId);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to decode the Metabase response", e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Decodes the next article into one acquired from the pool, giving it back when decoding fails
+     * since the listener never receives it.
+     */
+    private Article decodeRecycled(XMLStreamReader reader, RecyclingPool<Article> pool) throws XMLStreamException {
+        Article recycled = pool.acquire();
+        try {
+            return GeneratedXMLDecoder.decodeArticle(reader, projection, recycled);
+        } catch (XMLStreamException | RuntimeException e) {
+            pool.release(recycled);
+            throw e;
+        }
+    }
+
+}
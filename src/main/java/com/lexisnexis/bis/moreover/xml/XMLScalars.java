@@ -0,0 +1,154 @@
+package com.lexisnexis.bis.moreover.xml;
+
+import java.util.Date;
+
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.lexisnexis.bis.moreover.intern.StringPool;
+import com.lexisnexis.bis.moreover.time.MetabaseTimestamps;
+
+/**
+ * Reads the elements of the XML entities for {@link GeneratedXMLDecoder} the way JAXB binds them.
+ * <p/>
+ * The reader is on the start of an element, and is left on its end. Strings are the text of the
+ * element as it is, numbers, booleans and dates are trimmed, and a value which cannot be parsed
+ * leaves the field unset, as JAXB does by default.
+ */
+public final class XMLScalars {
+
+    private XMLScalars() {
+    }
+
+    /**
+     * Moves to the next child element of the current element, passing over text, comments and
+     * processing instructions.
+     *
+     * @return true on the start of a child element, false on the end of the current element
+     */
+    public static boolean nextElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves to the end of the current element, passing over its children.
+     */
+    public static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    public static String readString(XMLStreamReader reader) throws XMLStreamException {
+        return readText(reader, null);
+    }
+
+    /**
+     * @return the canonical String of the text in the pool, looked up straight from the text buffer
+     *         of the reader when the text comes in one piece
+     */
+    public static String readPooled(XMLStreamReader reader, StringPool pool) throws XMLStreamException {
+        return readText(reader, pool);
+    }
+
+    public static Long readLong(XMLStreamReader reader) throws XMLStreamException {
+        String text = readText(reader, null).trim();
+        if (text.startsWith("+")) {
+            text = text.substring(1);
+        }
+        try {
+            return Long.valueOf(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static boolean readBoolean(XMLStreamReader reader) throws XMLStreamException {
+        String text = readText(reader, null).trim();
+        return "true".equals(text) || "1".equals(text);
+    }
+
+    /**
+     * Reads a date with {@link MetabaseTimestamps}, dates of another form being parsed as
+     * <i>xs:dateTime</i>.
+     *
+     * @return the date in epoch milliseconds, or {@link MetabaseTimestamps#NONE} when it cannot be parsed
+     */
+    public static long readMillis(XMLStreamReader reader) throws XMLStreamException {
+        String text = readText(reader, null);
+        try {
+            return MetabaseTimestamps.parse(text);
+        } catch (IllegalArgumentException e) {
+            try {
+                return DatatypeConverter.parseDateTime(text.trim()).getTimeInMillis();
+            } catch (IllegalArgumentException notADateTime) {
+                return MetabaseTimestamps.NONE;
+            }
+        }
+    }
+
+    public static Date readDate(XMLStreamReader reader) throws XMLStreamException {
+        long millis = readMillis(reader);
+        return millis != MetabaseTimestamps.NONE ? new Date(millis) : null;
+    }
+
+    /**
+     * Reads the text of the current element, like {@link XMLStreamReader#getElementText()}, looking a
+     * text which comes in one piece up in the pool without building a String first.
+     */
+    private static String readText(XMLStreamReader reader, StringPool pool) throws XMLStreamException {
+        String first = null;
+        StringBuilder builder = null;
+        int event;
+        while ((event = reader.next()) != XMLStreamConstants.END_ELEMENT) {
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                if (first == null && builder == null) {
+                    first = pool != null ?
+                            pool.intern(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength()) :
+                            reader.getText();
+                } else {
+                    if (builder == null) {
+                        builder = new StringBuilder(first);
+                    }
+                    builder.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                }
+            } else if (event == XMLStreamConstants.ENTITY_REFERENCE) {
+                if (builder == null) {
+                    builder = new StringBuilder(first != null ? first : "");
+                }
+                builder.append(reader.getText());
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                throw new XMLStreamException("Unexpected element " + reader.getLocalName() + " in a text element",
+                        reader.getLocation());
+            } else if (event == XMLStreamConstants.END_DOCUMENT) {
+                throw new XMLStreamException("Unexpected end of document in a text element", reader.getLocation());
+            }
+        }
+        if (builder != null) {
+            return pool != null ? pool.intern(builder.toString()) : builder.toString();
+        }
+        if (first != null) {
+            return first;
+        }
+        return pool != null ? pool.intern("") : "";
+    }
+
+}
@@ -4,8 +4,18 @@ import java.util.Date;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
-public class Article {
+import org.codehaus.jackson.annotate.JsonIgnore;
+
+import com.lexisnexis.bis.moreover.offheap.Utf8Text;
+import com.lexisnexis.bis.moreover.recycle.Recyclable;
+import com.lexisnexis.bis.moreover.time.MetabaseTimestamps;
+import com.lexisnexis.bis.moreover.xml.MetabaseDateAdapter;
+import com.lexisnexis.bis.moreover.xml.PooledStringAdapter;
+
+public class Article implements Recyclable {
 
     private Long sequenceId;
 
@@ -21,15 +31,19 @@ public class Article {
 
     private String contentWithMarkup;
 
+    private Utf8Text contentText;
+
+    private Utf8Text contentWithMarkupText;
+
     private String extract;
 
-    private Date publishedDate;
+    private long publishedDate = MetabaseTimestamps.NONE;
 
-    private Date harvestDate;
+    private long harvestDate = MetabaseTimestamps.NONE;
 
-    private Date embargoDate;
+    private long embargoDate = MetabaseTimestamps.NONE;
 
-    private Date licenseEndDate;
+    private long licenseEndDate = MetabaseTimestamps.NONE;
 
     private String url;
 
@@ -49,8 +63,14 @@ public class Article {
     
     private Licenses licenses;
 
+    /**
+     * Set while the article is released to a checked pool, reading it then fails.
+     */
+    private boolean released;
+
     @XmlElement
     public Long getSequenceId() {
+        checkNotReleased();
         return sequenceId;
     }
 
@@ -60,6 +80,7 @@ public class Article {
 
     @XmlElement
     public Long getId() {
+        checkNotReleased();
         return id;
     }
 
@@ -68,7 +89,9 @@ public class Article {
     }
 
     @XmlElement
+    @XmlJavaTypeAdapter(PooledStringAdapter.Language.class)
     public String getLanguage() {
+        checkNotReleased();
         return language;
     }
 
@@ -78,6 +101,7 @@ public class Article {
 
     @XmlElement
     public String getTitle() {
+        checkNotReleased();
         return title;
     }
 
@@ -87,24 +111,68 @@ public class Article {
 
     @XmlElement
     public String getContent() {
-        return content;
+        checkNotReleased();
+        return content != null || contentText == null ? content : contentText.toString();
     }
 
     public void setContent(String content) {
         this.content = content;
+        this.contentText = null;
+    }
+
+    /**
+     * @return the content stored off the heap, or null when it is held as a String
+     */
+    @JsonIgnore
+    @XmlTransient
+    public Utf8Text getContentText() {
+        checkNotReleased();
+        return contentText;
+    }
+
+    /**
+     * Replaces the content by its off-heap copy, decoded again by {@link #getContent()} on demand.
+     */
+    @JsonIgnore
+    public void setContentText(Utf8Text contentText) {
+        this.contentText = contentText;
+        this.content = null;
     }
 
     @XmlElement
     public String getContentWithMarkup() {
-        return contentWithMarkup;
+        checkNotReleased();
+        return contentWithMarkup != null || contentWithMarkupText == null ? contentWithMarkup : contentWithMarkupText.toString();
     }
 
     public void setContentWithMarkup(String contentWithMarkup) {
         this.contentWithMarkup = contentWithMarkup;
+        this.contentWithMarkupText = null;
+    }
+
+    /**
+     * @return the content with markup stored off the heap, or null when it is held as a String
+     */
+    @JsonIgnore
+    @XmlTransient
+    public Utf8Text getContentWithMarkupText() {
+        checkNotReleased();
+        return contentWithMarkupText;
+    }
+
+    /**
+     * Replaces the content with markup by its off-heap copy, decoded again by
+     * {@link #getContentWithMarkup()} on demand.
+     */
+    @JsonIgnore
+    public void setContentWithMarkupText(Utf8Text contentWithMarkupText) {
+        this.contentWithMarkupText = contentWithMarkupText;
+        this.contentWithMarkup = null;
     }
 
     @XmlElement
     public String getExtract() {
+        checkNotReleased();
         return extract;
     }
 
@@ -113,43 +181,112 @@ public class Article {
     }
 
     @XmlElement
+    @XmlJavaTypeAdapter(MetabaseDateAdapter.class)
     public Date getPublishedDate() {
-        return publishedDate;
+        checkNotReleased();
+        return publishedDate != MetabaseTimestamps.NONE ? new Date(publishedDate) : null;
     }
 
     public void setPublishedDate(Date publishedDate) {
+        this.publishedDate = publishedDate != null ? publishedDate.getTime() : MetabaseTimestamps.NONE;
+    }
+
+    /**
+     * @return the publishedDate in epoch milliseconds, or {@link MetabaseTimestamps#NONE} when there is none
+     */
+    @JsonIgnore
+    @XmlTransient
+    public long getPublishedDateMillis() {
+        checkNotReleased();
+        return publishedDate;
+    }
+
+    @JsonIgnore
+    public void setPublishedDateMillis(long publishedDate) {
         this.publishedDate = publishedDate;
     }
 
     @XmlElement
+    @XmlJavaTypeAdapter(MetabaseDateAdapter.class)
     public Date getHarvestDate() {
-        return harvestDate;
+        checkNotReleased();
+        return harvestDate != MetabaseTimestamps.NONE ? new Date(harvestDate) : null;
     }
 
     public void setHarvestDate(Date harvestDate) {
+        this.harvestDate = harvestDate != null ? harvestDate.getTime() : MetabaseTimestamps.NONE;
+    }
+
+    /**
+     * @return the harvestDate in epoch milliseconds, or {@link MetabaseTimestamps#NONE} when there is none
+     */
+    @JsonIgnore
+    @XmlTransient
+    public long getHarvestDateMillis() {
+        checkNotReleased();
+        return harvestDate;
+    }
+
+    @JsonIgnore
+    public void setHarvestDateMillis(long harvestDate) {
         this.harvestDate = harvestDate;
     }
 
     @XmlElement
+    @XmlJavaTypeAdapter(MetabaseDateAdapter.class)
     public Date getEmbargoDate() {
-        return embargoDate;
+        checkNotReleased();
+        return embargoDate != MetabaseTimestamps.NONE ? new Date(embargoDate) : null;
     }
 
     public void setEmbargoDate(Date embargoDate) {
+        this.embargoDate = embargoDate != null ? embargoDate.getTime() : MetabaseTimestamps.NONE;
+    }
+
+    /**
+     * @return the embargoDate in epoch milliseconds, or {@link MetabaseTimestamps#NONE} when there is none
+     */
+    @JsonIgnore
+    @XmlTransient
+    public long getEmbargoDateMillis() {
+        checkNotReleased();
+        return embargoDate;
+    }
+
+    @JsonIgnore
+    public void setEmbargoDateMillis(long embargoDate) {
         this.embargoDate = embargoDate;
     }
 
     @XmlElement
+    @XmlJavaTypeAdapter(MetabaseDateAdapter.class)
     public Date getLicenseEndDate() {
-        return licenseEndDate;
+        checkNotReleased();
+        return licenseEndDate != MetabaseTimestamps.NONE ? new Date(licenseEndDate) : null;
     }
 
     public void setLicenseEndDate(Date licenseEndDate) {
+        this.licenseEndDate = licenseEndDate != null ? licenseEndDate.getTime() : MetabaseTimestamps.NONE;
+    }
+
+    /**
+     * @return the licenseEndDate in epoch milliseconds, or {@link MetabaseTimestamps#NONE} when there is none
+     */
+    @JsonIgnore
+    @XmlTransient
+    public long getLicenseEndDateMillis() {
+        checkNotReleased();
+        return licenseEndDate;
+    }
+
+    @JsonIgnore
+    public void setLicenseEndDateMillis(long licenseEndDate) {
         this.licenseEndDate = licenseEndDate;
     }
 
     @XmlElement
     public String getUrl() {
+        checkNotReleased();
         return url;
     }
 
@@ -159,6 +296,7 @@ public class Article {
 
     @XmlElement
     public String getCommentsUrl() {
+        checkNotReleased();
         return commentsUrl;
     }
 
@@ -168,6 +306,7 @@ public class Article {
 
     @XmlElement
     public List<String> getOutboundUrls() {
+        checkNotReleased();
         return outboundUrls;
     }
 
@@ -176,7 +315,9 @@ public class Article {
     }
 
     @XmlElement
+    @XmlJavaTypeAdapter(PooledStringAdapter.DataFormat.class)
     public String getDataFormat() {
+        checkNotReleased();
         return dataFormat;
     }
 
@@ -185,7 +326,9 @@ public class Article {
     }
 
     @XmlElement
+    @XmlJavaTypeAdapter(PooledStringAdapter.Copyright.class)
     public String getCopyright() {
+        checkNotReleased();
         return copyright;
     }
 
@@ -194,7 +337,9 @@ public class Article {
     }
 
     @XmlElement
+    @XmlJavaTypeAdapter(PooledStringAdapter.LoginStatus.class)
     public String getLoginStatus() {
+        checkNotReleased();
         return loginStatus;
     }
 
@@ -204,6 +349,7 @@ public class Article {
 
     @XmlElement
     public Long getDuplicateGroupId() {
+        checkNotReleased();
         return duplicateGroupId;
     }
 
@@ -213,6 +359,7 @@ public class Article {
 
     @XmlElement
     public boolean isAdultLanguage() {
+        checkNotReleased();
         return adultLanguage;
     }
 
@@ -222,6 +369,7 @@ public class Article {
 
     @XmlElement
     public Licenses getLicenses() {
+        checkNotReleased();
         return licenses;
     }
 
@@ -229,12 +377,57 @@ public class Article {
         this.licenses = licenses;
     }
 
+    @XmlJavaTypeAdapter(PooledStringAdapter.LanguageCode.class)
     public String getLanguageCode() {
+        checkNotReleased();
         return languageCode;
     }
 
     public void setLanguageCode(String languageCode) {
         this.languageCode = languageCode;
     }
-    
+
+    @Override
+    public void recycle() {
+        sequenceId = null;
+        id = null;
+        language = null;
+        languageCode = null;
+        title = null;
+        content = null;
+        contentWithMarkup = null;
+        contentText = null;
+        contentWithMarkupText = null;
+        extract = null;
+        publishedDate = MetabaseTimestamps.NONE;
+        harvestDate = MetabaseTimestamps.NONE;
+        embargoDate = MetabaseTimestamps.NONE;
+        licenseEndDate = MetabaseTimestamps.NONE;
+        url = null;
+        commentsUrl = null;
+        if (outboundUrls != null) {
+            outboundUrls.clear();
+        }
+        dataFormat = null;
+        copyright = null;
+        loginStatus = null;
+        duplicateGroupId = null;
+        adultLanguage = false;
+        if (licenses != null) {
+            licenses.recycle();
+        }
+        released = false;
+    }
+
+    @Override
+    public void markReleased() {
+        released = true;
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("Article read after it was released to its pool");
+        }
+    }
+
 }
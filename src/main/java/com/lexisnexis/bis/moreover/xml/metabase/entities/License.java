@@ -1,18 +1,46 @@
 package com.lexisnexis.bis.moreover.xml.metabase.entities;
 
 import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
-public class License {
+import com.lexisnexis.bis.moreover.recycle.Recyclable;
+import com.lexisnexis.bis.moreover.xml.PooledStringAdapter;
+
+public class License implements Recyclable {
 
     private String name;
 
+    /**
+     * Set while the license is released to a checked pool, reading it then fails.
+     */
+    private boolean released;
+
     @XmlElement
+    @XmlJavaTypeAdapter(PooledStringAdapter.LicenseName.class)
     public String getName() {
+        checkNotReleased();
         return name;
     }
 
     public void setName(String name) {
         this.name = name;
-    }    
-    
+    }
+
+    @Override
+    public void recycle() {
+        name = null;
+        released = false;
+    }
+
+    @Override
+    public void markReleased() {
+        released = true;
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("License read after it was released to its pool");
+        }
+    }
+
 }
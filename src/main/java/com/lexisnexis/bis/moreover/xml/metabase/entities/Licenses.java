@@ -4,12 +4,20 @@ import java.util.List;
 
 import javax.xml.bind.annotation.XmlElement;
 
-public class Licenses {
+import com.lexisnexis.bis.moreover.recycle.Recyclable;
+
+public class Licenses implements Recyclable {
     
     private List<License> licenses;
 
+    /**
+     * Set while the licenses are released to a checked pool, reading it then fails.
+     */
+    private boolean released;
+
     @XmlElement(name="license")
     public List<License> getLicenses() {
+        checkNotReleased();
         return licenses;
     }
 
@@ -17,4 +25,27 @@ public class Licenses {
         this.licenses = licenses;
     }
 
+    @Override
+    public void recycle() {
+        if (licenses != null) {
+            for (License license : licenses) {
+                if (license != null) {
+                    license.recycle();
+                }
+            }
+        }
+        released = false;
+    }
+
+    @Override
+    public void markReleased() {
+        released = true;
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("Licenses read after they were released to their pool");
+        }
+    }
+
 }
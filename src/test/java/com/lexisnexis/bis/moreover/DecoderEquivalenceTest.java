@@ -0,0 +1,296 @@
+package com.lexisnexis.bis.moreover;
+
+import static org.junit.Assert.assertTrue;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+
+import com.lexisnexis.bis.moreover.harvest.ArticleProjection;
+import com.lexisnexis.bis.moreover.harvest.Slice;
+import com.lexisnexis.bis.moreover.json.ArticleProjectionModule;
+import com.lexisnexis.bis.moreover.json.SampleMetabaseJSONClient;
+import com.lexisnexis.bis.moreover.json.StreamingJSONResponseDecoder;
+import com.lexisnexis.bis.moreover.json.metabase.entities.JSONResponse;
+import com.lexisnexis.bis.moreover.recycle.RecyclingPool;
+import com.lexisnexis.bis.moreover.xml.ProjectingXMLStreamReader;
+import com.lexisnexis.bis.moreover.xml.SampleMetabaseXMLClient;
+import com.lexisnexis.bis.moreover.xml.StreamingXMLResponseDecoder;
+import com.lexisnexis.bis.moreover.xml.metabase.entities.XMLResponse;
+
+/**
+ * Checks that the generated decoders bind the same entities as the ObjectMapper and JAXB.
+ * <p/>
+ * Each fixture of the decode benchmark, in <i>src/jmh/resources/fixtures</i>, and a few responses
+ * holding the odd values the reflective decoders accept (null values, numbers given as strings,
+ * entity references, unknown elements), is decoded with every field and with the projection of the
+ * benchmark, by the <i>decompressResponse</i> method of the clients and by their streaming decoders,
+ * then compared getter by getter with the ObjectMapper and JAXB. The streaming decoders also decode
+ * every response into the articles of the previous ones, recycled through a checked pool, which
+ * must neither leave a field of the previous article behind nor let a released article be read.
+ */
+public class DecoderEquivalenceTest {
+
+    private static final int[] FIXTURE_ARTICLE_COUNTS = { 1, 50, 500 };
+
+    private static final List<ArticleProjection> PROJECTIONS = Arrays.asList(ArticleProjection.ALL,
+            ArticleProjection.of("title", "url", "licenses"));
+
+    private static final Slice SLICE = new Slice("equivalence", null, null);
+
+    private static final RecyclingPool<com.lexisnexis.bis.moreover.json.metabase.entities.Article> JSON_POOL =
+            new RecyclingPool<>(com.lexisnexis.bis.moreover.json.metabase.entities.Article::new,
+                    RecyclingPool.DEFAULT_CAPACITY, RecyclingPool.Mode.CHECKED);
+
+    private static final RecyclingPool<com.lexisnexis.bis.moreover.xml.metabase.entities.Article> XML_POOL =
+            new RecyclingPool<>(com.lexisnexis.bis.moreover.xml.metabase.entities.Article::new,
+                    RecyclingPool.DEFAULT_CAPACITY, RecyclingPool.Mode.CHECKED);
+
+    private static final String ODD_JSON = "{\"status\":\"SUCCESS\",\"unknown\":{\"nested\":[1,2,{}]},\"articles\":["
+            + "{\"sequenceId\":\"42\",\"id\":\" 7 \",\"title\":null,\"url\":123,\"adultLanguage\":\"true\","
+            + "\"wordCount\":null,\"publishedDate\":\"\",\"harvestDate\":\"2016-08-01T10:20:30Z\","
+            + "\"tags\":[\"a\",null,\"b\"],\"outboundUrls\":null,\"licenses\":[{\"name\":\"Licensed Publisher\"}],"
+            + "\"source\":{\"name\":\"x\",\"feed\":{\"id\":1}}},"
+            + "{\"sequenceId\":43,\"adultLanguage\":1,\"licenses\":[],\"embargoDate\":1470046830000}]}";
+
+    private static final String ODD_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><response>"
+            + "<status>SUCCESS</status><unknown><nested>1</nested></unknown><articles>"
+            + "<article><sequenceId> 42 </sequenceId><id>+7</id><title>Fish &amp; <![CDATA[chips]]> </title>"
+            + "<url/><adultLanguage>1</adultLanguage><wordCount>many</wordCount>"
+            + "<harvestDate>2016-08-01T10:20:30Z</harvestDate><outboundUrls>http://example.com/a</outboundUrls>"
+            + "<source><name>x</name></source><outboundUrls>http://example.com/b</outboundUrls>"
+            + "<licenses><license><name>Licensed Publisher</name><extra/></license></licenses></article>"
+            + "<article><sequenceId>43</sequenceId><!-- comment --><adultLanguage>false</adultLanguage></article>"
+            + "</articles></response>";
+
+    @Test
+    public void jsonFixtures() throws IOException {
+        List<String> differences = new ArrayList<>();
+        for (ArticleProjection projection : PROJECTIONS) {
+            for (int articles : FIXTURE_ARTICLE_COUNTS) {
+                checkJSON(projection, fixtureName(articles, "json"), loadFixture(articles, "json"), differences);
+            }
+        }
+        assertTrue(String.join("\n", differences), differences.isEmpty());
+    }
+
+    @Test
+    public void xmlFixtures() throws IOException, JAXBException {
+        List<String> differences = new ArrayList<>();
+        for (ArticleProjection projection : PROJECTIONS) {
+            for (int articles : FIXTURE_ARTICLE_COUNTS) {
+                checkXML(projection, fixtureName(articles, "xml"), loadFixture(articles, "xml"), differences);
+            }
+        }
+        assertTrue(String.join("\n", differences), differences.isEmpty());
+    }
+
+    @Test
+    public void oddJSON() throws IOException {
+        List<String> differences = new ArrayList<>();
+        for (ArticleProjection projection : PROJECTIONS) {
+            checkJSON(projection, "odd JSON", gzip(ODD_JSON), differences);
+        }
+        assertTrue(String.join("\n", differences), differences.isEmpty());
+    }
+
+    @Test
+    public void oddXML() throws IOException, JAXBException {
+        List<String> differences = new ArrayList<>();
+        for (ArticleProjection projection : PROJECTIONS) {
+            checkXML(projection, "odd XML", gzip(ODD_XML), differences);
+        }
+        assertTrue(String.join("\n", differences), differences.isEmpty());
+    }
+
+    private static void checkJSON(ArticleProjection projection, String name, byte[] response, List<String> differences)
+            throws IOException {
+        String context = name + " " + projection;
+        ObjectMapper mapper = new ObjectMapper();
+        if (!projection.isAll()) {
+            mapper.registerModule(new ArticleProjectionModule(projection));
+        }
+        JSONResponse expected = mapper.readValue(gunzip(response), JSONResponse.class);
+
+        SampleMetabaseJSONClient client = new SampleMetabaseJSONClient();
+        client.setProjection(projection);
+        compare(context + " response", expected, client.decompressResponse(response), differences);
+
+        List<Object> streamed = new ArrayList<>();
+        new StreamingJSONResponseDecoder(new JsonFactory(), projection)
+                .decode(SLICE, gunzip(response), (slice, article) -> streamed.add(article));
+        compare(context + " streamed", expected.getArticles(), streamed, differences);
+
+        List<com.lexisnexis.bis.moreover.json.metabase.entities.Article> recycled = new ArrayList<>();
+        new StreamingJSONResponseDecoder(new JsonFactory(), projection)
+                .decode(SLICE, gunzip(response), (slice, article) -> recycled.add(article), JSON_POOL);
+        compare(context + " recycled", expected.getArticles(), recycled, differences);
+        JSON_POOL.release(recycled);
+        if (!recycled.isEmpty()) {
+            checkReleased(context, () -> recycled.get(0).getTitle(), differences);
+        }
+    }
+
+    private static void checkXML(ArticleProjection projection, String name, byte[] response, List<String> differences)
+            throws IOException, JAXBException {
+        String context = name + " " + projection;
+        XMLResponse expected = unmarshal(projection, response);
+
+        SampleMetabaseXMLClient client = new SampleMetabaseXMLClient();
+        client.setProjection(projection);
+        compare(context + " response", expected, client.decompressResponse(response), differences);
+
+        List<Object> streamed = new ArrayList<>();
+        new StreamingXMLResponseDecoder(SampleMetabaseXMLClient.newXMLInputFactory(), projection)
+                .decode(SLICE, gunzip(response), (slice, article) -> streamed.add(article));
+        compare(context + " streamed", expected.getArticles().getArticles(), streamed, differences);
+
+        List<com.lexisnexis.bis.moreover.xml.metabase.entities.Article> recycled = new ArrayList<>();
+        new StreamingXMLResponseDecoder(SampleMetabaseXMLClient.newXMLInputFactory(), projection)
+                .decode(SLICE, gunzip(response), (slice, article) -> recycled.add(article), XML_POOL);
+        compare(context + " recycled", expected.getArticles().getArticles(), recycled, differences);
+        XML_POOL.release(recycled);
+        if (!recycled.isEmpty()) {
+            checkReleased(context, () -> recycled.get(0).getTitle(), differences);
+        }
+    }
+
+    /**
+     * Unmarshals a response with JAXB as the XML client did before the generated decoder.
+     */
+    private static XMLResponse unmarshal(ArticleProjection projection, byte[] response) throws IOException, JAXBException {
+        JAXBContext jaxbContext = JAXBContext.newInstance(XMLResponse.class);
+        if (projection.isAll()) {
+            return (XMLResponse) jaxbContext.createUnmarshaller().unmarshal(gunzip(response));
+        }
+        try {
+            XMLStreamReader reader = new ProjectingXMLStreamReader(
+                    SampleMetabaseXMLClient.newXMLInputFactory().createXMLStreamReader(gunzip(response)), projection);
+            try {
+                return (XMLResponse) jaxbContext.createUnmarshaller().unmarshal(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to unmarshal the Metabase response", e);
+        }
+    }
+
+    /**
+     * Checks that reading an article released to a checked pool fails.
+     */
+    private static void checkReleased(String context, Runnable read, List<String> differences) {
+        try {
+            read.run();
+            differences.add(context + " recycled: an article was read after it was released");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Compares two values, the lists element by element and the entities getter by getter.
+     */
+    private static void compare(String path, Object expected, Object actual, List<String> differences) {
+        if (expected == null || actual == null) {
+            if (expected != actual) {
+                differences.add(path + ": expected " + expected + ", got " + actual);
+            }
+            return;
+        }
+        if (expected instanceof List && actual instanceof List) {
+            List<?> expectedList = (List<?>) expected;
+            List<?> actualList = (List<?>) actual;
+            if (expectedList.size() != actualList.size()) {
+                differences.add(path + ": expected " + expectedList.size() + " elements, got " + actualList.size());
+                return;
+            }
+            for (int i = 0; i < expectedList.size(); i++) {
+                compare(path + "[" + i + "]", expectedList.get(i), actualList.get(i), differences);
+            }
+            return;
+        }
+        if (expected.getClass().getName().contains(".metabase.entities.")) {
+            if (expected.getClass() != actual.getClass()) {
+                differences.add(path + ": expected a " + expected.getClass().getName() + ", got " + actual.getClass().getName());
+                return;
+            }
+            for (PropertyDescriptor property : properties(expected.getClass())) {
+                if (property.getReadMethod() == null || "class".equals(property.getName())) {
+                    continue;
+                }
+                try {
+                    compare(path + "." + property.getName(), property.getReadMethod().invoke(expected),
+                            property.getReadMethod().invoke(actual), differences);
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new IllegalStateException("Unable to read " + path + "." + property.getName(), e);
+                }
+            }
+            return;
+        }
+        if (!expected.equals(actual)) {
+            differences.add(path + ": expected [" + expected + "], got [" + actual + "]");
+        }
+    }
+
+    private static PropertyDescriptor[] properties(Class<?> type) {
+        try {
+            BeanInfo beanInfo = Introspector.getBeanInfo(type);
+            return beanInfo.getPropertyDescriptors();
+        } catch (IntrospectionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the name the fixture generator of the benchmarks gives a fixture
+     */
+    private static String fixtureName(int articleCount, String format) {
+        return "articles-" + articleCount + "." + format + ".gz";
+    }
+
+    private static byte[] loadFixture(int articles, String format) throws IOException {
+        String name = "/fixtures/" + fixtureName(articles, format);
+        try (InputStream in = DecoderEquivalenceTest.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private static byte[] gzip(String response) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(response.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static InputStream gunzip(byte[] response) throws IOException {
+        return new GZIPInputStream(new ByteArrayInputStream(response));
+    }
+
+}